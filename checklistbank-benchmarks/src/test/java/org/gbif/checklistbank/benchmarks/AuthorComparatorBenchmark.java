@@ -0,0 +1,86 @@
+package org.gbif.checklistbank.benchmarks;
+
+import org.gbif.checklistbank.authorship.AuthorComparator;
+import org.gbif.checklistbank.authorship.NormalizedAuthorship;
+import org.gbif.checklistbank.model.Equality;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Author and year comparison of real bird name authorships sharing the same epithet.
+ * The prepared variant compares authorships that have been normalized upfront as done by the id lookups.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthorComparatorBenchmark {
+
+  private AuthorComparator comp;
+  private List<String[]> pairs;
+  private List<NormalizedAuthorship[]> prepared;
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int idx;
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    comp = AuthorComparator.createWithAuthormap();
+    pairs = Corpus.authorships();
+    prepared = Lists.newArrayList();
+    for (String[] p : pairs) {
+      prepared.add(new NormalizedAuthorship[]{comp.prepare(p[0], p[1]), comp.prepare(p[2], p[3])});
+    }
+  }
+
+  private String[] next(Cursor c) {
+    c.idx = c.idx + 1 == pairs.size() ? 0 : c.idx + 1;
+    return pairs.get(c.idx);
+  }
+
+  private NormalizedAuthorship[] nextPrepared(Cursor c) {
+    c.idx = c.idx + 1 == prepared.size() ? 0 : c.idx + 1;
+    return prepared.get(c.idx);
+  }
+
+  @Benchmark
+  public Equality compare(Cursor c) {
+    String[] p = next(c);
+    return comp.compare(p[0], p[1], p[2], p[3]);
+  }
+
+  @Benchmark
+  public Equality comparePrepared(Cursor c) {
+    NormalizedAuthorship[] p = nextPrepared(c);
+    return comp.compareRecombination(p[0], p[1]);
+  }
+
+  @Benchmark
+  public Equality compareIdentical(Cursor c) {
+    String[] p = next(c);
+    return comp.compare(p[0], p[1], p[0], p[1]);
+  }
+
+  @Benchmark
+  public boolean compareStrict(Cursor c) {
+    String[] p = next(c);
+    return comp.compareStrict(p[0], p[1], p[2], p[3]);
+  }
+}
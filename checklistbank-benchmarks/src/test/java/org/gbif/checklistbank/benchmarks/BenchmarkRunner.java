@@ -0,0 +1,29 @@
+package org.gbif.checklistbank.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks of this package and writes the results as JSON so they can be archived
+ * and compared between releases. Accepts all regular JMH command line options,
+ * e.g. a benchmark regex or -rff to change the result file which defaults to jmh-result.json.
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions cmd = new CommandLineOptions(args);
+    ChainedOptionsBuilder opts = new OptionsBuilder()
+        .parent(cmd)
+        .resultFormat(ResultFormatType.JSON);
+    if (cmd.getIncludes().isEmpty()) {
+      opts.include(BenchmarkRunner.class.getPackage().getName() + ".*");
+    }
+    if (!cmd.getResult().hasValue()) {
+      opts.result("jmh-result.json");
+    }
+    new Runner(opts.build()).run();
+  }
+}
@@ -0,0 +1,117 @@
+package org.gbif.checklistbank.benchmarks;
+
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.checklistbank.postgres.TabMapperBase;
+import org.gbif.checklistbank.postgres.TabRowMapperBase;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses a postgres COPY stream of 10.000 id lookup rows with the string based TabMapperBase
+ * and the allocation free TabRowMapperBase, written in chunks of 8kb as the jdbc CopyManager does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CopyParserBenchmark {
+  private static final int ROWS = 10000;
+  private static final int CHUNK = 8192;
+  private static final TabRowMapperBase.EnumLookup<Rank> RANKS = new TabRowMapperBase.EnumLookup<>(Rank.class);
+  private static final Rank[] USED_RANKS = {Rank.GENUS, Rank.SPECIES, Rank.SUBSPECIES, Rank.VARIETY, Rank.FAMILY};
+
+  private char[] stream;
+
+  /**
+   * Consumes rows of id, name, authorship, year, rank, kingdom key and deleted flag as strings.
+   */
+  private static class StringMapper extends TabMapperBase {
+    long sum;
+
+    StringMapper() {
+      super(7);
+    }
+
+    @Override
+    protected void addRow(String[] row) {
+      sum += Integer.valueOf(row[0]) + Rank.valueOf(row[4]).ordinal() + Integer.valueOf(row[5]) + ("t".equals(row[6]) ? 1 : 0);
+      if (row[1] != null) {
+        sum += row[1].length();
+      }
+    }
+  }
+
+  /**
+   * Consumes the same rows with the typed accessors.
+   */
+  private static class RowMapper extends TabRowMapperBase {
+    long sum;
+
+    RowMapper() {
+      super(7);
+    }
+
+    @Override
+    protected void addRow() {
+      sum += getInt(0, 0) + getEnum(4, RANKS).ordinal() + getInt(5, 0) + (getBool(6) ? 1 : 0);
+      CharSequence name = getChars(1);
+      if (name != null) {
+        sum += name.length();
+      }
+    }
+  }
+
+  @Setup
+  public void setup() throws IOException {
+    Random rnd = new Random(7);
+    List<String> names = Corpus.names();
+    StringBuilder sb = new StringBuilder();
+    for (int row = 0; row < ROWS; row++) {
+      sb.append(1000000 + row).append('\t')
+          .append(names.get(row % names.size()).replace("\\", "\\\\")).append('\t')
+          .append(rnd.nextBoolean() ? "L." : "").append('\t')
+          .append(rnd.nextBoolean() ? String.valueOf(1750 + rnd.nextInt(250)) : "").append('\t')
+          .append(USED_RANKS[rnd.nextInt(USED_RANKS.length)]).append('\t')
+          .append(rnd.nextInt(9)).append('\t')
+          .append(rnd.nextInt(10) == 0 ? 't' : 'f').append('\n');
+    }
+    stream = sb.toString().toCharArray();
+  }
+
+  private void copy(Writer writer) throws IOException {
+    for (int off = 0; off < stream.length; off += CHUNK) {
+      writer.write(stream, off, Math.min(CHUNK, stream.length - off));
+    }
+  }
+
+  @Benchmark
+  public long strings() throws IOException {
+    StringMapper mapper = new StringMapper();
+    copy(mapper);
+    return mapper.sum;
+  }
+
+  @Benchmark
+  public long rows() throws IOException {
+    RowMapper mapper = new RowMapper();
+    copy(mapper);
+    return mapper.sum;
+  }
+}
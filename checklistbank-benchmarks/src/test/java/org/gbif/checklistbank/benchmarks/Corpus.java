@@ -0,0 +1,105 @@
+package org.gbif.checklistbank.benchmarks;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.utils.file.InputStreamUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+
+/**
+ * Access to the name corpora bundled as test resources.
+ * All files are tab delimited, lines starting with # are ignored.
+ *
+ * <ul>
+ *   <li>corpus/match-queries.txt: scientificName, rank, kingdom, phylum, class, order, family, genus
+ *   taken from the nub matching test index, including misspelled variants and queries without any classification</li>
+ *   <li>corpus/authorships.txt: authorship1, year1, authorship2, year2 of bird names sharing the same epithet</li>
+ *   <li>corpus/names.txt: full scientific bird names with authorship</li>
+ * </ul>
+ */
+public class Corpus {
+  public static final String MATCH_QUERIES = "corpus/match-queries.txt";
+  public static final String AUTHORSHIPS = "corpus/authorships.txt";
+  public static final String NAMES = "corpus/names.txt";
+
+  private Corpus() {
+  }
+
+  /**
+   * Reads all rows of a corpus file, padding each row to the given number of columns with nulls.
+   */
+  public static List<String[]> read(String resource, int columns) throws IOException {
+    List<String[]> rows = Lists.newArrayList();
+    InputStream stream = new InputStreamUtils().classpathStream(resource);
+    if (stream == null) {
+      throw new IOException("Corpus " + resource + " not found in classpath");
+    }
+    try (BufferedReader br = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = br.readLine()) != null) {
+        if (line.isEmpty() || line.startsWith("#")) continue;
+        String[] cols = line.split("\t", -1);
+        String[] row = new String[columns];
+        for (int idx = 0; idx < columns && idx < cols.length; idx++) {
+          row[idx] = Strings.emptyToNull(cols[idx]);
+        }
+        rows.add(row);
+      }
+    }
+    return rows;
+  }
+
+  public static List<String[]> matchQueries() throws IOException {
+    return read(MATCH_QUERIES, 8);
+  }
+
+  public static List<String[]> authorships() throws IOException {
+    return read(AUTHORSHIPS, 4);
+  }
+
+  public static List<String> names() throws IOException {
+    List<String> names = Lists.newArrayList();
+    for (String[] row : read(NAMES, 1)) {
+      names.add(row[0]);
+    }
+    return names;
+  }
+
+  public static Rank rank(String[] query) {
+    return query[1] == null ? null : Rank.valueOf(query[1]);
+  }
+
+  public static Kingdom kingdom(String[] query) {
+    if (query[2] != null) {
+      for (Kingdom k : Kingdom.values()) {
+        if (k.scientificName().equalsIgnoreCase(query[2])) {
+          return k;
+        }
+      }
+    }
+    return Kingdom.INCERTAE_SEDIS;
+  }
+
+  /**
+   * @return the higher classification of a match query
+   */
+  public static NameUsageMatch classification(String[] query) {
+    NameUsageMatch cl = new NameUsageMatch();
+    cl.setKingdom(query[2]);
+    cl.setPhylum(query[3]);
+    cl.setClazz(query[4]);
+    cl.setOrder(query[5]);
+    cl.setFamily(query[6]);
+    cl.setGenus(query[7]);
+    return cl;
+  }
+}
@@ -0,0 +1,66 @@
+package org.gbif.checklistbank.benchmarks;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.nub.lookup.NubMatchingTestModule;
+import org.gbif.nub.lookup.fuzzy.HigherTaxaComparator;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Higher classification comparison with the synonym dictionaries of the nub matching tests,
+ * scoring kingdom to family the same way the matching service does for each candidate.
+ * Query and reference are neighbouring classifications of the match corpus, mostly the same homonym in different groups.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HigherTaxaComparatorBenchmark {
+
+  private HigherTaxaComparator comp;
+  private NameUsageMatch[] classifications;
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int idx;
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    comp = NubMatchingTestModule.provideSynonyms();
+    List<NameUsageMatch> cls = Lists.newArrayList();
+    for (String[] row : Corpus.matchQueries()) {
+      cls.add(Corpus.classification(row));
+    }
+    classifications = cls.toArray(new NameUsageMatch[cls.size()]);
+  }
+
+  @Benchmark
+  public int compareHigherRank(Cursor c) {
+    c.idx = c.idx + 2 >= classifications.length ? 0 : c.idx + 1;
+    NameUsageMatch query = classifications[c.idx];
+    NameUsageMatch ref = classifications[c.idx + 1];
+    int rate = comp.compareHigherRank(Rank.KINGDOM, query, ref, 5, -10, -1);
+    rate += comp.compareHigherRank(Rank.PHYLUM, query, ref, 10, -10, -1);
+    rate += comp.compareHigherRank(Rank.CLASS, query, ref, 15, -10, 0);
+    rate += comp.compareHigherRank(Rank.ORDER, query, ref, 15, -10, 0);
+    rate += comp.compareHigherRank(Rank.FAMILY, query, ref, 25, -15, 0);
+    return rate;
+  }
+}
@@ -0,0 +1,124 @@
+package org.gbif.checklistbank.benchmarks;
+
+import org.gbif.api.exception.UnparsableException;
+import org.gbif.api.model.checklistbank.ParsedName;
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.nameparser.NameParserGbifV1;
+import org.gbif.nub.lookup.straight.IdLookup;
+import org.gbif.nub.lookup.straight.IdLookupImpl;
+import org.gbif.nub.lookup.straight.IdLookupMmap;
+import org.gbif.nub.lookup.straight.LookupUsage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Straight id lookup matching for the heap based mapdb and the memory mapped lookup implementations.
+ * The lookup is populated with every other name of the match corpus, so queries hit and miss equally often.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdLookupBenchmark {
+
+  @Param({"mapdb", "mmap"})
+  public String impl;
+
+  private IdLookup lookup;
+  private Query[] queries;
+
+  static class Query {
+    final String canonical;
+    final String authorship;
+    final String year;
+    final Rank rank;
+    final Kingdom kingdom;
+
+    Query(String canonical, String authorship, String year, Rank rank, Kingdom kingdom) {
+      this.canonical = canonical;
+      this.authorship = authorship;
+      this.year = year;
+      this.rank = rank;
+      this.kingdom = kingdom;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int idx;
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    NameParserGbifV1 parser = new NameParserGbifV1();
+    List<LookupUsage> usages = Lists.newArrayList();
+    List<Query> qs = Lists.newArrayList();
+    int key = 1;
+    for (String[] row : Corpus.matchQueries()) {
+      Rank rank = Corpus.rank(row);
+      try {
+        ParsedName pn = parser.parse(row[0], rank);
+        String canonical = pn.canonicalName();
+        Query q = new Query(canonical, pn.getAuthorship(), pn.getYear(), rank == null ? Rank.UNRANKED : rank, Corpus.kingdom(row));
+        qs.add(q);
+        if (rank != null && qs.size() % 2 == 0) {
+          usages.add(new LookupUsage(key, canonical, q.authorship, q.year, rank, q.kingdom, key % 10 == 0));
+          key++;
+        }
+      } catch (UnparsableException e) {
+        // ignore
+      }
+    }
+    queries = qs.toArray(new Query[qs.size()]);
+    if (impl.equals("mmap")) {
+      lookup = IdLookupMmap.temp().load(usages);
+    } else {
+      lookup = IdLookupImpl.temp().load(usages);
+    }
+  }
+
+  @TearDown
+  public void teardown() throws Exception {
+    lookup.close();
+  }
+
+  private Query next(Cursor c) {
+    c.idx = c.idx + 1 == queries.length ? 0 : c.idx + 1;
+    return queries[c.idx];
+  }
+
+  @Benchmark
+  public LookupUsage match(Cursor c) {
+    Query q = next(c);
+    return lookup.match(q.canonical, q.rank, q.kingdom);
+  }
+
+  @Benchmark
+  public LookupUsage matchAuthorship(Cursor c) {
+    Query q = next(c);
+    return lookup.match(q.canonical, q.authorship, q.year, q.rank, q.kingdom);
+  }
+
+  @Benchmark
+  public List<LookupUsage> matchCanonical(Cursor c) {
+    return lookup.match(next(c).canonical);
+  }
+}
@@ -0,0 +1,77 @@
+package org.gbif.checklistbank.benchmarks;
+
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.nub.lookup.straight.LookupKryoFactory;
+import org.gbif.nub.lookup.straight.LookupUsage;
+import org.gbif.nub.mapdb.MapDbObjectSerializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import it.unimi.dsi.fastutil.ints.Int2IntArrayMap;
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Kryo based mapdb serializer round trips for the lookup usage values stored by the IdLookupImpl.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MapDbSerializerBenchmark {
+
+  private MapDbObjectSerializer<LookupUsage> usageSerializer;
+  private MapDbObjectSerializer<ArrayList> listSerializer;
+  private LookupUsage usage;
+  private ArrayList<LookupUsage> homonyms;
+  private DataOutput2 out;
+
+  @Setup
+  public void setup() throws Exception {
+    usageSerializer = new MapDbObjectSerializer<>(LookupUsage.class, new LookupKryoFactory());
+    listSerializer = new MapDbObjectSerializer<>(ArrayList.class, new LookupKryoFactory());
+    usage = new LookupUsage(1011638, "Abacion tesselatum", "Rafinesque", "1820", Rank.SPECIES, Kingdom.ANIMALIA, false);
+
+    Int2IntArrayMap proParte = new Int2IntArrayMap();
+    proParte.put(7228, 1011637);
+    proParte.put(7229, 1011639);
+    homonyms = new ArrayList<>();
+    homonyms.add(new LookupUsage(2, "Acanthophora", "Hulst", "1896", Rank.GENUS, Kingdom.ANIMALIA, false));
+    homonyms.add(new LookupUsage(3, "Acanthophora", "Borgmeier", "1922", Rank.GENUS, Kingdom.ANIMALIA, false));
+    homonyms.add(new LookupUsage(4, "Acanthophora", "Sollas", "1873", Rank.GENUS, Kingdom.ANIMALIA, true));
+    homonyms.add(new LookupUsage(5, proParte, "Acanthophora", "Merrill", "1918", Rank.GENUS, Kingdom.PLANTAE, false));
+    homonyms.add(new LookupUsage(6, "Acanthophora", "J.V.F. Lamouroux", "1813", Rank.GENUS, Kingdom.PLANTAE, false));
+    out = new DataOutput2();
+  }
+
+  private <T> T roundtrip(MapDbObjectSerializer<T> serializer, T value) throws IOException {
+    out.pos = 0;
+    serializer.serialize(out, value);
+    return serializer.deserialize(new DataInput2.ByteArray(out.buf), out.pos);
+  }
+
+  @Benchmark
+  public LookupUsage usage() throws IOException {
+    return roundtrip(usageSerializer, usage);
+  }
+
+  @Benchmark
+  public ArrayList homonyms() throws IOException {
+    return roundtrip(listSerializer, homonyms);
+  }
+}
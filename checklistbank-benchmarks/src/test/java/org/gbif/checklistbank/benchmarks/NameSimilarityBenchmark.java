@@ -0,0 +1,102 @@
+package org.gbif.checklistbank.benchmarks;
+
+import org.gbif.api.exception.UnparsableException;
+import org.gbif.nameparser.NameParserGbifV1;
+import org.gbif.nub.lookup.similarity.ModifiedDamerauLevenshtein;
+import org.gbif.nub.lookup.similarity.ScientificNameSimilarity;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scientific name similarity and the underlying modified Damerau-Levenshtein edit distance
+ * for pairs of alphabetically neighbouring canonical names of the match corpus,
+ * the same kind of candidates a fuzzy index search returns.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NameSimilarityBenchmark {
+
+  private final ScientificNameSimilarity sim = new ScientificNameSimilarity();
+  private final ModifiedDamerauLevenshtein mdl = new ModifiedDamerauLevenshtein(3);
+  private String[] names;
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int idx;
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    NameParserGbifV1 parser = new NameParserGbifV1();
+    List<String> canonicals = Lists.newArrayList();
+    for (String[] row : Corpus.matchQueries()) {
+      try {
+        String canonical = parser.parse(row[0], Corpus.rank(row)).canonicalName();
+        if (canonical != null) {
+          canonicals.add(canonical);
+        }
+      } catch (UnparsableException e) {
+        // ignore
+      }
+    }
+    Collections.sort(canonicals);
+    names = canonicals.toArray(new String[canonicals.size()]);
+  }
+
+  private int next(Cursor c) {
+    c.idx = c.idx + 2 >= names.length ? 0 : c.idx + 1;
+    return c.idx;
+  }
+
+  @Benchmark
+  public double scientificNameSimilarity(Cursor c) {
+    int idx = next(c);
+    return sim.getSimilarity(names[idx], names[idx + 1]);
+  }
+
+  /**
+   * A query normalized once and scored against the following candidates, as done by the fuzzy matching.
+   */
+  @Benchmark
+  public double preparedScientificNameSimilarity(Cursor c) {
+    int idx = next(c);
+    ScientificNameSimilarity.PreparedName query = sim.prepare(names[idx]);
+    double total = 0;
+    for (int x = idx + 1; x < Math.min(names.length, idx + 11); x++) {
+      total += sim.getSimilarity(query, names[x]);
+    }
+    return total;
+  }
+
+  @Benchmark
+  public int editDistance(Cursor c) {
+    int idx = next(c);
+    return mdl.getEditDistance(names[idx], names[idx + 1]);
+  }
+
+  @Benchmark
+  public int boundedEditDistance(Cursor c) {
+    int idx = next(c);
+    String x1 = names[idx];
+    String x2 = names[idx + 1];
+    return mdl.getEditDistance(x1, 0, x1.length(), x2, 0, x2.length(), 2);
+  }
+}
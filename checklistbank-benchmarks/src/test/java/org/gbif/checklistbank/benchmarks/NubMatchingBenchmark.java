@@ -0,0 +1,84 @@
+package org.gbif.checklistbank.benchmarks;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.nameparser.NameParserGbifV1;
+import org.gbif.nub.lookup.NubMatchingTestModule;
+import org.gbif.nub.lookup.fuzzy.NubIndex;
+import org.gbif.nub.lookup.fuzzy.NubMatchingServiceImpl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the fuzzy nub matching service against the in memory test index
+ * using the queries of the match corpus, including misspellings and queries without classification.
+ * Fuzzy candidates are generated either by the lucene FuzzyQuery or the symspell index.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NubMatchingBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Matcher {
+    @Param({"FUZZY_QUERY", "SYMSPELL"})
+    NubIndex.FuzzyMode fuzzyMode;
+    NubMatchingServiceImpl matcher;
+    List<String[]> queries;
+
+    @Setup
+    public void setup() throws Exception {
+      NubIndex index = NubMatchingTestModule.provideIndex();
+      index.setFuzzyMode(fuzzyMode);
+      matcher = new NubMatchingServiceImpl(index, NubMatchingTestModule.provideSynonyms(), new NameParserGbifV1());
+      queries = Corpus.matchQueries();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int idx;
+
+    String[] next(List<String[]> queries) {
+      idx = idx + 1 == queries.size() ? 0 : idx + 1;
+      return queries.get(idx);
+    }
+  }
+
+  private static NameUsageMatch match(Matcher m, Cursor c, boolean strict) {
+    String[] q = c.next(m.queries);
+    // the classification gets cleaned in place, so always use a new instance as a webservice request would
+    return m.matcher.match(q[0], Corpus.rank(q), Corpus.classification(q), strict, false);
+  }
+
+  @Benchmark
+  public NameUsageMatch match(Matcher m, Cursor c) {
+    return match(m, c, false);
+  }
+
+  @Benchmark
+  public NameUsageMatch matchStrict(Matcher m, Cursor c) {
+    return match(m, c, true);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public NameUsageMatch matchConcurrent(Matcher m, Cursor c) {
+    return match(m, c, false);
+  }
+}
@@ -0,0 +1,61 @@
+package org.gbif.checklistbank.benchmarks;
+
+import org.gbif.checklistbank.utils.SciNameNormalizer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scientific name normalization of full bird names with authorship.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SciNameNormalizerBenchmark {
+
+  private List<String> names;
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int idx;
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    names = Corpus.names();
+  }
+
+  private String next(Cursor c) {
+    c.idx = c.idx + 1 == names.size() ? 0 : c.idx + 1;
+    return names.get(c.idx);
+  }
+
+  @Benchmark
+  public String normalize(Cursor c) {
+    return SciNameNormalizer.normalize(next(c));
+  }
+
+  @Benchmark
+  public String normalizeNoStemming(Cursor c) {
+    return SciNameNormalizer.normalize(next(c), false);
+  }
+
+  @Benchmark
+  public String normalizeAll(Cursor c) {
+    return SciNameNormalizer.normalizeAll(next(c));
+  }
+}
@@ -0,0 +1,227 @@
+package org.gbif.checklistbank.benchmarks;
+
+import org.gbif.api.model.checklistbank.NameUsage;
+import org.gbif.api.model.checklistbank.ParsedName;
+import org.gbif.api.model.checklistbank.VerbatimNameUsage;
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.NameType;
+import org.gbif.api.vocabulary.NameUsageIssue;
+import org.gbif.api.vocabulary.Origin;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.api.vocabulary.TaxonomicStatus;
+import org.gbif.checklistbank.kryo.CliKryoFactory;
+import org.gbif.checklistbank.model.UsageExtensions;
+import org.gbif.checklistbank.nub.model.NubUsage;
+import org.gbif.checklistbank.nub.model.SrcUsage;
+import org.gbif.dwc.terms.DwcTerm;
+import org.gbif.nub.mapdb.MapDbObjectSerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoPool;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+import org.jetbrains.annotations.NotNull;
+import org.mapdb.DataIO;
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
+import org.mapdb.Serializer;
+import org.mapdb.serializer.GroupSerializerObjectArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares mapdb round trips of the UsageDao value types with the sparse field serializers and pooled buffers
+ * against the previous setup using kryo FieldSerializers and a freshly allocated stream per call.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UsageDaoSerializerBenchmark {
+
+  @Param({"sparse", "legacy"})
+  public String serializer;
+
+  private Serializer<NameUsage> usageSerializer;
+  private Serializer<VerbatimNameUsage> verbatimSerializer;
+  private Serializer<NubUsage> nubSerializer;
+  private Serializer<UsageExtensions> extSerializer;
+  private NameUsage usage;
+  private VerbatimNameUsage verbatim;
+  private NubUsage nub;
+  private UsageExtensions ext;
+  private DataOutput2 out;
+
+  @Setup
+  public void setup() throws Exception {
+    KryoPool pool;
+    if (serializer.equals("legacy")) {
+      pool = new KryoPool.Builder(LegacyKryoFactory::create).softReferences().build();
+      usageSerializer = new LegacySerializer<>(NameUsage.class, pool, 256);
+      verbatimSerializer = new LegacySerializer<>(VerbatimNameUsage.class, pool, 512);
+      nubSerializer = new LegacySerializer<>(NubUsage.class, pool, 256);
+      extSerializer = new LegacySerializer<>(UsageExtensions.class, pool, 512);
+    } else {
+      pool = new KryoPool.Builder(new CliKryoFactory()).softReferences().build();
+      usageSerializer = new MapDbObjectSerializer<>(NameUsage.class, pool, 256);
+      verbatimSerializer = new MapDbObjectSerializer<>(VerbatimNameUsage.class, pool, 512);
+      nubSerializer = new MapDbObjectSerializer<>(NubUsage.class, pool, 256);
+      extSerializer = new MapDbObjectSerializer<>(UsageExtensions.class, pool, 512);
+    }
+
+    usage = new NameUsage();
+    usage.setKey(1011638);
+    usage.setParentKey(1011600);
+    usage.setScientificName("Abacion tesselatum Rafinesque, 1820");
+    usage.setCanonicalName("Abacion tesselatum");
+    usage.setRank(Rank.SPECIES);
+    usage.setNameType(NameType.SCIENTIFIC);
+    usage.setTaxonomicStatus(TaxonomicStatus.ACCEPTED);
+    usage.setOrigin(Origin.SOURCE);
+    usage.setTaxonID("urn:lsid:itis.gov:itis_tsn:554381");
+    usage.setPublishedIn("Annals of Nature 1: 10");
+    usage.setConstituentKey(UUID.randomUUID());
+
+    verbatim = new VerbatimNameUsage();
+    verbatim.setKey(1011638);
+    verbatim.setCoreField(DwcTerm.taxonID, "554381");
+    verbatim.setCoreField(DwcTerm.scientificName, "Abacion tesselatum Rafinesque, 1820");
+    verbatim.setCoreField(DwcTerm.taxonRank, "species");
+    verbatim.setCoreField(DwcTerm.taxonomicStatus, "valid");
+    verbatim.setCoreField(DwcTerm.parentNameUsageID, "554380");
+
+    ParsedName pn = new ParsedName();
+    pn.setScientificName("Abacion tesselatum Rafinesque, 1820");
+    pn.setGenusOrAbove("Abacion");
+    pn.setSpecificEpithet("tesselatum");
+    pn.setAuthorship("Rafinesque");
+    pn.setYear("1820");
+    pn.setRank(Rank.SPECIES);
+    pn.setType(NameType.SCIENTIFIC);
+    pn.setParsed(true);
+    SrcUsage src = new SrcUsage();
+    src.key = 554381;
+    src.scientificName = pn.getScientificName();
+    src.parsedName = pn;
+    src.rank = Rank.SPECIES;
+    src.status = TaxonomicStatus.ACCEPTED;
+    nub = new NubUsage(src);
+    nub.usageKey = 1011638;
+    nub.datasetKey = UUID.randomUUID();
+    nub.origin = Origin.SOURCE;
+    nub.kingdom = Kingdom.ANIMALIA;
+    nub.sourceIds.add(554381);
+    nub.issues.add(NameUsageIssue.BACKBONE_MATCH_FUZZY);
+
+    ext = new UsageExtensions();
+    ext.synonyms.add(usage);
+
+    out = new DataOutput2();
+  }
+
+  private <T> T roundtrip(Serializer<T> ser, T value) throws IOException {
+    out.pos = 0;
+    ser.serialize(out, value);
+    return ser.deserialize(new DataInput2.ByteArray(out.buf), out.pos);
+  }
+
+  @Benchmark
+  public NameUsage nameUsage() throws IOException {
+    return roundtrip(usageSerializer, usage);
+  }
+
+  @Benchmark
+  public VerbatimNameUsage verbatim() throws IOException {
+    return roundtrip(verbatimSerializer, verbatim);
+  }
+
+  @Benchmark
+  public NubUsage nubUsage() throws IOException {
+    return roundtrip(nubSerializer, nub);
+  }
+
+  @Benchmark
+  public UsageExtensions extensions() throws IOException {
+    return roundtrip(extSerializer, ext);
+  }
+
+  /**
+   * The CliKryoFactory with the former default FieldSerializers for the UsageDao value types.
+   */
+  private static class LegacyKryoFactory {
+    static Kryo create() {
+      Kryo kryo = new CliKryoFactory().create();
+      for (Class<?> cl : new Class[]{NameUsage.class, VerbatimNameUsage.class, UsageExtensions.class,
+          ParsedName.class, NubUsage.class, SrcUsage.class}) {
+        kryo.register(cl, new FieldSerializer(kryo, cl));
+      }
+      return kryo;
+    }
+  }
+
+  /**
+   * The former MapDbObjectSerializer allocating a new stream, output and byte arrays for every call.
+   */
+  private static class LegacySerializer<T> extends GroupSerializerObjectArray<T> {
+    private final KryoPool pool;
+    private final int bufferSize;
+    private final Class<T> clazz;
+
+    LegacySerializer(Class<T> clazz, KryoPool pool, int bufferSize) {
+      this.pool = pool;
+      this.clazz = clazz;
+      this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public void serialize(@NotNull DataOutput2 out, @NotNull T value) throws IOException {
+      Kryo kryo = pool.borrow();
+      try {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(bufferSize);
+        Output output = new Output(buffer, bufferSize);
+        kryo.writeObject(output, value);
+        output.close();
+        byte[] bytes = buffer.toByteArray();
+        DataIO.packInt(out, bytes.length);
+        out.write(bytes);
+      } finally {
+        pool.release(kryo);
+      }
+    }
+
+    @Override
+    public T deserialize(@NotNull DataInput2 in, int available) throws IOException {
+      Kryo kryo = pool.borrow();
+      try {
+        int size = DataIO.unpackInt(in);
+        byte[] ret = new byte[size];
+        in.readFully(ret);
+        return kryo.readObject(new Input(ret), clazz);
+      } finally {
+        pool.release(kryo);
+      }
+    }
+
+    @Override
+    public int compare(T first, T second) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
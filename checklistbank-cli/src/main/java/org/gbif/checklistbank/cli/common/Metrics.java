@@ -4,8 +4,13 @@ public class Metrics {
 
     public static final String OPEN_FILES = "clb.openfiles";
     public static final String INSERT_METER = "taxon.inserts";
+    public static final String INSERT_READ_METER = "taxon.inserts.read";
+    public static final String INSERT_PARSE_METER = "taxon.inserts.parsed";
     public static final String RELATION_METER = "taxon.relations";
     public static final String METRICS_METER = "taxon.metrics";
     public static final String DENORMED_METER = "taxon.denormed";
+    public static final String CACHE_HITS_METER = "taxon.cache.hits";
+    public static final String CACHE_MISSES_METER = "taxon.cache.misses";
+    public static final String CACHE_HIT_RATE = "taxon.cache.hitrate";
 
 }
@@ -52,6 +52,13 @@ public class NeoConfiguration {
     return new File(neoRepository, "kvp" + File.separator + datasetKey.toString());
   }
 
+  /**
+   * @return the directory keeping the id lookup snapshots of the backbone shared by all cli services
+   */
+  public File idLookupDir() {
+    return new File(neoRepository, "idlookup");
+  }
+
   /**
    * Creates a new embedded db in the neoRepository folder.
    *
@@ -11,6 +11,8 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.inject.Inject;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
 import org.gbif.api.model.Constants;
 import org.gbif.api.model.checklistbank.NameUsage;
 import org.gbif.api.model.checklistbank.NameUsageMetrics;
@@ -62,6 +64,7 @@ public class Importer extends ImportDb implements Runnable, ImporterCallback {
   private int syncCounterMain;
   private int syncCounterBatches;
   private int syncCounterProParte;
+  private int syncCounterChanged;
   private int delCounter;
   private final DatasetImportService sqlService;
   private final DatasetImportService solrService;
@@ -75,11 +78,12 @@ public class Importer extends ImportDb implements Runnable, ImporterCallback {
   private Set<Long> proParteNodes = Sets.newHashSet();
   private int maxExistingNubKey = -1;
   private volatile int firstUsageKey = -1;
-  private Future<List<NameUsage>> proParteFuture;
+  private List<Future<List<NameUsage>>> proParteFutures = Lists.newArrayList();
   private Queue<Future<List<Integer>>> usageFutures = new ConcurrentLinkedQueue<Future<List<Integer>>>();
   private Queue<Future<?>> otherFutures = new ConcurrentLinkedQueue<Future<?>>();
 
   private final KryoPool kryoPool = new KryoPool.Builder(new CliKryoFactory()).build();
+  private final UsageFingerprinter fingerprinter = new UsageFingerprinter();
 
   private enum KeyType {PARENT, ACCEPTED, BASIONYM, CLASSIFICATION}
 
@@ -97,7 +101,7 @@ public class Importer extends ImportDb implements Runnable, ImporterCallback {
   }
 
   /**
-   * @param usageService only needed if you gonna sync the backbone dataset. Tests can usually just pass in null!
+   * @param usageService used to remove old usages and to materialize the classification once all usages are synced
    */
   public static Importer create(ImporterConfiguration cfg, UUID datasetKey,
                                 NameUsageService nameUsageService, UsageService usageService,
@@ -118,7 +122,10 @@ public class Importer extends ImportDb implements Runnable, ImporterCallback {
       awaitProParteFuture();
       // wait for extensions and solr jobs to finish
       awaitOtherFutures();
+      // all usages are in postgres now, materialize their classification
+      usageService.updateParentPaths(datasetKey);
       LOG.info("Importing succeeded. {} main, {} subtree chunk and {} pro parte usages synced", syncCounterMain, syncCounterBatches, syncCounterProParte);
+      LOG.info("{} usages inserted or changed, {} unchanged and {} deleted", syncCounterChanged, getUnchangedCounter(), delCounter);
 
     } catch (InterruptedException e) {
       Throwables.propagate(e);
@@ -154,8 +161,7 @@ public class Importer extends ImportDb implements Runnable, ImporterCallback {
       maxExistingNubKey = high == null ? -1 : high;
       LOG.info("Sync GBIF backbone. Current max nub usageKey={}", maxExistingNubKey);
     }
-    // we keep the very first usage key to retrieve the exact last modified timestamp from the database
-    // in order to avoid clock differences between machines and threads.
+    // we keep the very first usage key to detect empty imports
     firstUsageKey = -1;
     int chunks = 0;
 
@@ -180,7 +186,7 @@ public class Importer extends ImportDb implements Runnable, ImporterCallback {
           syncCounterBatches = syncCounterBatches + batch.size();
           // wait for main future to finish and submit solr update ...
           if (f != null) {
-            otherFutures.add(solrService.sync(datasetKey,this, f.get()));
+            syncSolr(f.get());
             LOG.debug("main nodes synced. Submit solr update");
           }
           // main nodes are in postgres. Now we can submit the sync task for the subtree
@@ -277,7 +283,7 @@ public class Importer extends ImportDb implements Runnable, ImporterCallback {
         }
         // submit sync job
         syncCounterProParte = syncCounterProParte + usages.size();
-        proParteFuture = sqlService.sync(datasetKey, this, usages, names);
+        proParteFutures.add(sqlService.sync(datasetKey, this, usages, names));
       }
     }
   }
@@ -322,22 +328,28 @@ public class Importer extends ImportDb implements Runnable, ImporterCallback {
     return false;
   }
 
-  private void deleteOldUsages() {
-    NameUsage first = nameUsageService.get(firstUsageKey, null);
-    if (first == null || first.getLastInterpreted() == null) {
-      LOG.error("First synced name usage with id {} not found", firstUsageKey);
-      throw new EmptyImportException(datasetKey, "Error importing name usages for dataset " + datasetKey);
+  /**
+   * Removes all usages of the dataset that were not synced in this import.
+   * Unchanged usages are not written at all, so removals are detected by comparing all current usage keys
+   * with the keys reported during this import instead of relying on the last interpretation date.
+   */
+  private void deleteOldUsages() throws ExecutionException, InterruptedException {
+    IntSet synced = new IntOpenHashSet(clbKeys.values());
+    // pro parte usages are synced in the background, wait for their keys
+    for (Future<List<NameUsage>> f : proParteFutures) {
+      for (NameUsage u : f.get()) {
+        synced.add((int) u.getKey());
+      }
     }
-    Calendar cal = Calendar.getInstance();
-    cal.setTime(first.getLastInterpreted());
-    // use 2 seconds before first insert/update as the threshold to remove records
-    cal.add(Calendar.SECOND, -2);
-
-
-    LOG.info("Deleting all usages before {}", cal.getTime());
-    // iterate over all ids to be deleted and remove them from solr first
-    List<Integer> ids = usageService.listOldUsages(datasetKey, cal.getTime());
 
+    List<Integer> ids = Lists.newArrayList();
+    for (Integer key : usageService.listUsages(datasetKey)) {
+      if (!synced.contains((int) key)) {
+        ids.add(key);
+      }
+    }
+    LOG.info("Deleting {} usages not existing anymore", ids.size());
+    // remove them from solr first
     otherFutures.add(solrService.deleteUsages(datasetKey, ids));
     otherFutures.add(sqlService.deleteUsages(datasetKey, ids));
     delCounter = ids.size();
@@ -354,11 +366,12 @@ public class Importer extends ImportDb implements Runnable, ImporterCallback {
   }
 
   private void awaitProParteFuture() throws ExecutionException, InterruptedException {
-    if (proParteFuture != null) {
+    for (Future<List<NameUsage>> f : proParteFutures) {
       // wait for pro parte pg sync.
       // solr doesnt need the parsed names
-      otherFutures.add(solrService.sync(datasetKey, this, proParteFuture.get(), null));
+      otherFutures.add(solrService.sync(datasetKey, this, f.get(), null));
     }
+    proParteFutures.clear();
   }
   /**
    *
@@ -366,8 +379,7 @@ public class Importer extends ImportDb implements Runnable, ImporterCallback {
    */
   private void awaitUsageFutures() throws ExecutionException, InterruptedException {
     for (Future<List<Integer>> f : usageFutures) {
-      List<Integer> ids = f.get();
-      otherFutures.add(solrService.sync(datasetKey, this, ids));
+      syncSolr(f.get());
     }
     usageFutures.clear();
   }
@@ -377,13 +389,23 @@ public class Importer extends ImportDb implements Runnable, ImporterCallback {
     while (iter.hasNext()) {
       Future<List<Integer>> f = iter.next();
       if (f.isDone()) {
-        List<Integer> ids = f.get();
-        otherFutures.add(solrService.sync(datasetKey, this, ids));
+        syncSolr(f.get());
         iter.remove();
       }
     }
   }
 
+  /**
+   * Submits a solr update for usages that have been synced with postgres.
+   * @param ids neo node ids of the inserted or changed usages, unchanged ones are never included
+   */
+  private void syncSolr(List<Integer> ids) {
+    syncCounterChanged = syncCounterChanged + ids.size();
+    if (!ids.isEmpty()) {
+      otherFutures.add(solrService.sync(datasetKey, this, ids));
+    }
+  }
+
   /**
    * @return list of parental clb usage keys
    */
@@ -560,6 +582,11 @@ public class Importer extends ImportDb implements Runnable, ImporterCallback {
     }
   }
 
+  @Override
+  public Long fingerprint(long id, NameUsage usage, ParsedName pn, NameUsageMetrics metrics) {
+    return fingerprinter.fingerprint(usage, pn, metrics, dao.readExtensions(id), dao.readVerbatim(id));
+  }
+
   @Override
   public UsageExtensions readExtensions(long id) {
     return dao.readExtensions(id);
@@ -594,7 +621,7 @@ public class Importer extends ImportDb implements Runnable, ImporterCallback {
     }
     // keep map of node ids to clb usage keys
     clbKeys.put( (int) nodeId, usageKey);
-    // keep reference to first synced record in the db to get the modified timestamp from the db later.
+    // keep reference to first synced record to detect empty imports.
     // this doesnt have to be exact so we do not need to worry about concurrent access much
     if (firstUsageKey < 0) {
       firstUsageKey = usageKey;
@@ -607,8 +634,18 @@ public class Importer extends ImportDb implements Runnable, ImporterCallback {
     otherFutures.add(future);
   }
 
+  /**
+   * @return number of inserted or changed usages incl pro parte usages which are always written
+   */
   public int getSyncCounter() {
-    return syncCounterMain + syncCounterBatches + syncCounterProParte;
+    return syncCounterChanged + syncCounterProParte;
+  }
+
+  /**
+   * @return number of usages which have not been written as they did not change since the last import
+   */
+  public int getUnchangedCounter() {
+    return syncCounterMain + syncCounterBatches - syncCounterChanged;
   }
 
   public int getDelCounter() {
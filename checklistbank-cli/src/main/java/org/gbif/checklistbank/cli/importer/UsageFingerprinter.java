@@ -0,0 +1,96 @@
+package org.gbif.checklistbank.cli.importer;
+
+import org.gbif.api.model.checklistbank.NameUsage;
+import org.gbif.api.model.checklistbank.NameUsageMetrics;
+import org.gbif.api.model.checklistbank.ParsedName;
+import org.gbif.api.model.checklistbank.VerbatimNameUsage;
+import org.gbif.checklistbank.kryo.CliKryoFactory;
+import org.gbif.checklistbank.model.UsageExtensions;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoPool;
+import com.esotericsoftware.kryo.serializers.CollectionSerializer;
+import com.esotericsoftware.kryo.serializers.MapSerializer;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Calculates a content hash over everything the importer writes for a single usage:
+ * the usage itself, its parsed name, metrics, extensions and verbatim data.
+ * <p>
+ * The objects are serialized with kryo, but hash maps and sets are written in a sorted order
+ * as their iteration order depends on the identity hash codes of the enum and term keys
+ * and would change from one jvm to the next.
+ * The usage key is excluded as it is usually only known after a usage has been synced.
+ */
+public class UsageFingerprinter {
+  private static final HashFunction HASH = Hashing.murmur3_128();
+  private static final Comparator<Object> BY_STRING = Comparator.comparing(String::valueOf);
+
+  private final KryoPool pool = new KryoPool.Builder(() -> {
+    Kryo kryo = new CliKryoFactory().create();
+    kryo.register(HashMap.class, new SortedMapSerializer());
+    kryo.register(HashSet.class, new SortedCollectionSerializer());
+    return kryo;
+  }).softReferences().build();
+
+  public long fingerprint(NameUsage u, ParsedName pn, NameUsageMetrics m,
+                          @Nullable UsageExtensions ext, @Nullable VerbatimNameUsage v) {
+    final Integer key = u.getKey();
+    Kryo kryo = pool.borrow();
+    try {
+      u.setKey(null);
+      Output out = new Output(4096, -1);
+      kryo.writeObject(out, u);
+      kryo.writeObject(out, pn);
+      kryo.writeObject(out, m);
+      kryo.writeObjectOrNull(out, ext, UsageExtensions.class);
+      kryo.writeObjectOrNull(out, v, VerbatimNameUsage.class);
+      return HASH.hashBytes(out.getBuffer(), 0, out.position()).asLong();
+
+    } finally {
+      u.setKey(key);
+      pool.release(kryo);
+    }
+  }
+
+  /**
+   * Writes map entries ordered by the string representation of their keys.
+   * Only usable for writing, the read map would not be of the original class.
+   */
+  private static class SortedMapSerializer extends MapSerializer {
+    @Override
+    public void write(Kryo kryo, Output output, Map map) {
+      Map<Object, Object> sorted = new LinkedHashMap<>(map.size());
+      ((Map<Object, Object>) map).entrySet().stream()
+          .sorted(Comparator.comparing(Map.Entry::getKey, BY_STRING))
+          .forEachOrdered(e -> sorted.put(e.getKey(), e.getValue()));
+      super.write(kryo, output, sorted);
+    }
+  }
+
+  /**
+   * Writes collection elements ordered by their string representation.
+   * Only usable for writing, the read collection would not be of the original class.
+   */
+  private static class SortedCollectionSerializer extends CollectionSerializer {
+    @Override
+    public void write(Kryo kryo, Output output, Collection collection) {
+      List<Object> sorted = ((Collection<Object>) collection).stream()
+          .sorted(BY_STRING)
+          .collect(Collectors.toList());
+      super.write(kryo, output, sorted);
+    }
+  }
+}
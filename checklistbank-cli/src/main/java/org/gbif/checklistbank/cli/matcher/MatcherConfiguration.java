@@ -1,5 +1,6 @@
 package org.gbif.checklistbank.cli.matcher;
 
+import org.gbif.checklistbank.cli.common.NeoConfiguration;
 import org.gbif.checklistbank.config.ClbConfiguration;
 import org.gbif.checklistbank.config.GangliaConfiguration;
 import org.gbif.common.messaging.config.MessagingConfiguration;
@@ -23,6 +24,29 @@ public class MatcherConfiguration {
   @Min(1)
   public int poolSize = 1;
 
+  /**
+   * Number of threads used to match a single dataset.
+   * If zero the dataset is copied into neo4j and matched in a single thread,
+   * otherwise usages are streamed from postgres and matched in partitions.
+   */
+  @Parameter(names = "--match-threads")
+  @Min(0)
+  public int matchThreads = 0;
+
+  /**
+   * Minimum number of usages in a partition when matching with several threads.
+   */
+  @Parameter(names = "--partition-size")
+  @Min(1)
+  public int partitionSize = 10000;
+
+  /**
+   * Number of nub relations persisted at once when matching with several threads.
+   */
+  @Parameter(names = "--relation-batch-size")
+  @Min(1)
+  public int relationBatchSize = 10000;
+
   @ParametersDelegate
   @Valid
   @NotNull
@@ -38,6 +62,11 @@ public class MatcherConfiguration {
   @NotNull
   public ClbConfiguration clb = new ClbConfiguration();
 
+  @ParametersDelegate
+  @Valid
+  @NotNull
+  public NeoConfiguration neo = new NeoConfiguration();
+
   @ParametersDelegate
   @Valid
   @NotNull
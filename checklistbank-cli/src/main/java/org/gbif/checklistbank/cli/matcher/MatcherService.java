@@ -15,10 +15,12 @@ import org.gbif.common.messaging.api.messages.ChecklistSyncedMessage;
 import org.gbif.common.messaging.api.messages.MatchDatasetMessage;
 import org.gbif.nub.lookup.straight.DatasetMatchFailed;
 import org.gbif.nub.lookup.straight.IdLookup;
-import org.gbif.nub.lookup.straight.IdLookupImpl;
+import org.gbif.nub.lookup.straight.IdLookupMmap;
+import org.gbif.nub.lookup.straight.IdLookupSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.util.Date;
 
 public class MatcherService extends RabbitDatasetService<MatchDatasetMessage> {
@@ -26,6 +28,8 @@ public class MatcherService extends RabbitDatasetService<MatchDatasetMessage> {
   private static final Logger LOG = LoggerFactory.getLogger(MatcherService.class);
 
   private NubMatchService matcher;
+  private IdLookupSnapshot snapshot;
+  private File lookupFile;
   private static final String QUEUE = "clb-matcher";
   private final DatasetImportService sqlImportService;
   private final DatasetImportService solrImportService;
@@ -47,9 +51,28 @@ public class MatcherService extends RabbitDatasetService<MatchDatasetMessage> {
 
   @Override
   protected void startUpBeforeListening() throws Exception {
-    // loads all nub usages directly from clb postgres - this can take a few minutes
-    IdLookup lookup = IdLookupImpl.temp().load(cfg.clb, false);
-    matcher = new NubMatchService(cfg.clb, lookup, sqlImportService, solrImportService);
+    // maps the shared backbone snapshot, only building it from clb postgres if missing - this can take a few minutes
+    snapshot = new IdLookupSnapshot(cfg.neo.idLookupDir(), false);
+    useLookup(snapshot.update(cfg.clb));
+  }
+
+  private void useLookup(File f) {
+    IdLookup lookup = IdLookupMmap.persistent(f);
+    matcher = new NubMatchService(cfg.clb, lookup, sqlImportService, solrImportService, cfg.matchThreads, cfg.partitionSize, cfg.relationBatchSize);
+    lookupFile = f;
+  }
+
+  /**
+   * Switches to a newer backbone snapshot if one was written since the last dataset.
+   * Running matches keep the previous lookup which gets unmapped once it is garbage collected.
+   */
+  private synchronized NubMatchService currentMatcher() {
+    File latest = snapshot.latest();
+    if (latest != null && !latest.equals(lookupFile)) {
+      LOG.info("Switch to new id lookup snapshot {}", latest);
+      useLookup(latest);
+    }
+    return matcher;
   }
 
   @Override
@@ -62,7 +85,7 @@ public class MatcherService extends RabbitDatasetService<MatchDatasetMessage> {
     final Timer.Context context = timer.time();
     try {
       LOG.info("Start matching dataset {}", msg.getDatasetUuid());
-      DatasetMatchSummary summary = matcher.matchDataset(msg.getDatasetUuid());
+      DatasetMatchSummary summary = currentMatcher().matchDataset(msg.getDatasetUuid());
       LOG.info("Dataset {} matched sucessfully: {}", msg.getDatasetUuid(), summary);
       // now also request new metrics from the analysis step
       //ChecklistSyncedMessage triggers a new dataset analysis
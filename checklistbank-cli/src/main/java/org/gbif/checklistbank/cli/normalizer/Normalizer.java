@@ -9,6 +9,8 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import org.apache.commons.lang3.ObjectUtils;
 import org.gbif.api.model.checklistbank.NameUsage;
 import org.gbif.api.model.checklistbank.VerbatimNameUsage;
@@ -22,6 +24,7 @@ import org.gbif.checklistbank.cli.common.Metrics;
 import org.gbif.checklistbank.cli.model.NameUsageNode;
 import org.gbif.checklistbank.cli.model.RankedName;
 import org.gbif.checklistbank.neo.*;
+import org.gbif.checklistbank.neo.traverse.ChunkingEvaluator;
 import org.gbif.checklistbank.neo.traverse.NubMatchHandler;
 import org.gbif.checklistbank.neo.traverse.Traversals;
 import org.gbif.checklistbank.neo.traverse.TreeWalker;
@@ -63,12 +66,14 @@ public class Normalizer extends ImportDb implements Runnable {
   private final Meter denormedMeter;
   private final Meter metricsMeter;
   private final int batchSize;
+  private final int walkerThreads;
+  private final int parserThreads;
   private InsertMetadata meta;
   private List<String> cycles = Lists.newArrayList();
   private UsageMetricsHandler metricsHandler;
   private NubMatchHandler matchHandler;
 
-  private Normalizer(UUID datasetKey, UsageDao dao, File dwca, int batchSize,
+  private Normalizer(UUID datasetKey, UsageDao dao, File dwca, int batchSize, int walkerThreads, int parserThreads,
                      MetricRegistry registry, Map<String, UUID> constituents, IdLookup lookup) {
     super(datasetKey, dao);
     this.constituents = constituents;
@@ -78,6 +83,8 @@ public class Normalizer extends ImportDb implements Runnable {
     this.dwca = dwca;
     this.lookup = lookup;
     this.batchSize = batchSize;
+    this.walkerThreads = walkerThreads;
+    this.parserThreads = parserThreads;
   }
 
   /**
@@ -90,11 +97,13 @@ public class Normalizer extends ImportDb implements Runnable {
         UsageDao.persistentDao(cfg.neo, datasetKey, registry, true),
         cfg.archiveDir(datasetKey),
         cfg.neo.batchSize,
+        cfg.walkerThreads,
+        cfg.parserThreads,
         registry, constituents, lookup);
   }
 
   public static Normalizer create(UUID datasetKey, UsageDao dao, File dwca, IdLookup lookup, int batchSize) {
-    return new Normalizer(datasetKey, dao, dwca, batchSize, new MetricRegistry(), Maps.newHashMap(), lookup);
+    return new Normalizer(datasetKey, dao, dwca, batchSize, 1, 1, new MetricRegistry(), Maps.newHashMap(), lookup);
   }
 
   /**
@@ -177,7 +186,7 @@ public class Normalizer extends ImportDb implements Runnable {
 
   private void batchInsertData() throws NormalizationFailedException {
     try {
-      NeoInserter inserter = dao.createBatchInserter(batchSize);
+      NeoInserter inserter = dao.createBatchInserter(batchSize, parserThreads);
       try {
         meta = inserter.insert(dwca, constituents);
       } finally {
@@ -515,6 +524,7 @@ public class Normalizer extends ImportDb implements Runnable {
   /**
    * Matches every node to the backbone and calculates a usage metric.
    * This is done jointly as both needs the full Linnean classification for every node.
+   * With more than one walker thread families are walked in parallel without the walk cache which is not thread safe.
    */
   private void buildMetricsAndMatchBackbone() throws NormalizationFailedException {
     checkInterrupted();
@@ -522,7 +532,15 @@ public class Normalizer extends ImportDb implements Runnable {
     metricsHandler = new UsageMetricsHandler(dao);
     matchHandler = new NubMatchHandler(lookup, dao);
     final long before = metricsMeter.getCount();
-    TreeWalker.walkAcceptedTree(dao.getNeo(), null, null, metricsMeter, metricsHandler, matchHandler);
+    if (walkerThreads > 1) {
+      ChunkingEvaluator chunking = new ChunkingEvaluator(Rank.FAMILY);
+      TreeWalker.walkAcceptedTree(dao.getNeo(), chunking, walkerThreads, metricsMeter, metricsHandler, matchHandler);
+    } else {
+      // the cache needs to be the last handler so it only evicts usages once the others are done with them
+      try (WalkCache cache = dao.walkCache()) {
+        TreeWalker.walkAcceptedTree(dao.getNeo(), null, null, metricsMeter, metricsHandler, matchHandler, cache);
+      }
+    }
     final long after = metricsMeter.getCount();
     LOG.info("Walked all {} accepted taxa and built metrics", after - before);
   }
@@ -580,27 +598,46 @@ public class Normalizer extends ImportDb implements Runnable {
 
   /**
    * Creates implicit nodes and sets up relations between taxa.
+   * Transactions are committed in batches of batchSize nodes.
    */
   private void normalize() throws NormalizationFailedException {
     LOG.info("Start processing explicit relations ...");
     int counter = 0;
+    // node ids already processed
+    final LongSet processed = new LongOpenHashSet();
+    final int txSize = Math.max(1, batchSize);
 
     Transaction tx = dao.getNeo().beginTx();
     try {
-      // This iterates over ALL NODES, even the ones created within this loop which trigger a transaction commit!
-      // iteration is by node id starting from node id 1 to highest.
-      // if nodes are created within this loop they receive the highest node id and thus are added to the end of this loop
-      for (Node n : dao.getNeo().getAllNodes()) {
-        setupRelation(n);
-        // inc counters & commit batch
-        counter++;
-        relationMeter.mark();
-        tx = renewTx(tx);
-        if (counter % 10000 == 0) {
-          LOG.debug("Processed relations for {} nodes", counter);
-          // interrupted? then lets get out of here
-          checkInterrupted();
+      // This iterates over ALL NODES, but nodes created within this loop might only be seen by the iterator once committed.
+      // As we commit in batches we repeat the iteration until no more unprocessed nodes are found,
+      // processing the nodes created during the previous pass.
+      boolean unprocessed = true;
+      int pass = 0;
+      while (unprocessed) {
+        unprocessed = false;
+        pass++;
+        for (Node n : dao.getNeo().getAllNodes()) {
+          if (!processed.add(n.getId())) {
+            continue;
+          }
+          unprocessed = true;
+          setupRelation(n);
+          // inc counters & commit batch
+          counter++;
+          relationMeter.mark();
+          if (counter % txSize == 0) {
+            tx = renewTx(tx);
+          }
+          if (counter % 10000 == 0) {
+            LOG.debug("Processed relations for {} nodes", counter);
+            // interrupted? then lets get out of here
+            checkInterrupted();
+          }
         }
+        // commit the remaining batch so nodes created in it are seen by the next pass
+        tx = renewTx(tx);
+        LOG.debug("Finished relation pass {} with {} processed nodes in total", pass, counter);
       }
 
     } finally {
@@ -52,6 +52,21 @@ public class NormalizerConfiguration {
     @Min(1)
     public int poolSize = 3;
 
+    /**
+     * Number of threads to walk the accepted tree with when building metrics and matching to the backbone.
+     * More than one thread walks families in parallel.
+     */
+    @Parameter(names = "--walker-threads")
+    @Min(1)
+    public int walkerThreads = 1;
+
+    /**
+     * Number of threads parsing names and interpreting archive records in parallel while inserting into neo.
+     */
+    @Parameter(names = "--parser-threads")
+    @Min(1)
+    public int parserThreads = 1;
+
     @Parameter(names = "--archive-repository")
     @NotNull
     public File archiveRepository;
@@ -10,8 +10,10 @@ import org.gbif.checklistbank.cli.common.ZookeeperUtils;
 import org.gbif.common.messaging.api.messages.ChecklistNormalizedMessage;
 import org.gbif.common.messaging.api.messages.DwcaMetasyncFinishedMessage;
 import org.gbif.nub.lookup.straight.IdLookup;
-import org.gbif.nub.lookup.straight.IdLookupImpl;
+import org.gbif.nub.lookup.straight.IdLookupMmap;
+import org.gbif.nub.lookup.straight.IdLookupSnapshot;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.UUID;
 
@@ -25,6 +27,8 @@ public class NormalizerService extends RabbitDatasetService<DwcaMetasyncFinished
 
   private final NormalizerConfiguration cfg;
   private final ZookeeperUtils zkUtils;
+  private IdLookupSnapshot snapshot;
+  private File lookupFile;
   private IdLookup lookup;
   private static final String QUEUE = "clb-normalizer";
 
@@ -54,8 +58,25 @@ public class NormalizerService extends RabbitDatasetService<DwcaMetasyncFinished
 
   @Override
   protected void startUpBeforeListening() throws Exception {
-    // loads all nub usages directly from clb postgres - this can take a few minutes
-    lookup = IdLookupImpl.temp().load(cfg.clb, false);
+    // maps the shared backbone snapshot, only building it from clb postgres if missing - this can take a few minutes
+    snapshot = new IdLookupSnapshot(cfg.neo.idLookupDir(), false);
+    lookupFile = snapshot.update(cfg.clb);
+    lookup = IdLookupMmap.persistent(lookupFile);
+  }
+
+  /**
+   * Switches to a newer backbone snapshot if one was written since the last dataset.
+   * The previous lookup is not closed as running normalizers might still use it,
+   * its mapping is released once it is garbage collected.
+   */
+  private synchronized IdLookup currentLookup() {
+    File latest = snapshot.latest();
+    if (latest != null && !latest.equals(lookupFile)) {
+      LOG.info("Switch to new id lookup snapshot {}", latest);
+      lookup = IdLookupMmap.persistent(latest);
+      lookupFile = latest;
+    }
+    return lookup;
   }
 
   @Override
@@ -73,7 +94,7 @@ public class NormalizerService extends RabbitDatasetService<DwcaMetasyncFinished
       LOG.warn("Refuse to normalize the GBIF backbone");
       failed(msg.getDatasetUuid());
     } else {
-      Normalizer normalizer = Normalizer.create(cfg, msg.getDatasetUuid(), getRegistry(), msg.getConstituents(), lookup);
+      Normalizer normalizer = Normalizer.create(cfg, msg.getDatasetUuid(), getRegistry(), msg.getConstituents(), currentLookup());
       normalizer.run();
       if (cfg.zookeeper.isConfigured()) {
         zkUtils.updateCounter(msg.getDatasetUuid(), ZookeeperUtils.PAGES_FRAGMENTED_SUCCESSFUL, 1l);
@@ -62,6 +62,12 @@ public class NubConfiguration {
   @Valid
   public boolean groupBasionyms = false;
 
+  /**
+   * Number of threads detecting basionym groups in families in parallel.
+   */
+  @Min(1)
+  public int basionymThreads = 1;
+
   /**
    * If false autonyms with no other sibling are removed.
    */
@@ -105,4 +111,18 @@ public class NubConfiguration {
   @Min(100)
   public int parserTimeout = 1000;
 
+  /**
+   * Number of threads loading backbone sources in parallel.
+   */
+  @Min(1)
+  public int sourceLoaderThreads = 2;
+
+  /**
+   * Maximum number of backbone sources being loaded or waiting to be processed at any time,
+   * including the one currently processed.
+   * Limits the disk space and memory used by loaded sources when the build is slower than the loaders.
+   */
+  @Min(1)
+  public int maxLoadedSources = 4;
+
 }
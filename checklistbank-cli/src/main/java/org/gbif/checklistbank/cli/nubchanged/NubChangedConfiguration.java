@@ -1,5 +1,6 @@
 package org.gbif.checklistbank.cli.nubchanged;
 
+import org.gbif.checklistbank.cli.common.NeoConfiguration;
 import org.gbif.checklistbank.config.RegistryServiceConfiguration;
 import org.gbif.checklistbank.config.ClbConfiguration;
 import org.gbif.checklistbank.config.GangliaConfiguration;
@@ -33,6 +34,11 @@ public class NubChangedConfiguration {
   @NotNull
   public ClbConfiguration clb = new ClbConfiguration();
 
+  @ParametersDelegate
+  @Valid
+  @NotNull
+  public NeoConfiguration neo = new NeoConfiguration();
+
   @ParametersDelegate
   @NotNull
   @Valid
@@ -15,6 +15,9 @@ import org.gbif.common.messaging.api.MessageCallback;
 import org.gbif.common.messaging.api.MessagePublisher;
 import org.gbif.common.messaging.api.messages.BackboneChangedMessage;
 import org.gbif.common.messaging.api.messages.MatchDatasetMessage;
+import org.gbif.nub.lookup.straight.IdLookupSnapshot;
+
+import java.io.File;
 
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.util.concurrent.AbstractIdleService;
@@ -68,6 +71,9 @@ public class NubChangedService extends AbstractIdleService implements MessageCal
   public void handleMessage(BackboneChangedMessage msg) {
     Dataset nub = nubUpdService.updateBackboneDataset(msg.getMetrics());
 
+    // build the id lookup snapshot for the new backbone once, all other services switch to it
+    updateIdLookup();
+
     // now export the dataset?
     if (cfg.exportNub) {
       Exporter exporter = Exporter.create(cfg.exportRepository, cfg.clb, cfg.registry.wsUrl);
@@ -79,6 +85,15 @@ public class NubChangedService extends AbstractIdleService implements MessageCal
     }
   }
 
+  private void updateIdLookup() {
+    try {
+      File f = new IdLookupSnapshot(cfg.neo.idLookupDir(), false).update(cfg.clb);
+      LOG.info("Id lookup snapshot {} is up to date", f);
+    } catch (Exception e) {
+      LOG.error("Failed to update id lookup snapshot", e);
+    }
+  }
+
   private void rematchChecklists() {
     try {
       LOG.info("Start sending match dataset messages for all checklists, starting with CoL");
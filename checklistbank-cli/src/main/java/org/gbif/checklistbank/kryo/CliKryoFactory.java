@@ -30,11 +30,12 @@ public class CliKryoFactory implements KryoFactory {
     Kryo kryo = new Kryo();
     kryo.setRegistrationRequired(true);
 
-    kryo.register(NameUsage.class);
-    kryo.register(VerbatimNameUsage.class);
+    // hot types stored in the UsageDao kvp stores
+    kryo.register(NameUsage.class, new SparseFieldSerializer<>(NameUsage.class));
+    kryo.register(VerbatimNameUsage.class, new SparseFieldSerializer<>(VerbatimNameUsage.class));
     kryo.register(NameUsageMetrics.class);
-    kryo.register(UsageExtensions.class);
-    kryo.register(ParsedName.class);
+    kryo.register(UsageExtensions.class, new SparseFieldSerializer<>(UsageExtensions.class));
+    kryo.register(ParsedName.class, new SparseFieldSerializer<>(ParsedName.class));
     kryo.register(DatasetMetrics.class);
     kryo.register(Description.class);
     kryo.register(Distribution.class);
@@ -45,10 +46,10 @@ public class CliKryoFactory implements KryoFactory {
     kryo.register(TypeSpecimen.class);
     kryo.register(VernacularName.class);
     // cli specifics
-    kryo.register(NubUsage.class);
+    kryo.register(NubUsage.class, new SparseFieldSerializer<>(NubUsage.class));
     kryo.register(UsageFacts.class);
     kryo.register(Classification.class);
-    kryo.register(SrcUsage.class);
+    kryo.register(SrcUsage.class, new SparseFieldSerializer<>(SrcUsage.class));
 
     // fastutil
     kryo.register(IntArrayList.class);
@@ -0,0 +1,299 @@
+package org.gbif.checklistbank.kryo;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.google.common.collect.Lists;
+
+/**
+ * A field serializer for the large, mostly sparse model classes we keep in the kvp stores of the UsageDao.
+ * The schema is derived once from the declared, non static and non transient fields of the class and its superclasses.
+ *
+ * Fields are written in groups of 8, each group being prefixed by a single byte bitmap flagging the fields present.
+ * Null references and primitives holding their default value are absent and cost a single bit only.
+ * Strings, boxed numbers, dates and uuids are written inline, enums as their ordinal without any class information.
+ * All other values are delegated to kryo including their class so registered serializers still apply.
+ *
+ * Just like the kryo FieldSerializer the format is not version tolerant, i.e. a changed class layout requires the
+ * kvp store to be rebuilt.
+ */
+public class SparseFieldSerializer<T> extends Serializer<T> {
+  private static final int OBJECT = 0;
+  private static final int STRING = 1;
+  private static final int ENUM = 2;
+  private static final int INT = 3;
+  private static final int LONG = 4;
+  private static final int BOOLEAN = 5;
+  private static final int DOUBLE = 6;
+  private static final int FLOAT = 7;
+  private static final int INTEGER_BOX = 8;
+  private static final int LONG_BOX = 9;
+  private static final int BOOLEAN_BOX = 10;
+  private static final int DOUBLE_BOX = 11;
+  private static final int FLOAT_BOX = 12;
+  private static final int DATE = 13;
+  private static final int UUID_TYPE = 14;
+
+  private final Class<T> type;
+  private final Field[] fields;
+  private final int[] kinds;
+  private final Object[][] enumConstants;
+
+  public SparseFieldSerializer(Class<T> type) {
+    this.type = type;
+    List<Field> fs = Lists.newArrayList();
+    collectFields(type, fs);
+    fields = fs.toArray(new Field[fs.size()]);
+    kinds = new int[fields.length];
+    enumConstants = new Object[fields.length][];
+    for (int idx = 0; idx < fields.length; idx++) {
+      Class<?> ft = fields[idx].getType();
+      kinds[idx] = kind(ft);
+      if (kinds[idx] == ENUM) {
+        enumConstants[idx] = ft.getEnumConstants();
+      }
+    }
+  }
+
+  /**
+   * Collects all serializable fields, superclass fields first and each class sorted by field name to get a stable order.
+   */
+  private static void collectFields(Class<?> clazz, List<Field> fields) {
+    if (clazz == null || clazz == Object.class) {
+      return;
+    }
+    collectFields(clazz.getSuperclass(), fields);
+    List<Field> declared = Lists.newArrayList();
+    for (Field f : clazz.getDeclaredFields()) {
+      int mod = f.getModifiers();
+      if (Modifier.isStatic(mod) || Modifier.isTransient(mod) || f.isSynthetic()) {
+        continue;
+      }
+      f.setAccessible(true);
+      declared.add(f);
+    }
+    declared.sort(Comparator.comparing(Field::getName));
+    fields.addAll(declared);
+  }
+
+  private static int kind(Class<?> ft) {
+    if (ft == String.class) return STRING;
+    if (ft.isEnum()) return ENUM;
+    if (ft == int.class) return INT;
+    if (ft == long.class) return LONG;
+    if (ft == boolean.class) return BOOLEAN;
+    if (ft == double.class) return DOUBLE;
+    if (ft == float.class) return FLOAT;
+    if (ft == Integer.class) return INTEGER_BOX;
+    if (ft == Long.class) return LONG_BOX;
+    if (ft == Boolean.class) return BOOLEAN_BOX;
+    if (ft == Double.class) return DOUBLE_BOX;
+    if (ft == Float.class) return FLOAT_BOX;
+    if (ft == Date.class) return DATE;
+    if (ft == UUID.class) return UUID_TYPE;
+    return OBJECT;
+  }
+
+  @Override
+  public void write(Kryo kryo, Output output, T obj) {
+    try {
+      for (int start = 0; start < fields.length; start += 8) {
+        final int end = Math.min(start + 8, fields.length);
+        int bits = 0;
+        for (int idx = start; idx < end; idx++) {
+          if (isPresent(idx, obj)) {
+            bits |= 1 << (idx - start);
+          }
+        }
+        output.writeByte(bits);
+        for (int idx = start; idx < end; idx++) {
+          if ((bits & (1 << (idx - start))) != 0) {
+            writeField(kryo, output, idx, obj);
+          }
+        }
+      }
+    } catch (IllegalAccessException e) {
+      throw new KryoException("Cannot access field of " + type.getName(), e);
+    }
+  }
+
+  private boolean isPresent(int idx, T obj) throws IllegalAccessException {
+    final Field f = fields[idx];
+    switch (kinds[idx]) {
+      case INT:
+        return f.getInt(obj) != 0;
+      case LONG:
+        return f.getLong(obj) != 0;
+      case BOOLEAN:
+        return f.getBoolean(obj);
+      case DOUBLE:
+        return Double.doubleToRawLongBits(f.getDouble(obj)) != 0;
+      case FLOAT:
+        return Float.floatToRawIntBits(f.getFloat(obj)) != 0;
+      default:
+        // other primitives are always written
+        return f.getType().isPrimitive() || f.get(obj) != null;
+    }
+  }
+
+  private void writeField(Kryo kryo, Output output, int idx, T obj) throws IllegalAccessException {
+    final Field f = fields[idx];
+    switch (kinds[idx]) {
+      case STRING:
+        output.writeString((String) f.get(obj));
+        break;
+      case ENUM:
+        output.writeVarInt(((Enum<?>) f.get(obj)).ordinal(), true);
+        break;
+      case INT:
+        output.writeVarInt(f.getInt(obj), false);
+        break;
+      case LONG:
+        output.writeVarLong(f.getLong(obj), false);
+        break;
+      case BOOLEAN:
+        // presence bit is the value
+        break;
+      case DOUBLE:
+        output.writeDouble(f.getDouble(obj));
+        break;
+      case FLOAT:
+        output.writeFloat(f.getFloat(obj));
+        break;
+      case INTEGER_BOX:
+        output.writeVarInt((Integer) f.get(obj), false);
+        break;
+      case LONG_BOX:
+        output.writeVarLong((Long) f.get(obj), false);
+        break;
+      case BOOLEAN_BOX:
+        output.writeBoolean((Boolean) f.get(obj));
+        break;
+      case DOUBLE_BOX:
+        output.writeDouble((Double) f.get(obj));
+        break;
+      case FLOAT_BOX:
+        output.writeFloat((Float) f.get(obj));
+        break;
+      case DATE:
+        output.writeVarLong(((Date) f.get(obj)).getTime(), false);
+        break;
+      case UUID_TYPE:
+        UUID uuid = (UUID) f.get(obj);
+        output.writeLong(uuid.getMostSignificantBits());
+        output.writeLong(uuid.getLeastSignificantBits());
+        break;
+      default:
+        kryo.writeClassAndObject(output, f.get(obj));
+    }
+  }
+
+  @Override
+  public T read(Kryo kryo, Input input, Class<T> clazz) {
+    T obj = kryo.newInstance(clazz);
+    kryo.reference(obj);
+    try {
+      for (int start = 0; start < fields.length; start += 8) {
+        final int end = Math.min(start + 8, fields.length);
+        final int bits = input.readByte() & 0xFF;
+        for (int idx = start; idx < end; idx++) {
+          if ((bits & (1 << (idx - start))) != 0) {
+            readField(kryo, input, idx, obj);
+          } else {
+            clearField(idx, obj);
+          }
+        }
+      }
+    } catch (IllegalAccessException e) {
+      throw new KryoException("Cannot access field of " + type.getName(), e);
+    }
+    return obj;
+  }
+
+  private void readField(Kryo kryo, Input input, int idx, T obj) throws IllegalAccessException {
+    final Field f = fields[idx];
+    switch (kinds[idx]) {
+      case STRING:
+        f.set(obj, input.readString());
+        break;
+      case ENUM:
+        f.set(obj, enumConstants[idx][input.readVarInt(true)]);
+        break;
+      case INT:
+        f.setInt(obj, input.readVarInt(false));
+        break;
+      case LONG:
+        f.setLong(obj, input.readVarLong(false));
+        break;
+      case BOOLEAN:
+        f.setBoolean(obj, true);
+        break;
+      case DOUBLE:
+        f.setDouble(obj, input.readDouble());
+        break;
+      case FLOAT:
+        f.setFloat(obj, input.readFloat());
+        break;
+      case INTEGER_BOX:
+        f.set(obj, input.readVarInt(false));
+        break;
+      case LONG_BOX:
+        f.set(obj, input.readVarLong(false));
+        break;
+      case BOOLEAN_BOX:
+        f.set(obj, input.readBoolean());
+        break;
+      case DOUBLE_BOX:
+        f.set(obj, input.readDouble());
+        break;
+      case FLOAT_BOX:
+        f.set(obj, input.readFloat());
+        break;
+      case DATE:
+        f.set(obj, new Date(input.readVarLong(false)));
+        break;
+      case UUID_TYPE:
+        f.set(obj, new UUID(input.readLong(), input.readLong()));
+        break;
+      default:
+        f.set(obj, kryo.readClassAndObject(input));
+    }
+  }
+
+  /**
+   * Resets absent fields as the constructor might have initialized them with non default values.
+   */
+  private void clearField(int idx, T obj) throws IllegalAccessException {
+    final Field f = fields[idx];
+    switch (kinds[idx]) {
+      case INT:
+        f.setInt(obj, 0);
+        break;
+      case LONG:
+        f.setLong(obj, 0);
+        break;
+      case BOOLEAN:
+        f.setBoolean(obj, false);
+        break;
+      case DOUBLE:
+        f.setDouble(obj, 0);
+        break;
+      case FLOAT:
+        f.setFloat(obj, 0);
+        break;
+      default:
+        if (!f.getType().isPrimitive()) {
+          f.set(obj, null);
+        }
+    }
+  }
+}
@@ -36,6 +36,7 @@ import org.gbif.dwc.record.Record;
 import org.gbif.dwc.record.StarRecord;
 import org.gbif.nameparser.NameParserGbifV1;
 import org.gbif.utils.ObjectUtils;
+import org.gbif.utils.concurrent.NamedThreadFactory;
 import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
 import org.neo4j.kernel.lifecycle.LifecycleException;
 import org.neo4j.unsafe.batchinsert.BatchInserter;
@@ -46,20 +47,38 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 
 import static org.gbif.dwc.terms.GbifTerm.datasetKey;
 
 /**
- *
+ * Batch inserts all records of a dwc archive into a new neo db and the kvp store.
+ * <p>
+ * Inserts are pipelined in 3 stages connected by bounded queues:
+ * a single reader copying archive records into verbatim usages,
+ * parallel workers parsing names and interpreting the verbatim data
+ * and a single writer feeding the neo batch inserter and the dao in the original archive order.
  */
 public class NeoInserter implements AutoCloseable {
 
   private static final Logger LOG = LoggerFactory.getLogger(NeoInserter.class);
   private static final Pattern NULL_PATTERN = Pattern.compile("^\\s*(\\\\N|\\\\?NULL)\\s*$");
   private static final TermFactory TF = TermFactory.instance();
+  // number of records read ahead per worker thread before the reader blocks
+  private static final int QUEUE_SIZE_PER_THREAD = 1000;
+  private static final Future<InsertRecord> END_OF_ARCHIVE = CompletableFuture.completedFuture(null);
 
   private Archive arch;
   private Map<String, UUID> constituents;
@@ -71,18 +90,43 @@ public class NeoInserter implements AutoCloseable {
   private ExtensionInterpreter extensionInterpreter = new ExtensionInterpreter();
   private final BatchInserter inserter;
   private final int batchSize;
+  private final int threads;
+  private final Meter readMeter;
+  private final Meter parseMeter;
   private final Meter insertMeter;
   private final Map<Term, Extension> extensions;
   private final UsageDao dao;
 
-  private NeoInserter(UsageDao dao, File storeDir, int batchSize, @Nullable Meter insertMeter) throws IOException {
+  /**
+   * A single archive record passing through the insert pipeline.
+   */
+  private static class InsertRecord {
+    private final String id;
+    private final VerbatimNameUsage v;
+    private ParsedNameUsageCompound pnu;
+    private UsageExtensions ext;
+    private Map<String, Object> props;
+    // reason for ignoring the record, null if valid
+    private String ignored;
+
+    InsertRecord(String id, VerbatimNameUsage v) {
+      this.id = id;
+      this.v = v;
+    }
+  }
+
+  private NeoInserter(UsageDao dao, File storeDir, int batchSize, int threads, @Nullable MetricRegistry registry) throws IOException {
     Preconditions.checkNotNull(dao, "DAO required");
+    Preconditions.checkArgument(threads > 0, "At least one parser thread required");
     LOG.info("Creating new neo db at {}", storeDir.getAbsolutePath());
     this.dao = dao;
     initNeoDir(storeDir);
     inserter = BatchInserters.inserter(storeDir);
     this.batchSize = batchSize;
-    this.insertMeter = insertMeter;
+    this.threads = threads;
+    this.readMeter = registry == null ? null : registry.meter(Metrics.INSERT_READ_METER);
+    this.parseMeter = registry == null ? null : registry.meter(Metrics.INSERT_PARSE_METER);
+    this.insertMeter = registry == null ? null : registry.meter(Metrics.INSERT_METER);
     extensions = Maps.newHashMap();
     for (Extension e : Extension.values()) {
       extensions.put(TF.findTerm(e.getRowType()), e);
@@ -90,85 +134,178 @@ public class NeoInserter implements AutoCloseable {
   }
 
   public static NeoInserter create(UsageDao dao, File storeDir, int batchSize, @Nullable MetricRegistry registry) throws IOException {
-    return new NeoInserter(dao, storeDir, batchSize, registry == null ? null : registry.meter(Metrics.INSERT_METER));
+    return create(dao, storeDir, batchSize, 1, registry);
+  }
+
+  /**
+   * @param threads number of threads parsing names and interpreting records in parallel
+   */
+  public static NeoInserter create(UsageDao dao, File storeDir, int batchSize, int threads, @Nullable MetricRegistry registry) throws IOException {
+    return new NeoInserter(dao, storeDir, batchSize, threads, registry);
   }
 
   public InsertMetadata insert(File dwca, Map<String, UUID> constituents) throws NormalizationFailedException {
     this.constituents = constituents;
     openArchive(dwca);
-    for (StarRecord star : arch) {
-      insertStarRecord(star);
+    final BlockingQueue<Future<InsertRecord>> queue = new ArrayBlockingQueue<>(threads * QUEUE_SIZE_PER_THREAD);
+    final ExecutorService parsers = Executors.newFixedThreadPool(threads, new NamedThreadFactory("neo-inserter-parser"));
+    final Throwable[] readError = new Throwable[1];
+    // set once the writer stops taking records from the queue
+    final AtomicBoolean stopped = new AtomicBoolean(false);
+    // the reader only submits records with a slot in the bounded queue so the parsers cannot run away either
+    Thread reader = new Thread(() -> {
+      boolean interrupted = false;
+      try {
+        for (StarRecord star : arch) {
+          final InsertRecord rec = read(star);
+          if (readMeter != null) {
+            readMeter.mark();
+          }
+          queue.put(parsers.submit(() -> interpret(rec)));
+        }
+      } catch (InterruptedException e) {
+        interrupted = true;
+        LOG.debug("Archive reader interrupted");
+      } catch (Throwable e) {
+        readError[0] = e;
+      } finally {
+        // signal the end only while the writer still takes records, otherwise a full queue would block us forever
+        try {
+          while (!interrupted && !stopped.get() && !queue.offer(END_OF_ARCHIVE, 1, TimeUnit.SECONDS)) {
+            LOG.debug("Queue full, waiting to signal the end of the archive");
+          }
+        } catch (InterruptedException e) {
+          LOG.debug("Archive reader interrupted");
+        }
+      }
+    }, "neo-inserter-reader");
+    reader.setDaemon(true);
+    reader.start();
+
+    try {
+      Future<InsertRecord> f;
+      while ((f = queue.take()) != END_OF_ARCHIVE) {
+        try {
+          write(f.get());
+        } catch (ExecutionException e) {
+          throw new NormalizationFailedException("Failed to interpret record", e.getCause());
+        }
+      }
+      reader.join();
+      if (readError[0] != null) {
+        throw new NormalizationFailedException("Failed to read archive " + dwca.getAbsolutePath(), readError[0]);
+      }
+
+    } catch (InterruptedException e) {
+      LOG.warn("NeoInserter interrupted, exit {} early with incomplete parsing", datasetKey);
+      throw new NormalizationFailedException("NeoInserter interrupted");
+
+    } finally {
+      stopped.set(true);
+      reader.interrupt();
+      parsers.shutdownNow();
+      // cancel records still waiting to be parsed if we exit early
+      List<Future<InsertRecord>> pending = Lists.newArrayList();
+      queue.drainTo(pending);
+      for (Future<InsertRecord> p : pending) {
+        p.cancel(true);
+      }
     }
+
     LOG.info("Data insert completed, {} nodes created", meta.getRecords());
     if (insertMeter != null) {
-      LOG.info("Insert rate: {}", insertMeter.getMeanRate());
+      LOG.info("Read rate: {}, parse rate: {}, insert rate: {}", readMeter.getMeanRate(), parseMeter.getMeanRate(), insertMeter.getMeanRate());
     }
     return meta;
   }
 
   @VisibleForTesting
   protected void insertStarRecord(StarRecord star) throws NormalizationFailedException {
+    write(interpret(read(star)));
+  }
 
-    try {
-      VerbatimNameUsage v = new VerbatimNameUsage();
-
-      // set core props
-      Record core = star.core();
-      for (Term t : core.terms()) {
-        String val = clean(core.value(t));
-        if (val != null) {
-          v.setCoreField(t, val);
-        }
+  /**
+   * Copies all cleaned core and extension values of a star record into a new verbatim usage.
+   */
+  private InsertRecord read(StarRecord star) {
+    VerbatimNameUsage v = new VerbatimNameUsage();
+
+    // set core props
+    Record core = star.core();
+    for (Term t : core.terms()) {
+      String val = clean(core.value(t));
+      if (val != null) {
+        v.setCoreField(t, val);
       }
-      // make sure this is last to override already put taxonID keys
-      v.setCoreField(DwcTerm.taxonID, taxonID(core));
-      // readUsage extensions data
-      for (Map.Entry<Term, Extension> ext : extensions.entrySet()) {
-        if (star.hasExtension(ext.getKey())) {
-          v.getExtensions().put(ext.getValue(), Lists.<Map<Term, String>>newArrayList());
-          for (Record eRec : star.extension(ext.getKey())) {
-            Map<Term, String> data = Maps.newHashMap();
-            for (Term t : eRec.terms()) {
-              String val = clean(eRec.value(t));
-              if (val != null) {
-                data.put(t, val);
-              }
+    }
+    // make sure this is last to override already put taxonID keys
+    v.setCoreField(DwcTerm.taxonID, taxonID(core));
+    // readUsage extensions data
+    for (Map.Entry<Term, Extension> ext : extensions.entrySet()) {
+      if (star.hasExtension(ext.getKey())) {
+        v.getExtensions().put(ext.getValue(), Lists.<Map<Term, String>>newArrayList());
+        for (Record eRec : star.extension(ext.getKey())) {
+          Map<Term, String> data = Maps.newHashMap();
+          for (Term t : eRec.terms()) {
+            String val = clean(eRec.value(t));
+            if (val != null) {
+              data.put(t, val);
             }
-            v.getExtensions().get(ext.getValue()).add(data);
           }
+          v.getExtensions().get(ext.getValue()).add(data);
         }
       }
-      // convert into a NameUsage interpreting all enums and other needed types
-      // creates a ParsedName from various verbatim options
-      ParsedNameUsageCompound pnu = buildUsage(v);
-      final NameUsage u = pnu.usage;
-      UsageExtensions ext = extensionInterpreter.interpret(u, v);
-
-      // and batch insert key neo properties used during normalization
-      Map<String, Object> props = dao.neoProperties(core.id(), u, v);
-      long nodeId = inserter.createNode(props, Labels.TAXON, u.isSynonym() ? Labels.SYNONYM : Labels.TAXON);
-      // store verbatim instance
-      dao.store(nodeId, v);
-      dao.store(nodeId, u, false);
-      dao.store(nodeId, pnu.parsedName);
-      dao.store(nodeId, ext);
-
-      meta.incRecords();
-      meta.incRank(u.getRank());
-      if (insertMeter != null) {
-        insertMeter.mark();
-      }
-      if (meta.getRecords() % (batchSize * 10) == 0) {
-        LOG.info("Inserts done into neo4j: {}", meta.getRecords());
-        if (Thread.interrupted()) {
-          LOG.warn("NeoInserter interrupted, exit {} early with incomplete parsing", datasetKey);
-          throw new NormalizationFailedException("NeoInserter interrupted");
-        }
-      }
+    }
+    return new InsertRecord(core.id(), v);
+  }
 
+  /**
+   * Converts the verbatim data into a NameUsage interpreting all enums and other needed types,
+   * creates a ParsedName from various verbatim options and interprets the extensions.
+   * This is safe to be called concurrently.
+   */
+  private InsertRecord interpret(InsertRecord rec) {
+    try {
+      rec.pnu = buildUsage(rec.v);
+      rec.ext = extensionInterpreter.interpret(rec.pnu.usage, rec.v);
+      rec.props = dao.neoProperties(rec.id, rec.pnu.usage, rec.v);
     } catch (IgnoreNameUsageException e) {
+      rec.ignored = e.getMessage();
+    }
+    if (parseMeter != null) {
+      parseMeter.mark();
+    }
+    return rec;
+  }
+
+  /**
+   * Batch inserts the key neo properties used during normalization and stores all instances in the dao.
+   */
+  private void write(InsertRecord rec) throws NormalizationFailedException {
+    if (rec.ignored != null) {
       meta.incIgnored();
-      LOG.info("Ignoring record {}: {}", star.core().id(), e.getMessage());
+      LOG.info("Ignoring record {}: {}", rec.id, rec.ignored);
+      return;
+    }
+    final NameUsage u = rec.pnu.usage;
+    long nodeId = inserter.createNode(rec.props, Labels.TAXON, u.isSynonym() ? Labels.SYNONYM : Labels.TAXON);
+    // store verbatim instance
+    dao.store(nodeId, rec.v);
+    dao.store(nodeId, u, false);
+    dao.store(nodeId, rec.pnu.parsedName);
+    dao.store(nodeId, rec.ext);
+
+    meta.incRecords();
+    meta.incRank(u.getRank());
+    if (insertMeter != null) {
+      insertMeter.mark();
+    }
+    if (meta.getRecords() % (batchSize * 10) == 0) {
+      LOG.info("Inserts done into neo4j: {}", meta.getRecords());
+      if (Thread.interrupted()) {
+        LOG.warn("NeoInserter interrupted, exit {} early with incomplete parsing", datasetKey);
+        throw new NormalizationFailedException("NeoInserter interrupted");
+      }
     }
   }
 
@@ -1,9 +1,12 @@
 package org.gbif.checklistbank.neo;
 
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
 import com.esotericsoftware.kryo.pool.KryoPool;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
 import com.google.common.io.Files;
 import org.apache.commons.io.FileUtils;
@@ -15,6 +18,7 @@ import org.gbif.api.vocabulary.NameUsageIssue;
 import org.gbif.api.vocabulary.Origin;
 import org.gbif.api.vocabulary.Rank;
 import org.gbif.api.vocabulary.TaxonomicStatus;
+import org.gbif.checklistbank.cli.common.Metrics;
 import org.gbif.checklistbank.cli.common.NeoConfiguration;
 import org.gbif.checklistbank.cli.model.GraphFormat;
 import org.gbif.checklistbank.cli.model.NameUsageNode;
@@ -56,6 +60,10 @@ import java.util.UUID;
 public class UsageDao implements AutoCloseable {
 
   private static final Logger LOG = LoggerFactory.getLogger(UsageDao.class);
+  /**
+   * Default number of usages read during tree walks which are not on the current walk path, e.g. synonyms, to cache.
+   */
+  public static final int WALK_CACHE_SIZE = 10000;
   private static final KryoPool KPOOL = new KryoPool.Builder(new CliKryoFactory())
       .softReferences()
       .build();
@@ -74,6 +82,9 @@ public class UsageDao implements AutoCloseable {
   private final File neoDir;
   private final File kvpStore;
   private final Joiner remarkJoiner = Joiner.on("\n").skipNulls();
+  private final Meter cacheHits;
+  private final Meter cacheMisses;
+  private WalkCache cache;
 
   /**
    * @param kvp
@@ -88,6 +99,20 @@ public class UsageDao implements AutoCloseable {
       this.kvpStore = kvpStore;
       this.kvp = kvp;
       this.registry = registry;
+      if (registry == null) {
+        cacheHits = new Meter();
+        cacheMisses = new Meter();
+      } else {
+        cacheHits = registry.meter(Metrics.CACHE_HITS_METER);
+        cacheMisses = registry.meter(Metrics.CACHE_MISSES_METER);
+        registry.remove(Metrics.CACHE_HIT_RATE);
+        registry.register(Metrics.CACHE_HIT_RATE, new RatioGauge() {
+          @Override
+          protected Ratio getRatio() {
+            return Ratio.of(cacheHits.getCount(), cacheHits.getCount() + cacheMisses.getCount());
+          }
+        });
+      }
 
       names = createKvpMap("names", ParsedName.class, 128);
       facts = createKvpMap("facts", UsageFacts.class, 128);
@@ -318,8 +343,16 @@ public class UsageDao implements AutoCloseable {
    * Make sure you do not access any other dao methods until the batch inserter was closed properly!
    */
   public NeoInserter createBatchInserter(int batchSize) throws IOException {
+    return createBatchInserter(batchSize, 1);
+  }
+
+  /**
+   * @param threads number of threads parsing and interpreting archive records in parallel
+   * @see #createBatchInserter(int)
+   */
+  public NeoInserter createBatchInserter(int batchSize, int threads) throws IOException {
     closeNeo();
-    return NeoInserter.create(this, neoDir, batchSize, registry);
+    return NeoInserter.create(this, neoDir, batchSize, threads, registry);
   }
 
   public Transaction beginTx() {
@@ -451,21 +484,67 @@ public class UsageDao implements AutoCloseable {
     return null;
   }
 
+  /**
+   * Activates a read through cache for usages and parsed names for the duration of a tree walk.
+   * Add the returned cache as the last handler to the walk and close it once the walk is done.
+   * While the cache is active usages and names returned by this dao are shared instances.
+   *
+   * @param size the maximum number of usages not on the current walk path to keep
+   */
+  public WalkCache walkCache(int size) {
+    Preconditions.checkState(cache == null, "Walk cache already active");
+    cache = new WalkCache(this, size, cacheHits, cacheMisses);
+    return cache;
+  }
+
+  public WalkCache walkCache() {
+    return walkCache(WALK_CACHE_SIZE);
+  }
+
+  void detach(WalkCache wc) {
+    if (cache == wc) {
+      cache = null;
+    }
+  }
+
+  void writeUsage(long key, NameUsage u) {
+    usages.put(key, u);
+  }
+
+  void writeName(long key, ParsedName pn) {
+    names.put(key, pn);
+  }
+
   public ParsedName readName(long key) {
+    if (cache != null) {
+      return cache.readName(key, names::get);
+    }
     return names.get(key);
   }
 
   public void store(long key, ParsedName pn) {
-    names.put(key, pn);
+    if (cache == null || !cache.storeName(key, pn)) {
+      names.put(key, pn);
+    }
   }
 
   /**
    * Reads a node into a name usage instance with keys being the node ids long values based on the neo relations.
    * The bulk of the usage data comes from the KVP store and neo properties are overlayed.
+   * Usages read with their relations are always new instances that are never cached.
    */
   public NameUsage readUsage(Node n, boolean readRelations) {
-    if (usages.containsKey(n.getId())) {
-      NameUsage u = usages.get(n.getId());
+    NameUsage u;
+    if (cache == null) {
+      u = usages.get(n.getId());
+    } else if (readRelations) {
+      // make sure we read the latest version
+      cache.flushUsage(n.getId());
+      u = usages.get(n.getId());
+    } else {
+      u = cache.readUsage(n.getId(), usages::get);
+    }
+    if (u != null) {
       if (n.hasLabel(Labels.SYNONYM) && !u.isSynonym()) {
         u.setTaxonomicStatus(TaxonomicStatus.SYNONYM);
       }
@@ -548,7 +627,7 @@ public class UsageDao implements AutoCloseable {
    * @param updateNeo if true also update the neo4j properties used to populate NeoTaxon instances and the underlying lucene indices
    */
   public void store(long key, NameUsage u, boolean updateNeo) {
-    usages.put(key, u);
+    storeUsage(key, u);
     if (updateNeo) {
       // update neo with indexed properties
       updateNeo(neo.getNodeById(key), u);
@@ -561,7 +640,7 @@ public class UsageDao implements AutoCloseable {
    */
   public void store(NameUsageNode nn, boolean updateNeo) {
     if (nn.modified) {
-      usages.put(nn.node.getId(), nn.usage);
+      storeUsage(nn.node.getId(), nn.usage);
       if (updateNeo) {
         // update neo with indexed properties
         updateNeo(nn.node, nn.usage);
@@ -569,6 +648,12 @@ public class UsageDao implements AutoCloseable {
     }
   }
 
+  private void storeUsage(long key, NameUsage u) {
+    if (cache == null || !cache.storeUsage(key, u)) {
+      usages.put(key, u);
+    }
+  }
+
   /**
    * Stores verbatim usage using its key
    */
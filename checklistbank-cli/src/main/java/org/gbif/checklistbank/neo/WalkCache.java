@@ -0,0 +1,197 @@
+package org.gbif.checklistbank.neo;
+
+import org.gbif.api.model.checklistbank.NameUsage;
+import org.gbif.api.model.checklistbank.ParsedName;
+import org.gbif.checklistbank.neo.traverse.StartEndHandler;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongFunction;
+
+import com.codahale.metrics.Meter;
+import com.google.common.base.Preconditions;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.neo4j.graphdb.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A read through cache of decoded name usages and parsed names used by the UsageDao during tree walks,
+ * so handlers reading the same usage in their start and end events do not deserialize it from the kvp store every time.
+ * <p>
+ * Nodes on the current walk path are kept until the walk leaves them, i.e. their end event.
+ * All other nodes read during the walk, e.g. synonyms, are kept in a small LRU cache of limited size.
+ * Usages and names stored while being cached are only written back to the kvp store once they leave the cache.
+ * <p>
+ * Add the cache as the very last handler to a tree walk and close it afterwards to flush all remaining modifications.
+ * The cache is not thread safe.
+ */
+public class WalkCache implements StartEndHandler, AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(WalkCache.class);
+
+  private final UsageDao dao;
+  private final Long2ObjectMap<Entry> path = new Long2ObjectOpenHashMap<>();
+  private final LinkedHashMap<Long, Entry> others;
+  private final Meter hits;
+  private final Meter misses;
+
+  private static class Entry {
+    NameUsage usage;
+    boolean usageLoaded;
+    boolean usageDirty;
+    ParsedName name;
+    boolean nameLoaded;
+    boolean nameDirty;
+  }
+
+  WalkCache(UsageDao dao, final int maxSize, Meter hits, Meter misses) {
+    Preconditions.checkArgument(maxSize > 0, "Cache size must be positive");
+    this.dao = dao;
+    this.hits = hits;
+    this.misses = misses;
+    others = new LinkedHashMap<Long, Entry>(maxSize * 4 / 3 + 1, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+        if (size() > maxSize) {
+          writeBack(eldest.getKey(), eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  @Override
+  public void start(Node n) {
+    // other handlers might have read the node already before we got notified
+    Entry e = others.remove(n.getId());
+    path.put(n.getId(), e == null ? new Entry() : e);
+  }
+
+  @Override
+  public void end(Node n) {
+    Entry e = path.remove(n.getId());
+    if (e != null) {
+      writeBack(n.getId(), e);
+    }
+  }
+
+  private Entry entry(long id) {
+    Entry e = path.get(id);
+    if (e == null) {
+      e = others.get(id);
+      if (e == null) {
+        e = new Entry();
+        others.put(id, e);
+      }
+    }
+    return e;
+  }
+
+  private Entry existing(long id) {
+    Entry e = path.get(id);
+    return e == null ? others.get(id) : e;
+  }
+
+  NameUsage readUsage(long id, LongFunction<NameUsage> loader) {
+    Entry e = entry(id);
+    if (e.usageLoaded) {
+      hits.mark();
+    } else {
+      misses.mark();
+      e.usage = loader.apply(id);
+      e.usageLoaded = true;
+    }
+    return e.usage;
+  }
+
+  ParsedName readName(long id, LongFunction<ParsedName> loader) {
+    Entry e = entry(id);
+    if (e.nameLoaded) {
+      hits.mark();
+    } else {
+      misses.mark();
+      e.name = loader.apply(id);
+      e.nameLoaded = true;
+    }
+    return e.name;
+  }
+
+  /**
+   * Updates the usage if it is cached.
+   * @return true if the usage was cached and will be written back later
+   */
+  boolean storeUsage(long id, NameUsage u) {
+    Entry e = existing(id);
+    if (e != null) {
+      e.usage = u;
+      e.usageLoaded = true;
+      e.usageDirty = true;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Updates the name if it is cached.
+   * @return true if the name was cached and will be written back later
+   */
+  boolean storeName(long id, ParsedName pn) {
+    Entry e = existing(id);
+    if (e != null) {
+      e.name = pn;
+      e.nameLoaded = true;
+      e.nameDirty = true;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Writes back a modified usage right away so the kvp store is up to date.
+   */
+  void flushUsage(long id) {
+    Entry e = existing(id);
+    if (e != null && e.usageDirty) {
+      dao.writeUsage(id, e.usage);
+      e.usageDirty = false;
+    }
+  }
+
+  private void writeBack(long id, Entry e) {
+    if (e.usageDirty) {
+      dao.writeUsage(id, e.usage);
+      e.usageDirty = false;
+    }
+    if (e.nameDirty) {
+      dao.writeName(id, e.name);
+      e.nameDirty = false;
+    }
+  }
+
+  /**
+   * @return the share of cached reads over all reads since the meters were created
+   */
+  public double hitRate() {
+    long total = hits.getCount() + misses.getCount();
+    return total == 0 ? 0 : (double) hits.getCount() / total;
+  }
+
+  /**
+   * Writes back all remaining modifications and detaches the cache from the dao.
+   */
+  @Override
+  public void close() {
+    for (Long2ObjectMap.Entry<Entry> e : path.long2ObjectEntrySet()) {
+      writeBack(e.getLongKey(), e.getValue());
+    }
+    for (Map.Entry<Long, Entry> e : others.entrySet()) {
+      writeBack(e.getKey(), e.getValue());
+    }
+    path.clear();
+    others.clear();
+    dao.detach(this);
+    LOG.info("Walk cache hit rate {}% with {} hits and {} misses", Math.round(hitRate() * 100), hits.getCount(), misses.getCount());
+  }
+}
@@ -0,0 +1,27 @@
+package org.gbif.checklistbank.neo.traverse;
+
+import java.util.List;
+
+import org.neo4j.graphdb.Node;
+
+/**
+ * A StartEndHandler whose state can be split into independent handlers for subtrees
+ * and merged back again, allowing a tree walk to process chunks of the tree in parallel.
+ *
+ * @param <T> the concrete handler type
+ */
+public interface ChunkHandler<T extends ChunkHandler<T>> extends StartEndHandler {
+
+  /**
+   * Creates a new, empty handler to walk a chunk subtree with.
+   *
+   * @param ancestors the accepted parent nodes of the chunk root, root first
+   */
+  T forChunk(List<Node> ancestors);
+
+  /**
+   * Applies the results of a completely walked chunk handler
+   * as if this handler had walked the chunk subtree itself at its current position.
+   */
+  void merge(T chunk);
+}
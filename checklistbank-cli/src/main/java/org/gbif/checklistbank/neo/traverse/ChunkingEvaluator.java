@@ -1,6 +1,8 @@
 package org.gbif.checklistbank.neo.traverse;
 
+import org.gbif.api.vocabulary.Rank;
 import org.gbif.checklistbank.cli.model.UsageFacts;
+import org.gbif.checklistbank.neo.NeoProperties;
 import org.gbif.checklistbank.neo.UsageDao;
 
 import com.google.common.base.Preconditions;
@@ -16,12 +18,16 @@ import org.neo4j.graphdb.traversal.Evaluator;
  * At present, families are marked. This could be improved based on the checklist,
  * or could take account of the current depth (path.length()), to avoid marking many
  * unplaced families.
+ * <p>
+ * Chunks are either selected by their size based on existing usage metrics
+ * or, when no metrics exist yet like during normalization, by a fixed rank.
  */
 public class ChunkingEvaluator implements Evaluator {
 
   private UsageDao dao;
   private int chunkSize;
   private int minChunkSize;
+  private Rank chunkRank;
   private LongSet chunkIds = new LongOpenHashSet();
 
   public ChunkingEvaluator(UsageDao dao, int minChunkSize, int chunkSize) {
@@ -33,17 +39,36 @@ public class ChunkingEvaluator implements Evaluator {
     this.minChunkSize = minChunkSize;
   }
 
+  /**
+   * Marks all nodes of the given rank as chunks, not requiring any usage metrics.
+   */
+  public ChunkingEvaluator(Rank chunkRank) {
+    this.chunkRank = Preconditions.checkNotNull(chunkRank, "Chunk rank required");
+  }
+
   @Override
   public Evaluation evaluate(Path path) {
-    Node n = path.endNode();
-    UsageFacts facts = dao.readFacts(n.getId());
-    int size = facts == null ? -1 : facts.metrics.getNumDescendants() + facts.metrics.getNumSynonyms();
-    if (size > minChunkSize && (size < chunkSize || size - facts.metrics.getNumChildren() < minChunkSize)) {
-      chunkIds.add(n.getId());
-      return Evaluation.INCLUDE_AND_PRUNE;
+    return markChunk(path.endNode()) ? Evaluation.INCLUDE_AND_PRUNE : Evaluation.INCLUDE_AND_CONTINUE;
+  }
+
+  /**
+   * Evaluates whether a node should become the root of a new chunk and remembers it if so.
+   *
+   * @return true if the node starts a new chunk
+   */
+  public boolean markChunk(Node n) {
+    boolean chunk;
+    if (chunkRank != null) {
+      chunk = NeoProperties.getRank(n, null) == chunkRank;
     } else {
-      return Evaluation.INCLUDE_AND_CONTINUE;
+      UsageFacts facts = dao.readFacts(n.getId());
+      int size = facts == null ? -1 : facts.metrics.getNumDescendants() + facts.metrics.getNumSynonyms();
+      chunk = size > minChunkSize && (size < chunkSize || size - facts.metrics.getNumChildren() < minChunkSize);
+    }
+    if (chunk) {
+      chunkIds.add(n.getId());
     }
+    return chunk;
   }
 
   public boolean isChunk(long nodeId) {
@@ -12,6 +12,7 @@ import org.gbif.common.parsers.core.ParseResult;
 import org.gbif.nub.lookup.straight.IdLookup;
 import org.gbif.nub.lookup.straight.LookupUsage;
 
+import java.util.List;
 import java.util.Set;
 
 import com.google.common.base.Preconditions;
@@ -22,8 +23,9 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Assigns existing usageKey through a backbone match.
+ * Chunk handlers inherit the kingdom of the chunk root parents to match with.
  */
-public class NubMatchHandler implements StartEndHandler {
+public class NubMatchHandler implements ChunkHandler<NubMatchHandler> {
 
   private static final Logger LOG = LoggerFactory.getLogger(NubMatchHandler.class);
   private final Set<NameType> unparsableMatchTypes = Sets.newHashSet(NameType.VIRUS, NameType.HYBRID, NameType.CULTIVAR, NameType.CANDIDATUS);
@@ -70,6 +72,24 @@ public class NubMatchHandler implements StartEndHandler {
     }
   }
 
+  @Override
+  public NubMatchHandler forChunk(List<Node> ancestors) {
+    NubMatchHandler h = new NubMatchHandler(lookup, dao);
+    for (Node p : ancestors) {
+      ParseResult<Kingdom> k = kParser.parse(dao.readUsage(p, false).getCanonicalName());
+      if (k.isSuccessful()) {
+        h.setCurrKingdom(k.getPayload(), p);
+        break;
+      }
+    }
+    return h;
+  }
+
+  @Override
+  public void merge(NubMatchHandler chunk) {
+    counter += chunk.counter;
+  }
+
   /**
    * Use an in memory backbone matching so there is no need for retries.
    * The resulting usageKey of the match and potential issues will be stored in the neo node.
@@ -3,10 +3,16 @@ package org.gbif.checklistbank.neo.traverse;
 import org.gbif.api.vocabulary.Rank;
 import org.gbif.checklistbank.neo.NeoProperties;
 
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import javax.annotation.Nullable;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.collect.PeekingIterator;
 import com.codahale.metrics.Meter;
 import org.neo4j.graphdb.GraphDatabaseService;
@@ -25,6 +31,10 @@ public class TreeWalker {
 
   private static final Logger LOG = LoggerFactory.getLogger(TreeWalker.class);
   private static final int reportingSize = 10000;
+  // event types recorded for the parallel walk
+  private static final long START = 0;
+  private static final long END = 1;
+  private static final long CHUNK = 2;
 
   public static void walkTree(GraphDatabaseService db, boolean inclProParte, StartEndHandler ... handler) {
     walkTree(db, inclProParte, null, null, null, handler);
@@ -56,6 +66,127 @@ public class TreeWalker {
     }
   }
 
+  /**
+   * Walks all accepted nodes, processing the chunks marked by the chunking evaluator in parallel
+   * on a fork join pool with a read transaction for each chunk.
+   * <p>
+   * The tree outside of chunks is first scanned to submit all chunks and to record the start and end events of its nodes.
+   * These events are then replayed in taxonomic order on the given handlers,
+   * merging the results of every chunk at its position in the tree once it has been walked.
+   * Handlers therefore see the same events and arrive at the same state as in a sequential walk,
+   * but they need to be thread safe in accessing shared resources as chunk handlers run concurrently.
+   *
+   * @param chunking evaluator marking the chunk roots
+   * @param threads  number of threads to walk chunks with
+   */
+  public static void walkAcceptedTree(GraphDatabaseService db, ChunkingEvaluator chunking, int threads, @Nullable Meter meter, ChunkHandler<?> ... handler) {
+    Preconditions.checkArgument(threads > 0, "At least one thread required");
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      List<ChunkTask> chunks = Lists.newArrayList();
+      List<long[]> events = Lists.newArrayList();
+      // scan the tree outside of the chunks and submit the chunks on the way
+      try (Transaction tx = db.beginTx()) {
+        List<Node> lastPath = Lists.newArrayList();
+        try (ResourceIterator<Path> iter = TreeIterablesSorted.acceptedPath(db, null, null).iterator()) {
+          while (iter.hasNext()) {
+            Path p = iter.next();
+            List<Node> nodes = Lists.newArrayList(p.nodes());
+            if (nodes.size() > lastPath.size() && chunking.isChunk(nodes.get(lastPath.size()).getId())
+                && nodes.subList(0, lastPath.size()).equals(lastPath)) {
+              // path within the current chunk
+              continue;
+            }
+            int shared = 0;
+            while (shared < lastPath.size() && shared < nodes.size() && lastPath.get(shared).equals(nodes.get(shared))) {
+              shared++;
+            }
+            for (Node n : Lists.reverse(lastPath.subList(shared, lastPath.size()))) {
+              events.add(new long[]{END, n.getId()});
+            }
+            lastPath = Lists.newArrayList(lastPath.subList(0, shared));
+            for (Node n : nodes.subList(shared, nodes.size())) {
+              if (chunking.markChunk(n)) {
+                ChunkTask task = new ChunkTask(db, n, ImmutableList.copyOf(lastPath), meter, handler);
+                task.future = pool.submit(task);
+                events.add(new long[]{CHUNK, chunks.size()});
+                chunks.add(task);
+                break;
+              }
+              if (meter != null) {
+                meter.mark();
+              }
+              events.add(new long[]{START, n.getId()});
+              lastPath.add(n);
+            }
+          }
+        }
+        for (Node n : Lists.reverse(lastPath)) {
+          events.add(new long[]{END, n.getId()});
+        }
+      }
+      LOG.info("Submitted {} chunks to walk with {} threads", chunks.size(), threads);
+
+      // replay events in taxonomic order merging chunk results
+      try (Transaction tx = db.beginTx()) {
+        for (long[] e : events) {
+          if (e[0] == CHUNK) {
+            merge(chunks.get((int) e[1]), handler);
+          } else if (e[0] == START) {
+            handleStart(db.getNodeById(e[1]), handler);
+          } else {
+            handleEnd(db.getNodeById(e[1]), handler);
+          }
+        }
+      }
+
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Walks a single chunk subtree with new chunk handlers in its own read transaction.
+   */
+  private static class ChunkTask implements Runnable {
+    private final GraphDatabaseService db;
+    private final long rootId;
+    private final Meter meter;
+    private final ChunkHandler<?>[] handler;
+    private Future<?> future;
+
+    ChunkTask(GraphDatabaseService db, Node root, List<Node> ancestors, @Nullable Meter meter, ChunkHandler<?>[] parents) {
+      this.db = db;
+      this.rootId = root.getId();
+      this.meter = meter;
+      handler = new ChunkHandler<?>[parents.length];
+      for (int i = 0; i < parents.length; i++) {
+        handler[i] = parents[i].forChunk(ancestors);
+      }
+    }
+
+    @Override
+    public void run() {
+      try (Transaction tx = db.beginTx()) {
+        walkTree(TreeIterablesSorted.acceptedPath(db, db.getNodeById(rootId), null), meter, handler);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void merge(ChunkTask chunk, ChunkHandler<?> ... handler) {
+    try {
+      chunk.future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for chunk " + chunk.rootId, e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Failed to walk chunk " + chunk.rootId, e.getCause());
+    }
+    for (int i = 0; i < handler.length; i++) {
+      ((ChunkHandler) handler[i]).merge(chunk.handler[i]);
+    }
+  }
 
   private static void walkTree(ResourceIterable<Path> paths, @Nullable Meter meter, StartEndHandler ... handler) {
     Path lastPath = null;
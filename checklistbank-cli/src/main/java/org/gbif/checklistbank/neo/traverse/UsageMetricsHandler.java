@@ -25,8 +25,10 @@ import org.slf4j.LoggerFactory;
  * Builds higher classification keys (not the verbatim names) and NameUsageMetrics for all accepted usages.
  * Synonym usages do not need a data record as its zero all over.
  * The handler works on taxonomic neo relations and the NameUsage instances in the kvp store, so make sure they exist!
+ * For parallel walks chunk handlers start with the classification of the chunk root parents
+ * and their metrics are rolled up into the parents when merged.
  */
-public class UsageMetricsHandler implements StartEndHandler {
+public class UsageMetricsHandler implements ChunkHandler<UsageMetricsHandler> {
 
     private static final Logger LOG = LoggerFactory.getLogger(UsageMetricsHandler.class);
     // neo node ids for the higher classification links
@@ -41,6 +43,9 @@ public class UsageMetricsHandler implements StartEndHandler {
     private Map<Rank, Integer> countByRank = Maps.newHashMap();
     private final UsageDao dao;
     private final boolean debug = false;
+    // metrics of the last closed root node, i.e. the chunk root in chunk handlers
+    private NameUsageMetrics rootMetrics;
+    private Rank rootRank;
 
     public UsageMetricsHandler(UsageDao dao) {
         this.dao = dao;
@@ -96,6 +101,10 @@ public class UsageMetricsHandler implements StartEndHandler {
         facts.metrics = metrics;
         facts.classification = classification;
         dao.store(n.getId(), facts);
+        if (parentCounts.isEmpty()) {
+            rootMetrics = metrics;
+            rootRank = u.getRank();
+        }
 
         // remove this rank from current classification
         if (u.getRank() != null && u.getRank().isLinnean()) {
@@ -105,6 +114,52 @@ public class UsageMetricsHandler implements StartEndHandler {
         if (debug) LOG.info("end: {} {} {} #  {}-{}-{}", u.getTaxonID(), u.getRank(), u.getScientificName(), metrics.getNumDescendants(), metrics.getNumSynonyms(), parentCounts.size());
     }
 
+    @Override
+    public UsageMetricsHandler forChunk(List<Node> ancestors) {
+        UsageMetricsHandler h = new UsageMetricsHandler(dao);
+        for (Node p : ancestors) {
+            NameUsage u = dao.readUsage(p, false);
+            if (u.getRank() != null && u.getRank().isLinnean()) {
+                ClassificationUtils.setHigherRankKey(h.classification, u.getRank(), (int) p.getId());
+                ClassificationUtils.setHigherRank(h.classification, u.getRank(), u.getCanonicalOrScientificName());
+            }
+        }
+        h.depth = ancestors.size();
+        return h;
+    }
+
+    @Override
+    public void merge(UsageMetricsHandler chunk) {
+        if (chunk.rootMetrics == null) {
+            return;
+        }
+        counter += chunk.counter;
+        roots += chunk.roots;
+        maxDepth = Math.max(maxDepth, chunk.maxDepth);
+        synonyms += chunk.synonyms;
+        for (Map.Entry<Origin, Integer> e : chunk.countByOrigin.entrySet()) {
+            countByOrigin.merge(e.getKey(), e.getValue(), Integer::sum);
+        }
+        for (Map.Entry<Rank, Integer> e : chunk.countByRank.entrySet()) {
+            countByRank.merge(e.getKey(), e.getValue(), Integer::sum);
+        }
+        // roll up the linnean rank counts of the chunk, including its root, into all parents
+        for (Rank r : Rank.LINNEAN_RANKS) {
+            if (r != Rank.KINGDOM) {
+                int cnt = chunk.rootMetrics.getNumByRank(r) + (r == chunk.rootRank ? 1 : 0);
+                if (cnt > 0) {
+                    for (NameUsageMetrics m : parentCounts) {
+                        setNumByRank(m, r, m.getNumByRank(r) + cnt);
+                    }
+                }
+            }
+        }
+        // the chunk root is a direct child of the current parent
+        if (!parentCounts.isEmpty()) {
+            parentCounts.getLast().setNumChildren(parentCounts.getLast().getNumChildren() + 1);
+        }
+    }
+
     public NormalizerStats getStats(int ignored, List<String> cycles) {
         return new NormalizerStats(roots, maxDepth, synonyms, ignored, countByOrigin, countByRank, cycles);
     }
@@ -1,5 +1,6 @@
 package org.gbif.checklistbank.nub;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
@@ -44,8 +45,10 @@ import org.gbif.checklistbank.nub.validation.NubTreeValidation;
 import org.gbif.checklistbank.nub.validation.NubValidation;
 import org.gbif.checklistbank.utils.SciNameNormalizer;
 import org.gbif.nub.lookup.straight.IdLookup;
-import org.gbif.nub.lookup.straight.IdLookupImpl;
+import org.gbif.nub.lookup.straight.IdLookupMmap;
+import org.gbif.nub.lookup.straight.IdLookupSnapshot;
 import org.gbif.utils.collection.MapUtils;
+import org.gbif.utils.concurrent.NamedThreadFactory;
 import org.gbif.utils.file.FileUtils;
 import org.neo4j.graphdb.*;
 import org.neo4j.graphdb.traversal.Evaluators;
@@ -58,6 +61,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -106,7 +112,8 @@ public class NubBuilder implements Runnable {
   private Integer maxPriority = 0;
   private int datasetCounter = 1;
 
-  private NubBuilder(UsageDao dao, NubSourceList sources, IdLookup idLookup, AuthorComparator authorComparator, int newIdStart, NubConfiguration cfg) {
+  @VisibleForTesting
+  NubBuilder(UsageDao dao, NubSourceList sources, IdLookup idLookup, AuthorComparator authorComparator, int newIdStart, NubConfiguration cfg) {
     db = NubDb.create(dao, authorComparator);
     this.sources = sources;
     this.authorComparator = authorComparator;
@@ -144,7 +151,8 @@ public class NubBuilder implements Runnable {
   public static NubBuilder create(NubConfiguration cfg) {
     UsageDao dao = UsageDao.persistentDao(cfg.neo, Constants.NUB_DATASET_KEY, null, true);
     try {
-      IdLookupImpl idLookup = IdLookupImpl.temp().load(cfg.clb, true);
+      // reuses a persistent snapshot incl deleted usages if the backbone did not change since it was built
+      IdLookupMmap idLookup = new IdLookupSnapshot(cfg.neo.idLookupDir(), true).open(cfg.clb);
       return new NubBuilder(dao, ClbSourceList.create(cfg), idLookup, idLookup.getAuthorComparator(), idLookup.getKeyMax() + 1, cfg);
     } catch (Exception e) {
       throw new IllegalStateException("Failed to load existing backbone ids", e);
@@ -545,113 +553,219 @@ public class NubBuilder implements Runnable {
     return families;
   }
 
+  /**
+   * Basionym groups with recombinations detected in a single family together with the time it took to detect them.
+   */
+  @VisibleForTesting
+  static class FamilyBasionymGroups {
+    final NubUsage family;
+    private final List<BasionymGroup<NubUsage>> groups = Lists.newArrayList();
+    private long millis;
+    private int newBasionyms;
+    private int newRelations;
+
+    FamilyBasionymGroups(NubUsage family) {
+      this.family = family;
+    }
+  }
+
   /**
    * Goes through all usages and tries to discover basionyms by comparing the specific or infraspecific epithet and the authorships within a family.
    * As we often see missing brackets from author names we must code defensively and allow several original names in the data for a single epithet.
+   * <p>
+   * Basionym groups are detected read only for each family in parallel and the resulting relations are then written in batches,
+   * keeping the original family order. New relations never leave a family, so families do not depend on each others writes.
    */
   private void detectBasionyms() {
     try {
-      LOG.info("Discover basionyms");
+      LOG.info("Discover basionyms using {} threads", cfg.basionymThreads);
       int newBasionyms = 0;
       int newRelations = 0;
       final BasionymSorter basSorter = new BasionymSorter(authorComparator);
+      // keep the slowest families to report them at the end
+      final PriorityQueue<FamilyBasionymGroups> slowest = new PriorityQueue<>(Comparator.comparingLong(f -> f.millis));
 
-      // load all family nodes into list so we can process them seach in a separate transaction later on
+      // load all family nodes into list so we can process them each in a separate transaction later on
       List<Node> families = listFamilies();
-      for (Node n : families) {
-        try (Transaction tx = db.beginTx()) {
-          NubUsage fam = read(n);
-          if (!fam.status.isSynonym()) {
-            Map<String, List<NubUsage>> epithets = Maps.newHashMap();
-            Map<String, Set<String>> epithetBridges = Maps.newHashMap();
-            LOG.debug("Discover basionyms in family {}", fam.parsedName.canonicalNameComplete());
-            // key all names by their terminal epithet
-            for (Node c : Traversals.DESCENDANTS.traverse(n).nodes()) {
-              NubUsage nub = read(c);
-              // ignore all supra specific names and autonyms
-              if (nub.rank.isSpeciesOrBelow() && !c.hasLabel(Labels.AUTONYM)) {
-                String epithet = SciNameNormalizer.stemEpithet(nub.parsedName.getTerminalEpithet());
-                if (!epithets.containsKey(epithet)) {
-                  epithets.put(epithet, Lists.newArrayList(nub));
+      Iterator<Node> famIter = families.iterator();
+      Deque<Future<FamilyBasionymGroups>> pending = new ArrayDeque<>();
+      List<FamilyBasionymGroups> batch = Lists.newArrayList();
+      ExecutorService exec = Executors.newFixedThreadPool(cfg.basionymThreads, new NamedThreadFactory("basionym-detection"));
+      try {
+        while (famIter.hasNext() || !pending.isEmpty()) {
+          // keep the workers busy but do not queue up all families at once
+          while (famIter.hasNext() && pending.size() < cfg.basionymThreads * 10) {
+            final Node n = famIter.next();
+            pending.add(exec.submit(() -> groupFamilyBasionyms(n, basSorter)));
+          }
+          FamilyBasionymGroups fbg = pending.poll().get();
+          if (fbg != null) {
+            slowest.add(fbg);
+            if (slowest.size() > 10) {
+              slowest.poll();
+            }
+            batch.add(fbg);
+          }
+          if (batch.size() >= 100 || (!famIter.hasNext() && pending.isEmpty())) {
+            applyBasionymGroups(batch);
+            for (FamilyBasionymGroups f : batch) {
+              newBasionyms += f.newBasionyms;
+              newRelations += f.newRelations;
+            }
+            batch.clear();
+          }
+        }
+      } finally {
+        exec.shutdownNow();
+      }
+      LOG.info("Discovered {} new basionym relations and created {} basionym placeholders", newRelations, newBasionyms);
+      List<FamilyBasionymGroups> slow = Lists.newArrayList(slowest);
+      slow.sort(Comparator.comparingLong((FamilyBasionymGroups f) -> f.millis).reversed());
+      for (FamilyBasionymGroups f : slow) {
+        LOG.info("Slow basionym detection for family {} with {} groups in {}ms", f.family.parsedName.canonicalNameComplete(), f.groups.size(), f.millis);
+      }
+
+    } catch (Throwable e) {
+      LOG.error("Error detecting basionyms", e);
+    }
+  }
+
+  /**
+   * Detects basionym groups with recombinations in a single family without modifying the db.
+   *
+   * @return the detected groups or null if the family could not be processed
+   */
+  private FamilyBasionymGroups groupFamilyBasionyms(Node n, BasionymSorter basSorter) {
+    final long start = System.currentTimeMillis();
+    try (Transaction tx = db.beginTx()) {
+      NubUsage fam = read(n);
+      FamilyBasionymGroups fbg = new FamilyBasionymGroups(fam);
+      if (!fam.status.isSynonym()) {
+        Map<String, List<NubUsage>> epithets = Maps.newHashMap();
+        Map<String, Set<String>> epithetBridges = Maps.newHashMap();
+        LOG.debug("Discover basionyms in family {}", fam.parsedName.canonicalNameComplete());
+        // key all names by their terminal epithet
+        for (Node c : Traversals.DESCENDANTS.traverse(n).nodes()) {
+          NubUsage nub = read(c);
+          // ignore all supra specific names and autonyms
+          if (nub.rank.isSpeciesOrBelow() && !c.hasLabel(Labels.AUTONYM)) {
+            String epithet = SciNameNormalizer.stemEpithet(nub.parsedName.getTerminalEpithet());
+            if (!epithets.containsKey(epithet)) {
+              epithets.put(epithet, Lists.newArrayList(nub));
+            } else {
+              epithets.get(epithet).add(nub);
+            }
+            // now check if a basionym relation exists already that reaches out to some other epithet, e.g. due to gender changes
+            for (Node bg : Traversals.BASIONYM_GROUP.evaluator(Evaluators.excludeStartPosition()).traverse(c).nodes()) {
+              NubUsage bgu = read(bg);
+              String epithet2 = SciNameNormalizer.stemEpithet(bgu.parsedName.getTerminalEpithet());
+              if (epithet2 != null && !epithet2.equals(epithet)) {
+                if (!epithetBridges.containsKey(epithet)) {
+                  epithetBridges.put(epithet, Sets.newHashSet(epithet2));
                 } else {
-                  epithets.get(epithet).add(nub);
-                }
-                // now check if a basionym relation exists already that reaches out to some other epithet, e.g. due to gender changes
-                for (Node bg : Traversals.BASIONYM_GROUP.evaluator(Evaluators.excludeStartPosition()).traverse(c).nodes()) {
-                  NubUsage bgu = read(bg);
-                  String epithet2 = SciNameNormalizer.stemEpithet(bgu.parsedName.getTerminalEpithet());
-                  if (epithet2 != null && !epithet2.equals(epithet)) {
-                    if (!epithetBridges.containsKey(epithet)) {
-                      epithetBridges.put(epithet, Sets.newHashSet(epithet2));
-                    } else {
-                      epithetBridges.get(epithet).add(epithet2);
-                    }
-                  }
+                  epithetBridges.get(epithet).add(epithet2);
                 }
               }
             }
-            LOG.debug("{} distinct epithets found in family {}", epithets.size(), fam.parsedName.canonicalNameComplete());
-
-            // merge epithet groups based on existing basionym relations, catching some gender changes
-            LOG.debug("{} epithets are connected with explicit basionym relations", epithetBridges.size());
-            for (Map.Entry<String, Set<String>> bridge : epithetBridges.entrySet()) {
-              if (epithets.containsKey(bridge.getKey())) {
-                List<NubUsage> usages = epithets.get(bridge.getKey());
-                for (String epi2 : bridge.getValue()) {
-                  if (epithets.containsKey(epi2)) {
-                    LOG.debug("Merging {} usages of epithet {} into epithet group {}", epithets.get(epi2).size(), epi2, bridge.getKey());
-                    usages.addAll(epithets.remove(epi2));
-                  }
-                }
+          }
+        }
+        LOG.debug("{} distinct epithets found in family {}", epithets.size(), fam.parsedName.canonicalNameComplete());
+
+        // merge epithet groups based on existing basionym relations, catching some gender changes
+        LOG.debug("{} epithets are connected with explicit basionym relations", epithetBridges.size());
+        for (Map.Entry<String, Set<String>> bridge : epithetBridges.entrySet()) {
+          if (epithets.containsKey(bridge.getKey())) {
+            List<NubUsage> usages = epithets.get(bridge.getKey());
+            for (String epi2 : bridge.getValue()) {
+              if (epithets.containsKey(epi2)) {
+                LOG.debug("Merging {} usages of epithet {} into epithet group {}", epithets.get(epi2).size(), epi2, bridge.getKey());
+                usages.addAll(epithets.remove(epi2));
               }
             }
+          }
+        }
 
-            // now compare authorships for each epithet group
-            for (Map.Entry<String, List<NubUsage>> epithetGroup : epithets.entrySet()) {
-
-              Collection<BasionymGroup<NubUsage>> groups = basSorter.groupBasionyms(epithetGroup.getValue(), new Function<NubUsage, ParsedName>() {
-                @Override
-                public ParsedName apply(NubUsage nub) {
-                  return nub.parsedName;
-                }
-              });
-              // go through groups and persistent basionym relations where needed
-              for (BasionymGroup<NubUsage> group : groups) {
-                // we only need to process groups that contain recombinations
-                if (group.hasRecombinations()) {
-                  // if we have a basionym creating relations is straight forward
-                  NubUsage basionym = null;
-                  if (group.hasBasionym()) {
-                    basionym = group.getBasionym();
-
-                  } else if (group.getRecombinations().size() > 1) {
-                    // we need to persistent a placeholder basionym to group the 2 or more recombinations
-                    newBasionyms++;
-                    basionym = createBasionymPlaceholder(fam, group);
-                  }
-                  // persistent basionym relations
-                  if (basionym != null) {
-                    for (NubUsage u : group.getRecombinations()) {
-                      if (createBasionymRelationIfNotExisting(basionym.node, u.node)) {
-                        newRelations++;
-                        u.issues.add(NameUsageIssue.ORIGINAL_NAME_DERIVED);
-                        db.store(u);
-                      }
-                    }
-                  }
-                }
-              }
+        // now compare authorships for each epithet group
+        for (Map.Entry<String, List<NubUsage>> epithetGroup : epithets.entrySet()) {
+          Collection<BasionymGroup<NubUsage>> groups = basSorter.groupBasionyms(epithetGroup.getValue(), new Function<NubUsage, ParsedName>() {
+            @Override
+            public ParsedName apply(NubUsage nub) {
+              return nub.parsedName;
+            }
+          });
+          // we only need to process groups that contain recombinations
+          for (BasionymGroup<NubUsage> group : groups) {
+            if (group.hasRecombinations()) {
+              fbg.groups.add(group);
             }
           }
+        }
+      }
+      fbg.millis = System.currentTimeMillis() - start;
+      LOG.debug("Detected {} basionym groups in family {} in {}ms", fbg.groups.size(), fam.parsedName.canonicalNameComplete(), fbg.millis);
+      return fbg;
+
+    } catch (Exception e) {
+      LOG.error("Error detecting basionyms for family node {}", n.getId(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Persists basionym relations and placeholders for the detected groups of several families in a single transaction.
+   * If the batch fails each family is retried in its own transaction, so a single bad family only loses its own relations.
+   */
+  private void applyBasionymGroups(List<FamilyBasionymGroups> batch) {
+    try (Transaction tx = db.beginTx()) {
+      for (FamilyBasionymGroups fbg : batch) {
+        applyBasionymGroups(fbg);
+      }
+      tx.success();
+
+    } catch (Exception e) {
+      LOG.warn("Error persisting basionyms for a batch of {} families, retry each family separately", batch.size(), e);
+      for (FamilyBasionymGroups fbg : batch) {
+        fbg.newBasionyms = 0;
+        fbg.newRelations = 0;
+        try (Transaction tx = db.beginTx()) {
+          applyBasionymGroups(fbg);
           tx.success();
-        } catch (Exception e) {
-          LOG.error("Error detecting basionyms for family {}", n.getProperty(NeoProperties.SCIENTIFIC_NAME, "no name"), e);
+
+        } catch (Exception e2) {
+          LOG.error("Error persisting basionyms for family {}", fbg.family.parsedName.canonicalNameComplete(), e2);
+          fbg.newBasionyms = 0;
+          fbg.newRelations = 0;
         }
       }
-      LOG.info("Discovered {} new basionym relations and created {} basionym placeholders", newRelations, newBasionyms);
+    }
+  }
 
-    } catch (Throwable e) {
-      LOG.error("Error detecting basionyms", e);
+  /**
+   * Persists basionym relations and placeholders for the detected groups of a single family within an open transaction.
+   */
+  @VisibleForTesting
+  void applyBasionymGroups(FamilyBasionymGroups fbg) {
+    for (BasionymGroup<NubUsage> group : fbg.groups) {
+      // if we have a basionym creating relations is straight forward
+      NubUsage basionym = null;
+      if (group.hasBasionym()) {
+        basionym = group.getBasionym();
+
+      } else if (group.getRecombinations().size() > 1) {
+        // we need to persistent a placeholder basionym to group the 2 or more recombinations
+        fbg.newBasionyms++;
+        basionym = createBasionymPlaceholder(fbg.family, group);
+      }
+      // persistent basionym relations
+      if (basionym != null) {
+        for (NubUsage u : group.getRecombinations()) {
+          if (createBasionymRelationIfNotExisting(basionym.node, u.node)) {
+            fbg.newRelations++;
+            u.issues.add(NameUsageIssue.ORIGINAL_NAME_DERIVED);
+            db.store(u);
+          }
+        }
+      }
     }
   }
 
@@ -7,6 +7,7 @@ import com.google.common.collect.Sets;
 import org.gbif.api.model.checklistbank.ParsedName;
 import org.gbif.api.vocabulary.*;
 import org.gbif.checklistbank.authorship.AuthorComparator;
+import org.gbif.checklistbank.authorship.NormalizedAuthorship;
 import org.gbif.checklistbank.model.Equality;
 import org.gbif.checklistbank.neo.Labels;
 import org.gbif.checklistbank.neo.NeoProperties;
@@ -200,14 +201,19 @@ public class NubDb {
     int canonMatches = 0;
     NubUsage doubtful = null;
     final String name = dao.canonicalOrScientificName(pn);
+    // normalized authorship of the query, prepared once for all candidates
+    NormalizedAuthorship pna = null;
     for (Node n : Iterators.loop(dao.getNeo().findNodes(Labels.TAXON, NeoProperties.CANONICAL_NAME, name))) {
       NubUsage rn = dao.readNub(n);
-      if (matchesNub(pn, rank, kingdom, rn, currNubParent, false)) {
+      if (pna == null) {
+        pna = authComp.prepare(pn);
+      }
+      if (matchesNub(pna, rank, kingdom, rn, currNubParent, false)) {
         checked.add(rn);
         if (!rn.parsedName.hasAuthorship()) {
           canonMatches++;
         }
-      } else if ((rn.status == TaxonomicStatus.DOUBTFUL) && rn.parsedName.hasAuthorship() && matchesNub(pn, rank, kingdom, rn, currNubParent, true)) {
+      } else if ((rn.status == TaxonomicStatus.DOUBTFUL) && rn.parsedName.hasAuthorship() && matchesNub(pna, rank, kingdom, rn, currNubParent, true)) {
         doubtful = rn;
       }
     }
@@ -292,7 +298,7 @@ public class NubDb {
       iter = checked.iterator();
       while (iter.hasNext()) {
         NubUsage nu = iter.next();
-        Equality author = authComp.compare(pn, nu.parsedName);
+        Equality author = authComp.compare(pna, nu.parsedName);
         if (author != Equality.EQUAL) {
           iter.remove();
         }
@@ -359,7 +365,7 @@ public class NubDb {
     return source;
   }
 
-  private boolean matchesNub(ParsedName pn, Rank rank, Kingdom uKingdom, NubUsage match, @Nullable NubUsage currNubParent, boolean ignoreAuthor) {
+  private boolean matchesNub(NormalizedAuthorship pna, Rank rank, Kingdom uKingdom, NubUsage match, @Nullable NubUsage currNubParent, boolean ignoreAuthor) {
     if (rank != match.rank) {
       return false;
     }
@@ -367,7 +373,7 @@ public class NubDb {
     if (rank.isSuprageneric()) {
       return true;
     }
-    Equality author = ignoreAuthor ? Equality.UNKNOWN : authComp.compare(pn, match.parsedName);
+    Equality author = ignoreAuthor ? Equality.UNKNOWN : authComp.compare(pna, match.parsedName);
     Equality kingdom = compareKingdom(uKingdom, match.kingdom);
     switch (author) {
       case DIFFERENT:
@@ -641,6 +647,8 @@ public class NubDb {
       nub.parsedName.setBracketAuthorship(null);
       nub.parsedName.setBracketYear(null);
     }
+    // normalize the authorship once, it gets compared to many source names
+    authComp.precompute(nub.parsedName);
 
     // control the exact scientific name style
     // rebuild name in canonical form - e.g. removes subgenus references, quadrinomials, etc
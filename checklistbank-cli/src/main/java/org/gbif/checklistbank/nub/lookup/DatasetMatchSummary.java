@@ -1,26 +1,32 @@
 package org.gbif.checklistbank.nub.lookup;
 
 import com.google.common.base.MoreObjects;
-import com.google.common.collect.Maps;
+import com.google.common.base.Stopwatch;
 import org.gbif.api.vocabulary.Rank;
 
 import javax.annotation.Nullable;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- *
+ * Match statistics for a single dataset.
+ * All counters are thread safe so partitions of a dataset can be matched concurrently.
  */
 public class DatasetMatchSummary {
   private final UUID datasetKey;
   private final AtomicInteger unparsable = new AtomicInteger();
 
   private final AtomicInteger usages = new AtomicInteger();
-  private Map<Rank, AtomicInteger> usagesByRank = Maps.newHashMap();
+  private final Map<Rank, AtomicInteger> usagesByRank = new ConcurrentHashMap<>();
 
   private final AtomicInteger matches = new AtomicInteger();
-  private Map<Rank, AtomicInteger> matchesByRank = Maps.newHashMap();
+  private final Map<Rank, AtomicInteger> matchesByRank = new ConcurrentHashMap<>();
+
+  private final AtomicInteger partitions = new AtomicInteger();
+  private final Stopwatch watch = Stopwatch.createUnstarted();
 
   public DatasetMatchSummary(UUID datasetKey) {
     this.datasetKey = datasetKey;
@@ -42,6 +48,48 @@ public class DatasetMatchSummary {
     return matches.get();
   }
 
+  /**
+   * @return number of partitions the dataset was matched in, 0 if not partitioned
+   */
+  public int getPartitions() {
+    return partitions.get();
+  }
+
+  public void addPartition() {
+    partitions.incrementAndGet();
+  }
+
+  /**
+   * Starts the timer used for the throughput summary.
+   */
+  public void start() {
+    watch.start();
+  }
+
+  /**
+   * Stops the timer used for the throughput summary.
+   */
+  public void stop() {
+    if (watch.isRunning()) {
+      watch.stop();
+    }
+  }
+
+  /**
+   * @return milliseconds spent matching the dataset
+   */
+  public long getMillis() {
+    return watch.elapsed(TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @return number of usages matched per second
+   */
+  public long usagesPerSecond() {
+    long millis = getMillis();
+    return millis == 0 ? usages.get() : usages.get() * 1000L / millis;
+  }
+
   public void addUnparsable() {
     unparsable.incrementAndGet();
   }
@@ -49,22 +97,14 @@ public class DatasetMatchSummary {
   public void addNoMatch(@Nullable Rank rank) {
     rank = MoreObjects.firstNonNull(rank, Rank.UNRANKED);
     usages.incrementAndGet();
-    if (usagesByRank.containsKey(rank)) {
-      usagesByRank.get(rank).incrementAndGet();
-    } else {
-      usagesByRank.put(rank, new AtomicInteger(1));
-    }
+    usagesByRank.computeIfAbsent(rank, r -> new AtomicInteger()).incrementAndGet();
   }
 
   public void addMatch(@Nullable Rank rank) {
     rank = MoreObjects.firstNonNull(rank, Rank.UNRANKED);
     addNoMatch(rank);
     matches.incrementAndGet();
-    if (matchesByRank.containsKey(rank)) {
-      matchesByRank.get(rank).incrementAndGet();
-    } else {
-      matchesByRank.put(rank, new AtomicInteger(1));
-    }
+    matchesByRank.computeIfAbsent(rank, r -> new AtomicInteger()).incrementAndGet();
   }
 
   /**
@@ -106,7 +146,14 @@ public class DatasetMatchSummary {
         .append(", perc=")
         .append(percMatches())
         .append(", percLower=")
-        .append(percBackboneRelevantNoMatches());
+        .append(percBackboneRelevantNoMatches())
+        .append(", partitions=")
+        .append(partitions.get())
+        .append(", time=")
+        .append(getMillis())
+        .append("ms, rate=")
+        .append(usagesPerSecond())
+        .append("/s");
     // append by rank details
     sb.append("\n");
     final AtomicInteger zero = new AtomicInteger();
@@ -4,20 +4,30 @@ import com.google.common.collect.Maps;
 import org.gbif.api.model.Constants;
 import org.gbif.api.model.registry.Dataset;
 import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
 import org.gbif.checklistbank.config.ClbConfiguration;
 import org.gbif.checklistbank.nub.ParentStack;
 import org.gbif.checklistbank.nub.model.NubUsage;
 import org.gbif.checklistbank.nub.model.SrcUsage;
 import org.gbif.checklistbank.nub.source.ClbSource;
+import org.gbif.checklistbank.postgres.TabRowMapperBase;
 import org.gbif.checklistbank.service.DatasetImportService;
+import org.gbif.common.parsers.utils.NameParserUtils;
 import org.gbif.nub.lookup.straight.DatasetMatchFailed;
 import org.gbif.nub.lookup.straight.IdLookup;
 import org.gbif.nub.lookup.straight.LookupUsage;
+import org.gbif.utils.concurrent.NamedThreadFactory;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  *
@@ -28,13 +38,32 @@ public class NubMatchService {
   protected IdLookup nubLookup;
   private final DatasetImportService sqlService;
   private final DatasetImportService solrService;
+  private final int threads;
+  private final int partitionSize;
+  private final int batchSize;
   private int counter = 0;
 
   public NubMatchService(ClbConfiguration cfg, IdLookup nubLookup, DatasetImportService sqlService, DatasetImportService solrService) {
+    this(cfg, nubLookup, sqlService, solrService, 0, 0, 0);
+  }
+
+  /**
+   * Creates a match service that streams usages straight from postgres and matches them in partitions
+   * on a pool of threads, see {@link #matchDatasetPartitioned(UUID)}.
+   *
+   * @param threads       number of matching threads, if zero use the neo4j based single threaded matching
+   * @param partitionSize minimum number of usages per partition
+   * @param batchSize     number of nub relations to persist at once
+   */
+  public NubMatchService(ClbConfiguration cfg, IdLookup nubLookup, DatasetImportService sqlService, DatasetImportService solrService,
+                         int threads, int partitionSize, int batchSize) {
     this.cfg = cfg;
     this.nubLookup = nubLookup;
     this.sqlService = sqlService;
     this.solrService = solrService;
+    this.threads = threads;
+    this.partitionSize = partitionSize;
+    this.batchSize = batchSize;
   }
 
   /**
@@ -46,9 +75,17 @@ public class NubMatchService {
 
   /**
    * Updates a datasets nub matches.
-   * Uses the internal Lookup to generate a complete id map and then does postgres writes in a separate thread ?!
+   * Uses the partitioned matching if the service was configured with matching threads.
    */
   public DatasetMatchSummary matchDataset(UUID key) throws DatasetMatchFailed {
+    return threads > 0 ? matchDatasetPartitioned(key) : matchDatasetNeo(key);
+  }
+
+  /**
+   * Updates a datasets nub matches.
+   * Uses the internal Lookup to generate a complete id map and then does postgres writes in a separate thread ?!
+   */
+  private DatasetMatchSummary matchDatasetNeo(UUID key) throws DatasetMatchFailed {
     Dataset d = new Dataset();
     d.setKey(key);
     d.setTitle("Dataset " + key);
@@ -61,6 +98,7 @@ public class NubMatchService {
     }
 
     LOG.info("Rematch checklist {} to Backbone", d.getKey());
+    summary.start();
     Map<Integer, Integer> relations = Maps.newHashMap();
     try (ClbSource src = new ClbSource(cfg, d)) {
       // read in postgres usages
@@ -121,8 +159,143 @@ public class NubMatchService {
       throw new DatasetMatchFailed(d.getKey(), e);
     }
 
+    summary.stop();
+    LOG.info("{}", summary);
+    return summary;
+  }
+
+  /**
+   * Updates a datasets nub matches without an intermediate neo4j copy of the dataset.
+   * Usages are streamed from postgres in classification order and matched in partitions on a thread pool,
+   * see {@link PartitionedMatcher}. Nub relations are persisted in bounded batches while matching,
+   * deleting all previous relations of the dataset with the first batch.
+   * <p>
+   * If matching fails after some batches have been persisted the dataset is rematched with the single threaded matching,
+   * replacing all its relations at once, so a failed match never leaves only a part of the relations behind.
+   * Failures before the first batch leave the previous relations untouched.
+   */
+  public DatasetMatchSummary matchDatasetPartitioned(final UUID key) throws DatasetMatchFailed {
+    final DatasetMatchSummary summary = new DatasetMatchSummary(key);
+    if (Constants.NUB_DATASET_KEY.equals(key)) {
+      LOG.warn("Cannot match backbone to itself. Ignore");
+      return summary;
+    }
+
+    LOG.info("Rematch checklist {} to Backbone using {} threads", key, threads);
+    summary.start();
+    final AtomicBoolean first = new AtomicBoolean(true);
+    final ExecutorService exec = Executors.newFixedThreadPool(threads, new NamedThreadFactory("nub-matcher"));
+    try (BaseConnection c = (BaseConnection) cfg.connect()) {
+      PartitionedMatcher matcher = new PartitionedMatcher(nubLookup, NameParserUtils.PARSER, exec, summary, batch -> {
+            if (sqlService != null) {
+              sqlService.insertNubRelations(key, batch, first.getAndSet(false));
+              solrService.insertNubRelations(key, batch, false);
+            }
+          }, partitionSize, threads * 2, batchSize);
+      try (UsageReader reader = new UsageReader(matcher)) {
+        new CopyManager(c).copyOut("COPY ("
+            + "SELECT u.id, u.parent_fk, u.rank, n.scientific_name,"
+            + " u.kingdom_fk, u.phylum_fk, u.class_fk, u.order_fk, u.family_fk, u.genus_fk, u.subgenus_fk, u.species_fk"
+            + " FROM name_usage u JOIN name n ON u.name_fk=n.id"
+            + " WHERE u.dataset_key = '" + key + "'"
+            + " ORDER BY u.kingdom_fk NULLS FIRST, u.phylum_fk NULLS FIRST, u.class_fk NULLS FIRST, u.order_fk NULLS FIRST,"
+            + " u.family_fk NULLS FIRST, u.genus_fk NULLS FIRST, u.subgenus_fk NULLS FIRST, u.species_fk NULLS FIRST, u.is_synonym, u.id)"
+            + " TO STDOUT WITH NULL ''", reader);
+      }
+      // waits for all partitions and flushes remaining relations
+      matcher.close();
+
+      if (sqlService == null) {
+        LOG.warn("No sql service configured to persist the matches for dataset {}!", key);
+      } else if (first.get()) {
+        // empty dataset, still remove previous relations
+        sqlService.insertNubRelations(key, Maps.newHashMap(), true);
+      }
+      counter++;
+
+    } catch (Exception e) {
+      LOG.error("Failed to match checklist {}", key, e);
+      if (sqlService != null && !first.get()) {
+        return rematch(key, exec, e);
+      }
+      throw new DatasetMatchFailed(key, e);
+
+    } finally {
+      exec.shutdownNow();
+    }
+
+    summary.stop();
+    // warn if matches are little
+    if (summary.percBackboneRelevantNoMatches() < 25 || (summary.percMatches() < 25 && summary.getTotalUsages() > 25)) {
+      LOG.warn("Only {}% of all names and {}% of genera and below in dataset {} were matching", summary.percMatches(), summary.percBackboneRelevantNoMatches(), key);
+    }
     LOG.info("{}", summary);
     return summary;
   }
 
+  /**
+   * Replaces the partially persisted relations of a failed partitioned match with a complete single threaded rematch.
+   * If that fails too all relations of the dataset are removed and the match fails.
+   */
+  private DatasetMatchSummary rematch(UUID key, ExecutorService exec, Exception cause) throws DatasetMatchFailed {
+    LOG.warn("Partitioned match of dataset {} failed after relations have been persisted, rematch with single threaded matching", key);
+    // make sure no partition still flushes relations while we replace them
+    exec.shutdownNow();
+    try {
+      if (!exec.awaitTermination(10, TimeUnit.MINUTES)) {
+        LOG.warn("Matching threads for dataset {} did not terminate", key);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DatasetMatchFailed(key, cause);
+    }
+
+    try {
+      return matchDatasetNeo(key);
+
+    } catch (DatasetMatchFailed e) {
+      cause.addSuppressed(e);
+      LOG.error("Rematching dataset {} failed, remove all its partially persisted nub relations", key, e);
+      try {
+        sqlService.insertNubRelations(key, Maps.newHashMap(), true);
+      } catch (Exception e2) {
+        cause.addSuppressed(e2);
+        LOG.error("Failed to remove partial nub relations of dataset {}", key, e2);
+      }
+      throw new DatasetMatchFailed(key, cause);
+    }
+  }
+
+  /**
+   * int key
+   * Integer parentKey
+   * Rank rank
+   * String scientificName
+   * Integer kingdom, phylum, class, order, family, genus, subgenus & species keys
+   */
+  private static class UsageReader extends TabRowMapperBase {
+    private static final EnumLookup<Rank> RANKS = new EnumLookup<>(Rank.class);
+    private final PartitionedMatcher matcher;
+
+    UsageReader(PartitionedMatcher matcher) {
+      // the number of columns in our query to consume
+      super(12);
+      this.matcher = matcher;
+    }
+
+    @Override
+    protected void addRow() {
+      PartitionedMatcher.Usage u = new PartitionedMatcher.Usage();
+      u.key = getInt(0, 0);
+      u.parentKey = getInteger(1);
+      u.rank = getEnum(2, RANKS);
+      // parsed by the matching thread the same way as the neo based matching does
+      u.scientificName = getString(3);
+      for (int idx = 0; idx < u.classification.length; idx++) {
+        u.classification[idx] = getInteger(4 + idx);
+      }
+      matcher.add(u);
+    }
+  }
+
 }
@@ -0,0 +1,282 @@
+package org.gbif.checklistbank.nub.lookup;
+
+import org.gbif.api.model.checklistbank.ParsedName;
+import org.gbif.api.service.checklistbank.NameParser;
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.nub.lookup.straight.IdLookup;
+import org.gbif.nub.lookup.straight.LookupUsage;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Matches a stream of dataset usages to the backbone in independent partitions on a worker pool.
+ * <p>
+ * Usages must be added in classification order, i.e. sorted by their denormalized higher classification keys
+ * with nulls first, so that higher taxa are added before their descendants and all usages of a family follow each other.
+ * Usages ranked above family are matched straight away by the calling thread as they provide the kingdom context
+ * for their descendants. All other usages are collected into partitions which only get cut at family boundaries
+ * and are matched concurrently.
+ * <p>
+ * The kingdom used to match a usage is the kingdom of the nearest matched usage in its parent or classification keys,
+ * or incertae sedis if none of them matched.
+ * <p>
+ * Usages given with a scientific name only are parsed by the worker matching them,
+ * so the parsing cost is spread over the pool just like the lookups.
+ * <p>
+ * Results are passed to the relation sink in bounded batches with null values for usages without a match.
+ * The sink is never called concurrently.
+ */
+public class PartitionedMatcher implements AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(PartitionedMatcher.class);
+
+  private final IdLookup lookup;
+  private final NameParser parser;
+  private final ExecutorService exec;
+  private final DatasetMatchSummary summary;
+  private final Consumer<Map<Integer, Integer>> sink;
+  private final int partitionSize;
+  private final int flushSize;
+  private final Semaphore pending;
+  // submitted partitions not known to be done yet, never more than maxPending plus the completed ones not yet drained
+  private final List<Future<?>> futures = Lists.newArrayList();
+  // the first exception thrown by a completed partition
+  private Throwable failure;
+  // nub kingdoms of matched higher taxa, written by the adding thread and read by the workers
+  private final Map<Integer, Kingdom> higherKingdoms = new ConcurrentHashMap<>();
+  private final Object flushLock = new Object();
+  private Map<Integer, Integer> relations = Maps.newHashMap();
+  private List<Usage> partition = Lists.newArrayList();
+  private Integer lastFamilyKey;
+
+  /**
+   * A minimal usage with the parsed name and the classification keys needed for matching.
+   */
+  public static class Usage {
+    public int key;
+    public Integer parentKey;
+    public Rank rank;
+    /**
+     * The full scientific name to be parsed by the matcher. If null the canonical name, authorship and year are used as given.
+     */
+    public String scientificName;
+    public String canonicalName;
+    public String authorship;
+    public String year;
+    public boolean parsed = true;
+    /**
+     * Denormalized classification keys for kingdom, phylum, class, order, family, genus, subgenus and species
+     */
+    public Integer[] classification = new Integer[8];
+
+    Integer familyKey() {
+      return classification[4];
+    }
+  }
+
+  /**
+   * @param parser        parser for usages given with a scientific name only
+   * @param partitionSize minimum number of usages in a partition before it is cut at the next family boundary
+   * @param maxPending    maximum number of partitions waiting or being matched, bounding the memory used
+   * @param flushSize     number of relations to collect before they are passed to the sink
+   */
+  public PartitionedMatcher(IdLookup lookup, NameParser parser, ExecutorService exec, DatasetMatchSummary summary, Consumer<Map<Integer, Integer>> sink,
+                            int partitionSize, int maxPending, int flushSize) {
+    this.lookup = lookup;
+    this.parser = parser;
+    this.exec = exec;
+    this.summary = summary;
+    this.sink = sink;
+    this.partitionSize = partitionSize;
+    this.flushSize = flushSize;
+    this.pending = new Semaphore(maxPending);
+  }
+
+  /**
+   * Adds the next usage in classification order.
+   * Higher taxa are matched immediately, all others are added to the current partition.
+   */
+  public void add(Usage u) {
+    if (u.rank != null && u.rank.higherThan(Rank.FAMILY)) {
+      Kingdom k = match(u, null);
+      if (k != null) {
+        higherKingdoms.put(u.key, k);
+      }
+    } else {
+      if (partition.size() >= partitionSize && !Objects.equals(lastFamilyKey, u.familyKey())) {
+        submit();
+      }
+      partition.add(u);
+      lastFamilyKey = u.familyKey();
+    }
+  }
+
+  private void submit() {
+    if (!partition.isEmpty()) {
+      final List<Usage> p = partition;
+      partition = Lists.newArrayList();
+      pending.acquireUninterruptibly();
+      drainCompleted();
+      summary.addPartition();
+      futures.add(exec.submit(() -> {
+        try {
+          matchPartition(p);
+        } finally {
+          pending.release();
+        }
+      }));
+    }
+  }
+
+  /**
+   * Removes all completed partitions from the futures list, remembering the first failure.
+   */
+  private void drainCompleted() {
+    Iterator<Future<?>> iter = futures.iterator();
+    while (iter.hasNext()) {
+      Future<?> f = iter.next();
+      if (f.isDone()) {
+        iter.remove();
+        try {
+          f.get();
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = e.getCause();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  private void matchPartition(List<Usage> usages) {
+    Int2ObjectMap<Kingdom> kingdoms = new Int2ObjectOpenHashMap<>();
+    for (Usage u : usages) {
+      Kingdom k = match(u, kingdoms);
+      if (k != null) {
+        kingdoms.put(u.key, k);
+      }
+    }
+    LOG.debug("Matched partition with {} usages", usages.size());
+  }
+
+  /**
+   * Matches a single usage and records the result.
+   * @param local kingdoms of matched usages within the current partition, null for higher taxa
+   * @return the kingdom of the matching backbone usage or null if not matched
+   */
+  private Kingdom match(Usage u, Int2ObjectMap<Kingdom> local) {
+    if (u.scientificName != null) {
+      parse(u);
+    }
+    if (!u.parsed) {
+      summary.addUnparsable();
+    }
+    LookupUsage match = lookup.match(u.canonicalName, u.authorship, u.year, u.rank, contextKingdom(u, local));
+    if (match != null) {
+      summary.addMatch(u.rank);
+      addRelation(u.key, match.getKey());
+      return match.getKingdom();
+    }
+    summary.addNoMatch(u.rank);
+    LOG.debug("No match for {} {} [{}]", u.rank, u.canonicalName, u.key);
+    // also store no matches as nulls so we can flag an issue
+    addRelation(u.key, null);
+    return null;
+  }
+
+  private void parse(Usage u) {
+    ParsedName pn = parser.parseQuietly(u.scientificName, u.rank);
+    u.canonicalName = pn.canonicalName();
+    u.authorship = pn.getAuthorship();
+    u.year = pn.getYear();
+    u.parsed = pn.isParsed();
+  }
+
+  /**
+   * @return the kingdom of the closest matched parent or classification usage, incertae sedis if there is none
+   */
+  private Kingdom contextKingdom(Usage u, Int2ObjectMap<Kingdom> local) {
+    Kingdom k = kingdom(u.parentKey, local);
+    for (int idx = u.classification.length - 1; k == null && idx >= 0; idx--) {
+      Integer key = u.classification[idx];
+      if (key != null && key != u.key) {
+        k = kingdom(key, local);
+      }
+    }
+    return k == null ? Kingdom.INCERTAE_SEDIS : k;
+  }
+
+  private Kingdom kingdom(Integer key, Int2ObjectMap<Kingdom> local) {
+    if (key == null) return null;
+    if (local != null && local.containsKey((int) key)) {
+      return local.get((int) key);
+    }
+    return higherKingdoms.get(key);
+  }
+
+  private void addRelation(int usageKey, Integer nubKey) {
+    Map<Integer, Integer> batch = null;
+    synchronized (this) {
+      relations.put(usageKey, nubKey);
+      if (relations.size() >= flushSize) {
+        batch = relations;
+        relations = Maps.newHashMap();
+      }
+    }
+    if (batch != null) {
+      flush(batch);
+    }
+  }
+
+  private void flush(Map<Integer, Integer> batch) {
+    synchronized (flushLock) {
+      LOG.debug("Flush {} nub relations", batch.size());
+      sink.accept(batch);
+    }
+  }
+
+  /**
+   * Matches the last partition, waits for all partitions to be done and flushes the remaining relations.
+   * Rethrows the first exception thrown by any partition.
+   */
+  @Override
+  public void close() throws InterruptedException, ExecutionException {
+    submit();
+    try {
+      for (Future<?> f : futures) {
+        f.get();
+      }
+    } finally {
+      futures.clear();
+    }
+    if (failure != null) {
+      throw new ExecutionException(failure);
+    }
+    Map<Integer, Integer> batch;
+    synchronized (this) {
+      batch = relations;
+      relations = Maps.newHashMap();
+    }
+    if (!batch.isEmpty()) {
+      flush(batch);
+    }
+  }
+}
@@ -30,7 +30,7 @@ import java.util.UUID;
 /**
  * A source for nub sources backed by usage data from checklistbank.
  * The list of source datasets is discovered by reading a configured tab delimited online file.
- * The sources are then loaded asynchroneously through a single background thread into temporary neo4j databases.
+ * The sources are then loaded asynchroneously through background threads into temporary neo4j databases and flattened into files.
  */
 public class ClbSourceList extends NubSourceList {
 
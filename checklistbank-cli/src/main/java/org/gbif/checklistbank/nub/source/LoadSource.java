@@ -3,7 +3,7 @@ package org.gbif.checklistbank.nub.source;
 import java.util.concurrent.Callable;
 
 /**
- * Job that initializes a NubSource
+ * Job that initializes a NubSource and flattens it into a file for cheap iterations.
  */
 class LoadSource implements Callable<NubSource> {
   private final NubSource src;
@@ -15,6 +15,7 @@ class LoadSource implements Callable<NubSource> {
   @Override
   public NubSource call() throws Exception {
     src.init(false, false);
+    src.flatten();
     return src;
   }
 }
\ No newline at end of file
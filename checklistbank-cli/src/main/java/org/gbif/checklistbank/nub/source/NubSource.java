@@ -22,7 +22,7 @@ import org.gbif.checklistbank.neo.UsageDao;
 import org.gbif.checklistbank.neo.traverse.TreeIterables;
 import org.gbif.checklistbank.nub.NubBuilder;
 import org.gbif.checklistbank.nub.model.SrcUsage;
-import org.gbif.checklistbank.postgres.TabMapperBase;
+import org.gbif.checklistbank.postgres.TabRowMapperBase;
 import org.gbif.common.parsers.utils.NameParserUtils;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
@@ -54,10 +54,15 @@ import java.util.concurrent.TimeUnit;
  * <li>namePublishedIn</li>
  * </ul>
  * Implement the abstract initNeo method to supply such a tab delimited stream to the NeoUsageWriter instance.
+ * <p>
+ * Once loaded a source can be flattened into a memory mapped file of usages in taxonomic order,
+ * releasing the neo db so many sources can wait for being processed without holding neo resources.
  */
 
 public abstract class NubSource implements CloseableIterable<SrcUsage> {
   private static final Logger LOG = LoggerFactory.getLogger(NubSource.class);
+  private static final TabRowMapperBase.EnumLookup<Rank> RANKS = new TabRowMapperBase.EnumLookup<>(Rank.class);
+  private static final TabRowMapperBase.EnumLookup<TaxonomicStatus> STATUS = new TabRowMapperBase.EnumLookup<>(TaxonomicStatus.class);
 
   private static final NeoConfiguration cfg = new NeoConfiguration();
   private final Stopwatch watch = Stopwatch.createUnstarted();
@@ -77,6 +82,7 @@ public abstract class NubSource implements CloseableIterable<SrcUsage> {
   boolean ignoreSynonyms = false;
 
   private UsageDao dao;
+  private SrcUsageFile flatFile;
   private final boolean useTmpDao;
 
   /**
@@ -118,6 +124,21 @@ public abstract class NubSource implements CloseableIterable<SrcUsage> {
     }
   }
 
+  /**
+   * Copies all usages in taxonomic order into a flat file and deletes the neo db afterwards.
+   * All subsequent iterations read from the flat file, so only call this after init() and if the dao is not needed anymore.
+   */
+  public void flatten() throws Exception {
+    watch.reset().start();
+    File f = new File(cfg.neoRepository, key + ".src");
+    try (CloseableIterator<SrcUsage> iter = iterator()) {
+      flatFile = SrcUsageFile.write(f, iter);
+    }
+    dao.closeAndDelete();
+    dao = null;
+    LOG.info("Flattened nub source {} with {} usages in {}ms", name, flatFile.size(), watch.elapsed(TimeUnit.MILLISECONDS));
+  }
+
   public void setParser(NameParser parser) {
     this.parser = parser;
   }
@@ -129,7 +150,7 @@ public abstract class NubSource implements CloseableIterable<SrcUsage> {
 
   protected abstract void initNeo(NeoUsageWriter writer) throws Exception;
 
-  public class NeoUsageWriter extends TabMapperBase {
+  public class NeoUsageWriter extends TabRowMapperBase {
     private int counter = 0;
     private int unparsable = 0;
     private int skipped = 0;
@@ -155,6 +176,22 @@ public abstract class NubSource implements CloseableIterable<SrcUsage> {
     }
 
     @Override
+    protected void addRow() {
+      SrcUsage u = new SrcUsage();
+      u.key = getInteger(0);
+      u.parentKey = getInteger(1);
+      u.originalNameKey = getInteger(2);
+      u.rank = getEnum(3, RANKS);
+      u.status = getEnum(4, STATUS);
+      u.nomStatus = toNomStatus(getString(5));
+      u.scientificName = getString(6);
+      u.publishedIn = getString(7);
+      addUsage(u);
+    }
+
+    /**
+     * Adds a usage given as an array of strings in the same order as the tab delimited columns.
+     */
     protected void addRow(String[] row) {
       SrcUsage u = new SrcUsage();
       u.key = toInt(row[0]);
@@ -165,7 +202,10 @@ public abstract class NubSource implements CloseableIterable<SrcUsage> {
       u.nomStatus = toNomStatus(row[5]);
       u.scientificName = row[6];
       u.publishedIn = row[7];
+      addUsage(u);
+    }
 
+    private void addUsage(SrcUsage u) {
       if (ignoreSynonyms && u.status != null && u.status.isSynonym()) {
         LOG.debug("Skipping synonym {}: {}", u.key, u.scientificName);
         skipped++;
@@ -346,12 +386,15 @@ public abstract class NubSource implements CloseableIterable<SrcUsage> {
   }
 
   /**
-   * Returns a neo db backed iterator over all usages.
+   * Returns a neo db or flat file backed iterator over all usages.
    * The iteration is in taxonomic order, starting with the highest root taxa and walks
    * the taxonomic tree in depth order first, including synonyms.
    */
   @Override
   public CloseableIterator<SrcUsage> iterator() {
+    if (flatFile != null) {
+      return flatFile.iterator();
+    }
     if (dao == null) {
       dao = openOrCreate(false);
     }
@@ -380,6 +423,9 @@ public abstract class NubSource implements CloseableIterable<SrcUsage> {
     if (dao != null) {
       dao.closeAndDelete();
     }
+    if (flatFile != null) {
+      flatFile.delete();
+    }
   }
 
 }
@@ -4,7 +4,6 @@ import com.google.common.collect.Lists;
 import org.gbif.api.service.checklistbank.NameParser;
 import org.gbif.checklistbank.cli.nubbuild.NubConfiguration;
 import org.gbif.checklistbank.iterable.CloseableIterable;
-import org.gbif.checklistbank.iterable.FutureIterator;
 import org.gbif.nameparser.NameParserGbifV1;
 import org.gbif.utils.concurrent.ExecutorUtils;
 import org.gbif.utils.concurrent.NamedThreadFactory;
@@ -13,46 +12,88 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.concurrent.*;
 
 /**
  * Base class for nub source lists that deals with the iterators and async loading of sources,
  * preserving the original source order.
+ * Sources are loaded by a configurable number of threads, but only a limited number of sources is submitted
+ * ahead of the one currently being processed to keep disk and memory usage of loaded sources bounded.
+ * Loaded sources are flattened into files so waiting sources do not keep a neo db open.
  */
 public class NubSourceList implements CloseableIterable<NubSource> {
   private static final Logger LOG = LoggerFactory.getLogger(ClbSourceList.class);
   private final ExecutorService exec;
   private final NameParser parser;
-  private List<Future<NubSource>> futures = Lists.newArrayList();
+  private final List<NubSource> sources = Lists.newArrayList();
+  private final List<Future<NubSource>> futures = Lists.newArrayList();
   protected final NubConfiguration cfg;
 
   public NubSourceList(NubConfiguration cfg) {
     this.cfg = cfg;
     parser = new NameParserGbifV1(cfg.parserTimeout);
-    exec = new ThreadPoolExecutor(0, 2,
-        100L, TimeUnit.MILLISECONDS,
-        new LinkedBlockingQueue<Runnable>(),
-        new NamedThreadFactory("source-loader"));
+    exec = Executors.newFixedThreadPool(cfg.sourceLoaderThreads, new NamedThreadFactory("source-loader"));
   }
 
   /**
    * Call this method from subclasses once to submit all nub resources to this list.
    * The list will be submitted to a background loaders that calls init() on each NubSource asynchroneously.
    */
-  public void submitSources(Iterable<? extends NubSource> sources) {
-    // submit loader jobs
+  public synchronized void submitSources(Iterable<? extends NubSource> sources) {
     int counter = 0;
     for (NubSource src : sources) {
       counter++;
       src.setParser(parser);
-      futures.add(exec.submit(new LoadSource(src)));
+      this.sources.add(src);
+    }
+    // submit the first loader jobs, the rest follows while sources are being consumed
+    while (futures.size() < this.sources.size() && futures.size() < cfg.maxLoadedSources) {
+      submitNext();
+    }
+    LOG.info("Queued {} backbone sources for loading with {} threads", counter, cfg.sourceLoaderThreads);
+  }
+
+  private synchronized void submitNext() {
+    if (futures.size() < sources.size()) {
+      futures.add(exec.submit(new LoadSource(sources.get(futures.size()))));
     }
-    LOG.info("Queued {} backbone sources for loading", counter);
   }
 
+  /**
+   * Iterates over the loaded sources in their original order, blocking until the next one is loaded.
+   * Every source requested after the first one submits the next pending source for loading,
+   * as the previous one is expected to be processed and closed by then.
+   */
   @Override
   public Iterator<NubSource> iterator() {
-    return new FutureIterator<NubSource>(futures);
+    return new Iterator<NubSource>() {
+      private int idx = 0;
+
+      @Override
+      public boolean hasNext() {
+        return idx < sources.size();
+      }
+
+      @Override
+      public NubSource next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        if (idx > 0) {
+          submitNext();
+        }
+        Future<NubSource> f;
+        synchronized (NubSourceList.this) {
+          f = futures.get(idx++);
+        }
+        try {
+          return f.get();
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
   }
 
   @Override
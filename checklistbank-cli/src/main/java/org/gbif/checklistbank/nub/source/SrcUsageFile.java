@@ -0,0 +1,163 @@
+package org.gbif.checklistbank.nub.source;
+
+import org.gbif.checklistbank.iterable.CloseableIterator;
+import org.gbif.checklistbank.kryo.CliKryoFactory;
+import org.gbif.checklistbank.nub.model.SrcUsage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoPool;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * A flat file of kryo serialized source usages kept in the order they were written,
+ * usually the taxonomic order of a source.
+ * The file is read sequentially through a read only memory mapped window which moves along the file,
+ * so iterating does not need a neo4j db nor any transactions.
+ */
+public class SrcUsageFile {
+  private static final KryoPool POOL = new KryoPool.Builder(new CliKryoFactory())
+      .softReferences()
+      .build();
+  // size of the mapped window, records larger than that get their own window
+  private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+  private final File file;
+  private final int size;
+
+  private SrcUsageFile(File file, int size) {
+    this.file = file;
+    this.size = size;
+  }
+
+  /**
+   * Writes all usages into a new flat file, replacing any existing file.
+   */
+  public static SrcUsageFile write(File file, Iterator<SrcUsage> usages) throws IOException {
+    int counter = 0;
+    Kryo kryo = POOL.borrow();
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1024 * 1024))) {
+      Output buffer = new Output(1024, -1);
+      while (usages.hasNext()) {
+        buffer.clear();
+        kryo.writeObject(buffer, usages.next());
+        // length prefix so readers know if a record fits into the current window
+        out.writeInt(buffer.position());
+        out.write(buffer.getBuffer(), 0, buffer.position());
+        counter++;
+      }
+    } finally {
+      POOL.release(kryo);
+    }
+    return new SrcUsageFile(file, counter);
+  }
+
+  /**
+   * @return number of usages in the file
+   */
+  public int size() {
+    return size;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * @return a new iterator over all usages in the order they were written
+   */
+  public CloseableIterator<SrcUsage> iterator() {
+    try {
+      return new SrcUsageFileIterator();
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to open source usage file " + file, e);
+    }
+  }
+
+  public void delete() {
+    FileUtils.deleteQuietly(file);
+  }
+
+  private class SrcUsageFileIterator implements CloseableIterator<SrcUsage> {
+    private final FileChannel channel;
+    private final long fileSize;
+    private final Kryo kryo = POOL.borrow();
+    private long windowStart;
+    private MappedByteBuffer window;
+    private int remaining = size;
+    private byte[] record = new byte[1024];
+
+    SrcUsageFileIterator() throws IOException {
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      fileSize = channel.size();
+      map(0, 0);
+    }
+
+    private void map(long pos, int minSize) throws IOException {
+      windowStart = pos;
+      window = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(Math.max(WINDOW_SIZE, minSize), fileSize - pos));
+    }
+
+    /**
+     * Makes sure the next bytes are available in the current window, moving the window if needed.
+     */
+    private void require(int bytes) throws IOException {
+      if (window.remaining() < bytes) {
+        map(windowStart + window.position(), bytes);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    @Override
+    public SrcUsage next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      try {
+        require(4);
+        int len = window.getInt();
+        require(len);
+        if (record.length < len) {
+          record = new byte[len];
+        }
+        window.get(record, 0, len);
+        remaining--;
+        return kryo.readObject(new Input(record, 0, len), SrcUsage.class);
+
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to read source usage file " + file, e);
+      }
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Not implemented");
+    }
+
+    @Override
+    public void close() {
+      POOL.release(kryo);
+      try {
+        channel.close();
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to close source usage file " + file, e);
+      }
+    }
+  }
+}
@@ -39,6 +39,7 @@ public class ClbConfigurationTest {
     cfg.connectionTimeout = 7777;
     cfg.parserTimeout = 1000;
     cfg.syncThreads = 3;
+    cfg.keyCacheSize = 5000;
 
     Properties p = cfg.toProps(true);
 
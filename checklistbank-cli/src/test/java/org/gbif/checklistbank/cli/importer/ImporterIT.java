@@ -168,6 +168,41 @@ public class ImporterIT extends BaseTest implements AutoCloseable {
     }
   }
 
+  /**
+   * Reimports an unchanged dataset and makes sure no usage is written or deleted again.
+   */
+  @Test
+  public void testUnchangedReimport() throws Exception {
+    final UUID datasetKey = NormalizerTest.datasetKey(1);
+
+    // insert neo db
+    insertNeo(datasetKey);
+
+    // 1st import, keep neo db
+    Importer importer = runImport(datasetKey);
+    assertEquals(20, importer.getSyncCounter());
+    assertEquals(0, importer.getUnchangedCounter());
+    assertEquals(0, importer.getDelCounter());
+
+    Map<Integer, String> ids = Maps.newHashMap();
+    for (NameUsage u : nameUsageService.list(null, datasetKey, null, new PagingRequest(0, 100)).getResults()) {
+      ids.put(u.getKey(), u.getScientificName());
+    }
+    assertEquals(20, ids.size());
+
+    // 2nd import, nothing has changed
+    importer = runImport(datasetKey);
+    assertEquals(0, importer.getSyncCounter());
+    assertEquals(20, importer.getUnchangedCounter());
+    assertEquals(0, importer.getDelCounter());
+
+    PagingResponse<NameUsage> resp = nameUsageService.list(null, datasetKey, null, new PagingRequest(0, 100));
+    assertEquals(20, resp.getResults().size());
+    for (NameUsage u : resp.getResults()) {
+      assertEquals(ids.get(u.getKey()), u.getScientificName());
+    }
+  }
+
   /**
    * Testing CLIMBER dataset from ZooKeys:
    * http://www.gbif.org/dataset/e2bcea8c-dfea-475e-a4ae-af282b4ea1c5
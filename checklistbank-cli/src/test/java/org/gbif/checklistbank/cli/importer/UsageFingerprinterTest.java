@@ -0,0 +1,92 @@
+package org.gbif.checklistbank.cli.importer;
+
+import org.gbif.api.model.checklistbank.NameUsage;
+import org.gbif.api.model.checklistbank.NameUsageMetrics;
+import org.gbif.api.model.checklistbank.ParsedName;
+import org.gbif.api.model.checklistbank.VerbatimNameUsage;
+import org.gbif.api.model.checklistbank.VernacularName;
+import org.gbif.api.vocabulary.Language;
+import org.gbif.api.vocabulary.NameUsageIssue;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.checklistbank.model.UsageExtensions;
+import org.gbif.dwc.terms.DwcTerm;
+import org.gbif.dwc.terms.GbifTerm;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class UsageFingerprinterTest {
+  private final UsageFingerprinter fp = new UsageFingerprinter();
+
+  private static NameUsage usage(Integer key) {
+    NameUsage u = new NameUsage();
+    u.setKey(key);
+    u.setTaxonID("t1");
+    u.setScientificName("Abies alba Mill.");
+    u.setRank(Rank.SPECIES);
+    u.setParentKey(12);
+    u.getIssues().add(NameUsageIssue.RANK_INVALID);
+    u.getIssues().add(NameUsageIssue.CLASSIFICATION_NOT_APPLIED);
+    return u;
+  }
+
+  private static ParsedName name() {
+    ParsedName pn = new ParsedName();
+    pn.setGenusOrAbove("Abies");
+    pn.setSpecificEpithet("alba");
+    pn.setAuthorship("Mill.");
+    return pn;
+  }
+
+  private static UsageExtensions extensions() {
+    UsageExtensions ext = new UsageExtensions();
+    VernacularName v = new VernacularName();
+    v.setVernacularName("Weißtanne");
+    v.setLanguage(Language.GERMAN);
+    ext.vernacularNames.add(v);
+    return ext;
+  }
+
+  @Test
+  public void testFingerprint() throws Exception {
+    VerbatimNameUsage v1 = new VerbatimNameUsage();
+    v1.setCoreField(DwcTerm.taxonID, "t1");
+    v1.setCoreField(DwcTerm.scientificName, "Abies alba");
+    v1.setCoreField(GbifTerm.depth, "1200");
+
+    // same content, different insertion order
+    VerbatimNameUsage v2 = new VerbatimNameUsage();
+    v2.setCoreField(GbifTerm.depth, "1200");
+    v2.setCoreField(DwcTerm.scientificName, "Abies alba");
+    v2.setCoreField(DwcTerm.taxonID, "t1");
+
+    NameUsage u = usage(null);
+    long f1 = fp.fingerprint(u, name(), new NameUsageMetrics(), extensions(), v1);
+    // usage keys are ignored and kept
+    NameUsage u2 = usage(1234);
+    assertEquals(f1, fp.fingerprint(u2, name(), new NameUsageMetrics(), extensions(), v2));
+    assertEquals((Integer) 1234, u2.getKey());
+
+    // changed usage
+    u = usage(null);
+    u.setParentKey(13);
+    assertNotEquals(f1, fp.fingerprint(u, name(), new NameUsageMetrics(), extensions(), v1));
+
+    // changed metrics
+    NameUsageMetrics m = new NameUsageMetrics();
+    m.setNumDescendants(3);
+    assertNotEquals(f1, fp.fingerprint(usage(null), name(), m, extensions(), v1));
+
+    // changed extensions
+    UsageExtensions ext = extensions();
+    ext.vernacularNames.get(0).setVernacularName("Edeltanne");
+    assertNotEquals(f1, fp.fingerprint(usage(null), name(), new NameUsageMetrics(), ext, v1));
+    assertNotEquals(f1, fp.fingerprint(usage(null), name(), new NameUsageMetrics(), null, v1));
+
+    // changed verbatim
+    v2.setCoreField(GbifTerm.depth, "1300");
+    assertNotEquals(f1, fp.fingerprint(usage(null), name(), new NameUsageMetrics(), extensions(), v2));
+  }
+}
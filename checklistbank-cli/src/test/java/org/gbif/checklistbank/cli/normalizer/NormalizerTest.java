@@ -1,6 +1,7 @@
 package org.gbif.checklistbank.cli.normalizer;
 
 import com.beust.jcommander.internal.Sets;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.gbif.api.model.checklistbank.NameUsage;
 import org.gbif.api.model.checklistbank.NameUsageMetrics;
@@ -12,9 +13,12 @@ import org.gbif.checklistbank.cli.model.GraphFormat;
 import org.gbif.checklistbank.model.UsageExtensions;
 import org.gbif.checklistbank.neo.Labels;
 import org.gbif.checklistbank.neo.NeoProperties;
+import org.gbif.checklistbank.neo.RelType;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.schema.IndexDefinition;
 import org.neo4j.graphdb.schema.Schema;
@@ -26,6 +30,7 @@ import org.slf4j.LoggerFactory;
 import java.io.PrintWriter;
 import java.io.Writer;
 import java.net.URI;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -98,6 +103,29 @@ public class NormalizerTest extends BaseTest {
     }
   }
 
+  /**
+   * Inserts with parallel name parsing and walks the tree in parallel which must result in the same stats.
+   */
+  @Test
+  public void testParallelIdList() throws Exception {
+    final UUID datasetKey = datasetKey(1);
+    cfg.parserThreads = 4;
+    cfg.walkerThreads = 3;
+
+    Normalizer norm = Normalizer.create(cfg, datasetKey);
+    norm.run();
+    NormalizerStats stats = norm.getStats();
+
+    assertEquals(20, stats.getCount());
+    assertEquals(6, stats.getDepth());
+    assertEquals(20, stats.getCountByOrigin(Origin.SOURCE));
+    assertEquals(1, stats.getRoots());
+    assertEquals(4, stats.getSynonyms());
+
+    openDb(datasetKey);
+    compareStats(stats);
+  }
+
   @Test
   public void testIdList() throws Exception {
     final UUID datasetKey = datasetKey(1);
@@ -1143,6 +1171,73 @@ public class NormalizerTest extends BaseTest {
     return stats;
   }
 
+  /**
+   * Relations are setup in batched transactions with repeated passes over all nodes
+   * to also process the implicit nodes created in earlier passes.
+   * Make sure the resulting graph does not depend on the batch size.
+   */
+  @Test
+  public void testBatchedRelationSetup() throws Exception {
+    for (int key : new int[]{1, 18}) {
+      final UUID datasetKey = datasetKey(key);
+
+      cfg.neo.batchSize = 100000;
+      Normalizer norm = Normalizer.create(cfg, datasetKey);
+      norm.run();
+      NormalizerStats single = norm.getStats();
+      openDb(datasetKey);
+      List<String> expected = dumpUsages();
+      dao.closeAndDelete();
+      dao = null;
+
+      cfg.neo.batchSize = 1;
+      norm = Normalizer.create(cfg, datasetKey);
+      norm.run();
+      NormalizerStats batched = norm.getStats();
+      openDb(datasetKey);
+      compareStats(batched);
+      assertEquals(single.getCount(), batched.getCount());
+      assertEquals(single.getRoots(), batched.getRoots());
+      assertEquals(single.getSynonyms(), batched.getSynonyms());
+      assertEquals(single.getCountByOrigin(), batched.getCountByOrigin());
+      assertEquals(single.getCountByRank(), batched.getCountByRank());
+      assertEquals(expected, dumpUsages());
+      dao.closeAndDelete();
+      dao = null;
+    }
+  }
+
+  /**
+   * @return sorted list of all usages with their parent, accepted and basionym names
+   */
+  private List<String> dumpUsages() {
+    List<String> usages = Lists.newArrayList();
+    try (Transaction tx = beginTx()) {
+      for (Node n : dao.getNeo().getAllNodes()) {
+        if (!n.hasLabel(Labels.TAXON)) {
+          continue;
+        }
+        NameUsage u = dao.readUsage(n, false);
+        usages.add(u.getTaxonID() + "|" + u.getScientificName() + "|" + u.getRank() + "|" + u.getTaxonomicStatus()
+            + "|" + u.getOrigin()
+            + "|parent=" + relatedNames(n, Direction.INCOMING, RelType.PARENT_OF)
+            + "|accepted=" + relatedNames(n, Direction.OUTGOING, RelType.SYNONYM_OF, RelType.PROPARTE_SYNONYM_OF)
+            + "|basionym=" + relatedNames(n, Direction.INCOMING, RelType.BASIONYM_OF));
+      }
+    }
+    Collections.sort(usages);
+    return usages;
+  }
+
+  private List<String> relatedNames(Node n, Direction dir, RelType... types) {
+    List<String> names = Lists.newArrayList();
+    for (Relationship rel : n.getRelationships(dir, types)) {
+      names.add((String) rel.getOtherNode(n).getProperty(NeoProperties.SCIENTIFIC_NAME, null));
+    }
+    Collections.sort(names);
+    return names;
+  }
+
   private void verifyParsedNames() {
     try (Transaction tx = beginTx()) {
       for (Node n : dao.getNeo().getAllNodes()) {
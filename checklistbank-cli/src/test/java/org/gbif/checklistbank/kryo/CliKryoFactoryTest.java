@@ -13,7 +13,13 @@ import org.gbif.api.model.checklistbank.TypeSpecimen;
 import org.gbif.api.model.checklistbank.VerbatimNameUsage;
 import org.gbif.api.model.checklistbank.VernacularName;
 import org.gbif.api.model.common.Identifier;
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.NameType;
+import org.gbif.api.vocabulary.NameUsageIssue;
 import org.gbif.api.vocabulary.NomenclaturalStatus;
+import org.gbif.api.vocabulary.Origin;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.api.vocabulary.TaxonomicStatus;
 import org.gbif.checklistbank.model.UsageExtensions;
 import org.gbif.checklistbank.nub.model.NubUsage;
 import org.gbif.checklistbank.nub.model.SrcUsage;
@@ -22,6 +28,7 @@ import org.gbif.dwc.terms.*;
 import java.io.ByteArrayOutputStream;
 import java.net.URI;
 import java.util.List;
+import java.util.UUID;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
@@ -47,6 +54,59 @@ public class CliKryoFactoryTest {
         assertSerde(u);
     }
 
+    @Test
+    public void testPopulatedUsages() throws Exception {
+        ParsedName pn = new ParsedName();
+        pn.setScientificName("Abies alba Mill.");
+        pn.setGenusOrAbove("Abies");
+        pn.setSpecificEpithet("alba");
+        pn.setAuthorship("Mill.");
+        pn.setRank(Rank.SPECIES);
+        pn.setType(NameType.SCIENTIFIC);
+        pn.setParsed(true);
+        assertSerde(pn);
+
+        SrcUsage src = new SrcUsage();
+        src.key = 12;
+        src.parentKey = -3;
+        src.scientificName = "Abies alba Mill.";
+        src.parsedName = pn;
+        src.rank = Rank.SPECIES;
+        src.status = TaxonomicStatus.ACCEPTED;
+        src.nomStatus = new NomenclaturalStatus[]{NomenclaturalStatus.CONSERVED};
+        assertSerde(src);
+
+        NubUsage u = new NubUsage(src);
+        u.usageKey = 1001;
+        u.datasetKey = UUID.randomUUID();
+        u.origin = Origin.SOURCE;
+        u.kingdom = Kingdom.PLANTAE;
+        u.sourceIds.add(12);
+        u.issues.add(NameUsageIssue.BACKBONE_MATCH_FUZZY);
+        u.addRemark("first");
+        assertSerde(u);
+
+        // constructor defaults must not survive when null was stored
+        u.nomStatus = null;
+        u.remarks = null;
+        assertSerde(u);
+
+        NameUsage nu = new NameUsage();
+        nu.setKey(100);
+        nu.setScientificName("Abies alba Mill.");
+        nu.setCanonicalName("Abies alba");
+        nu.setRank(Rank.SPECIES);
+        nu.setTaxonomicStatus(TaxonomicStatus.ACCEPTED);
+        nu.setOrigin(Origin.SOURCE);
+        nu.setParentKey(99);
+        nu.setConstituentKey(UUID.randomUUID());
+        assertSerde(nu);
+
+        UsageExtensions ext = new UsageExtensions();
+        ext.synonyms.add(nu);
+        assertSerde(ext);
+    }
+
     @Test
     public void testTerms() throws Exception {
         List<Term> terms = Lists.newArrayList(
@@ -28,6 +28,9 @@ import java.util.Random;
 import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class UsageDaoTest {
   private final static Random RND = new Random();
@@ -141,6 +144,59 @@ public class UsageDaoTest {
     }
   }
 
+  @Test
+  public void testWalkCache() throws Exception {
+    dao = UsageDao.temporaryDao(10);
+    try (Transaction tx = dao.beginTx()) {
+      Node n1 = dao.create(usage(1, Rank.GENUS));
+      Node n2 = dao.create(usage(2));
+      Node syn = dao.create(usage(3));
+      ParsedName pn = new ParsedName();
+      pn.setGenusOrAbove("Abies");
+      dao.store(n1.getId(), pn);
+
+      try (WalkCache cache = dao.walkCache(1)) {
+        // path nodes are shared instances until the walk leaves them
+        NameUsage u1 = dao.readUsage(n1, false);
+        cache.start(n1);
+        assertSame(u1, dao.readUsage(n1, false));
+        assertSame(dao.readName(n1.getId()), dao.readName(n1.getId()));
+
+        cache.start(n2);
+        NameUsage u2 = dao.readUsage(n2, false);
+        assertSame(u2, dao.readUsage(n2, false));
+        // relations are never read from the cache
+        assertNotSame(u2, dao.readUsage(n2, true));
+
+        // modifications are written back when the walk leaves the node
+        u2.setNubKey(200);
+        dao.store(n2.getId(), u2, false);
+        dao.readUsage(syn, false);
+        cache.end(n2);
+        assertNotSame(u2, dao.readUsage(n2, false));
+        assertEquals((Integer) 200, dao.readUsage(n2, false).getNubKey());
+
+        // other nodes are kept in a LRU cache and written back on eviction
+        NameUsage s = dao.readUsage(syn, false);
+        s.setNubKey(300);
+        dao.store(syn.getId(), s, false);
+        assertSame(s, dao.readUsage(syn, false));
+        dao.readUsage(n2, false);
+        assertNotSame(s, dao.readUsage(syn, false));
+        assertEquals((Integer) 300, dao.readUsage(syn, false).getNubKey());
+
+        // modified, but still on the path
+        u1.setNubKey(100);
+        dao.store(n1.getId(), u1, false);
+        assertTrue(cache.hitRate() > 0.3);
+      }
+      // the cache flushes all modifications when closed
+      NameUsage u1 = dao.readUsage(n1, false);
+      assertEquals((Integer) 100, u1.getNubKey());
+      assertNotSame(u1, dao.readUsage(n1, false));
+    }
+  }
+
   public static NameUsage usage(int key) {
     return usage(key, Rank.SPECIES);
   }
@@ -10,7 +10,11 @@ import org.gbif.checklistbank.neo.RelType;
 import org.gbif.checklistbank.cli.model.NameUsageNode;
 import org.gbif.checklistbank.cli.model.UsageFacts;
 
+import java.util.List;
+import java.util.Map;
+
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.junit.Test;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Transaction;
@@ -92,6 +96,69 @@ public class UsageMetricsHandlerTest extends BaseTest {
     }
   }
 
+  /**
+   * Makes sure a parallel walk with families as chunks results in the same metrics and classifications as a sequential one.
+   */
+  @Test
+  public void testParallelWalk() {
+    initDb();
+
+    List<Node> nodes = Lists.newArrayList();
+    try (Transaction tx = beginTx()) {
+      Node n = addNode(Rank.KINGDOM, "Plantae", null);
+      n.addLabel(Labels.ROOT);
+      nodes.add(n);
+      // a root family
+      n = addNode(Rank.FAMILY, "Rosaceae", null);
+      n.addLabel(Labels.ROOT);
+      nodes.add(n);
+      nodes.add(addNode(Rank.GENUS, "Rosa", n));
+
+      n = addNode(Rank.PHYLUM, "Pinophyta", nodes.get(0));
+      nodes.add(n);
+      n = addNode(Rank.CLASS, "Pinalaea", n);
+      nodes.add(n);
+      Node order = addNode(Rank.ORDER, "Pinales", n);
+      nodes.add(order);
+      nodes.add(addNode(Rank.FAMILY, "Araucariaceae", order));
+      nodes.add(addNode(Rank.GENUS, "Cupressus", order));
+      n = addNode(Rank.FAMILY, "Pinaceae", order);
+      nodes.add(n);
+      n = addNode(Rank.SUBFAMILY, "Abiedea", n);
+      nodes.add(n);
+      nodes.add(addNode(Rank.GENUS, "Pinus", n));
+      n = addNode(Rank.GENUS, "Abies", n);
+      nodes.add(n);
+      nodes.add(addNode(Rank.SPECIES, "Abies Alpina DC.", n));
+      n = addNode(Rank.SPECIES, "Abies alba Mill.", n);
+      nodes.add(n);
+      nodes.add(addNode(Rank.SUBSPECIES, "Abies alba subsp. alpina Mill.", n));
+      tx.success();
+    }
+
+    UsageMetricsHandler handler = new UsageMetricsHandler(dao);
+    TreeWalker.walkAcceptedTree(dao.getNeo(), handler);
+    NormalizerStats expected = handler.getStats(0, Lists.<String>newArrayList());
+    Map<Long, UsageFacts> expectedFacts = Maps.newHashMap();
+    for (Node n : nodes) {
+      expectedFacts.put(n.getId(), dao.readFacts(n.getId()));
+    }
+
+    UsageMetricsHandler parallel = new UsageMetricsHandler(dao);
+    ChunkingEvaluator chunking = new ChunkingEvaluator(Rank.FAMILY);
+    TreeWalker.walkAcceptedTree(dao.getNeo(), chunking, 3, null, parallel);
+
+    assertEquals(expected, parallel.getStats(0, Lists.<String>newArrayList()));
+    for (Node n : nodes) {
+      UsageFacts facts = dao.readFacts(n.getId());
+      assertEquals(expectedFacts.get(n.getId()).metrics, facts.metrics);
+      assertEquals(expectedFacts.get(n.getId()).classification, facts.classification);
+    }
+    // the order rolls up both families, one of them walked as a chunk
+    assertEquals(2, expectedFacts.get(nodes.get(5).getId()).metrics.getNumFamily());
+    assertEquals(9, expectedFacts.get(nodes.get(5).getId()).metrics.getNumDescendants());
+  }
+
   private void assertUsage(long id, Rank rank, LinneanClassificationKeys expected) {
     UsageFacts facts = dao.readFacts(id);
     for (Rank r : Rank.LINNEAN_RANKS) {
@@ -20,6 +20,7 @@ import org.gbif.checklistbank.nub.model.NubUsage;
 import org.gbif.checklistbank.nub.source.*;
 import org.gbif.checklistbank.utils.SciNameNormalizer;
 import org.gbif.nameparser.NameParserGbifV1;
+import org.gbif.nub.lookup.straight.IdLookup;
 import org.gbif.nub.lookup.straight.IdLookupImpl;
 import org.gbif.nub.lookup.straight.LookupUsage;
 import org.gbif.utils.ObjectUtils;
@@ -1331,6 +1332,48 @@ public class NubBuilderIT {
     assertTree("68.txt");
   }
 
+  /**
+   * Detecting basionyms in parallel must result in the very same tree.
+   */
+  @Test
+  public void testParallelBasionymDetection() throws Exception {
+    CFG.basionymThreads = 4;
+    try {
+      ClasspathSourceList src = ClasspathSourceList.source(68);
+      build(src);
+
+      assertTree("68.txt");
+    } finally {
+      CFG.basionymThreads = 1;
+    }
+  }
+
+  /**
+   * A family failing to persist its basionym relations must not affect the other families written in the same batch.
+   */
+  @Test
+  public void testFailingBasionymFamily() throws Exception {
+    ClasspathSourceList src = ClasspathSourceList.source(67, 68);
+    IdLookup lookup = IdLookupImpl.temp().load(Lists.<LookupUsage>newArrayList());
+    NubBuilder nb = new NubBuilder(dao, src, lookup, lookup.getAuthorComparator(), 10, CFG) {
+      @Override
+      void applyBasionymGroups(FamilyBasionymGroups fbg) {
+        super.applyBasionymGroups(fbg);
+        if (fbg.family.parsedName.canonicalName().equals("Asteraceae")) {
+          throw new IllegalStateException("Failing family Asteraceae");
+        }
+      }
+    };
+    nb.setCloseDao(false);
+    nb.run();
+
+    tx = dao.beginTx();
+    printTree();
+    assertFalse(getScientific("Mulgedium sonchifolium Vis. & Pančić", Rank.SPECIES).node.hasLabel(Labels.BASIONYM));
+    assertTrue(getScientific("Galinthias meruensis Sjostedt, 1909", Rank.SPECIES).node.hasLabel(Labels.BASIONYM));
+    assertTrue(getScientific("Pseudoharpax nigericus Giglio-Tos, 1915", Rank.SPECIES).node.hasLabel(Labels.BASIONYM));
+  }
+
 
   /**
    * http://dev.gbif.org/issues/browse/POR-3024
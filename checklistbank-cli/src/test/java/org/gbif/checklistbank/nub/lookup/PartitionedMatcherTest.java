@@ -0,0 +1,106 @@
+package org.gbif.checklistbank.nub.lookup;
+
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.common.parsers.utils.NameParserUtils;
+import org.gbif.nub.lookup.straight.IdLookup;
+import org.gbif.nub.lookup.straight.IdLookupImpl;
+import org.gbif.nub.lookup.straight.LookupUsage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PartitionedMatcherTest {
+
+  private static IdLookup lookup() {
+    List<LookupUsage> usages = Lists.newArrayList();
+    usages.add(new LookupUsage(1, "Plantae", null, null, Rank.KINGDOM, Kingdom.PLANTAE, false));
+    usages.add(new LookupUsage(2, "Animalia", null, null, Rank.KINGDOM, Kingdom.ANIMALIA, false));
+    usages.add(new LookupUsage(10, "Pinaceae", null, null, Rank.FAMILY, Kingdom.PLANTAE, false));
+    usages.add(new LookupUsage(11, "Abies", null, null, Rank.GENUS, Kingdom.PLANTAE, false));
+    usages.add(new LookupUsage(12, "Abies alba", "Mill.", null, Rank.SPECIES, Kingdom.PLANTAE, false));
+    // homonym in animals
+    usages.add(new LookupUsage(20, "Abies", null, null, Rank.GENUS, Kingdom.ANIMALIA, false));
+    usages.add(new LookupUsage(21, "Felidae", null, null, Rank.FAMILY, Kingdom.ANIMALIA, false));
+    usages.add(new LookupUsage(22, "Felis", null, null, Rank.GENUS, Kingdom.ANIMALIA, false));
+    return IdLookupImpl.temp().load(usages);
+  }
+
+  private static PartitionedMatcher.Usage usage(int key, Integer parentKey, Rank rank, String name, Integer... classification) {
+    PartitionedMatcher.Usage u = new PartitionedMatcher.Usage();
+    u.key = key;
+    u.parentKey = parentKey;
+    u.rank = rank;
+    u.canonicalName = name;
+    for (int idx = 0; idx < classification.length; idx++) {
+      u.classification[idx] = classification[idx];
+    }
+    return u;
+  }
+
+  @Test
+  public void testMatch() throws Exception {
+    DatasetMatchSummary summary = new DatasetMatchSummary(UUID.randomUUID());
+    final Map<Integer, Integer> relations = Maps.newHashMap();
+    final List<Integer> batches = Lists.newArrayList();
+    ExecutorService exec = Executors.newFixedThreadPool(2);
+    try (PartitionedMatcher matcher = new PartitionedMatcher(lookup(), NameParserUtils.PARSER, exec, summary, batch -> {
+          batches.add(batch.size());
+          relations.putAll(batch);
+        }, 2, 2, 3)) {
+      // classification order, nulls first
+      matcher.add(usage(100, null, Rank.KINGDOM, "Plantae", 100));
+      matcher.add(usage(101, 100, Rank.FAMILY, "Pinaceae", 100, null, null, null, 101));
+      matcher.add(usage(102, 101, Rank.GENUS, "Abies", 100, null, null, null, 101, 102));
+      matcher.add(usage(103, 102, Rank.SPECIES, "Abies alba", 100, null, null, null, 101, 102, null, 103));
+      matcher.add(usage(104, 102, Rank.SPECIES, "Abies negra", 100, null, null, null, 101, 102, null, 104));
+      // full scientific names are parsed by the matcher, the authorship must not conflict
+      PartitionedMatcher.Usage sn = usage(105, 102, Rank.SPECIES, null, 100, null, null, null, 101, 102, null, 105);
+      sn.scientificName = "Abies alba Mill.";
+      matcher.add(sn);
+      sn = usage(106, 102, Rank.SPECIES, null, 100, null, null, null, 101, 102, null, 106);
+      sn.scientificName = "Abies alba Linnaeus, 1753";
+      matcher.add(sn);
+      matcher.add(usage(200, null, Rank.KINGDOM, "Animalia", 200));
+      matcher.add(usage(201, 200, Rank.FAMILY, "Felidae", 200, null, null, null, 201));
+      matcher.add(usage(202, 201, Rank.GENUS, "Felis", 200, null, null, null, 201, 202));
+      // animal homonym, kingdom taken from its matched family within the same partition
+      matcher.add(usage(203, 201, Rank.GENUS, "Abies", 200, null, null, null, 201, 203));
+    }
+    exec.shutdown();
+
+    assertEquals(11, relations.size());
+    assertEquals(1, (int) relations.get(100));
+    assertEquals(10, (int) relations.get(101));
+    assertEquals(11, (int) relations.get(102));
+    assertEquals(12, (int) relations.get(103));
+    assertNull(relations.get(104));
+    assertTrue(relations.containsKey(104));
+    assertEquals(12, (int) relations.get(105));
+    assertNull(relations.get(106));
+    assertTrue(relations.containsKey(106));
+    assertEquals(2, (int) relations.get(200));
+    assertEquals(21, (int) relations.get(201));
+    assertEquals(22, (int) relations.get(202));
+    assertEquals(20, (int) relations.get(203));
+
+    // partitions are only cut at family boundaries
+    assertEquals(2, summary.getPartitions());
+    assertEquals(11, summary.getTotalUsages());
+    assertEquals(9, summary.getMatches());
+    for (int size : batches) {
+      assertTrue(size <= 3);
+    }
+  }
+}
@@ -1,9 +1,15 @@
 package org.gbif.checklistbank.nub.source;
 
+import org.gbif.checklistbank.iterable.CloseableIterator;
 import org.gbif.checklistbank.nub.model.SrcUsage;
 import org.junit.Test;
 
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 /**
  * Created by markus on 29/09/15.
@@ -25,4 +31,21 @@ public class ClasspathSourceTest {
     assertEquals(12, counter);
 
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testFlatten() throws Exception {
+    ClasspathSource src = new ClasspathSource(1);
+    src.init(false, false);
+    List<SrcUsage> expected;
+    try (CloseableIterator<SrcUsage> iter = src.iterator()) {
+      expected = Lists.newArrayList(iter);
+    }
+
+    src.flatten();
+    assertNull(src.getDao());
+    assertEquals(expected, Lists.newArrayList(src));
+    // iterate again
+    assertEquals(expected, Lists.newArrayList(src));
+    src.close();
+  }
+}
@@ -2,14 +2,14 @@ package org.gbif.checklistbank.authorship;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
-import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.io.Resources;
 import org.apache.commons.beanutils.BeanUtils;
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.gbif.api.model.checklistbank.ParsedName;
 import org.gbif.checklistbank.model.Equality;
@@ -34,6 +34,10 @@ import java.util.regex.Pattern;
  * <p>
  * The class exposes two kind of compare methods. A strict one always requiring both year and author to match
  * and a more lax default comparison that only looks at years when the authors differ (as it is quite hard to compare authors)
+ * <p>
+ * Normalized author teams and years are cached per comparator instance in size bounded LRU caches keyed by their raw string,
+ * so the same reference authorships are normalized only once.
+ * A {@link NormalizedAuthorship} prepared once can be compared repeatedly without any further normalization.
  */
 public class AuthorComparator {
   private static final Logger LOG = LoggerFactory.getLogger(AuthorComparator.class);
@@ -51,8 +55,15 @@ public class AuthorComparator {
   private static final Splitter AUTHOR_SPLITTER = Splitter.on(",").omitEmptyStrings();
   private final Map<String, String> authorMap;
   private static final int MIN_AUTHOR_LENGTH_WITHOUT_LOOKUP = 4;
+  /**
+   * Maximum number of cached author teams and years each. The least recently used entries are evicted beyond.
+   */
+  private static final int MAX_CACHE_SIZE = 1000000;
 
   private final int minCommonSubstring;
+  private final Cache<String, AuthorTeam> teams = CacheBuilder.newBuilder().maximumSize(MAX_CACHE_SIZE).build();
+  private final Cache<String, AuthorTeam> strictTeams = CacheBuilder.newBuilder().maximumSize(MAX_CACHE_SIZE).build();
+  private final Cache<String, YearComparator.Year> years = CacheBuilder.newBuilder().maximumSize(MAX_CACHE_SIZE).build();
 
   private AuthorComparator(Map<String, String> authors) {
     Map<String, String> map = Maps.newHashMap();
@@ -95,11 +106,31 @@ public class AuthorComparator {
    * Only if they appear to differ also a year comparison is done which can still yield an overall EQUAL in case years match.
    */
   public Equality compare(@Nullable String authors1, @Nullable String year1, @Nullable String authors2, @Nullable String year2) {
+    return compare(team(authors1, true), year(year1, true), team(authors2, true), year(year2, true));
+  }
+
+  /**
+   * Same as {@link #compare(String, String, String, String)} but using the recombination authorship
+   * of an already prepared authorship for the first name.
+   */
+  public Equality compare(NormalizedAuthorship authorship1, @Nullable String authors2, @Nullable String year2) {
+    return compare(authorship1.authors, authorship1.year, team(authors2, true), year(year2, true));
+  }
+
+  /**
+   * Same as {@link #compare(String, String, String, String)} for two prepared authorships,
+   * comparing the recombination authorship only. Does not normalize or allocate anything.
+   */
+  public Equality compareRecombination(NormalizedAuthorship authorship1, NormalizedAuthorship authorship2) {
+    return compare(authorship1.authors, authorship1.year, authorship2.authors, authorship2.year);
+  }
+
+  private Equality compare(AuthorTeam authors1, YearComparator.Year year1, AuthorTeam authors2, YearComparator.Year year2) {
     // compare recombination authors first
-    Equality result = compareAuthorteam(authors1, authors2, minCommonSubstring, MIN_AUTHOR_LENGTH_WITHOUT_LOOKUP);
+    Equality result = compareAuthorteam(authors1, authors2, minCommonSubstring);
     if (result != Equality.EQUAL) {
       // if authors are not the same we allow a positive year comparison to override it as author comparison is very difficult
-      Equality yresult = new YearComparator(year1, year2).compare();
+      Equality yresult = YearComparator.compare(year1, year2);
       if (yresult != Equality.UNKNOWN) {
         result = yresult;
       }
@@ -112,33 +143,83 @@ public class AuthorComparator {
   }
 
   /**
-   * Does a comparison of recombination and basionym authorship using the author compare method once for the recombination authorship and once for the basionym.
+   * Normalizes the recombination authorship and year once so it can be compared many times.
+   * Normalized authors and years are cached.
    */
-  public Equality compare(ParsedName n1, ParsedName n2) {
-    if (!authorshipIsParsed(n1)) {
+  public NormalizedAuthorship prepare(@Nullable String authors, @Nullable String year) {
+    return new NormalizedAuthorship(team(authors, true), year(year, true), authors, year,
+        AuthorTeam.EMPTY, YearComparator.Year.EMPTY, null, null);
+  }
+
+  /**
+   * Normalizes the recombination and basionym authorship of a parsed name once so it can be compared many times.
+   * If the authorship has not been parsed it is extracted from the scientific name and not cached.
+   */
+  public NormalizedAuthorship prepare(ParsedName pn) {
+    boolean cache = true;
+    if (!authorshipIsParsed(pn)) {
       // copy parsed name to not alter the original
-      n1 = clone(n1);
-      parseAuthorship(n1);
+      pn = clone(pn);
+      parseAuthorship(pn);
+      // the extracted strings are unique to this name, dont let them fill the cache
+      cache = false;
     }
-    if (!authorshipIsParsed(n2)) {
-      // copy parsed name to not alter the original
-      n2 = clone(n2);
-      parseAuthorship(n2);
+    return new NormalizedAuthorship(
+        team(pn.getAuthorship(), cache), year(pn.getYear(), cache), pn.getAuthorship(), pn.getYear(),
+        team(pn.getBracketAuthorship(), true), year(pn.getBracketYear(), true), pn.getBracketAuthorship(), pn.getBracketYear());
+  }
+
+  /**
+   * Normalizes and caches the authorship and year strings of a name, e.g. when loading reference names,
+   * so subsequent comparisons of them do not have to normalize anymore.
+   */
+  public void precompute(@Nullable String authors, @Nullable String year) {
+    team(authors, true);
+    year(year, true);
+  }
+
+  /**
+   * Normalizes and caches the recombination and basionym authorship of a parsed name, see {@link #precompute(String, String)}.
+   */
+  public void precompute(ParsedName pn) {
+    if (authorshipIsParsed(pn)) {
+      precompute(pn.getAuthorship(), pn.getYear());
+      precompute(pn.getBracketAuthorship(), pn.getBracketYear());
     }
+  }
 
-    Equality recomb = compare(n1.getAuthorship(), n1.getYear(), n2.getAuthorship(), n2.getYear());
+  /**
+   * Does a comparison of recombination and basionym authorship using the author compare method once for the recombination authorship and once for the basionym.
+   */
+  public Equality compare(ParsedName n1, ParsedName n2) {
+    return compare(prepare(n1), prepare(n2));
+  }
+
+  /**
+   * Same as {@link #compare(ParsedName, ParsedName)} with a prepared first name.
+   */
+  public Equality compare(NormalizedAuthorship n1, ParsedName n2) {
+    return compare(n1, prepare(n2));
+  }
+
+  /**
+   * Does a comparison of recombination and basionym authorship of two prepared names,
+   * see {@link #compare(ParsedName, ParsedName)}. Does not normalize or allocate anything.
+   */
+  public Equality compare(NormalizedAuthorship n1, NormalizedAuthorship n2) {
+    Equality recomb = compare(n1.authors, n1.year, n2.authors, n2.year);
     if (recomb != Equality.UNKNOWN) {
       // in case the recomb author differs or is the same we are done, no need for basionym authorship comparison
       return recomb;
     }
-    Equality original = compare(n1.getBracketAuthorship(), n1.getBracketYear(), n2.getBracketAuthorship(), n2.getBracketYear());
+    Equality original = compare(n1.bracketAuthors, n1.bracketYear, n2.bracketAuthors, n2.bracketYear);
     if (original == Equality.UNKNOWN) {
       // a common error is missing brackets, so if all is unknown we compare authorship across brackets and return a possible match
       Equality across = Equality.UNKNOWN;
-      if (Strings.isNullOrEmpty(n1.getAuthorship()) && Strings.isNullOrEmpty(n1.getYear())) {
-        across = compare(n1.getBracketAuthorship(), n1.getBracketYear(), n2.getAuthorship(), n2.getYear());
-      } else if (Strings.isNullOrEmpty(n1.getBracketAuthorship()) && Strings.isNullOrEmpty(n1.getBracketYear())) {
-        across = compare(n1.getAuthorship(), n1.getYear(), n2.getBracketAuthorship(), n2.getBracketYear());
+      if (n1.isEmpty()) {
+        across = compare(n1.bracketAuthors, n1.bracketYear, n2.authors, n2.year);
+      } else if (n1.isBracketEmpty()) {
+        across = compare(n1.authors, n1.year, n2.bracketAuthors, n2.bracketYear);
       }
       return across == Equality.EQUAL ? Equality.EQUAL : Equality.UNKNOWN;
     }
@@ -154,7 +235,7 @@ public class AuthorComparator {
    */
   public boolean compareStrict(String author1, @Nullable String year1, String author2, @Nullable String year2) {
     // strictly compare authors first
-    Equality result = compareAuthorteam(author1, author2, minCommonSubstring, Integer.MAX_VALUE);
+    Equality result = compareAuthorteam(strictTeam(author1), strictTeam(author2), minCommonSubstring);
     if (result != Equality.EQUAL) {
       return false;
     }
@@ -162,7 +243,45 @@ public class AuthorComparator {
     if (year1 == null && year2 == null) {
       return true;
     }
-    return Equality.EQUAL == new YearComparator(year1, year2).compare();
+    return Equality.EQUAL == YearComparator.compare(year(year1, true), year(year2, true));
+  }
+
+  private AuthorTeam team(@Nullable String authors, boolean cache) {
+    return team(teams, authors, MIN_AUTHOR_LENGTH_WITHOUT_LOOKUP, cache);
+  }
+
+  private AuthorTeam strictTeam(@Nullable String authors) {
+    return team(strictTeams, authors, Integer.MAX_VALUE, true);
+  }
+
+  private AuthorTeam team(Cache<String, AuthorTeam> cache, @Nullable String authors, int minAuthorLengthWithoutLookup, boolean useCache) {
+    if (authors == null) {
+      return AuthorTeam.EMPTY;
+    }
+    AuthorTeam team = useCache ? cache.getIfPresent(authors) : null;
+    if (team == null) {
+      // convert to all lower case, no punctuation but commas seperating authors and normed whitespace
+      List<String> names = splitAndLookup(normalize(authors), minAuthorLengthWithoutLookup);
+      team = names.isEmpty() ? AuthorTeam.EMPTY : new AuthorTeam(names, lookup(names));
+      if (useCache) {
+        cache.put(authors, team);
+      }
+    }
+    return team;
+  }
+
+  private YearComparator.Year year(@Nullable String year, boolean useCache) {
+    if (year == null) {
+      return YearComparator.Year.EMPTY;
+    }
+    YearComparator.Year y = useCache ? years.getIfPresent(year) : null;
+    if (y == null) {
+      y = YearComparator.Year.of(year);
+      if (useCache) {
+        years.put(year, y);
+      }
+    }
+    return y;
   }
 
   /**
@@ -277,50 +396,36 @@ public class AuthorComparator {
 
 
   /**
-   * Does an author comparison, normalizing the strings and try 3 comparisons:
+   * Does an author comparison of normalized author teams and try 3 comparisons:
    * 1) checks regular string equality
    * 2) checks for equality of the longest common substring
    * 3) do an author lookup and then check for common substring
    */
-  private Equality compareAuthorteam(@Nullable String a1, @Nullable String a2, int minCommonSubstring, int maxAuthorLengthWithoutLookup) {
-    // convert to all lower case, no punctuation but commas seperating authors and normed whitespace
-    List<String> authorTeam1 = splitAndLookup(normalize(a1), maxAuthorLengthWithoutLookup);
-    List<String> authorTeam2 = splitAndLookup(normalize(a2), maxAuthorLengthWithoutLookup);
+  private Equality compareAuthorteam(AuthorTeam authorTeam1, AuthorTeam authorTeam2, int minCommonSubstring) {
     if (!authorTeam1.isEmpty() && !authorTeam2.isEmpty()) {
-      Equality equality = compareNormalizedAuthorteam(authorTeam1, authorTeam2, minCommonSubstring);
-      if (equality != Equality.EQUAL) {
-        // try again by looking up entire string
-        List<String> authorTeam1l = lookup(authorTeam1);
-        List<String> authorTeam2l = lookup(authorTeam2);
-        // only compare again if the list is actually different then before
-        if (!authorTeam1.equals(authorTeam1l) || !authorTeam2.equals(authorTeam2l)) {
-          equality = compareNormalizedAuthorteam(authorTeam1l, authorTeam2l, minCommonSubstring);
-        }
+      Equality equality = compareNormalizedAuthorteam(authorTeam1.authors, authorTeam2.authors, minCommonSubstring);
+      // try again by looking up entire string, but only if the lookup actually changed something
+      if (equality != Equality.EQUAL && (authorTeam1.lookupDiffers() || authorTeam2.lookupDiffers())) {
+        equality = compareNormalizedAuthorteam(authorTeam1.lookedUp, authorTeam2.lookedUp, minCommonSubstring);
       }
       return equality;
     }
     return Equality.UNKNOWN;
   }
 
-  private static int lengthWithoutWhitespace(String x) {
-    return StringUtils.deleteWhitespace(x).length();
-  }
-
   /**
-   * compares entire author team strings
+   * compares entire author teams
    */
-  private Equality compareNormalizedAuthorteam(final List<String> authorTeam1, final List<String> authorTeam2, final int minCommonStart) {
+  private static Equality compareNormalizedAuthorteam(final Author[] authorTeam1, final Author[] authorTeam2, final int minCommonStart) {
     // quick check avoiding subsequent heavier processing
-    if (authorTeam1.equals(authorTeam2)) {
+    if (sameNames(authorTeam1, authorTeam2)) {
       // we can stop here, authors are equal, thats enough
       return Equality.EQUAL;
 
     } else {
       // compare all authors to each other - a single match is good enough!
-      for (String author1 : authorTeam1) {
-        Author a1 = new Author(author1);
-        for (String author2 : authorTeam2) {
-          Author a2 = new Author(author2);
+      for (Author a1 : authorTeam1) {
+        for (Author a2 : authorTeam2) {
           if (Equality.EQUAL == a1.compare(a2, minCommonStart)) {
             return Equality.EQUAL;
           }
@@ -330,11 +435,62 @@ public class AuthorComparator {
     return Equality.DIFFERENT;
   }
 
+  private static boolean sameNames(Author[] authorTeam1, Author[] authorTeam2) {
+    if (authorTeam1.length != authorTeam2.length) {
+      return false;
+    }
+    for (int i = 0; i < authorTeam1.length; i++) {
+      if (!authorTeam1[i].fullname.equals(authorTeam2[i].fullname)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * A normalized author team with the individual authors already parsed, before and after an author lookup.
+   */
+  static class AuthorTeam {
+    static final AuthorTeam EMPTY = new AuthorTeam(new Author[0]);
+
+    final Author[] authors;
+    // same instance as authors if the lookup did not change anything
+    final Author[] lookedUp;
+
+    private AuthorTeam(Author[] authors) {
+      this.authors = authors;
+      this.lookedUp = authors;
+    }
+
+    AuthorTeam(List<String> names, List<String> lookedUpNames) {
+      authors = toAuthors(names);
+      lookedUp = names.equals(lookedUpNames) ? authors : toAuthors(lookedUpNames);
+    }
+
+    private static Author[] toAuthors(List<String> names) {
+      Author[] authors = new Author[names.size()];
+      for (int i = 0; i < authors.length; i++) {
+        authors[i] = new Author(names.get(i));
+      }
+      return authors;
+    }
+
+    boolean isEmpty() {
+      return authors.length == 0;
+    }
+
+    boolean lookupDiffers() {
+      return lookedUp != authors;
+    }
+  }
+
   static class Author {
     final String fullname;
     final String initials;
     final String surname;
     final String suffix;
+    // initials without whitespace
+    private final String initialChars;
 
     Author(String a) {
       fullname = a;
@@ -349,6 +505,7 @@ public class AuthorComparator {
         surname = trim(a);
         suffix = "";
       }
+      initialChars = initials == null ? null : StringUtils.deleteWhitespace(initials);
     }
 
     private String trim(String x) {
@@ -371,16 +528,15 @@ public class AuthorComparator {
 
         } else {
           // if one set of chars is a subset of the other we consider this a match
-          List<Character> smaller = Lists.charactersOf(StringUtils.deleteWhitespace(initials));
-          List<Character> larger = Lists.charactersOf(StringUtils.deleteWhitespace(other.initials));
-          if (smaller.size() > larger.size()) {
-            // swap, the Sets difference method needs the right inputs
-            List<Character> tmp = smaller;
+          String smaller = initialChars;
+          String larger = other.initialChars;
+          if (smaller.length() > larger.length()) {
+            // swap, the subset check needs the right inputs
+            String tmp = smaller;
             smaller = larger;
             larger = tmp;
           }
-          // remove all of the chars from the larger list and see if any remain
-          if (CollectionUtils.isSubCollection(smaller, larger)) {
+          if (isSubCollection(smaller, larger)) {
             // one is a subset of the other
             return false;
           }
@@ -394,6 +550,36 @@ public class AuthorComparator {
       }
     }
 
+    /**
+     * @return true if every character of smaller exists at least as often in larger
+     */
+    private static boolean isSubCollection(String smaller, String larger) {
+      for (int i = 0; i < smaller.length(); i++) {
+        final char c = smaller.charAt(i);
+        if (count(smaller, c) > count(larger, c)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static int count(String x, char c) {
+      int cnt = 0;
+      for (int i = 0; i < x.length(); i++) {
+        if (x.charAt(i) == c) cnt++;
+      }
+      return cnt;
+    }
+
+    private static int commonPrefixLength(String x1, String x2) {
+      final int max = Math.min(x1.length(), x2.length());
+      int i = 0;
+      while (i < max && x1.charAt(i) == x2.charAt(i)) {
+        i++;
+      }
+      return i;
+    }
+
     /**
      * compares a single author potentially with initials
      */
@@ -404,8 +590,9 @@ public class AuthorComparator {
 
       } else {
 
-        String common = StringUtils.getCommonPrefix(surname, other.surname);
-        if (surname.equals(other.surname) || common.length() >= minCommonStart) {
+        // the common prefix of both surnames, by definition a start of both of them
+        final int common = commonPrefixLength(surname, other.surname);
+        if (surname.equals(other.surname) || common >= minCommonStart) {
           // do both names have a single initial which is different?
           // this is often the case when authors are relatives like brothers or son & father
           if (firstInitialsDiffer(other)) {
@@ -414,22 +601,20 @@ public class AuthorComparator {
             return Equality.EQUAL;
           }
 
-        } else if (!firstInitialsDiffer(other) && (surname.equals(common) && (other.surname.startsWith(common))
-            || other.surname.equals(common) && (surname.startsWith(common)))
-            ) {
+        } else if (!firstInitialsDiffer(other) && (surname.length() == common || other.surname.length() == common)) {
           // short common surname, matching in full to one of them
           // and in addition existing and not conflicting initials
           return Equality.EQUAL;
 
-        } else if (fullname.equals(common) && (other.surname.startsWith(common))
-            || other.fullname.equals(common) && (surname.startsWith(common))
+        } else if (fullname.length() == common && surname.startsWith(fullname)
+            || other.fullname.length() == common && other.surname.startsWith(other.fullname)
             ) {
           // the smallest common substring is the same as one of the inputs
           // if it also matches the start of the first longer surname then we are ok as the entire string is the best match we can have
           // likey a short abbreviation
           return Equality.EQUAL;
 
-        } else if (lengthWithoutWhitespace(StringUtils.getCommonPrefix(fullname, other.fullname)) > minCommonStart) {
+        } else if (nonWhitespaceCommonPrefixLength(fullname, other.fullname) > minCommonStart) {
           // the author string incl initials but without whitespace shares at least minCommonStart+1 characters
           return Equality.EQUAL;
 
@@ -438,6 +623,15 @@ public class AuthorComparator {
       return Equality.DIFFERENT;
     }
 
+    private static int nonWhitespaceCommonPrefixLength(String x1, String x2) {
+      final int common = commonPrefixLength(x1, x2);
+      int cnt = 0;
+      for (int i = 0; i < common; i++) {
+        if (!Character.isWhitespace(x1.charAt(i))) cnt++;
+      }
+      return cnt;
+    }
+
   }
 
 }
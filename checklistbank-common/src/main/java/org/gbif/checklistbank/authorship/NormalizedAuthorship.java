@@ -0,0 +1,43 @@
+package org.gbif.checklistbank.authorship;
+
+import com.google.common.base.Strings;
+
+/**
+ * The recombination and basionym authorship of a name with authors and years already normalized
+ * by an {@link AuthorComparator}.
+ * Instances are immutable and can be compared many times via {@link AuthorComparator#compare(NormalizedAuthorship, NormalizedAuthorship)}
+ * without normalizing the underlying strings again.
+ */
+public class NormalizedAuthorship {
+  final AuthorComparator.AuthorTeam authors;
+  final YearComparator.Year year;
+  final AuthorComparator.AuthorTeam bracketAuthors;
+  final YearComparator.Year bracketYear;
+  // whether the raw authorship & year strings were both empty
+  private final boolean empty;
+  private final boolean bracketEmpty;
+
+  NormalizedAuthorship(AuthorComparator.AuthorTeam authors, YearComparator.Year year, String rawAuthors, String rawYear,
+                       AuthorComparator.AuthorTeam bracketAuthors, YearComparator.Year bracketYear, String rawBracketAuthors, String rawBracketYear) {
+    this.authors = authors;
+    this.year = year;
+    this.bracketAuthors = bracketAuthors;
+    this.bracketYear = bracketYear;
+    empty = Strings.isNullOrEmpty(rawAuthors) && Strings.isNullOrEmpty(rawYear);
+    bracketEmpty = Strings.isNullOrEmpty(rawBracketAuthors) && Strings.isNullOrEmpty(rawBracketYear);
+  }
+
+  /**
+   * @return true if neither recombination author nor year was given
+   */
+  public boolean isEmpty() {
+    return empty;
+  }
+
+  /**
+   * @return true if neither basionym author nor year was given
+   */
+  public boolean isBracketEmpty() {
+    return bracketEmpty;
+  }
+}
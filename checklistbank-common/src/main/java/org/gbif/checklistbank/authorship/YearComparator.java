@@ -6,19 +6,45 @@ import org.gbif.checklistbank.model.Equality;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import com.google.common.primitives.Ints;
+
 public class YearComparator {
   private static final Pattern YEAR = Pattern.compile("(^|[^0-9])([0-9?]{4})([^0-9]|$)");
 
-  private String y1;
-  private String y2;
+  private final Year y1;
+  private final Year y2;
+
+  /**
+   * A normalized year string together with its integer value if it can be parsed.
+   */
+  static class Year {
+    static final Year EMPTY = new Year(null);
+    private static final int NO_NUMBER = Integer.MIN_VALUE;
+
+    final String value;
+    final int number;
+
+    private Year(String value) {
+      this.value = value;
+      Integer x = value == null ? null : Ints.tryParse(value);
+      number = x == null ? NO_NUMBER : x;
+    }
+
+    static Year of(String y) {
+      return y == null ? EMPTY : new Year(normalizeYear(y));
+    }
+
+    boolean isNumber() {
+      return number != NO_NUMBER;
+    }
+  }
 
   public YearComparator(String y1, String y2) {
-    this.y1 = normalizeYear(y1);
-    this.y2 = normalizeYear(y2);
+    this.y1 = Year.of(y1);
+    this.y2 = Year.of(y2);
   }
 
-  private String normalizeYear(String y) {
-    if (y == null) return null;
+  private static String normalizeYear(String y) {
     Matcher m = YEAR.matcher(StringUtils.deleteWhitespace(y));
     if (m.find()) {
       return m.group(2);
@@ -27,28 +53,19 @@ public class YearComparator {
   }
 
   /**
-   * @return true if ? placeholders are found and have been replaced
+   * Compares two year strings treating the first ? placeholder found in each of them as a wildcard.
+   *
+   * @return true if the years are the same apart from placeholders
    */
-  private boolean replacePlaceholders() {
+  private static boolean equalsWithPlaceholders(String y1, String y2) {
     int qm1 = y1.indexOf('?');
     int qm2 = y2.indexOf('?');
-    if (qm1 >= 0 || qm2 >= 0) {
-      StringBuilder s1 = new StringBuilder(y1);
-      StringBuilder s2 = new StringBuilder(y2);
-      if (qm1 >= 0) {
-        s1.setCharAt(qm1, '_');
-        if (s2.length() > qm1) {
-          s2.setCharAt(qm1, '_');
+    if ((qm1 >= 0 || qm2 >= 0) && y1.length() == y2.length()) {
+      for (int i = 0; i < y1.length(); i++) {
+        if (i != qm1 && i != qm2 && y1.charAt(i) != y2.charAt(i)) {
+          return false;
         }
       }
-      if (qm2 >= 0) {
-        if (s1.length() > qm2) {
-          s1.setCharAt(qm2, '_');
-        }
-        s2.setCharAt(qm2, '_');
-      }
-      y1 = s1.toString();
-      y2 = s2.toString();
       return true;
     }
     return false;
@@ -60,23 +77,23 @@ public class YearComparator {
    * due to frequent confusion between imprint dates and actual dates of publication
    */
   public Equality compare() {
-    if (y1 != null && y2 != null) {
+    return compare(y1, y2);
+  }
+
+  static Equality compare(Year y1, Year y2) {
+    if (y1.value != null && y2.value != null) {
       // equal strings are equal
-      if (y1.equals(y2)) {
+      if (y1.value.equals(y2.value)) {
         return Equality.EQUAL;
       }
-      // try to parse into ints and allow one year difference
-      try {
-        int yi1 = Integer.parseInt(y1);
-        int yi2 = Integer.parseInt(y2);
-        if (Math.abs(yi1 - yi2) <= 1) {
+      // compare as ints and allow one year difference
+      if (y1.isNumber() && y2.isNumber()) {
+        if (Math.abs(y1.number - y2.number) <= 1) {
           return Equality.EQUAL;
         }
-      } catch (NumberFormatException e) {
+      } else if (equalsWithPlaceholders(y1.value, y2.value)) {
         // allow ? in year comparisons
-        if (replacePlaceholders() && y1.equals(y2)) {
-          return Equality.EQUAL;
-        }
+        return Equality.EQUAL;
       }
       return Equality.DIFFERENT;
     }
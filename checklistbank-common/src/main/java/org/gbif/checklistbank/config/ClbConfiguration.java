@@ -29,11 +29,12 @@ public class ClbConfiguration {
   private static final Logger LOG = LoggerFactory.getLogger(ClbConfiguration.class);
   private static final String PROPERTY_PREFIX = "checklistbank.db.";
   private static final Set<String> DATASOURCE_SET = Sets.newHashSet("serverName", "databaseName", "user", "password");
-  private static final Set<String> IGNORE = Sets.newHashSet("parserTimeout", "syncThreads", "workMem");
+  private static final Set<String> IGNORE = Sets.newHashSet("parserTimeout", "syncThreads", "workMem", "keyCacheSize");
   private static final String CONNECTION_INIT_SQL_PROP = "connectionInitSql";
 
   public static final String PARSER_TIMEOUT_PROP = "checklistbank.parser.timeout";
   public static final String IMPORT_THREADS_PROP = "checklistbank.import.threads";
+  public static final String KEY_CACHE_SIZE_PROP = "checklistbank.import.keyCacheSize";
   private static final String WORK_MEM_PROP = "checklistbank.pg.workMem";
 
   @NotNull
@@ -104,6 +105,14 @@ public class ClbConfiguration {
   @Min(0)
   public int syncThreads = 1;
 
+  /**
+   * The maximum number of name and citation keys each cached in memory to avoid database lookups when syncing usages.
+   * A value of zero disables the caches.
+   */
+  @Parameter(names = "--key-cache-size")
+  @Min(0)
+  public int keyCacheSize = 100000;
+
   /**
    * @return converted minutes in milliseconds
    */
@@ -125,6 +134,7 @@ public class ClbConfiguration {
     if (withPrefix) {
       props.put(PARSER_TIMEOUT_PROP, String.valueOf(parserTimeout));
       props.put(IMPORT_THREADS_PROP, String.valueOf(syncThreads));
+      props.put(KEY_CACHE_SIZE_PROP, String.valueOf(keyCacheSize));
       props.put(WORK_MEM_PROP, String.valueOf(workMem));
     }
     if (workMem > 0) {
@@ -153,6 +163,7 @@ public class ClbConfiguration {
     ClbConfiguration cfg = new ClbConfiguration();
     cfg.parserTimeout = PropertiesUtils.getIntProp(props, PARSER_TIMEOUT_PROP, cfg.parserTimeout);
     cfg.syncThreads = PropertiesUtils.getIntProp(props, IMPORT_THREADS_PROP, cfg.syncThreads);
+    cfg.keyCacheSize = PropertiesUtils.getIntProp(props, KEY_CACHE_SIZE_PROP, cfg.keyCacheSize);
     cfg.workMem = PropertiesUtils.getIntProp(props, WORK_MEM_PROP, cfg.workMem);
 
     for (Field field : ClbConfiguration.class.getDeclaredFields()) {
@@ -205,12 +216,13 @@ public class ClbConfiguration {
         .add("workMem", workMem)
         .add("parserTimeout", parserTimeout)
         .add("syncThreads", syncThreads)
+        .add("keyCacheSize", keyCacheSize)
         .toString();
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(serverName, databaseName, user, password, maximumPoolSize, minimumIdle, idleTimeout, maxLifetime, workMem, connectionTimeout, parserTimeout, syncThreads);
+    return Objects.hash(serverName, databaseName, user, password, maximumPoolSize, minimumIdle, idleTimeout, maxLifetime, workMem, connectionTimeout, parserTimeout, syncThreads, keyCacheSize);
   }
 
   @Override
@@ -233,6 +245,7 @@ public class ClbConfiguration {
         && Objects.equals(this.workMem, other.workMem)
         && Objects.equals(this.connectionTimeout, other.connectionTimeout)
         && Objects.equals(this.parserTimeout, other.parserTimeout)
-        && Objects.equals(this.syncThreads, other.syncThreads);
+        && Objects.equals(this.syncThreads, other.syncThreads)
+        && Objects.equals(this.keyCacheSize, other.keyCacheSize);
   }
 }
@@ -53,6 +53,7 @@ public class NameUsageWritable implements LinneanClassificationKeys {
     private Date modified;
     private int numDescendants;
     private Set<NameUsageIssue> issues = Sets.newHashSet();
+    private Long fingerprint;
 
     public Integer getKey() {
         return key;
@@ -284,6 +285,18 @@ public class NameUsageWritable implements LinneanClassificationKeys {
         this.issues = issues;
     }
 
+    /**
+     * @return content hash of the imported usage and all its related data or null if unknown
+     */
+    @Nullable
+    public Long getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(Long fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
     public Integer getSourceTaxonKey() {
         return sourceTaxonKey;
     }
@@ -312,7 +325,8 @@ public class NameUsageWritable implements LinneanClassificationKeys {
                     && Objects.equal(this.taxonID, that.taxonID)
                     && Objects.equal(this.sourceTaxonKey, that.sourceTaxonKey)
                     && Objects.equal(this.modified, that.modified) && Objects
-                    .equal(this.numDescendants, that.numDescendants) && Objects.equal(this.issues, that.issues);
+                    .equal(this.numDescendants, that.numDescendants) && Objects.equal(this.issues, that.issues)
+                    && Objects.equal(this.fingerprint, that.fingerprint);
         }
         return false;
     }
@@ -323,7 +337,7 @@ public class NameUsageWritable implements LinneanClassificationKeys {
                 .hashCode(key, datasetKey, constituentKey, nameKey, rank, parentKey, isSynonym, proParteKey, taxonomicStatus,
                         nomenclaturalStatus, basionymKey, kingdomKey, phylumKey, classKey, orderKey, familyKey, genusKey, subgenusKey,
                         speciesKey, publishedInKey, accordingToKey, origin, remarks, references, taxonID, sourceTaxonKey, modified, numDescendants,
-                        issues);
+                        issues, fingerprint);
     }
 
 }
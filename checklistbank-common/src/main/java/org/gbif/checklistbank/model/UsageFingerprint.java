@@ -0,0 +1,38 @@
+package org.gbif.checklistbank.model;
+
+import javax.annotation.Nullable;
+
+/**
+ * The key of an existing name usage together with the content hash it was last imported with.
+ */
+public class UsageFingerprint {
+  private int key;
+  private Long fingerprint;
+
+  public int getKey() {
+    return key;
+  }
+
+  public void setKey(int key) {
+    this.key = key;
+  }
+
+  /**
+   * @return the stored content hash or null if the usage was written without one
+   */
+  @Nullable
+  public Long getFingerprint() {
+    return fingerprint;
+  }
+
+  public void setFingerprint(Long fingerprint) {
+    this.fingerprint = fingerprint;
+  }
+
+  /**
+   * @return true if the stored fingerprint exists and equals the given one
+   */
+  public boolean matches(@Nullable Long fingerprint) {
+    return fingerprint != null && fingerprint.equals(this.fingerprint);
+  }
+}
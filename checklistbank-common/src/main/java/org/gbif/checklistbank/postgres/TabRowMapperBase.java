@@ -0,0 +1,361 @@
+package org.gbif.checklistbank.postgres;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * A writer implementation that consumes a result stream from the postgres jdbc copy command
+ * just like TabMapperBase, but without creating any objects per row or column.
+ * <p>
+ * The characters of the current row are decoded into a single reusable buffer,
+ * resolving all escape sequences of the postgres COPY text format.
+ * Implement addRow to consume a single row using the typed column accessors of this class,
+ * e.g. getInt or getEnum, which parse the buffer directly.
+ * CharSequence views and accessors are only valid during the addRow call.
+ * <p>
+ * Empty columns and the unescaped null marker \N are both treated as null.
+ * A trailing row not terminated by a newline is ignored, same as with the TabMapperBase.
+ */
+public abstract class TabRowMapperBase extends Writer implements AutoCloseable {
+  private static final int ST_DEFAULT = 0;
+  private static final int ST_ESCAPE = 1;
+  private static final int ST_OCTAL = 2;
+  private static final int ST_HEX = 3;
+
+  private final int ROW_SIZE;
+  private final int[] start;
+  private final int[] end;
+  private final boolean[] nullMarker;
+  private final Column[] columns;
+  private char[] buf = new char[1024];
+  private int pos;
+  private int idx;
+  // escape decoding state which needs to survive write calls
+  private int state = ST_DEFAULT;
+  private int code;
+  private int digits;
+
+  public TabRowMapperBase(int ROW_SIZE) {
+    this.ROW_SIZE = ROW_SIZE;
+    start = new int[ROW_SIZE];
+    end = new int[ROW_SIZE];
+    nullMarker = new boolean[ROW_SIZE];
+    columns = new Column[ROW_SIZE];
+    for (int i = 0; i < ROW_SIZE; i++) {
+      columns[i] = new Column(i);
+    }
+  }
+
+  /**
+   * Consumes the current row. Use the column accessors of this class to read the values.
+   */
+  protected abstract void addRow();
+
+  @Override
+  public void close() throws IOException {
+    // nothing to do, override as needed
+  }
+
+  @Override
+  public void flush() throws IOException {
+    // nothing to do, override as needed
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    final int t = off + len;
+    for (int b = off; b < t; b++) {
+      char c = cbuf[b];
+      switch (state) {
+        case ST_ESCAPE:
+          escaped(c);
+          continue;
+
+        case ST_OCTAL:
+          if (c >= '0' && c <= '7' && digits < 3) {
+            code = code * 8 + (c - '0');
+            digits++;
+            continue;
+          }
+          put((char) code);
+          state = ST_DEFAULT;
+          break;
+
+        case ST_HEX:
+          int hex = Character.digit(c, 16);
+          if (hex >= 0 && digits < 2) {
+            code = code * 16 + hex;
+            digits++;
+            continue;
+          }
+          // a lonely \x without digits is taken literally
+          put(digits == 0 ? 'x' : (char) code);
+          state = ST_DEFAULT;
+          break;
+      }
+
+      // default state
+      if (c == '\\') {
+        state = ST_ESCAPE;
+      } else if (c == '\t') {
+        endColumn();
+      } else if (c == '\n') {
+        endColumn();
+        if (idx > 1) {
+          // ignore empty rows
+          addRow();
+        }
+        idx = 0;
+        pos = 0;
+        nullMarker[0] = false;
+      } else {
+        put(c);
+      }
+    }
+  }
+
+  private void escaped(char c) {
+    state = ST_DEFAULT;
+    switch (c) {
+      case 'N':
+        if (idx < ROW_SIZE && pos == start[idx]) {
+          nullMarker[idx] = true;
+        } else {
+          put(c);
+        }
+        break;
+      case 'b':
+        put('\b');
+        break;
+      case 'f':
+        put('\f');
+        break;
+      case 'n':
+        put('\n');
+        break;
+      case 'r':
+        put('\r');
+        break;
+      case 't':
+        put('\t');
+        break;
+      case 'v':
+        put('\u000B');
+        break;
+      case 'x':
+        state = ST_HEX;
+        code = 0;
+        digits = 0;
+        break;
+      default:
+        if (c >= '0' && c <= '7') {
+          state = ST_OCTAL;
+          code = c - '0';
+          digits = 1;
+        } else {
+          // covers the escaped backslash and any other character escaped unnecessarily
+          put(c);
+        }
+    }
+  }
+
+  private void put(char c) {
+    if (pos == buf.length) {
+      buf = Arrays.copyOf(buf, buf.length * 2);
+    }
+    buf[pos++] = c;
+  }
+
+  private void endColumn() throws IOException {
+    if (idx >= ROW_SIZE) {
+      throw new IOException("Row exceeds the expected " + ROW_SIZE + " columns");
+    }
+    end[idx] = pos;
+    idx++;
+    if (idx < ROW_SIZE) {
+      start[idx] = pos;
+      nullMarker[idx] = false;
+    }
+  }
+
+  /**
+   * @return number of columns found in the current row, missing trailing columns are null
+   */
+  protected int columns() {
+    return idx;
+  }
+
+  protected boolean isNull(int col) {
+    return col >= idx || nullMarker[col] || start[col] == end[col];
+  }
+
+  /**
+   * @return a reused view on the column characters or null. Only valid during the current addRow call.
+   */
+  protected CharSequence getChars(int col) {
+    return isNull(col) ? null : columns[col];
+  }
+
+  /**
+   * @return a new string instance for the column or null
+   */
+  protected String getString(int col) {
+    return isNull(col) ? null : new String(buf, start[col], end[col] - start[col]);
+  }
+
+  /**
+   * @return the integer value of the column or the given default if null
+   * @throws NumberFormatException if the column is no integer
+   */
+  protected int getInt(int col, int nullValue) {
+    if (isNull(col)) {
+      return nullValue;
+    }
+    int p = start[col];
+    final int e = end[col];
+    boolean negative = buf[p] == '-';
+    if (negative || buf[p] == '+') {
+      p++;
+    }
+    if (p == e) {
+      throw numberFormat(col);
+    }
+    long val = 0;
+    while (p < e) {
+      int d = buf[p++] - '0';
+      if (d < 0 || d > 9) {
+        throw numberFormat(col);
+      }
+      val = val * 10 + d;
+      if (val > (long) Integer.MAX_VALUE + 1) {
+        throw numberFormat(col);
+      }
+    }
+    val = negative ? -val : val;
+    if (val > Integer.MAX_VALUE) {
+      throw numberFormat(col);
+    }
+    return (int) val;
+  }
+
+  /**
+   * @return the boxed integer value of the column or null
+   */
+  protected Integer getInteger(int col) {
+    return isNull(col) ? null : getInt(col, 0);
+  }
+
+  /**
+   * @return true if the column holds the postgres boolean true value "t"
+   */
+  protected boolean getBool(int col) {
+    return !isNull(col) && end[col] - start[col] == 1 && buf[start[col]] == 't';
+  }
+
+  /**
+   * @return the enum value matching the column exactly by name or null
+   * @throws IllegalArgumentException if no enum value exists for the column
+   */
+  protected <T extends Enum<T>> T getEnum(int col, EnumLookup<T> lookup) {
+    return isNull(col) ? null : lookup.get(columns[col]);
+  }
+
+  private NumberFormatException numberFormat(int col) {
+    return new NumberFormatException("For input string: \"" + columns[col] + "\"");
+  }
+
+  /**
+   * A reusable view on a single column of the current row.
+   */
+  private class Column implements CharSequence {
+    private final int col;
+
+    Column(int col) {
+      this.col = col;
+    }
+
+    @Override
+    public int length() {
+      return end[col] - start[col];
+    }
+
+    @Override
+    public char charAt(int index) {
+      return buf[start[col] + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+      return new String(buf, start[col] + from, to - from);
+    }
+
+    @Override
+    public String toString() {
+      return new String(buf, start[col], length());
+    }
+  }
+
+  /**
+   * Resolves enum values by their name from a CharSequence without creating a String.
+   */
+  public static final class EnumLookup<T extends Enum<T>> {
+    private final Class<T> clazz;
+    private final T[] table;
+    private final int mask;
+
+    public EnumLookup(Class<T> clazz) {
+      this.clazz = clazz;
+      T[] values = clazz.getEnumConstants();
+      int size = Integer.highestOneBit(Math.max(values.length, 1) * 4);
+      table = Arrays.copyOf(values, size);
+      Arrays.fill(table, null);
+      mask = size - 1;
+      for (T val : values) {
+        int i = val.name().hashCode() & mask;
+        while (table[i] != null) {
+          i = (i + 1) & mask;
+        }
+        table[i] = val;
+      }
+    }
+
+    /**
+     * @throws IllegalArgumentException if no enum value exists with the given name
+     */
+    public T get(CharSequence name) {
+      int i = hash(name) & mask;
+      T val;
+      while ((val = table[i]) != null) {
+        if (equal(val.name(), name)) {
+          return val;
+        }
+        i = (i + 1) & mask;
+      }
+      throw new IllegalArgumentException("No enum constant " + clazz.getCanonicalName() + "." + name);
+    }
+
+    /**
+     * Same as String.hashCode()
+     */
+    private static int hash(CharSequence x) {
+      int h = 0;
+      for (int i = 0; i < x.length(); i++) {
+        h = 31 * h + x.charAt(i);
+      }
+      return h;
+    }
+
+    private static boolean equal(String name, CharSequence x) {
+      if (name.length() != x.length()) {
+        return false;
+      }
+      for (int i = 0; i < name.length(); i++) {
+        if (name.charAt(i) != x.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
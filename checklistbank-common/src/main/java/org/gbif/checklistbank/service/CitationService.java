@@ -1,5 +1,7 @@
 package org.gbif.checklistbank.service;
 
+import java.util.UUID;
+
 /**
  * Persistence service dealing with simple reference citations.
  * This interface is restricted to the mybatis module only!
@@ -15,4 +17,12 @@ public interface CitationService {
      * Returns the key for an existing or newly inserted citation string.
      */
   Integer createOrGet(String citation, String doi, String link);
+
+  /**
+   * Loads all citations used by the given dataset into the citation cache
+   * so subsequent createOrGet calls for them do not need to query the database.
+   *
+   * @return number of cached citations
+   */
+  int warmCache(UUID datasetKey);
 }
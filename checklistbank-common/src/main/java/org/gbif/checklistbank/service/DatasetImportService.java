@@ -18,7 +18,8 @@ public interface DatasetImportService extends AutoCloseable {
 
   /**
    * @param usageNeoIds neo4j node ids as ints
-   * @return list of clb usage keys that were synced
+   * @return list of neo4j node ids of the usages that were inserted or changed.
+   *         Implementations that skip unchanged usages do not include them.
    */
   Future<List<Integer>> sync(UUID datasetKey, ImporterCallback dao, Iterable<Integer> usageNeoIds);
 
@@ -47,6 +48,19 @@ public interface DatasetImportService extends AutoCloseable {
    */
   void insertNubRelations(UUID datasetKey, Map<Integer, Integer> relations);
 
+  /**
+   * Batch inserts nub relations from the passed map, optionally deleting all existing relations of the dataset first.
+   * Allows to persist the relations of large datasets in several bounded batches,
+   * deleting existing relations only with the first one.
+   *
+   * This is a synchroneous call and on return all relations are guaranteed to be updated.
+   *
+   * @param datasetKey the datasource to map to the nub
+   * @param relations  map from source usage id to a nub usage id. Values can be null to indicate a NameUsageIssue.BACKBONE_MATCH_NONE
+   * @param deleteExisting if true remove all existing nub relations of the dataset before inserting
+   */
+  void insertNubRelations(UUID datasetKey, Map<Integer, Integer> relations, boolean deleteExisting);
+
   /**
    * Remove entire dataset from checklistbank
    * @return number of deleted usage records
@@ -8,6 +8,7 @@ import org.gbif.checklistbank.model.UsageExtensions;
 
 import java.util.List;
 import java.util.concurrent.Future;
+import javax.annotation.Nullable;
 
 /**
  *
@@ -24,6 +25,16 @@ public interface ImporterCallback {
 
   boolean isInsert(NameUsage usage);
 
+  /**
+   * Calculates a content hash over everything that gets written for a usage:
+   * the usage as read before, its parsed name, metrics, extensions and verbatim data.
+   * Existing usages that were last imported with the same fingerprint are not written again.
+   *
+   * @return the fingerprint or null if the usage should always be written
+   */
+  @Nullable
+  Long fingerprint(long id, NameUsage usage, ParsedName pn, NameUsageMetrics metrics);
+
   UsageExtensions readExtensions(long id);
 
   NameUsageMetrics readMetrics(long id);
@@ -2,6 +2,8 @@ package org.gbif.checklistbank.service;
 
 import org.gbif.api.model.checklistbank.ParsedName;
 
+import java.util.UUID;
+
 /**
  * Persistence service dealing with parsed names.
  * This interface is restricted to the mybatis module only!
@@ -16,6 +18,14 @@ public interface ParsedNameService {
    */
   ParsedName createOrGet(ParsedName name, boolean update);
 
+  /**
+   * Loads all names used by the given dataset into the name cache
+   * so subsequent createOrGet calls for them do not need to query the database.
+   *
+   * @return number of cached names
+   */
+  int warmCache(UUID datasetKey);
+
   /**
    * Deletes all orphaned names without a name_usage linking to them
    *
@@ -2,8 +2,8 @@ package org.gbif.checklistbank.service;
 
 import org.gbif.api.model.checklistbank.NameUsage;
 
-import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -17,6 +17,16 @@ public interface UsageService {
    */
   List<Integer> listAll();
 
+  /**
+   * @return number of all current (not deleted) name usages in checklist bank
+   */
+  int count();
+
+  /**
+   * @return the lowest current (not deleted) name usage key equal or larger than fromKey or null if there is none
+   */
+  Integer minUsageKey(int fromKey);
+
   /**
    * @return the highest usageKey used in the dataset
    */
@@ -28,13 +38,28 @@ public interface UsageService {
   List<NameUsage> listRange(int usageKeyStart, int usageKeyEnd);
 
   /**
-   * Lists classification as parent keys.
+   * Lists classification as parent keys, ordered from the direct parent upwards.
+   * For synonyms the accepted usage is the first parent.
    */
   List<Integer> listParents(int usageKey);
 
   /**
-   * Lists all old name usage ids last interpreted before the given date.
+   * Lists the classification as parent keys for all usages with a key between start / end using a single query.
+   * Usages without parents are not included in the map.
+   */
+  Map<Integer, List<Integer>> listParents(int usageKeyStart, int usageKeyEnd);
+
+  /**
+   * Materializes the classification of all usages in a dataset so parents can be listed with a single row read.
+   * Needs to be called after a dataset has been modified.
+   *
+   * @return number of usages with a changed classification
+   */
+  int updateParentPaths(UUID datasetKey);
+
+  /**
+   * Lists all current (not deleted) name usage ids of a dataset.
    */
-  List<Integer> listOldUsages(UUID datasetKey, Date before);
+  List<Integer> listUsages(UUID datasetKey);
 
 }
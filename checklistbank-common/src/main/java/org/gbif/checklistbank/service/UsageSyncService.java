@@ -17,12 +17,23 @@ public interface UsageSyncService {
 
   int syncUsage(boolean insert, NameUsage usage, ParsedName pn, NameUsageMetrics metrics);
 
+  /**
+   * Syncs a usage just as syncUsage does, but skips all writes if the existing usage was imported with the same fingerprint.
+   * In both cases the usage key of the existing or newly inserted record is set in the given usage.
+   *
+   * @param fingerprint content hash of the usage and all its related data or null to always write the usage
+   * @return true if the usage was inserted or updated, false if it was unchanged
+   */
+  boolean syncUsage(boolean insert, NameUsage usage, ParsedName pn, NameUsageMetrics metrics, @Nullable Long fingerprint);
+
   void syncUsageExtras(boolean insert, UUID datasetKey, int usageKey, @Nullable VerbatimNameUsage verbatim, @Nullable UsageExtensions extensions);
 
   void updateForeignKeys(int usageKey, Integer parentKey, Integer basionymKey);
 
   void insertNubRelations(UUID datasetKey, Map<Integer, Integer> relations);
 
+  void insertNubRelations(UUID datasetKey, Map<Integer, Integer> relations, boolean deleteExisting);
+
   int deleteDataset(UUID datasetKey);
 
   void delete(int key);
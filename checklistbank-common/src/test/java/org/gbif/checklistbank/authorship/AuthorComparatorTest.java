@@ -547,6 +547,9 @@ public class AuthorComparatorTest {
 
   private void assertAuth(String a1, String y1, Equality eq, String a2, String y2) {
     assertEquals(eq, comp.compare(a1, y1, a2, y2));
+    // prepared forms must behave the same
+    assertEquals(eq, comp.compare(comp.prepare(a1, y1), a2, y2));
+    assertEquals(eq, comp.compareRecombination(comp.prepare(a1, y1), comp.prepare(a2, y2)));
   }
 
   private void assertAuthStrict(String a1, String y1, boolean eq, String a2, String y2) {
@@ -567,5 +570,44 @@ public class AuthorComparatorTest {
     p2.setBracketYear(y2b);
 
     assertEquals(eq, comp.compare(p1, p2));
+    assertEquals(eq, comp.compare(comp.prepare(p1), comp.prepare(p2)));
+  }
+
+  @Test
+  public void testPrepared() throws Exception {
+    ParsedName p1 = new ParsedName();
+    p1.setParsed(false);
+    p1.setScientificName("Blattaria Voet, ?, 1806");
+    p1.setGenusOrAbove("Blattaria");
+
+    ParsedName p2 = new ParsedName();
+    p2.setAuthorship("Weyenbergh");
+    p2.setYear("1806");
+
+    // unparsed authorship is extracted from the name without altering it
+    NormalizedAuthorship n1 = comp.prepare(p1);
+    assertNull(p1.getAuthorship());
+    assertFalse(n1.isEmpty());
+    assertTrue(n1.isBracketEmpty());
+
+    NormalizedAuthorship n2 = comp.prepare(p2);
+    assertEquals(Equality.EQUAL, comp.compare(n1, n2));
+    assertEquals(Equality.EQUAL, comp.compare(n1, p2));
+    // prepared values are immutable and can be reused
+    assertEquals(Equality.EQUAL, comp.compare(n1, n2));
+
+    // missing brackets are compared across
+    ParsedName p3 = new ParsedName();
+    p3.setBracketAuthorship("L.");
+    NormalizedAuthorship n3 = comp.prepare(p3);
+    assertTrue(n3.isEmpty());
+    assertFalse(n3.isBracketEmpty());
+    assertEquals(Equality.EQUAL, comp.compare(n3, comp.prepare("Linnaeus", null)));
+    assertEquals(Equality.UNKNOWN, comp.compareRecombination(n3, comp.prepare("Linnaeus", null)));
+
+    // precomputing changes nothing but caching
+    comp.precompute("Weyenbergh", "1874");
+    comp.precompute(p3);
+    assertEquals(Equality.DIFFERENT, comp.compare(comp.prepare("Voet", "1806"), "Weyenbergh", "1874"));
   }
 }
\ No newline at end of file
@@ -0,0 +1,139 @@
+package org.gbif.checklistbank.postgres;
+
+import org.gbif.api.vocabulary.Rank;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TabRowMapperBaseTest {
+  private static final TabRowMapperBase.EnumLookup<Rank> RANKS = new TabRowMapperBase.EnumLookup<>(Rank.class);
+
+  /**
+   * Keeps all rows as id, rank, name, flag values
+   */
+  private static class RowCollector extends TabRowMapperBase {
+    final List<Object[]> rows = Lists.newArrayList();
+
+    RowCollector() {
+      super(4);
+    }
+
+    @Override
+    protected void addRow() {
+      rows.add(new Object[]{getInteger(0), getEnum(1, RANKS), getString(2), getBool(3)});
+    }
+  }
+
+  /**
+   * Writes the input in chunks of the given size to test values split across write calls.
+   */
+  private static List<Object[]> parse(String input, int chunkSize) throws IOException {
+    RowCollector rc = new RowCollector();
+    char[] chars = input.toCharArray();
+    for (int off = 0; off < chars.length; off += chunkSize) {
+      rc.write(chars, off, Math.min(chunkSize, chars.length - off));
+    }
+    rc.close();
+    return rc.rows;
+  }
+
+  @Test
+  public void testRows() throws Exception {
+    final String input = "1\tSPECIES\tAbies alba Mill.\tt\n"
+        + "\n"
+        + "-12\t\\N\t\tf\n"
+        + "2147483647\tKINGDOM\tPlantae\n"
+        + "3\tGENUS\tAbies\tt";
+    for (int chunk = 1; chunk < input.length(); chunk++) {
+      List<Object[]> rows = parse(input, chunk);
+      // the empty row and the unterminated last row are ignored
+      assertEquals(3, rows.size());
+
+      assertEquals(1, rows.get(0)[0]);
+      assertEquals(Rank.SPECIES, rows.get(0)[1]);
+      assertEquals("Abies alba Mill.", rows.get(0)[2]);
+      assertEquals(true, rows.get(0)[3]);
+
+      assertEquals(-12, rows.get(1)[0]);
+      assertNull(rows.get(1)[1]);
+      assertNull(rows.get(1)[2]);
+      assertEquals(false, rows.get(1)[3]);
+
+      assertEquals(Integer.MAX_VALUE, rows.get(2)[0]);
+      assertEquals(Rank.KINGDOM, rows.get(2)[1]);
+      assertEquals("Plantae", rows.get(2)[2]);
+      assertEquals(false, rows.get(2)[3]);
+    }
+  }
+
+  @Test
+  public void testEscapes() throws Exception {
+    final String input = "1\t\tback\\\\slash \\\\N tab\\tnew\\nline\\r\\N end\tt\n"
+        + "2\t\t\\101\\x42\\7C\\x4\\xZ\t\n"
+        + "3\t\t\\\\N\t\n";
+    for (int chunk = 1; chunk < input.length(); chunk++) {
+      List<Object[]> rows = parse(input, chunk);
+      assertEquals(3, rows.size());
+      assertEquals("back\\slash \\N tab\tnew\nline\rN end", rows.get(0)[2]);
+      assertEquals("AB\u0007C\u0004xZ", rows.get(1)[2]);
+      // an escaped backslash followed by N is no null
+      assertEquals("\\N", rows.get(2)[2]);
+    }
+  }
+
+  @Test
+  public void testAccessors() throws Exception {
+    final List<String> chars = Lists.newArrayList();
+    TabRowMapperBase mapper = new TabRowMapperBase(3) {
+      @Override
+      protected void addRow() {
+        assertFalse(isNull(0));
+        assertTrue(isNull(1));
+        assertTrue(isNull(2));
+        assertEquals(-1, getInt(1, -1));
+        assertNull(getChars(2));
+        CharSequence cs = getChars(0);
+        chars.add(cs.toString());
+        assertEquals(cs.toString().substring(1, 4), cs.subSequence(1, 4));
+      }
+    };
+    mapper.write("Abies\t\n");
+    mapper.write("Pices\t\n");
+    assertEquals(Lists.newArrayList("Abies", "Pices"), chars);
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testBadInt() throws Exception {
+    parse("12a\tGENUS\tAbies\tt\n", 100);
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testIntOverflow() throws Exception {
+    parse("2147483648\tGENUS\tAbies\tt\n", 100);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadEnum() throws Exception {
+    parse("1\tGENUSS\tAbies\tt\n", 100);
+  }
+
+  @Test(expected = IOException.class)
+  public void testTooManyColumns() throws Exception {
+    parse("1\tGENUS\tAbies\tt\tx\n", 100);
+  }
+
+  @Test
+  public void testEnumLookup() throws Exception {
+    for (Rank r : Rank.values()) {
+      assertEquals(r, RANKS.get(new StringBuilder(r.name())));
+    }
+  }
+}
@@ -3,24 +3,40 @@ package org.gbif.checklistbank.service.mybatis;
 
 import org.gbif.checklistbank.model.Citation;
 import org.gbif.checklistbank.service.CitationService;
+import org.gbif.checklistbank.service.mybatis.guice.InternalChecklistBankServiceMyBatisModule;
 import org.gbif.checklistbank.service.mybatis.mapper.CitationMapper;
 
+import java.util.UUID;
 import javax.annotation.Nullable;
 
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
 import org.apache.ibatis.exceptions.PersistenceException;
 import org.mybatis.guice.transactional.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Citation service that keeps a size bounded cache of citation keys shared by all threads,
+ * so repeated lookups of the same citation do not hit the database.
+ */
 public class CitationServiceMyBatis implements CitationService {
     private static final Logger LOG = LoggerFactory.getLogger(ParsedNameServiceMyBatis.class);
     private CitationMapper mapper;
+    private final Cache<String, Integer> cache;
 
     @Inject
-    CitationServiceMyBatis(CitationMapper mapper) {
+    CitationServiceMyBatis(CitationMapper mapper,
+                           @Named(InternalChecklistBankServiceMyBatisModule.KEY_CACHE_SIZE) Integer cacheSize) {
         this.mapper = mapper;
+        cache = CacheBuilder.newBuilder()
+            .maximumSize(cacheSize)
+            .recordStats()
+            .build();
     }
 
     @Override
@@ -33,14 +49,19 @@ public class CitationServiceMyBatis implements CitationService {
         if (Strings.isNullOrEmpty(citation)) {
             return null;
         }
-        try {
-            return createOrGetThrowing(citation, doi, link);
-        } catch (PersistenceException e) {
-            // we have a unique constraint in the database which can throw an exception when we concurrently write the same name into the table
-            // try to read and ignore exception if we can read the name
-            LOG.info("Inserting citation >>>{}<<< failed, try to re-read", citation);
-            return createOrGetThrowing(citation, doi, link);
+        Integer key = cache.getIfPresent(citation);
+        if (key == null) {
+            try {
+                key = createOrGetThrowing(citation, doi, link);
+            } catch (PersistenceException e) {
+                // we have a unique constraint in the database which can throw an exception when we concurrently write the same name into the table
+                // try to read and ignore exception if we can read the name
+                LOG.info("Inserting citation >>>{}<<< failed, try to re-read", citation);
+                key = createOrGetThrowing(citation, doi, link);
+            }
+            cache.put(citation, key);
         }
+        return key;
     }
 
     @Transactional
@@ -56,4 +77,28 @@ public class CitationServiceMyBatis implements CitationService {
         return key;
     }
 
+    /**
+     * Loads all citations used by a dataset into the cache, e.g. before the dataset gets reimported.
+     * @return number of cached citations
+     */
+    @Override
+    @Transactional
+    public int warmCache(UUID datasetKey) {
+        final int[] counter = {0};
+        mapper.processDataset(datasetKey, ctx -> {
+            Citation c = ctx.getResultObject();
+            cache.put(c.getCitation(), c.getKey());
+            counter[0]++;
+        });
+        LOG.info("Cached {} citations of dataset {}", counter[0], datasetKey);
+        return counter[0];
+    }
+
+    /**
+     * @return statistics of the citation cache
+     */
+    public CacheStats cacheStats() {
+        return cache.stats();
+    }
+
 }
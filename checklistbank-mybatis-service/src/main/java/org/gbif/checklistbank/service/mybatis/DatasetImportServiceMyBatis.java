@@ -7,24 +7,31 @@ import org.gbif.api.model.checklistbank.VerbatimNameUsage;
 import org.gbif.checklistbank.logging.LogContext;
 import org.gbif.checklistbank.model.UsageExtensions;
 import org.gbif.checklistbank.model.UsageForeignKeys;
+import org.gbif.checklistbank.service.CitationService;
 import org.gbif.checklistbank.service.DatasetImportService;
 import org.gbif.checklistbank.service.ImporterCallback;
+import org.gbif.checklistbank.service.ParsedNameService;
 import org.gbif.checklistbank.service.UsageSyncService;
 import org.gbif.checklistbank.service.mybatis.guice.Mybatis;
 import org.gbif.utils.concurrent.ExecutorUtils;
 import org.gbif.utils.concurrent.NamedThreadFactory;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Iterables;
@@ -39,6 +46,10 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Concurrent import service for full name usages.
+ * Fresh imports of datasets that do not exist in checklistbank yet are written in bulk with the UsageBulkWriter,
+ * all other imports sync usage by usage so existing usage keys are kept.
+ * Existing usages with the same fingerprint as in their last import are skipped entirely,
+ * including their extension and verbatim data.
  */
 public class DatasetImportServiceMyBatis implements DatasetImportService, AutoCloseable {
   private static final Logger LOG = LoggerFactory.getLogger(DatasetImportServiceMyBatis.class);
@@ -47,12 +58,28 @@ public class DatasetImportServiceMyBatis implements DatasetImportService, AutoCl
   private static final int BATCH_SIZE = 1000;
 
   private final UsageSyncService syncService;
+  private final UsageBulkWriter bulkWriter;
+  private final ParsedNameService nameService;
+  private final CitationService citationService;
   private ExecutorService exec;
   private ConcurrentLinkedQueue<Future<?>> tasks = new ConcurrentLinkedQueue<>();
+  // bulk import state by importer callback, i.e. by import job. Empty for regular imports
+  private final Map<ImporterCallback, Optional<BulkImport>> bulkImports = Collections.synchronizedMap(new WeakHashMap<>());
+
+  /**
+   * Keeps the taxonIDs of usages already written by a bulk import.
+   */
+  private static class BulkImport {
+    final Map<String, Integer> taxonIDs = new ConcurrentHashMap<>();
+  }
 
   @Inject
-  public DatasetImportServiceMyBatis(UsageSyncService importService, @Mybatis Integer threads) {
+  public DatasetImportServiceMyBatis(UsageSyncService importService, UsageBulkWriter bulkWriter,
+                                     ParsedNameService nameService, CitationService citationService, @Mybatis Integer threads) {
     this.syncService = importService;
+    this.bulkWriter = bulkWriter;
+    this.nameService = nameService;
+    this.citationService = citationService;
     LOG.info("Starting data import service with {} sync threads.", threads);
     exec = Executors.newFixedThreadPool(threads, new NamedThreadFactory(NAME));
   }
@@ -67,45 +94,57 @@ public class DatasetImportServiceMyBatis implements DatasetImportService, AutoCl
     final UUID datasetKey;
     final Iterable<Integer> usages;
     final ImporterCallback dao;
+    final BulkImport bulk;
     private Map<Integer, Integer> usageKeys;
     private Set<Integer> inserts;
+    private Set<Integer> bulkInserts;
     private int firstId = -1;
 
     /**
      * @param dao callback to importer neo4j dao to resolve neo4j ids
      * @param datasetKey
      * @param usages list of neo4j node ids to sync from callback
+     * @param bulk bulk import state or null to sync usage by usage
      */
-    public UsageSync(ImporterCallback dao, UUID datasetKey, Iterable<Integer> usages) {
+    public UsageSync(ImporterCallback dao, UUID datasetKey, Iterable<Integer> usages, @Nullable BulkImport bulk) {
       this.dao = dao;
       this.datasetKey = datasetKey;
       this.usages = usages;
+      this.bulk = bulk;
     }
 
+    /**
+     * @return neo4j node ids of all inserted or changed usages, skipping unchanged ones
+     */
     @Override
     public List<Integer> call() throws Exception {
       LogContext.startDataset(datasetKey);
       int counter = 0;
       LOG.debug("Starting usage sync");
-      usageKeys = Maps.newHashMap();
+      usageKeys = Maps.newLinkedHashMap();
       inserts = new IntOpenHashSet();
-      List<Integer> neoKeys = Lists.newArrayList();
+      bulkInserts = new IntOpenHashSet();
       for (List<Integer> neoBatch : Iterables.partition(usages, BATCH_SIZE)) {
         if (firstId < 0) {
           firstId = neoBatch.get(0);
         }
-        neoKeys.addAll(neoBatch);
-        write(neoBatch);
+        if (bulk == null) {
+          write(neoBatch);
+        } else {
+          writeBulk(neoBatch);
+        }
         counter = counter + neoBatch.size();
       }
-      LOG.info("Completed batch of {} usages, starting with id {}.", counter, firstId);
+      LOG.info("Completed batch of {} usages with {} unchanged ones, starting with id {}.", counter, counter - usageKeys.size(), firstId);
       LogContext.endDataset();
 
-      // submit extension sync job for all usages
-      ExtensionSync eSync = new ExtensionSync(dao, datasetKey, firstId, usageKeys, inserts);
-      dao.reportNewFuture(addTask(eSync));
+      // submit extension sync job for all changed usages
+      if (!usageKeys.isEmpty()) {
+        ExtensionSync eSync = new ExtensionSync(dao, datasetKey, firstId, usageKeys, inserts, bulkInserts);
+        dao.reportNewFuture(addTask(eSync));
+      }
 
-      return neoKeys;
+      return Lists.newArrayList(usageKeys.keySet());
     }
 
     @Transactional(
@@ -117,18 +156,79 @@ public class DatasetImportServiceMyBatis implements DatasetImportService, AutoCl
         NameUsage u = dao.readUsage(id);
         ParsedName pn = dao.readName(id);
         NameUsageMetrics m = dao.readMetrics(id);
+        // hash before syncing which modifies the usage
+        Long fingerprint = dao.fingerprint(id, u, pn, m);
 
         boolean insert = dao.isInsert(u);
-        syncService.syncUsage(insert, u, pn, m);
+        if (syncService.syncUsage(insert, u, pn, m, fingerprint)) {
+          // remember usageKey and things about this changed record
+          if (insert) {
+            inserts.add(id);
+          }
+          usageKeys.put(id, u.getKey());
+        }
+        // tell main importer about the new usageKey so we can prepare usages with good foreign keys
+        dao.reportUsageKey(id, u.getKey());
+      }
+    }
 
-        // remember usageKey and things about this record
-        if (insert) {
-          inserts.add(id);
+    /**
+     * Copies an entire batch of new usages at once using preallocated usage keys.
+     * Usages with a taxonID that has been written before in this import are updated individually afterwards,
+     * just as the regular sync does.
+     */
+    private void writeBulk(List<Integer> neoNodeIdbatch) throws Exception {
+      Iterator<Integer> keys = bulkWriter.allocateKeys(neoNodeIdbatch.size()).iterator();
+      List<NameUsage> newUsages = Lists.newArrayList();
+      List<ParsedName> newNames = Lists.newArrayList();
+      List<NameUsageMetrics> newMetrics = Lists.newArrayList();
+      List<Long> newFingerprints = Lists.newArrayList();
+      Map<Integer, NameUsage> updates = Maps.newLinkedHashMap();
+      Map<Integer, Long> updateFingerprints = Maps.newHashMap();
+      for (Integer id : neoNodeIdbatch) {
+        // usages need to be read one by one after the previous usage key has been reported
+        // so the importer can resolve foreign keys to usages of the same batch
+        NameUsage u = dao.readUsage(id);
+        Integer key = keys.next();
+        Integer existingKey = u.getTaxonID() == null ? null : bulk.taxonIDs.putIfAbsent(u.getTaxonID(), key);
+        ParsedName pn = dao.readName(id);
+        NameUsageMetrics m = dao.readMetrics(id);
+        // hash before syncing which modifies the usage
+        Long fingerprint = dao.fingerprint(id, u, pn, m);
+        if (existingKey != null) {
+          // non unique taxonID, update the existing record
+          u.setKey(existingKey);
+          updates.put(id, u);
+          updateFingerprints.put(id, fingerprint);
+        } else {
+          newFingerprints.add(fingerprint);
+          u.setKey(key);
+          newUsages.add(u);
+          newNames.add(pn);
+          newMetrics.add(m);
+          bulkInserts.add(id);
         }
         usageKeys.put(id, u.getKey());
-        // tell main importer about the new usageKey so we can prepare usages with good foreign keys
         dao.reportUsageKey(id, u.getKey());
       }
+      bulkWriter.insertUsages(datasetKey, newUsages, newNames, newMetrics, newFingerprints);
+      if (!updates.isEmpty()) {
+        write(updates, updateFingerprints);
+      }
+    }
+
+    @Transactional(
+        exceptionMessage = "usage sync job failed",
+        executorType = ExecutorType.REUSE
+    )
+    private void write(Map<Integer, NameUsage> updates, Map<Integer, Long> fingerprints) throws Exception {
+      for (Map.Entry<Integer, NameUsage> e : updates.entrySet()) {
+        NameUsage u = e.getValue();
+        if (syncService.syncUsage(false, u, dao.readName(e.getKey()), dao.readMetrics(e.getKey()), fingerprints.get(e.getKey()))) {
+          usageKeys.put(e.getKey(), u.getKey());
+        }
+        dao.reportUsageKey(e.getKey(), u.getKey());
+      }
     }
   }
 
@@ -175,14 +275,20 @@ public class DatasetImportServiceMyBatis implements DatasetImportService, AutoCl
     final UUID datasetKey;
     final Map<Integer, Integer> usages;
     final Set<Integer> inserts;
+    final Set<Integer> bulkInserts;
     final ImporterCallback dao;
     private int firstId = -1;
 
-    public ExtensionSync(ImporterCallback dao, UUID datasetKey, int firstId, Map<Integer, Integer> usages, Set<Integer> inserts) {
+    /**
+     * @param bulkInserts neo4j node ids of usages that have been copied in bulk and have no extension data yet
+     */
+    public ExtensionSync(ImporterCallback dao, UUID datasetKey, int firstId, Map<Integer, Integer> usages, Set<Integer> inserts,
+                         Set<Integer> bulkInserts) {
       this.dao = dao;
       this.datasetKey = datasetKey;
       this.usages = usages;
       this.inserts = inserts;
+      this.bulkInserts = bulkInserts;
       this.firstId = firstId;
     }
 
@@ -205,10 +311,22 @@ public class DatasetImportServiceMyBatis implements DatasetImportService, AutoCl
         executorType = ExecutorType.REUSE
     )
     private void write(List<Integer> ids) throws Exception {
+      List<Integer> bulkKeys = Lists.newArrayList();
+      List<VerbatimNameUsage> bulkVerbatims = Lists.newArrayList();
+      List<UsageExtensions> bulkExtensions = Lists.newArrayList();
       for (Integer id : ids) {
         VerbatimNameUsage v = dao.readVerbatim(id);
         UsageExtensions e = dao.readExtensions(id);
-        syncService.syncUsageExtras(inserts.contains(id), datasetKey, usages.get(id), v, e);
+        if (bulkInserts.contains(id)) {
+          bulkKeys.add(usages.get(id));
+          bulkVerbatims.add(v);
+          bulkExtensions.add(e);
+        } else {
+          syncService.syncUsageExtras(inserts.contains(id), datasetKey, usages.get(id), v, e);
+        }
+      }
+      if (!bulkKeys.isEmpty()) {
+        bulkWriter.insertExtras(datasetKey, bulkKeys, bulkVerbatims, bulkExtensions);
       }
     }
   }
@@ -289,7 +407,26 @@ public class DatasetImportServiceMyBatis implements DatasetImportService, AutoCl
 
   @Override
   public Future<List<Integer>> sync(UUID datasetKey, ImporterCallback dao, Iterable<Integer> usageNeoIds) {
-    return addTask(new UsageSync(dao, datasetKey, usageNeoIds));
+    return addTask(new UsageSync(dao, datasetKey, usageNeoIds, bulkImport(datasetKey, dao)));
+  }
+
+  /**
+   * Decides once per import job, i.e. importer callback, whether it can be written in bulk.
+   * This happens with the very first sync call before any usage of the import has been written.
+   * Imports of existing datasets warm up the name and citation caches with the current dataset records instead.
+   *
+   * @return the bulk import state or null if usages need to be synced individually
+   */
+  private BulkImport bulkImport(UUID datasetKey, ImporterCallback dao) {
+    return bulkImports.computeIfAbsent(dao, d -> {
+      if (bulkWriter.isNewDataset(datasetKey)) {
+        LOG.info("Dataset {} is new. Use bulk writer for import", datasetKey);
+        return Optional.of(new BulkImport());
+      }
+      nameService.warmCache(datasetKey);
+      citationService.warmCache(datasetKey);
+      return Optional.empty();
+    }).orElse(null);
   }
 
   @Override
@@ -302,6 +439,11 @@ public class DatasetImportServiceMyBatis implements DatasetImportService, AutoCl
     syncService.insertNubRelations(datasetKey, relations);
   }
 
+  @Override
+  public void insertNubRelations(UUID datasetKey, Map<Integer, Integer> relations, boolean deleteExisting) {
+    syncService.insertNubRelations(datasetKey, relations, deleteExisting);
+  }
+
   @Override
   public int deleteDataset(UUID datasetKey) {
     return syncService.deleteDataset(datasetKey);
@@ -10,16 +10,20 @@ import org.gbif.api.model.common.paging.PagingRequest;
 import org.gbif.api.model.common.paging.PagingResponse;
 import org.gbif.api.service.checklistbank.NameUsageService;
 import org.gbif.checklistbank.model.RawUsage;
+import org.gbif.checklistbank.model.UsageRelated;
 import org.gbif.checklistbank.service.mybatis.mapper.NameUsageMapper;
 import org.gbif.checklistbank.service.mybatis.mapper.NameUsageMetricsMapper;
 import org.gbif.checklistbank.service.mybatis.mapper.ParsedNameMapper;
 import org.gbif.checklistbank.service.mybatis.mapper.RawUsageMapper;
+import org.gbif.checklistbank.service.mybatis.mapper.UsageMapper;
 import org.gbif.checklistbank.service.mybatis.mapper.VerbatimNameUsageMapperJson;
 import org.gbif.checklistbank.service.mybatis.mapper.VernacularNameMapper;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import javax.annotation.Nullable;
@@ -28,6 +32,7 @@ import javax.sql.DataSource;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import org.slf4j.Logger;
@@ -46,6 +51,7 @@ public class NameUsageServiceMyBatis implements NameUsageService {
     private final ParsedNameMapper parsedNameMapper;
     private final VernacularNameMapper vernacularNameMapper;
     private final RawUsageMapper rawUsageMapper;
+    private final UsageMapper usageMapper;
     private final VerbatimNameUsageMapperJson verbatimParser = new VerbatimNameUsageMapperJson();
 
     @Inject
@@ -54,8 +60,9 @@ public class NameUsageServiceMyBatis implements NameUsageService {
     @Inject
     NameUsageServiceMyBatis(NameUsageMapper mapper, VernacularNameMapper vernacularNameMapper,
                             NameUsageMetricsMapper metricsMapper,
-                            RawUsageMapper rawUsageMapper, ParsedNameMapper parsedNameMapper) {
+                            RawUsageMapper rawUsageMapper, ParsedNameMapper parsedNameMapper, UsageMapper usageMapper) {
         this.mapper = mapper;
+        this.usageMapper = usageMapper;
         this.metricsMapper = metricsMapper;
         this.vernacularNameMapper = vernacularNameMapper;
         this.rawUsageMapper = rawUsageMapper;
@@ -140,8 +147,49 @@ public class NameUsageServiceMyBatis implements NameUsageService {
         return localizedPage(locale, usages, page);
     }
 
+    /**
+     * Lists the parents using the materialized parent path of the usage, loading all parents with a single query.
+     * Falls back to following the parent keys one by one if the path has not been materialized yet.
+     * The path of a synonym starts with its accepted usage which is not listed as a parent,
+     * same as when following the parent keys.
+     */
     @Override
     public List<NameUsage> listParents(int usageKey, @Nullable Locale locale) {
+        UsageRelated<Integer[]> path = usageMapper.getParentPath(usageKey);
+        if (path == null) {
+            return Lists.newArrayList();
+        }
+        if (path.getValue() == null) {
+            return followParents(usageKey, locale);
+        }
+
+        List<NameUsage> parents = Lists.newArrayList();
+        if (path.getValue().length > 0) {
+            // load the usage itself too to know if its a synonym
+            List<Integer> keys = Lists.newArrayList(path.getValue());
+            keys.add(usageKey);
+            Map<Integer, NameUsage> usages = Maps.newHashMap();
+            for (NameUsage u : mapper.listByKeys(keys)) {
+                usages.put(u.getKey(), u);
+            }
+            List<Integer> parentKeys = Arrays.asList(path.getValue());
+            if (usages.containsKey(usageKey) && usages.get(usageKey).isSynonym()) {
+                parentKeys = parentKeys.subList(1, parentKeys.size());
+            }
+            // the path starts with the direct parent, we list the root first
+            for (Integer key : Lists.reverse(parentKeys)) {
+                if (usages.containsKey(key)) {
+                    parents.add(usages.get(key));
+                } else {
+                    LOG.warn("Usage not found for parent key {}", key);
+                }
+            }
+            addVernacularNames(parents, getLanguage(locale));
+        }
+        return parents;
+    }
+
+    private List<NameUsage> followParents(int usageKey, @Nullable Locale locale) {
         LinkedList<NameUsage> parents = Lists.newLinkedList();
         NameUsage curr = get(usageKey, locale);
         if (curr != null) {
@@ -3,28 +3,79 @@ package org.gbif.checklistbank.service.mybatis;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import org.apache.commons.beanutils.BeanUtils;
 import org.apache.ibatis.exceptions.PersistenceException;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
 import org.gbif.api.exception.UnparsableException;
 import org.gbif.api.model.checklistbank.ParsedName;
 import org.gbif.api.service.checklistbank.NameParser;
+import org.gbif.api.vocabulary.Rank;
 import org.gbif.checklistbank.service.ParsedNameService;
+import org.gbif.checklistbank.service.mybatis.guice.InternalChecklistBankServiceMyBatisModule;
 import org.gbif.checklistbank.service.mybatis.mapper.ParsedNameMapper;
 import org.mybatis.guice.transactional.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.InvocationTargetException;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Parsed name service that keeps a size bounded cache of stored names by their scientific name and rank
+ * shared by all threads, so repeated lookups of the same name do not hit the database.
+ * The cached names are the stored versions so updates of changed names are still detected.
+ * Callers only ever receive copies of cached names and the given names are never modified.
+ * Names removed by deleteOrphaned from another process remain cached, so only delete orphans while no imports are running.
+ */
 public class ParsedNameServiceMyBatis implements ParsedNameService {
   private static final Logger LOG = LoggerFactory.getLogger(ParsedNameServiceMyBatis.class);
   private ParsedNameMapper mapper;
   private NameParser parser;
+  private final Cache<NameKey, ParsedName> cache;
+
+  /**
+   * The unique scientific name and rank combination of the name table.
+   */
+  private static class NameKey {
+    final String name;
+    final Rank rank;
+
+    NameKey(String name, Rank rank) {
+      this.name = name;
+      this.rank = rank;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      NameKey that = (NameKey) o;
+      return rank == that.rank && name.equals(that.name);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(name, rank);
+    }
+  }
 
   @Inject
-  ParsedNameServiceMyBatis(ParsedNameMapper mapper, NameParser parser) {
+  ParsedNameServiceMyBatis(ParsedNameMapper mapper, NameParser parser,
+                           @Named(InternalChecklistBankServiceMyBatisModule.KEY_CACHE_SIZE) Integer cacheSize) {
     this.mapper = mapper;
     this.parser = parser;
+    cache = CacheBuilder.newBuilder()
+        .maximumSize(cacheSize)
+        .recordStats()
+        .build();
   }
 
   public ParsedName get(int key) {
@@ -38,14 +89,45 @@ public class ParsedNameServiceMyBatis implements ParsedNameService {
     }
     Preconditions.checkNotNull(preParsed.getType(), preParsed.getScientificName() + " lacks name type");
 
+    final NameKey key = new NameKey(preParsed.getScientificName(), preParsed.getRank());
+    ParsedName cached = cache.getIfPresent(key);
+    if (cached != null) {
+      if (!update) {
+        return copy(cached);
+      }
+      // compare with the key so we only detect real changes
+      ParsedName pn = copy(preParsed);
+      pn.setKey(cached.getKey());
+      if (cached.equals(pn)) {
+        return copy(cached);
+      }
+    }
+
+    // work on a copy so we never modify the callers instance
+    ParsedName pn;
     try {
-      return createOrGetThrowing(preParsed, update);
+      pn = createOrGetThrowing(copy(preParsed), update);
     } catch (PersistenceException e) {
       // we have a unique constraint in the database which can throw an exception when we concurrently write the same name into the table
       // try to read and ignore exception if we can read the name
       LOG.warn("Inserting name >>>{}<<< failed, try to re-read", preParsed.getScientificName());
-      return createOrGetThrowing(preParsed, update);
+      pn = createOrGetThrowing(copy(preParsed), update);
     }
+    cache.put(key, pn);
+    return copy(pn);
+  }
+
+  /**
+   * Cached names are shared, so we only ever hand out copies of them.
+   */
+  private static ParsedName copy(ParsedName pn) {
+    ParsedName pn2 = new ParsedName();
+    try {
+      BeanUtils.copyProperties(pn2, pn);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw Throwables.propagate(e);
+    }
+    return pn2;
   }
 
   @Transactional
@@ -53,6 +135,7 @@ public class ParsedNameServiceMyBatis implements ParsedNameService {
     ParsedName pn = mapper.getByName(preParsed.getScientificName(), preParsed.getRank());
     if (pn == null) {
       // try to write the name to postgres
+      preParsed.setKey(null);
       mapper.create(preParsed);
     } else if (update && !pn.equals(preParsed)) {
       // is it different?
@@ -65,6 +148,37 @@ public class ParsedNameServiceMyBatis implements ParsedNameService {
     return preParsed;
   }
 
+  /**
+   * Loads all names used by a dataset into the cache, e.g. before the dataset gets reimported.
+   * @return number of cached names
+   */
+  @Override
+  @Transactional
+  public int warmCache(UUID datasetKey) {
+    final int[] counter = {0};
+    mapper.processDataset(datasetKey, ctx -> {
+      ParsedName pn = ctx.getResultObject();
+      cache.put(new NameKey(pn.getScientificName(), pn.getRank()), pn);
+      counter[0]++;
+    });
+    LOG.info("Cached {} names of dataset {}", counter[0], datasetKey);
+    return counter[0];
+  }
+
+  /**
+   * @return statistics of the name cache
+   */
+  public CacheStats cacheStats() {
+    return cache.stats();
+  }
+
+  /**
+   * Removes all names from the cache, e.g. after names have been modified in the database directly.
+   */
+  public void invalidateCache() {
+    cache.invalidateAll();
+  }
+
   @Override
   public int deleteOrphaned() {
     int deletedAll = 0;
@@ -78,6 +192,8 @@ public class ParsedNameServiceMyBatis implements ParsedNameService {
         deletedAll = deletedAll + deleted;
       }
     }
+    // cached names might have been deleted
+    cache.invalidateAll();
     return deletedAll;
   }
 
@@ -86,6 +202,7 @@ public class ParsedNameServiceMyBatis implements ParsedNameService {
   public int reparseAll() {
     ReparseHandler handler = new ReparseHandler();
     mapper.processNames(handler);
+    cache.invalidateAll();
     LOG.info("Reparsed all {} names, {} changed, {} failed: hybrids={}, virus={}, placeholder={}, noname={}",
         handler.counter, handler.changed, handler.failed, handler.hybrids, handler.virus, handler.placeholder, handler.noname);
     return handler.changed;
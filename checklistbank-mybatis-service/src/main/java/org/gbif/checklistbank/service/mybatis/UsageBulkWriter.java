@@ -0,0 +1,393 @@
+package org.gbif.checklistbank.service.mybatis;
+
+import org.gbif.api.model.Constants;
+import org.gbif.api.model.checklistbank.Description;
+import org.gbif.api.model.checklistbank.Distribution;
+import org.gbif.api.model.checklistbank.NameUsage;
+import org.gbif.api.model.checklistbank.NameUsageMediaObject;
+import org.gbif.api.model.checklistbank.NameUsageMetrics;
+import org.gbif.api.model.checklistbank.ParsedName;
+import org.gbif.api.model.checklistbank.Reference;
+import org.gbif.api.model.checklistbank.SpeciesProfile;
+import org.gbif.api.model.checklistbank.TypeSpecimen;
+import org.gbif.api.model.checklistbank.VerbatimNameUsage;
+import org.gbif.api.model.checklistbank.VernacularName;
+import org.gbif.api.model.common.Identifier;
+import org.gbif.api.vocabulary.IdentifierType;
+import org.gbif.checklistbank.model.Citation;
+import org.gbif.checklistbank.model.UsageExtensions;
+import org.gbif.checklistbank.service.CitationService;
+import org.gbif.checklistbank.service.ParsedNameService;
+import org.gbif.checklistbank.service.mybatis.mapper.CitationMapper;
+import org.gbif.checklistbank.service.mybatis.mapper.NameUsageMapper;
+import org.gbif.checklistbank.service.mybatis.mapper.VerbatimNameUsageMapperJson;
+import org.gbif.checklistbank.service.mybatis.postgres.PgCopyInBuffer;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import javax.sql.DataSource;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.inject.Inject;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes entire batches of new name usages and their extension data to postgres
+ * using native jdbc copy commands instead of single row inserts.
+ * <p>
+ * Usage keys are allocated upfront from the name usage sequence so self references and foreign keys can be
+ * resolved before the rows are written. Names and citations are looked up once per distinct value in a batch.
+ * The writer only inserts and never updates or deletes existing records, so it must only be used for fresh imports
+ * of datasets that have no usages in checklistbank yet.
+ */
+public class UsageBulkWriter {
+  private static final Logger LOG = LoggerFactory.getLogger(UsageBulkWriter.class);
+  private static final int CITATION_LOOKUP_SIZE = 1000;
+
+  private final NameUsageMapper nameUsageMapper;
+  private final CitationMapper citationMapper;
+  private final ParsedNameService nameService;
+  private final CitationService citationService;
+  private final DataSource ds;
+  private final VerbatimNameUsageMapperJson vParser = new VerbatimNameUsageMapperJson();
+
+  @Inject
+  UsageBulkWriter(NameUsageMapper nameUsageMapper, CitationMapper citationMapper,
+                  ParsedNameService nameService, CitationService citationService, DataSource ds) {
+    this.nameUsageMapper = nameUsageMapper;
+    this.citationMapper = citationMapper;
+    this.nameService = nameService;
+    this.citationService = citationService;
+    this.ds = ds;
+  }
+
+  /**
+   * @return true if the dataset has no usages at all in checklistbank and can be imported in bulk
+   */
+  public boolean isNewDataset(UUID datasetKey) {
+    return !Constants.NUB_DATASET_KEY.equals(datasetKey) && nameUsageMapper.maxUsageKey(datasetKey) == null;
+  }
+
+  /**
+   * @return list of newly allocated, unique usage keys
+   */
+  public List<Integer> allocateKeys(int size) {
+    return nameUsageMapper.nextKeys(size);
+  }
+
+  /**
+   * Inserts name usages together with their metrics and nub relations.
+   * All usages must have an allocated key already.
+   *
+   * @param usages  usages to insert
+   * @param names   parsed names, same order and length as usages
+   * @param metrics usage metrics, same order and length as usages
+   * @param fingerprints usage content hashes, same order and length as usages. Values can be null
+   */
+  public void insertUsages(UUID datasetKey, List<NameUsage> usages, List<ParsedName> names, List<NameUsageMetrics> metrics,
+                           List<Long> fingerprints) {
+    Preconditions.checkArgument(usages.size() == names.size() && usages.size() == metrics.size()
+        && usages.size() == fingerprints.size());
+    // resolve names and citations once per batch
+    Map<String, Integer> nameKeys = resolveNames(names);
+    Map<String, Citation> citations = Maps.newHashMap();
+    for (NameUsage u : usages) {
+      addCitation(citations, u.getPublishedIn());
+      addCitation(citations, u.getAccordingTo());
+    }
+    Map<String, Integer> citationKeys = resolveCitations(citations);
+
+    PgCopyInBuffer usageBuf = new PgCopyInBuffer("name_usage", "id", "dataset_key", "constituent_key", "name_fk", "rank",
+        "parent_fk", "is_synonym", "status", "nom_status", "issues", "name_published_in_fk", "according_to_fk", "origin",
+        "remarks", "\"references\"", "taxon_id", "source_taxon_key", "modified", "num_descendants", "fingerprint",
+        "pp_synonym_fk", "basionym_fk",
+        "kingdom_fk", "phylum_fk", "class_fk", "order_fk", "family_fk", "genus_fk", "subgenus_fk", "species_fk");
+    PgCopyInBuffer metricsBuf = new PgCopyInBuffer("name_usage_metrics", "usage_fk", "dataset_key",
+        "count_children", "count_synonyms", "count_p", "count_c", "count_o", "count_f", "count_g", "count_sg", "count_s");
+    PgCopyInBuffer nubBuf = new PgCopyInBuffer("nub_rel", "dataset_key", "usage_fk", "nub_fk");
+
+    Iterator<ParsedName> nIter = names.iterator();
+    Iterator<NameUsageMetrics> mIter = metrics.iterator();
+    Iterator<Long> fIter = fingerprints.iterator();
+    for (NameUsage u : usages) {
+      Preconditions.checkNotNull(u.getKey(), "Usage key must be allocated before");
+      ParsedName pn = nIter.next();
+      NameUsageMetrics m = mIter.next();
+      UsageSyncServiceMyBatis.updateSelfReferences(u);
+      usageBuf.add(u.getKey())
+          .add(datasetKey)
+          .add(u.getConstituentKey())
+          .add(nameKeys.get(nameKey(pn)))
+          .add(u.getRank())
+          .add(u.getAcceptedKey() != null ? u.getAcceptedKey() : u.getParentKey())
+          .add(u.isSynonym())
+          .add(u.getTaxonomicStatus())
+          .add(u.getNomenclaturalStatus())
+          .add(u.getIssues())
+          .add(citationKey(citationKeys, u.getPublishedIn()))
+          .add(citationKey(citationKeys, u.getAccordingTo()))
+          .add(u.getOrigin())
+          .add(u.getRemarks())
+          .add(u.getReferences())
+          .add(u.getTaxonID())
+          .add(u.getSourceTaxonKey())
+          .add(u.getModified())
+          .add(m.getNumDescendants())
+          .add(fIter.next())
+          .add(u.getProParteKey())
+          .add(u.getBasionymKey())
+          .add(u.getKingdomKey())
+          .add(u.getPhylumKey())
+          .add(u.getClassKey())
+          .add(u.getOrderKey())
+          .add(u.getFamilyKey())
+          .add(u.getGenusKey())
+          .add(u.getSubgenusKey())
+          .add(u.getSpeciesKey())
+          .endRow();
+
+      metricsBuf.add(u.getKey())
+          .add(datasetKey)
+          .add(m.getNumChildren())
+          .add(m.getNumSynonyms())
+          .add(m.getNumPhylum())
+          .add(m.getNumClass())
+          .add(m.getNumOrder())
+          .add(m.getNumFamily())
+          .add(m.getNumGenus())
+          .add(m.getNumSubgenus())
+          .add(m.getNumSpecies())
+          .endRow();
+      m.setKey(u.getKey());
+
+      if (u.getNubKey() != null) {
+        nubBuf.add(datasetKey).add(u.getKey()).add(u.getNubKey()).endRow();
+      }
+    }
+    copyIn(usageBuf, metricsBuf, nubBuf);
+    LOG.debug("Copied {} usages with {} nub relations", usageBuf.size(), nubBuf.size());
+  }
+
+  /**
+   * Inserts verbatim data and all extension records for already existing usages.
+   *
+   * @param usageKeys  keys of the usages
+   * @param verbatims  verbatim data, same order and length as usageKeys. Entries can be null.
+   * @param extensions extension data, same order and length as usageKeys. Entries can be null.
+   */
+  public void insertExtras(UUID datasetKey, List<Integer> usageKeys,
+                           List<VerbatimNameUsage> verbatims, List<UsageExtensions> extensions) {
+    Preconditions.checkArgument(usageKeys.size() == verbatims.size() && usageKeys.size() == extensions.size());
+    // resolve all citations once per batch
+    Map<String, Citation> citations = Maps.newHashMap();
+    for (UsageExtensions ext : extensions) {
+      if (ext != null) {
+        for (Description d : ext.descriptions) {
+          addCitation(citations, d.getSource());
+        }
+        for (Distribution d : ext.distributions) {
+          addCitation(citations, d.getSource());
+        }
+        for (NameUsageMediaObject m : ext.media) {
+          addCitation(citations, m.getSource());
+        }
+        for (Reference r : ext.referenceList) {
+          String citation = citation(r);
+          if (citation != null && !citations.containsKey(citation)) {
+            Citation c = new Citation(citation);
+            c.setDoi(r.getDoi());
+            c.setLink(r.getLink());
+            citations.put(citation, c);
+          }
+        }
+        for (SpeciesProfile s : ext.speciesProfiles) {
+          addCitation(citations, s.getSource());
+        }
+        for (TypeSpecimen t : ext.typeSpecimens) {
+          addCitation(citations, t.getSource());
+        }
+        for (VernacularName v : ext.vernacularNames) {
+          addCitation(citations, v.getSource());
+        }
+      }
+    }
+    Map<String, Integer> keys = resolveCitations(citations);
+
+    PgCopyInBuffer rawBuf = new PgCopyInBuffer("raw_usage", "usage_fk", "dataset_key", "json");
+    PgCopyInBuffer descBuf = new PgCopyInBuffer("description", "usage_fk", "description", "type", "language",
+        "creator", "contributor", "license", "source_fk");
+    PgCopyInBuffer distBuf = new PgCopyInBuffer("distribution", "usage_fk", "location_id", "locality", "country",
+        "occurrence_status", "life_stage", "temporal", "threat_status", "establishment_means", "appendix_cites",
+        "start_day_of_year", "end_day_of_year", "remarks", "source_fk");
+    PgCopyInBuffer idBuf = new PgCopyInBuffer("identifier", "usage_fk", "identifier", "title", "type");
+    PgCopyInBuffer mediaBuf = new PgCopyInBuffer("media", "usage_fk", "type", "format", "identifier", "\"references\"",
+        "title", "description", "audience", "created", "creator", "contributor", "publisher", "license", "rights_holder",
+        "source_fk");
+    PgCopyInBuffer refBuf = new PgCopyInBuffer("literature", "usage_fk", "citation_fk", "type", "remarks");
+    PgCopyInBuffer profileBuf = new PgCopyInBuffer("species_info", "usage_fk", "living_period", "life_form", "habitat",
+        "marine", "freshwater", "terrestrial", "extinct", "hybrid", "age_in_days", "size_in_millimeter", "mass_in_gram",
+        "source_fk");
+    PgCopyInBuffer typeBuf = new PgCopyInBuffer("typification", "usage_fk", "rank", "scientific_name", "designated_by",
+        "designation_type", "source_fk");
+    PgCopyInBuffer vernBuf = new PgCopyInBuffer("vernacular_name", "usage_fk", "name", "language", "life_stage", "sex",
+        "country", "area", "preferred", "plural", "source_fk");
+
+    Iterator<VerbatimNameUsage> vIter = verbatims.iterator();
+    Iterator<UsageExtensions> eIter = extensions.iterator();
+    for (Integer key : usageKeys) {
+      VerbatimNameUsage v = vIter.next();
+      UsageExtensions ext = eIter.next();
+      if (v != null) {
+        rawBuf.add(key).add(datasetKey).add(vParser.write(v)).endRow();
+      }
+      if (ext == null) {
+        continue;
+      }
+      for (Description d : ext.descriptions) {
+        descBuf.add(key).add(d.getDescription()).add(d.getType()).add(d.getLanguage()).add(d.getCreator())
+            .add(d.getContributor()).add(d.getLicense()).add(citationKey(keys, d.getSource())).endRow();
+      }
+      for (Distribution d : ext.distributions) {
+        distBuf.add(key).add(d.getLocationId()).add(d.getLocality()).add(d.getCountry()).add(d.getStatus())
+            .add(d.getLifeStage()).add(d.getTemporal()).add(d.getThreatStatus()).add(d.getEstablishmentMeans())
+            .add(d.getAppendixCites()).add(d.getStartDayOfYear()).add(d.getEndDayOfYear()).add(d.getRemarks())
+            .add(citationKey(keys, d.getSource())).endRow();
+      }
+      for (Identifier i : ext.identifiers) {
+        if (i.getType() == null) {
+          i.setType(IdentifierType.UNKNOWN);
+        }
+        idBuf.add(key).add(i.getIdentifier()).add(i.getTitle()).add(i.getType()).endRow();
+      }
+      for (NameUsageMediaObject m : ext.media) {
+        mediaBuf.add(key).add(m.getType()).add(m.getFormat()).add(m.getIdentifier()).add(m.getReferences())
+            .add(m.getTitle()).add(m.getDescription()).add(m.getAudience()).add(m.getCreated()).add(m.getCreator())
+            .add(m.getContributor()).add(m.getPublisher()).add(m.getLicense()).add(m.getRightsHolder())
+            .add(citationKey(keys, m.getSource())).endRow();
+      }
+      for (Reference r : ext.referenceList) {
+        String citation = citation(r);
+        if (citation != null) {
+          refBuf.add(key).add(keys.get(citation)).add(r.getType()).add(r.getRemarks()).endRow();
+        }
+      }
+      for (SpeciesProfile s : ext.speciesProfiles) {
+        profileBuf.add(key).add(s.getLivingPeriod()).add(s.getLifeForm()).add(s.getHabitat()).add(s.isMarine())
+            .add(s.isFreshwater()).add(s.isTerrestrial()).add(s.isExtinct()).add(s.isHybrid()).add(s.getAgeInDays())
+            .add(s.getSizeInMillimeter()).add(s.getMassInGram()).add(citationKey(keys, s.getSource())).endRow();
+      }
+      for (TypeSpecimen t : ext.typeSpecimens) {
+        typeBuf.add(key).add(t.getTaxonRank()).add(t.getScientificName()).add(t.getTypeDesignatedBy())
+            .add(t.getTypeDesignationType()).add(citationKey(keys, t.getSource())).endRow();
+      }
+      for (VernacularName vn : ext.vernacularNames) {
+        vernBuf.add(key).add(vn.getVernacularName()).add(vn.getLanguage()).add(vn.getLifeStage()).add(vn.getSex())
+            .add(vn.getCountry()).add(vn.getArea()).add(vn.isPreferred()).add(vn.isPlural())
+            .add(citationKey(keys, vn.getSource())).endRow();
+      }
+    }
+    copyIn(rawBuf, descBuf, distBuf, idBuf, mediaBuf, refBuf, profileBuf, typeBuf, vernBuf);
+    LOG.debug("Copied verbatim and extension data for {} usages", usageKeys.size());
+  }
+
+  /**
+   * Copies all buffers in a single transaction.
+   */
+  private void copyIn(PgCopyInBuffer... buffers) {
+    try (Connection con = ds.getConnection()) {
+      con.setAutoCommit(false);
+      try {
+        CopyManager copy = con.unwrap(PGConnection.class).getCopyAPI();
+        for (PgCopyInBuffer buf : buffers) {
+          copy(copy, buf);
+        }
+        con.commit();
+      } catch (SQLException | IOException | RuntimeException e) {
+        con.rollback();
+        throw e;
+      } finally {
+        con.setAutoCommit(true);
+      }
+    } catch (SQLException | IOException e) {
+      throw new RuntimeException("Failed to copy usage batch into postgres", e);
+    }
+  }
+
+  private static void copy(CopyManager copy, PgCopyInBuffer buf) throws SQLException, IOException {
+    int rows = buf.size();
+    long copied = buf.copyIn(copy);
+    if (copied != rows) {
+      throw new IllegalStateException("Copied " + copied + " instead of " + rows + " rows: " + buf.getSql());
+    }
+  }
+
+  private static String nameKey(ParsedName pn) {
+    return pn.getRank() + "|" + pn.getScientificName();
+  }
+
+  /**
+   * Creates or reads all distinct names of a batch only once.
+   * @return map of scientific name and rank to name keys
+   */
+  private Map<String, Integer> resolveNames(List<ParsedName> names) {
+    Map<String, Integer> keys = Maps.newHashMap();
+    for (ParsedName pn : names) {
+      String key = nameKey(pn);
+      if (!keys.containsKey(key)) {
+        ParsedName pn2 = nameService.createOrGet(pn, true);
+        keys.put(key, pn2 == null ? null : pn2.getKey());
+      }
+    }
+    return keys;
+  }
+
+  private static void addCitation(Map<String, Citation> citations, @Nullable String citation) {
+    if (!Strings.isNullOrEmpty(citation) && !citations.containsKey(citation)) {
+      citations.put(citation, new Citation(citation));
+    }
+  }
+
+  private static Integer citationKey(Map<String, Integer> keys, @Nullable String citation) {
+    return Strings.isNullOrEmpty(citation) ? null : keys.get(citation);
+  }
+
+  private static String citation(Reference r) {
+    String citation = r.getCitation();
+    if (Strings.isNullOrEmpty(citation)) {
+      // try to build from pieces if full citation is not given!!!
+      citation = UsageSyncServiceMyBatis.buildCitation(r);
+    }
+    return Strings.emptyToNull(citation);
+  }
+
+  /**
+   * Looks up all existing citations with a few queries and only creates the missing ones individually.
+   * @return map of citation strings to their keys
+   */
+  private Map<String, Integer> resolveCitations(Map<String, Citation> citations) {
+    Map<String, Integer> keys = Maps.newHashMap();
+    for (List<String> batch : Iterables.partition(citations.keySet(), CITATION_LOOKUP_SIZE)) {
+      for (Citation c : citationMapper.listByCitations(batch)) {
+        keys.put(c.getCitation(), c.getKey());
+      }
+    }
+    for (Citation c : citations.values()) {
+      if (!keys.containsKey(c.getCitation())) {
+        keys.put(c.getCitation(), citationService.createOrGet(c.getCitation(), c.getDoi(), c.getLink()));
+      }
+    }
+    return keys;
+  }
+}
@@ -1,17 +1,20 @@
 package org.gbif.checklistbank.service.mybatis;
 
 import org.gbif.api.model.checklistbank.NameUsage;
+import org.gbif.checklistbank.model.UsageRelated;
 import org.gbif.checklistbank.service.UsageService;
 import org.gbif.checklistbank.service.mybatis.mapper.NameUsageMapper;
 import org.gbif.checklistbank.service.mybatis.mapper.UsageMapper;
 import org.gbif.checklistbank.service.mybatis.postgres.IntArrayPgWriter;
 
 import java.sql.Connection;
-import java.util.Date;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import javax.sql.DataSource;
 
+import com.google.common.collect.Maps;
 import com.google.inject.Inject;
 import com.zaxxer.hikari.pool.ProxyConnection;
 import org.postgresql.PGConnection;
@@ -64,12 +67,46 @@ public class UsageServiceMyBatis implements UsageService {
 
   @Override
   public List<Integer> listParents(int usageKey) {
+    UsageRelated<Integer[]> path = usageMapper.getParentPath(usageKey);
+    if (path != null && path.getValue() != null) {
+      return Arrays.asList(path.getValue());
+    }
+    // not yet materialized
     return usageMapper.listParents(usageKey);
   }
 
   @Override
-  public List<Integer> listOldUsages(UUID datasetKey, Date before) {
-    return usageMapper.listByDatasetAndDate(datasetKey, before);
+  public Map<Integer, List<Integer>> listParents(int usageKeyStart, int usageKeyEnd) {
+    if (usageKeyStart > usageKeyEnd) {
+      throw new IllegalArgumentException("start " + usageKeyStart + " > end " + usageKeyEnd + " range");
+    }
+    Map<Integer, List<Integer>> parents = Maps.newHashMap();
+    for (UsageRelated<Integer[]> r : usageMapper.listParentsRange(usageKeyStart, usageKeyEnd)) {
+      parents.put(r.getUsageKey(), Arrays.asList(r.getValue()));
+    }
+    return parents;
+  }
+
+  @Override
+  public int count() {
+    return usageMapper.count();
+  }
+
+  @Override
+  public Integer minUsageKey(int fromKey) {
+    return usageMapper.minKey(fromKey);
+  }
+
+  @Override
+  public int updateParentPaths(UUID datasetKey) {
+    int updated = usageMapper.updateParentPaths(datasetKey);
+    LOG.info("Updated {} parent paths of dataset {}", updated, datasetKey);
+    return updated;
+  }
+
+  @Override
+  public List<Integer> listUsages(UUID datasetKey) {
+    return usageMapper.listByDataset(datasetKey);
   }
 
 }
@@ -19,6 +19,7 @@ import org.gbif.checklistbank.logging.LogContext;
 import org.gbif.checklistbank.model.NameUsageWritable;
 import org.gbif.checklistbank.model.RawUsage;
 import org.gbif.checklistbank.model.UsageExtensions;
+import org.gbif.checklistbank.model.UsageFingerprint;
 import org.gbif.checklistbank.service.CitationService;
 import org.gbif.checklistbank.service.ParsedNameService;
 import org.gbif.checklistbank.service.UsageSyncService;
@@ -100,22 +101,41 @@ public class UsageSyncServiceMyBatis implements UsageSyncService {
    */
   @Override
   public int syncUsage(boolean insert, NameUsage usage, ParsedName pn, NameUsageMetrics metrics) {
+    syncUsage(insert, usage, pn, metrics, null);
+    return usage.getKey();
+  }
+
+  /**
+   * Syncs the usage just as syncUsage(insert, usage, pn, metrics) does,
+   * but leaves existing usages that were last imported with the same fingerprint untouched.
+   * The fingerprint is looked up together with the existing usage key, so skipping unchanged usages needs no extra query.
+   */
+  @Override
+  public boolean syncUsage(boolean insert, NameUsage usage, ParsedName pn, NameUsageMetrics metrics, @Nullable Long fingerprint) {
     Preconditions.checkNotNull(usage);
     Preconditions.checkNotNull(pn);
     Preconditions.checkNotNull(usage.getDatasetKey(), "datasetKey must exist");
     Preconditions.checkNotNull(metrics);
 
     try {
-      // find previous usageKey based on dataset specific taxonID, the source identifier for all non backbone usages
+      UsageFingerprint existing = null;
       if (!usage.getDatasetKey().equals(Constants.NUB_DATASET_KEY)) {
-        usage.setKey(nameUsageMapper.getKey(usage.getDatasetKey(), usage.getTaxonID()));
+        // find previous usageKey based on dataset specific taxonID, the source identifier for all non backbone usages
+        existing = nameUsageMapper.getFingerprint(usage.getDatasetKey(), usage.getTaxonID());
+        usage.setKey(existing == null ? null : existing.getKey());
+      } else if (!insert && fingerprint != null && usage.getKey() != null) {
+        existing = nameUsageMapper.getFingerprintByKey(usage.getKey());
       }
 
       if (usage.getKey() == null || insert) {
-        usage.setKey(insertNewUsage(usage, pn, metrics));
+        usage.setKey(insertNewUsage(usage, pn, metrics, fingerprint));
         LOG.debug("inserted usage {} with taxonID {} from dataset {}", usage.getKey(), usage.getTaxonID(), usage.getDatasetKey());
+      } else if (existing != null && existing.matches(fingerprint)) {
+        updateSelfReferences(usage);
+        LOG.debug("unchanged usage {} with taxonID {} from dataset {}", usage.getKey(), usage.getTaxonID(), usage.getDatasetKey());
+        return false;
       } else {
-        updateUsage(usage, pn, metrics);
+        updateUsage(usage, pn, metrics, fingerprint);
         LOG.debug("updated usage {} with taxonID {} from dataset {}", usage.getKey(), usage.getTaxonID(), usage.getDatasetKey());
       }
 
@@ -127,7 +147,7 @@ public class UsageSyncServiceMyBatis implements UsageSyncService {
         LOG.info("Synced {} usages, mean rate={}", cnt, meterUsages.getMeanRate());
         LogContext.endDataset();
       }
-      return usage.getKey();
+      return true;
 
     } catch (RuntimeException e) {
       LOG.error("Error while syncing usage {}: {}", usage.getKey(), pn.getScientificName());
@@ -170,11 +190,12 @@ public class UsageSyncServiceMyBatis implements UsageSyncService {
   /**
    * @return the usage key for the inserted record
    */
-  private int insertNewUsage(NameUsage u, ParsedName pn, NameUsageMetrics metrics) {
+  private int insertNewUsage(NameUsage u, ParsedName pn, NameUsageMetrics metrics, @Nullable Long fingerprint) {
     final UUID datasetKey = u.getDatasetKey();
 
     // insert main usage, creating name and citation records before
     NameUsageWritable uw = toWritable(datasetKey, u, pn, metrics);
+    uw.setFingerprint(fingerprint);
     nameUsageMapper.insert(uw);
     u.setKey(uw.getKey());
 
@@ -301,19 +322,19 @@ public class UsageSyncServiceMyBatis implements UsageSyncService {
 
   /**
    * Updates an existing usage record and all its related extensions.
-   * Checking whether a usage has changed is a bit of work and error prone so we always update currently.
-   * In the future we should try to update only when needed though. We would need to compare the usage itself,
-   * the raw data, the usage metrics and all extension data in the container though.
+   * Unchanged usages are detected upfront by their fingerprint, see syncUsage.
    *
    * @param u updated usage
+   * @param fingerprint the new content hash to store or null if unknown
    */
-  private void updateUsage(NameUsage u, ParsedName pn, NameUsageMetrics metrics) {
+  private void updateUsage(NameUsage u, ParsedName pn, NameUsageMetrics metrics, @Nullable Long fingerprint) {
     final UUID datasetKey = u.getDatasetKey();
 
     // update self references indicated by -1
     updateSelfReferences(u);
     // insert main usage, creating name and citation records before
     NameUsageWritable uw = toWritable(datasetKey, u, pn, metrics);
+    uw.setFingerprint(fingerprint);
     nameUsageMapper.update(uw);
 
     // update usage metrics
@@ -329,7 +350,10 @@ public class UsageSyncServiceMyBatis implements UsageSyncService {
     }
   }
 
-  private void updateSelfReferences(NameUsage u) {
+  /**
+   * Replaces all foreign keys indicated by -1 with the usage key itself.
+   */
+  static void updateSelfReferences(NameUsage u) {
     if (u.getBasionymKey() != null && u.getBasionymKey() == -1) {
       u.setBasionymKey(u.getKey());
     }
@@ -395,11 +419,18 @@ public class UsageSyncServiceMyBatis implements UsageSyncService {
 
   @Override
   public void insertNubRelations(UUID datasetKey, Map<Integer, Integer> relations) {
-    nubRelMapper.deleteByDataset(datasetKey);
-    // for CoL with its instable ids remove previous source keys from nub
-    if (Constants.COL_DATASET_KEY.equals(datasetKey)) {
-      LOG.info("Updating Catalogue of Life source taxa in the backbone");
-      usageMapper.deleteSourceTaxonKeyByConstituent(datasetKey);
+    insertNubRelations(datasetKey, relations, true);
+  }
+
+  @Override
+  public void insertNubRelations(UUID datasetKey, Map<Integer, Integer> relations, boolean deleteExisting) {
+    if (deleteExisting) {
+      nubRelMapper.deleteByDataset(datasetKey);
+      // for CoL with its instable ids remove previous source keys from nub
+      if (Constants.COL_DATASET_KEY.equals(datasetKey)) {
+        LOG.info("Updating Catalogue of Life source taxa in the backbone");
+        usageMapper.deleteSourceTaxonKeyByConstituent(datasetKey);
+      }
     }
     for (List<Integer> batch : Iterables.partition(relations.keySet(), 10000)) {
       insertNubRelationBatch(datasetKey, relations, batch);
@@ -55,6 +55,7 @@ public class ChecklistBankServiceMyBatisModule extends PrivateServiceModule impl
 
   private final int parserTimeout;
   private final int importThreads;
+  private final int keyCacheSize;
 
   /**
    * Uses the given properties to configure the service.
@@ -65,6 +66,7 @@ public class ChecklistBankServiceMyBatisModule extends PrivateServiceModule impl
     super(PREFIX, properties);
     parserTimeout = Integer.parseInt(properties.getProperty(ClbConfiguration.PARSER_TIMEOUT_PROP, "500"));
     importThreads = Integer.parseInt(properties.getProperty(ClbConfiguration.IMPORT_THREADS_PROP, "2"));
+    keyCacheSize = Integer.parseInt(properties.getProperty(ClbConfiguration.KEY_CACHE_SIZE_PROP, "100000"));
   }
 
   public static ChecklistBankServiceMyBatisModule create(ClbConfiguration cfg) {
@@ -82,6 +84,7 @@ public class ChecklistBankServiceMyBatisModule extends PrivateServiceModule impl
     cfg.password = getProperties().getProperty("dataSource.password");
     cfg.parserTimeout = parserTimeout;
     cfg.syncThreads = importThreads;
+    cfg.keyCacheSize = keyCacheSize;
     cfg.maximumPoolSize = getIntProp("maximumPoolSize", cfg.maximumPoolSize);
     cfg.minimumIdle = getIntProp("minimumIdle", cfg.minimumIdle);
     cfg.idleTimeout = getIntProp("idleTimeout", cfg.idleTimeout);
@@ -105,7 +108,7 @@ public class ChecklistBankServiceMyBatisModule extends PrivateServiceModule impl
 
     // default parser timeout is 500ms
     // install mybatis module
-    MyBatisModule mybatModule = new InternalChecklistBankServiceMyBatisModule(getProperties(), parserTimeout, importThreads);
+    MyBatisModule mybatModule = new InternalChecklistBankServiceMyBatisModule(getProperties(), parserTimeout, importThreads, keyCacheSize);
     install(mybatModule);
     // expose a named datasource binding and session manager for transactions
     expose(mybatModule.getDatasourceKey());
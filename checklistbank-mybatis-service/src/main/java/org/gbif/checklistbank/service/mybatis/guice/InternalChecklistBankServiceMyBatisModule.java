@@ -41,20 +41,32 @@ public class InternalChecklistBankServiceMyBatisModule extends MyBatisModule {
   public static final Key<DataSource> DATASOURCE_KEY = Key.get(DataSource.class,
       Names.named(InternalChecklistBankServiceMyBatisModule.DATASOURCE_BINDING_NAME));
 
+  /**
+   * Binding name for the maximum size of the name and citation key caches.
+   */
+  public static final String KEY_CACHE_SIZE = "checklistbank.keyCacheSize";
+
   private final int parserTimeout;
   private final int importThreads;
+  private final int keyCacheSize;
 
   public InternalChecklistBankServiceMyBatisModule(Properties props, int parserTimeout, int importThreads) {
+    this(props, parserTimeout, importThreads, new ClbConfiguration().keyCacheSize);
+  }
+
+  public InternalChecklistBankServiceMyBatisModule(Properties props, int parserTimeout, int importThreads, int keyCacheSize) {
     super(DATASOURCE_BINDING_NAME, props);
     Preconditions.checkArgument(parserTimeout >= 50, "Name parser timeout must be at least 50ms");
     this.parserTimeout = parserTimeout;
     Preconditions.checkArgument(importThreads >= 0, "Number of import threads need to be positive");
     this.importThreads = importThreads;
+    Preconditions.checkArgument(keyCacheSize >= 0, "Key cache size cannot be negative");
+    this.keyCacheSize = keyCacheSize;
   }
 
   public static InternalChecklistBankServiceMyBatisModule create(ClbConfiguration cfg) {
     LOG.info("Connecting to checklistbank db {} on {} with user {}", cfg.databaseName, cfg.serverName, cfg.user);
-    return new InternalChecklistBankServiceMyBatisModule(cfg.toProps(false), cfg.parserTimeout, cfg.syncThreads);
+    return new InternalChecklistBankServiceMyBatisModule(cfg.toProps(false), cfg.parserTimeout, cfg.syncThreads, cfg.keyCacheSize);
   }
 
   @Override
@@ -82,6 +94,7 @@ public class InternalChecklistBankServiceMyBatisModule extends MyBatisModule {
     addAlias("TypeSpecimen").to(TypeSpecimen.class);
     addAlias("Usage").to(Usage.class);
     addAlias("UsageCount").to(UsageCount.class);
+    addAlias("UsageFingerprint").to(UsageFingerprint.class);
     addAlias("UsageRelated").to(UsageRelated.class);
     addAlias("VerbatimNameUsage").to(VerbatimNameUsage.class);
     addAlias("VernacularName").to(VernacularName.class);
@@ -142,6 +155,9 @@ public class InternalChecklistBankServiceMyBatisModule extends MyBatisModule {
     bind(Integer.class)
         .annotatedWith(Mybatis.class)
         .toInstance(importThreads);
+    bind(Integer.class)
+        .annotatedWith(Names.named(KEY_CACHE_SIZE))
+        .toInstance(keyCacheSize);
     bind(DatasetImportService.class)
         .annotatedWith(Mybatis.class)
         .to(DatasetImportServiceMyBatis.class)
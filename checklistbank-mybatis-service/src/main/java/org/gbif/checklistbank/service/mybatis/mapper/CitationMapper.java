@@ -2,12 +2,29 @@ package org.gbif.checklistbank.service.mybatis.mapper;
 
 import org.gbif.checklistbank.model.Citation;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 public interface CitationMapper {
 
   Integer getByCitation(@Param("citation") String citation);
 
+  /**
+   * @return all existing citations with their key for the given citation strings
+   */
+  List<Citation> listByCitations(@Param("citations") Collection<String> citations);
+
   void insert(@Param("c") Citation citation);
 
+  /**
+   * Iterates over all citations used by the usages or extension records of a dataset.
+   *
+   * @param handler to process each citation with
+   */
+  void processDataset(@Param("uuid") UUID datasetKey, ResultHandler<Citation> handler);
+
 }
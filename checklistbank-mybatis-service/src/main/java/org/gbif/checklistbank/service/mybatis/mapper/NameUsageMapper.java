@@ -8,8 +8,10 @@ import org.gbif.api.v2.RankedName;
 import org.gbif.api.vocabulary.NameUsageIssue;
 import org.gbif.checklistbank.model.NameUsageWritable;
 import org.gbif.checklistbank.model.ParsedNameUsage;
+import org.gbif.checklistbank.model.UsageFingerprint;
 
 import javax.annotation.Nullable;
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -23,6 +25,11 @@ public interface NameUsageMapper {
 
   NameUsage get(@Param("key") int key);
 
+  /**
+   * @return all existing usages for the given keys in no particular order
+   */
+  List<NameUsage> listByKeys(@Param("keys") List<Integer> keys);
+
   /**
    * Returns the existing usage key for a given taxonID in a dataset or null if its not existing.
    * In case more than one usage exists with the given taxonID (which should never happen, these are invalid datasets
@@ -30,6 +37,17 @@ public interface NameUsageMapper {
    */
   Integer getKey(@Param("uuid") UUID datasetKey, @Param("taxonId") String taxonId);
 
+  /**
+   * Like getKey, but also returns the fingerprint the existing usage was last imported with.
+   * @return the existing usage key and fingerprint or null if the taxonID does not exist in the dataset
+   */
+  UsageFingerprint getFingerprint(@Param("uuid") UUID datasetKey, @Param("taxonId") String taxonId);
+
+  /**
+   * @return the usage key and fingerprint of an existing usage or null if it does not exist
+   */
+  UsageFingerprint getFingerprintByKey(@Param("key") int key);
+
   /**
    * A simple paging query for all non deleted usages in checklistbank.
    * We only return name usage ids here to avoid extremely heavy operations for the database when the offset gets
@@ -39,6 +57,19 @@ public interface NameUsageMapper {
    */
   List<Integer> list(@Nullable @Param("uuid") UUID datasetKey, @Param("page") Pageable page);
 
+  /**
+   * A keyset paging query for all non deleted usages in checklistbank which stays cheap for any page.
+   *
+   * @return up to limit name usage ids equal or larger than the start key, ordered by id.
+   */
+  List<Integer> listFrom(@Param("start") int startKey, @Param("limit") int limit);
+
+  /**
+   * Lists the first usage id of every page of the given size over all non deleted usages ordered by id.
+   * Together with listFrom this allows to access every page without an offset.
+   */
+  List<Integer> listPageStarts(@Param("size") int size);
+
   /**
    * @return the number of non deleted name usages
    */
@@ -69,6 +100,16 @@ public interface NameUsageMapper {
    */
   void processDataset(@Param("uuid") UUID datasetKey, ResultHandler<ParsedNameUsage> handler);
 
+  /**
+   * Iterates over all name usages of a given dataset that have been interpreted or deleted after the given time,
+   * including deleted usages, and processes them with the supplied handler.
+   *
+   * @param since   the exclusive time after which usages must have changed
+   * @param handler to process each name usage with
+   */
+  void processDatasetChanges(@Param("uuid") UUID datasetKey, @Param("since") Date since,
+                             ResultHandler<ParsedNameUsage> handler);
+
   /**
    * Iterates over all usage names and processes them with the supplied handler.
    * This allows a single query to efficiently stream all its values without keeping them in memory.
@@ -87,6 +128,12 @@ public interface NameUsageMapper {
    */
   Integer maxUsageKey(@Param("uuid") UUID datasetKey);
 
+  /**
+   * Allocates new usage keys from the name usage sequence, e.g. for bulk inserts.
+   * @return list of new, unique usage keys
+   */
+  List<Integer> nextKeys(@Param("size") int size);
+
   /**
    * Insert a new name usage, setting lastInterpretedDate to current date and assigning a new usage key.
    * If higher rank keys like kingdomKey are -1 this is interpreted that they should point to the newly inserted record
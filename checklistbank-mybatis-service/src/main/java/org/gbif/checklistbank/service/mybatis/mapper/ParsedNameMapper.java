@@ -61,5 +61,12 @@ public interface ParsedNameMapper {
    */
   void processNames(ResultHandler<ParsedName> handler);
 
+  /**
+   * Iterates over all distinct names used by a dataset and processes them with the supplied handler.
+   *
+   * @param handler to process each name with
+   */
+  void processDataset(@Param("uuid") UUID datasetKey, ResultHandler<ParsedName> handler);
+
   void update(@Param("pn") ParsedName name);
 }
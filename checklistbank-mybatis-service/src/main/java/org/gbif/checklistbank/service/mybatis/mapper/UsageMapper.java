@@ -1,8 +1,9 @@
 package org.gbif.checklistbank.service.mybatis.mapper;
 
+import org.gbif.checklistbank.model.UsageRelated;
+
 import org.apache.ibatis.annotations.Param;
 
-import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 
@@ -14,7 +15,10 @@ public interface UsageMapper {
 
   int deleteByDataset(@Param("uuid") UUID datasetKey);
 
-  List<Integer> listByDatasetAndDate(@Param("uuid") UUID datasetKey, @Param("before") Date before);
+  /**
+   * @return ids of all current, not deleted usages of a dataset
+   */
+  List<Integer> listByDataset(@Param("uuid") UUID datasetKey);
 
   /**
    * Return ids of all parents, limited to max 100 to avoid endless loops that bring down the JVM
@@ -22,6 +26,39 @@ public interface UsageMapper {
    */
   List<Integer> listParents(@Param("key") int usageKey);
 
+  /**
+   * Reads the materialized parent keys of a usage, ordered from the direct parent upwards.
+   * The value is null if the path has not been materialized yet, e.g. during imports.
+   *
+   * @return the parent path or null if the usage does not exist
+   */
+  UsageRelated<Integer[]> getParentPath(@Param("key") int usageKey);
+
+  /**
+   * Materializes the parent keys of all usages in a dataset, walking the tree top down from its roots.
+   * Only paths of up to 100 parents are stored, same as the listParents limit.
+   *
+   * @return number of usages with a modified path
+   */
+  int updateParentPaths(@Param("uuid") UUID datasetKey);
+
+  /**
+   * Return ids of all parents for all usages in the given key range with a single query,
+   * ordered from the direct parent upwards and limited to max 100 like listParents.
+   * Usages without a parent are not included.
+   */
+  List<UsageRelated<Integer[]>> listParentsRange(@Param("start") int usageKeyStart, @Param("end") int usageKeyEnd);
+
+  /**
+   * @return the lowest key of all current (not deleted) name usages that is equal or larger than the given key
+   */
+  Integer minKey(@Param("from") int fromKey);
+
+  /**
+   * @return the number of all current (not deleted) name usages
+   */
+  int count();
+
   /**
    * Update a backbone name usage with the given source taxon key
    */
@@ -0,0 +1,166 @@
+package org.gbif.checklistbank.service.mybatis.postgres;
+
+import org.gbif.api.vocabulary.Country;
+import org.gbif.api.vocabulary.Language;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Date;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Joiner;
+import org.postgresql.copy.CopyManager;
+
+/**
+ * Buffers rows for a single table in the postgres COPY text format so they can be written
+ * with one native jdbc copy command instead of many single inserts.
+ * <p>
+ * Values are converted the same way as the mybatis type handlers used by the mappers do,
+ * i.e. countries and languages as iso 2 letter codes, enums by their name and collections as postgres arrays.
+ * Nulls are written as \N.
+ */
+public class PgCopyInBuffer {
+  private static final Joiner COLUMN_JOINER = Joiner.on(",");
+  private static final String NULL = "\\N";
+
+  private final String sql;
+  private final StringBuilder sb = new StringBuilder(8192);
+  private int rows;
+  private boolean rowStart = true;
+
+  /**
+   * @param table   the postgres table to copy into
+   * @param columns the columns to copy in the order values are added to each row
+   */
+  public PgCopyInBuffer(String table, String... columns) {
+    sql = "COPY " + table + " (" + COLUMN_JOINER.join(columns) + ") FROM STDIN WITH NULL '" + NULL + "'";
+  }
+
+  /**
+   * Adds the next value to the current row.
+   */
+  public PgCopyInBuffer add(@Nullable Object val) {
+    if (!rowStart) {
+      sb.append('\t');
+    }
+    rowStart = false;
+    if (val == null) {
+      sb.append(NULL);
+    } else if (val instanceof Collection) {
+      appendEscaped(toArray((Collection<?>) val));
+    } else {
+      appendEscaped(toString(val));
+    }
+    return this;
+  }
+
+  /**
+   * Terminates the current row.
+   */
+  public void endRow() {
+    sb.append('\n');
+    rowStart = true;
+    rows++;
+  }
+
+  /**
+   * @return number of complete rows in the buffer
+   */
+  public int size() {
+    return rows;
+  }
+
+  public String getSql() {
+    return sql;
+  }
+
+  /**
+   * @return the buffered rows in the postgres copy text format
+   */
+  public String getContent() {
+    return sb.toString();
+  }
+
+  /**
+   * Copies all buffered rows into postgres and clears the buffer afterwards.
+   * @return the number of rows copied
+   */
+  public long copyIn(CopyManager copy) throws SQLException, IOException {
+    if (rows == 0) {
+      return 0;
+    }
+    long copied = copy.copyIn(sql, new StringReader(sb.toString()));
+    sb.setLength(0);
+    rows = 0;
+    return copied;
+  }
+
+  private static String toString(Object val) {
+    if (val instanceof Enum) {
+      if (val instanceof Country) {
+        return ((Country) val).getIso2LetterCode();
+      } else if (val instanceof Language) {
+        return ((Language) val).getIso2LetterCode();
+      }
+      return ((Enum) val).name();
+
+    } else if (val instanceof Boolean) {
+      return (Boolean) val ? "t" : "f";
+
+    } else if (val instanceof Date) {
+      return new Timestamp(((Date) val).getTime()).toString();
+    }
+    return val.toString();
+  }
+
+  /**
+   * Converts a collection into a postgres array literal, quoting all elements.
+   */
+  private static String toArray(Collection<?> values) {
+    StringBuilder arr = new StringBuilder("{");
+    boolean first = true;
+    for (Object v : values) {
+      if (v == null) {
+        continue;
+      }
+      if (!first) {
+        arr.append(',');
+      }
+      first = false;
+      arr.append('"');
+      for (char c : toString(v).toCharArray()) {
+        if (c == '"' || c == '\\') {
+          arr.append('\\');
+        }
+        arr.append(c);
+      }
+      arr.append('"');
+    }
+    return arr.append('}').toString();
+  }
+
+  private void appendEscaped(String x) {
+    for (int i = 0; i < x.length(); i++) {
+      char c = x.charAt(i);
+      switch (c) {
+        case '\\':
+          sb.append("\\\\");
+          break;
+        case '\t':
+          sb.append("\\t");
+          break;
+        case '\n':
+          sb.append("\\n");
+          break;
+        case '\r':
+          sb.append("\\r");
+          break;
+        default:
+          sb.append(c);
+      }
+    }
+  }
+}
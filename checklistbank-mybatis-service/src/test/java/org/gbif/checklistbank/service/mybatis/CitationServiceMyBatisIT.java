@@ -23,4 +23,15 @@ public class CitationServiceMyBatisIT extends MyBatisServiceITBase<CitationServi
         final Integer cid2 = service.createOrGet(citation);
         assertEquals(cid2, cid);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCacheHit() throws Exception {
+        CitationServiceMyBatis impl = (CitationServiceMyBatis) service;
+        final Integer cid = service.createOrGet("Linnaeus, C. (1753). Species Plantarum.");
+        assertNotNull(cid);
+
+        long hits = impl.cacheStats().hitCount();
+        assertEquals(cid, service.createOrGet("Linnaeus, C. (1753). Species Plantarum."));
+        assertEquals(hits + 1, impl.cacheStats().hitCount());
+    }
+}
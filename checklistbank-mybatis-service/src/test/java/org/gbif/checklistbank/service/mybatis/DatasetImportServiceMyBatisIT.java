@@ -113,6 +113,11 @@ public class DatasetImportServiceMyBatisIT extends MyBatisServiceITBase<DatasetI
       return true;
     }
 
+    @Override
+    public Long fingerprint(long id, NameUsage usage, ParsedName pn, NameUsageMetrics metrics) {
+      return null;
+    }
+
     @Override
     public UsageExtensions readExtensions(long id) {
       return ext;
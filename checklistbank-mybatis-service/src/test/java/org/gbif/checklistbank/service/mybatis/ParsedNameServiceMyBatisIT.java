@@ -68,6 +68,66 @@ public class ParsedNameServiceMyBatisIT extends MyBatisServiceITBase<ParsedNameS
     assertEquals("hostilis", pn.getSpecificEpithet());
   }
 
+  @Test
+  public void testCacheHit() throws Exception {
+    ParsedNameServiceMyBatis impl = (ParsedNameServiceMyBatis) service;
+    ParsedName pn = parse("Abies pinsapo Boiss.");
+    ParsedName pn1 = service.createOrGet(pn, false);
+    assertNotNull(pn1.getKey());
+    // the callers instance is never modified
+    assertNull(pn.getKey());
+
+    long hits = impl.cacheStats().hitCount();
+    ParsedName pn2 = service.createOrGet(parse("Abies pinsapo Boiss."), false);
+    assertEquals(hits + 1, impl.cacheStats().hitCount());
+    assertEquals(pn1, pn2);
+
+    // cached names are handed out as copies
+    assertNotSame(pn1, pn2);
+    pn2.setRemarks("modified");
+    assertNull(service.createOrGet(parse("Abies pinsapo Boiss."), false).getRemarks());
+  }
+
+  @Test
+  public void testCacheUpdate() throws Exception {
+    ParsedName pn1 = service.createOrGet(parse("Abies pinsapo Boiss."), true);
+    assertNull(pn1.getRemarks());
+
+    // same name but changed content is written to the db even though the name is cached
+    ParsedName pn = parse("Abies pinsapo Boiss.");
+    pn.setRemarks("changed");
+    ParsedName pn2 = service.createOrGet(pn, true);
+    assertNull(pn.getKey());
+    assertEquals(pn1.getKey(), pn2.getKey());
+    assertEquals("changed", pn2.getRemarks());
+    assertEquals("changed", ((ParsedNameServiceMyBatis) service).get(pn1.getKey()).getRemarks());
+
+    // without updates the cached name is returned
+    ParsedName pn3 = service.createOrGet(parse("Abies pinsapo Boiss."), false);
+    assertEquals(pn2, pn3);
+  }
+
+  @Test
+  public void testCacheInvalidation() throws Exception {
+    ParsedNameServiceMyBatis impl = (ParsedNameServiceMyBatis) service;
+    // the new name is not used by any usage and gets deleted as an orphan
+    ParsedName pn1 = service.createOrGet(parse("Abies pinsapo Boiss."), true);
+    service.deleteOrphaned();
+    assertNull(impl.get(pn1.getKey()));
+
+    long misses = impl.cacheStats().missCount();
+    ParsedName pn2 = service.createOrGet(parse("Abies pinsapo Boiss."), true);
+    assertEquals(misses + 1, impl.cacheStats().missCount());
+    assertFalse(pn1.getKey().equals(pn2.getKey()));
+    assertNotNull(impl.get(pn2.getKey()));
+
+    service.reparseAll();
+    misses = impl.cacheStats().missCount();
+    ParsedName pn3 = service.createOrGet(parse("Abies pinsapo Boiss."), true);
+    assertEquals(misses + 1, impl.cacheStats().missCount());
+    assertEquals(pn2.getKey(), pn3.getKey());
+  }
+
   private ParsedName parse(String x) {
     try {
       return parser.parse(x, null);
@@ -1,12 +1,20 @@
 package org.gbif.checklistbank.service.mybatis;
 
+import org.gbif.api.model.checklistbank.NameUsage;
+import org.gbif.api.service.checklistbank.NameUsageService;
 import org.gbif.checklistbank.service.UsageService;
 
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
+import com.google.common.collect.Lists;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class UsageServiceMyBatisTest extends MyBatisServiceITBase<UsageService> {
 
@@ -25,4 +33,54 @@ public class UsageServiceMyBatisTest extends MyBatisServiceITBase<UsageService>
         List<Integer> squirrels = service.listParents(100000007);
         assertEquals(8, squirrels.size());
     }
+
+    @Test
+    public void testlistParentsRange() {
+        Map<Integer, List<Integer>> parents = service.listParents(100000001, 100000010);
+        // the kingdom has no parents
+        assertEquals(9, parents.size());
+        assertFalse(parents.containsKey(100000001));
+        for (Map.Entry<Integer, List<Integer>> e : parents.entrySet()) {
+            assertEquals(service.listParents(e.getKey()), e.getValue());
+        }
+    }
+
+    @Test
+    public void testParentPaths() {
+        final UUID squirrelsKey = UUID.fromString("109aea14-c252-4a85-96e2-f5f4d5d088f4");
+        Map<Integer, List<Integer>> recursive = service.listParents(100000001, 100000044);
+        List<Integer> parents = service.listParents(100000007);
+        NameUsageService nameUsageService = getInstance(NameUsageService.class);
+        List<NameUsage> synApiParents = nameUsageService.listParents(100000027, null);
+
+        assertTrue(service.updateParentPaths(squirrelsKey) > 0);
+        assertEquals(parents, service.listParents(100000007));
+        assertEquals(recursive, service.listParents(100000001, 100000044));
+        assertTrue(service.listParents(100000001).isEmpty());
+
+        // the synonym 100000027 with its accepted species 100000025
+        List<Integer> synParents = service.listParents(100000027);
+        assertEquals((Integer) 100000025, synParents.get(0));
+        assertEquals(synParents.subList(1, synParents.size()), service.listParents(100000025));
+        // the api classification does not include the accepted usage, same as before materialization
+        assertEquals(synApiParents, nameUsageService.listParents(100000027, null));
+        List<Integer> apiParents = Lists.newArrayList();
+        for (NameUsage u : nameUsageService.listParents(100000027, null)) {
+            apiParents.add(u.getKey());
+        }
+        assertEquals(Lists.reverse(service.listParents(100000025)), apiParents);
+        assertFalse(apiParents.contains(100000025));
+
+        // nothing changed
+        assertEquals(0, service.updateParentPaths(squirrelsKey));
+    }
+
+    @Test
+    public void testMinUsageKey() {
+        assertEquals(46, service.count());
+        assertEquals((Integer) 1, service.minUsageKey(0));
+        assertEquals((Integer) 10, service.minUsageKey(2));
+        assertEquals((Integer) 100000001, service.minUsageKey(11));
+        assertNull(service.minUsageKey(100000045));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package org.gbif.checklistbank.service.mybatis.postgres;
+
+import org.gbif.api.vocabulary.Country;
+import org.gbif.api.vocabulary.Language;
+import org.gbif.api.vocabulary.Rank;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PgCopyInBufferTest {
+
+  @Test
+  public void testRows() throws Exception {
+    PgCopyInBuffer buf = new PgCopyInBuffer("name_usage", "id", "rank", "remarks", "is_synonym");
+    assertEquals("COPY name_usage (id,rank,remarks,is_synonym) FROM STDIN WITH NULL '\\N'", buf.getSql());
+
+    buf.add(1).add(Rank.SPECIES).add("tab\tnew\nline\rback\\slash").add(true).endRow();
+    buf.add(2).add(null).add("").add(false).endRow();
+    assertEquals(2, buf.size());
+    assertEquals("1\tSPECIES\ttab\\tnew\\nline\\rback\\\\slash\tt\n"
+        + "2\t\\N\t\tf\n", buf.getContent());
+  }
+
+  @Test
+  public void testValues() throws Exception {
+    PgCopyInBuffer buf = new PgCopyInBuffer("vernacular_name", "language", "country", "issues");
+    buf.add(Language.GERMAN).add(Country.DENMARK).add(Lists.newArrayList("A", "B\"q\\", null)).endRow();
+    assertEquals("de\tDK\t{\"A\",\"B\\\\\"q\\\\\\\\\"}\n", buf.getContent());
+  }
+}
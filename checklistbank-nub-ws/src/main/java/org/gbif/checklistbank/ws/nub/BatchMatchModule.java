@@ -0,0 +1,57 @@
+package org.gbif.checklistbank.ws.nub;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import org.gbif.nub.lookup.NameUsageMatchingService2;
+import org.gbif.utils.concurrent.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Guice module providing the batch matcher with its thread pool.
+ * The pool is shut down when the module is closed.
+ * Requires a NameUsageMatchingService2 to be injectable.
+ */
+public class BatchMatchModule extends AbstractModule implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(BatchMatchModule.class);
+  private static final int BATCH_THREADS = Runtime.getRuntime().availableProcessors();
+  // number of queries per batch request being matched or waiting to be written
+  private static final int BATCH_WINDOW = 64 * BATCH_THREADS;
+
+  private ExecutorService exec;
+
+  @Override
+  protected void configure() {
+  }
+
+  @Provides
+  @Inject
+  @Singleton
+  public synchronized BatchMatcher provideBatchMatcher(NameUsageMatchingService2 matchingService) {
+    exec = Executors.newFixedThreadPool(BATCH_THREADS, new NamedThreadFactory("batch-match"));
+    LOG.info("Match batches with {} threads", BATCH_THREADS);
+    return new BatchMatcher(matchingService, exec, BATCH_WINDOW);
+  }
+
+  @Override
+  public synchronized void close() {
+    if (exec != null) {
+      exec.shutdownNow();
+      try {
+        if (!exec.awaitTermination(10, TimeUnit.SECONDS)) {
+          LOG.warn("Batch match threads did not terminate");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      exec = null;
+    }
+  }
+}
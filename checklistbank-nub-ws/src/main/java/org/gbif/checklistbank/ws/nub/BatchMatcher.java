@@ -0,0 +1,146 @@
+package org.gbif.checklistbank.ws.nub;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.service.checklistbank.NameUsageMatchingService;
+import org.gbif.checklistbank.ws.model.NameUsageMatchQuery;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.DeserializationConfig;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Matches a stream of name queries in parallel and writes the results in the order of the queries.
+ * <p>
+ * Queries are read either from a JSON array or from newline delimited JSON objects.
+ * Results are written as a JSON array or as newline delimited JSON, one match per line.
+ * At most window queries are read ahead and being matched concurrently,
+ * so neither the queries nor the results of a batch are ever held in memory entirely.
+ */
+public class BatchMatcher {
+  private static final Logger LOG = LoggerFactory.getLogger(BatchMatcher.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  static {
+    MAPPER.configure(DeserializationConfig.Feature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    MAPPER.setSerializationInclusion(JsonSerialize.Inclusion.NON_NULL);
+  }
+
+  private final NameUsageMatchingService matchingService;
+  private final ExecutorService exec;
+  private final int window;
+
+  /**
+   * @param exec   the executor to match the queries with
+   * @param window the maximum number of queries read ahead and being matched at the same time
+   */
+  public BatchMatcher(NameUsageMatchingService matchingService, ExecutorService exec, int window) {
+    this.matchingService = matchingService;
+    this.exec = exec;
+    this.window = window;
+  }
+
+  /**
+   * Opens the query stream and verifies it is either a JSON array or a sequence of JSON objects.
+   * @throws IllegalArgumentException if the stream does not start with an array or object
+   */
+  public JsonParser open(InputStream queries) throws IOException {
+    JsonParser parser = MAPPER.getJsonFactory().createJsonParser(queries);
+    JsonToken token = parser.nextToken();
+    if (token != JsonToken.START_ARRAY && token != JsonToken.START_OBJECT && token != null) {
+      throw new IllegalArgumentException("Expected a JSON array or newline delimited JSON objects, but found " + token);
+    }
+    return parser;
+  }
+
+  /**
+   * Matches all queries of an opened parser and writes the results to the output stream.
+   *
+   * @param ndjson  if true write newline delimited JSON, otherwise a single JSON array
+   * @param strict  the default strict value for queries not specifying it
+   * @param verbose the default verbose value for queries not specifying it
+   * @return number of matched queries
+   */
+  public int match(JsonParser parser, OutputStream out, boolean ndjson, boolean strict, boolean verbose) throws IOException {
+    final boolean array = parser.getCurrentToken() == JsonToken.START_ARRAY;
+    Deque<Future<NameUsageMatch>> pending = new ArrayDeque<>(window);
+    int counter = 0;
+    if (!ndjson) {
+      out.write('[');
+    }
+    try {
+      // the parser points at the first object or at the array start
+      JsonToken token = array ? parser.nextToken() : parser.getCurrentToken();
+      while (token == JsonToken.START_OBJECT || !pending.isEmpty()) {
+        if (token == JsonToken.START_OBJECT && pending.size() < window) {
+          final NameUsageMatchQuery q = MAPPER.readValue(parser, NameUsageMatchQuery.class);
+          pending.add(exec.submit(() -> match(q, strict, verbose)));
+          token = parser.nextToken();
+
+        } else {
+          // window full or no more queries, write the oldest result
+          if (counter > 0 && !ndjson) {
+            out.write(',');
+          }
+          out.write(MAPPER.writeValueAsBytes(pending.poll().get()));
+          if (ndjson) {
+            out.write('\n');
+          }
+          counter++;
+        }
+      }
+      if (array && token != JsonToken.END_ARRAY) {
+        throw new IOException("Unexpected token " + token + " in query array");
+      }
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Batch matching interrupted", e);
+
+    } catch (ExecutionException e) {
+      throw new IOException("Batch matching failed", e.getCause());
+
+    } finally {
+      for (Future<NameUsageMatch> f : pending) {
+        f.cancel(true);
+      }
+      parser.close();
+    }
+
+    if (!ndjson) {
+      out.write(']');
+    }
+    out.flush();
+    LOG.debug("Matched batch of {} names", counter);
+    return counter;
+  }
+
+  /**
+   * Matches a single query, never throwing an exception so a single bad query does not break the entire batch.
+   */
+  private NameUsageMatch match(NameUsageMatchQuery q, boolean strict, boolean verbose) {
+    try {
+      return matchingService.match(q.getName(), q.getRank(), q,
+          q.getStrict() == null ? strict : q.getStrict(),
+          q.getVerbose() == null ? verbose : q.getVerbose()
+      );
+    } catch (RuntimeException e) {
+      LOG.warn("Failed to match {}", q, e);
+      NameUsageMatch m = new NameUsageMatch();
+      m.setMatchType(NameUsageMatch.MatchType.NONE);
+      m.setNote("Matching failed: " + e.getMessage());
+      return m;
+    }
+  }
+}
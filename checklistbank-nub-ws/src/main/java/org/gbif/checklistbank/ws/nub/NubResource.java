@@ -9,27 +9,41 @@ import org.gbif.api.util.VocabularyUtils;
 import org.gbif.api.v2.NameUsageMatch2;
 import org.gbif.api.vocabulary.Rank;
 import org.gbif.nub.lookup.NameUsageMatchingService2;
+import org.codehaus.jackson.JsonParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 @Path("/species")
 @Singleton
 public class NubResource {
 
   private static final Logger LOG = LoggerFactory.getLogger(NubResource.class);
+  public static final String NDJSON = "application/x-ndjson";
 
   private final NameUsageMatchingService2 matchingService;
+  private final BatchMatcher batchMatcher;
 
   @Inject
-  public NubResource(NameUsageMatchingService2 matchingService) {
+  public NubResource(NameUsageMatchingService2 matchingService, BatchMatcher batchMatcher) {
     this.matchingService = matchingService;
+    this.batchMatcher = batchMatcher;
   }
 
   @GET
@@ -52,6 +66,36 @@ public class NubResource {
     return matchingService.v2(matchingService.match(scientificName, r, classification, bool(strict), bool(verbose)));
   }
 
+  /**
+   * Matches a batch of names given as a JSON array or as newline delimited JSON of name queries.
+   * Each query accepts the same properties as the single match method, e.g. name, rank, kingdom or class,
+   * optionally overriding strict or verbose.
+   * The matches are streamed back in the order of the queries, as newline delimited JSON if that was requested
+   * via the content type, otherwise as a JSON array.
+   */
+  @POST
+  @Consumes({MediaType.APPLICATION_JSON, NDJSON})
+  @Produces({MediaType.APPLICATION_JSON, NDJSON})
+  @Path("match/batch")
+  public Response matchBatch(final InputStream queries, @Context HttpHeaders headers,
+                             @QueryParam("strict") Boolean strict, @QueryParam("verbose") Boolean verbose) throws IOException {
+    final boolean ndjson = headers.getMediaType() != null && headers.getMediaType().isCompatible(MediaType.valueOf(NDJSON));
+    final JsonParser parser;
+    try {
+      parser = batchMatcher.open(queries);
+    } catch (IllegalArgumentException e) {
+      throw new WebApplicationException(Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build());
+    }
+    StreamingOutput stream = new StreamingOutput() {
+      @Override
+      public void write(OutputStream output) throws IOException {
+        int counter = batchMatcher.match(parser, new BufferedOutputStream(output), ndjson, bool(strict), bool(verbose));
+        LOG.info("Matched batch of {} names", counter);
+      }
+    };
+    return Response.ok(stream, ndjson ? NDJSON : MediaType.APPLICATION_JSON).build();
+  }
+
   private <T extends Enum> T parse(Class<T> clazz, String value) throws IllegalArgumentException {
     if (!Strings.isNullOrEmpty(value)) {
       return VocabularyUtils.lookupEnum(value, clazz);
@@ -4,9 +4,12 @@ package org.gbif.checklistbank.ws.nub;
 import com.google.common.collect.Lists;
 import com.google.inject.Module;
 import org.gbif.api.model.Constants;
+import org.gbif.checklistbank.config.MetricModule;
 import org.gbif.checklistbank.service.mybatis.guice.ChecklistBankServiceMyBatisModule;
 import org.gbif.checklistbank.utils.CloseableUtils;
+import org.gbif.checklistbank.utils.PropertiesUtils;
 import org.gbif.nub.lookup.NubMatchingModule;
+import org.gbif.nub.lookup.fuzzy.NubIndex;
 import org.gbif.utils.file.properties.PropertiesUtil;
 import org.gbif.ws.app.ConfUtils;
 import org.gbif.ws.server.guice.GbifServletListener;
@@ -23,6 +26,10 @@ public class NubWsListener extends GbifServletListener {
   private static final String APP_CONF_FILE = "checklistbank.properties";
   private static final String INDEX_DIR = "checklistbank.nub.indexDir";
   private static final String NUB_DATASET_KEY = "checklistbank.nub.datasetKey";
+  private static final String CACHE_SIZE = "checklistbank.nub.cache.size";
+  private static final String CACHE_TTL = "checklistbank.nub.cache.ttl";
+  private static final String UPDATE_INTERVAL = "checklistbank.nub.index.updateInterval";
+  private static final String FUZZY_MODE = "checklistbank.nub.fuzzy";
   private List<Closeable> toBeClosed = Lists.newArrayList();
 
   public NubWsListener() throws IOException {
@@ -37,10 +44,21 @@ public class NubWsListener extends GbifServletListener {
     modules.add(clbMod);
     toBeClosed.add(clbMod);
 
+    modules.add(new MetricModule(properties));
+
     UUID datasetKey = UUID.fromString(properties.getProperty(NUB_DATASET_KEY, Constants.NUB_DATASET_KEY.toString()));
-    NubMatchingModule nubMod = new NubMatchingModule(new File(properties.getProperty(INDEX_DIR)), datasetKey);
+    NubMatchingModule nubMod = new NubMatchingModule(new File(properties.getProperty(INDEX_DIR)), datasetKey,
+        PropertiesUtils.getIntProp(properties, CACHE_SIZE, 0),
+        PropertiesUtils.getIntProp(properties, CACHE_TTL, 0),
+        PropertiesUtils.getIntProp(properties, UPDATE_INTERVAL, 0),
+        NubIndex.FuzzyMode.valueOf(properties.getProperty(FUZZY_MODE, NubIndex.FuzzyMode.FUZZY_QUERY.name()).toUpperCase())
+    );
     modules.add(nubMod);
     toBeClosed.add(nubMod);
+
+    BatchMatchModule batchMod = new BatchMatchModule();
+    modules.add(batchMod);
+    toBeClosed.add(batchMod);
     // use the line below to run the webservice locally with the json test index data from the nub module
     // modules.add(new NubMatchingTestModule());
     return modules;
@@ -0,0 +1,118 @@
+package org.gbif.checklistbank.ws.nub;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.service.checklistbank.NameUsageMatchingService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.TypeReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchMatcherTest {
+  private final ObjectMapper mapper = new ObjectMapper();
+  private ExecutorService exec;
+  private BatchMatcher matcher;
+
+  /**
+   * Echoes the query name and kingdom after a random delay so results complete out of order.
+   */
+  private static final NameUsageMatchingService ECHO = (name, rank, classification, strict, verbose) -> {
+    if (name == null) {
+      throw new IllegalArgumentException("name required");
+    }
+    try {
+      Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    NameUsageMatch m = new NameUsageMatch();
+    m.setScientificName(name);
+    m.setKingdom(classification.getKingdom());
+    m.setRank(rank);
+    m.setMatchType(strict ? NameUsageMatch.MatchType.EXACT : NameUsageMatch.MatchType.FUZZY);
+    return m;
+  };
+
+  @Before
+  public void init() {
+    exec = Executors.newFixedThreadPool(4);
+    matcher = new BatchMatcher(ECHO, exec, 8);
+  }
+
+  @After
+  public void shutdown() {
+    exec.shutdownNow();
+  }
+
+  private String match(String json, boolean ndjson) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    matcher.match(matcher.open(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))), out, ndjson, false, false);
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private static String queries(int size, boolean ndjson) {
+    StringBuilder sb = new StringBuilder();
+    if (!ndjson) sb.append("[");
+    for (int i = 0; i < size; i++) {
+      if (i > 0) sb.append(ndjson ? "\n" : ",");
+      sb.append("{\"name\":\"Abies " + i + "\", \"rank\":\"SPECIES\", \"kingdom\":\"Plantae\", \"class\":\"Pinopsida\"}");
+    }
+    return sb.toString() + (ndjson ? "\n" : "]");
+  }
+
+  @Test
+  public void testArray() throws Exception {
+    List<NameUsageMatch> matches = mapper.readValue(match(queries(100, false), false), new TypeReference<List<NameUsageMatch>>() {});
+    assertEquals(100, matches.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals("Abies " + i, matches.get(i).getScientificName());
+      assertEquals("Plantae", matches.get(i).getKingdom());
+    }
+  }
+
+  @Test
+  public void testNdjson() throws Exception {
+    String[] lines = match(queries(100, true), true).split("\n");
+    assertEquals(100, lines.length);
+    for (int i = 0; i < 100; i++) {
+      NameUsageMatch m = mapper.readValue(lines[i], NameUsageMatch.class);
+      assertEquals("Abies " + i, m.getScientificName());
+    }
+  }
+
+  @Test
+  public void testEmpty() throws Exception {
+    assertEquals("[]", match("[]", false));
+    assertEquals("[]", match("", false));
+    assertEquals("", match("", true));
+  }
+
+  @Test
+  public void testQueryOptions() throws Exception {
+    List<NameUsageMatch> matches = mapper.readValue(match("[{\"name\":\"Abies\", \"strict\":true}, {\"rank\":\"GENUS\"}, {\"name\":\"Picea\"}]", false),
+        new TypeReference<List<NameUsageMatch>>() {});
+    assertEquals(3, matches.size());
+    assertEquals(NameUsageMatch.MatchType.EXACT, matches.get(0).getMatchType());
+    // a broken query does not break the batch
+    assertEquals(NameUsageMatch.MatchType.NONE, matches.get(1).getMatchType());
+    assertTrue(matches.get(1).getNote().contains("name required"));
+    assertEquals(NameUsageMatch.MatchType.FUZZY, matches.get(2).getMatchType());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadInput() throws Exception {
+    matcher.open(new ByteArrayInputStream("\"Abies\"".getBytes(StandardCharsets.UTF_8)));
+  }
+}
@@ -0,0 +1,56 @@
+package org.gbif.nub.lookup;
+
+import org.gbif.api.model.checklistbank.DatasetMetrics;
+import org.gbif.api.service.checklistbank.DatasetMetricsService;
+import org.gbif.checklistbank.service.mybatis.mapper.NameUsageMapper;
+import org.gbif.nub.lookup.fuzzy.NubIndex;
+
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps a nub index in sync with the backbone in checklistbank.
+ * Every new backbone build, as announced by the NubChangedService via a BackboneChangedMessage,
+ * comes with new dataset metrics for the backbone dataset whose creation time is used to identify the build.
+ * When a new build is detected only the changed usages are applied to the index.
+ */
+public class NubIndexUpdater implements Runnable {
+  private static final Logger LOG = LoggerFactory.getLogger(NubIndexUpdater.class);
+
+  private final NubIndex index;
+  private final NameUsageMapper mapper;
+  private final DatasetMetricsService metricsService;
+  private final UUID nubDatasetKey;
+
+  public NubIndexUpdater(NubIndex index, NameUsageMapper mapper, DatasetMetricsService metricsService, UUID nubDatasetKey) {
+    this.index = index;
+    this.mapper = mapper;
+    this.metricsService = metricsService;
+    this.nubDatasetKey = nubDatasetKey;
+  }
+
+  /**
+   * @return the identifier of the latest backbone build or null if no metrics exist yet
+   */
+  @Nullable
+  public static String currentBuild(DatasetMetricsService metricsService, UUID nubDatasetKey) {
+    DatasetMetrics m = metricsService.get(nubDatasetKey);
+    return m == null || m.getCreated() == null ? null : String.valueOf(m.getCreated().getTime());
+  }
+
+  @Override
+  public void run() {
+    try {
+      String build = currentBuild(metricsService, nubDatasetKey);
+      if (build != null) {
+        index.update(mapper, nubDatasetKey, build);
+      }
+    } catch (Exception e) {
+      // keep the scheduled updates going
+      LOG.error("Failed to update nub index", e);
+    }
+  }
+}
@@ -1,17 +1,21 @@
 package org.gbif.nub.lookup;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.PrivateModule;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 import org.gbif.api.model.Constants;
+import org.gbif.api.service.checklistbank.DatasetMetricsService;
 import org.gbif.api.service.checklistbank.NameUsageMatchingService;
 import org.gbif.checklistbank.service.mybatis.mapper.NameUsageMapper;
 import org.gbif.checklistbank.utils.CloseableUtils;
 import org.gbif.nub.lookup.fuzzy.HigherTaxaComparator;
+import org.gbif.nub.lookup.fuzzy.MatchCache;
 import org.gbif.nub.lookup.fuzzy.NubIndex;
 import org.gbif.nub.lookup.fuzzy.NubMatchingServiceImpl;
+import org.gbif.utils.concurrent.NamedThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,15 +24,25 @@ import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Guice module setting up all dependencies to expose the NubMatching service.
- * Requires a NameUsageMapper and a ClbConfiguration instance to be injectable
+ * Requires a NameUsageMapper and a ClbConfiguration instance to be injectable.
+ * If a MetricRegistry is bound the match cache statistics are registered with it.
+ * File based indices are brought up to date with the latest backbone build on startup
+ * and can optionally be checked for new builds periodically, see {@link NubIndexUpdater}.
  */
 public class NubMatchingModule extends PrivateModule implements Closeable {
   private static final Logger LOG = LoggerFactory.getLogger(NubMatchingModule.class);
   private final File indexDir;
   private final UUID nubDatasetKey;
+  private final long cacheSize;
+  private final long cacheTtl;
+  private final int updateInterval;
+  private final NubIndex.FuzzyMode fuzzyMode;
   private List<AutoCloseable> toBeClosed = Lists.newArrayList();
 
   /**
@@ -54,8 +68,55 @@ public class NubMatchingModule extends PrivateModule implements Closeable {
    * @param nubDatasetKey the dataset key to use for populating the nub index
    */
   public NubMatchingModule(File indexDir, UUID nubDatasetKey) {
+    this(indexDir, nubDatasetKey, 0, 0);
+  }
+
+  /**
+   * Creates a file based nub index which is built in case the index does not yet exist
+   * and keeps recent matches in a cache which is invalidated whenever the index is reloaded.
+   *
+   * @param indexDir      the directory to keep the lucene index in. If existing the index will be reused.
+   *                      If null a memory index is used
+   * @param nubDatasetKey the dataset key to use for populating the nub index
+   * @param cacheSize     maximum number of matches to cache, zero disables the cache
+   * @param cacheTtl      seconds after which a cached match expires, zero to never expire
+   */
+  public NubMatchingModule(File indexDir, UUID nubDatasetKey, long cacheSize, long cacheTtl) {
+    this(indexDir, nubDatasetKey, cacheSize, cacheTtl, 0);
+  }
+
+  /**
+   * Creates a file based nub index which is built in case the index does not yet exist,
+   * keeps recent matches in a cache and periodically applies changes of a new backbone build to the index.
+   *
+   * @param indexDir       the directory to keep the lucene index in. If existing the index will be reused.
+   *                       If null a memory index is used
+   * @param nubDatasetKey  the dataset key to use for populating the nub index
+   * @param cacheSize      maximum number of matches to cache, zero disables the cache
+   * @param cacheTtl       seconds after which a cached match expires, zero to never expire
+   * @param updateInterval minutes between checks for a new backbone build, zero disables updates of a running index
+   */
+  public NubMatchingModule(File indexDir, UUID nubDatasetKey, long cacheSize, long cacheTtl, int updateInterval) {
+    this(indexDir, nubDatasetKey, cacheSize, cacheTtl, updateInterval, NubIndex.FuzzyMode.FUZZY_QUERY);
+  }
+
+  /**
+   * @param indexDir       the directory to keep the lucene index in. If existing the index will be reused.
+   *                       If null a memory index is used
+   * @param nubDatasetKey  the dataset key to use for populating the nub index
+   * @param cacheSize      maximum number of matches to cache, zero disables the cache
+   * @param cacheTtl       seconds after which a cached match expires, zero to never expire
+   * @param updateInterval minutes between checks for a new backbone build, zero disables updates of a running index
+   * @param fuzzyMode      the way fuzzy name candidates are found in the index
+   */
+  public NubMatchingModule(File indexDir, UUID nubDatasetKey, long cacheSize, long cacheTtl, int updateInterval,
+                           NubIndex.FuzzyMode fuzzyMode) {
     this.indexDir = indexDir;
     this.nubDatasetKey = nubDatasetKey;
+    this.cacheSize = cacheSize;
+    this.cacheTtl = cacheTtl;
+    this.updateInterval = updateInterval;
+    this.fuzzyMode = fuzzyMode;
   }
 
   @Override
@@ -72,19 +133,50 @@ public class NubMatchingModule extends PrivateModule implements Closeable {
   @Provides
   @Inject
   @Singleton
-  public NubIndex provideIndex(NameUsageMapper mapper) throws IOException {
+  public NubIndex provideIndex(NameUsageMapper mapper, DatasetMetricsService metricsService) throws IOException {
     NubIndex index;
     if (indexDir == null) {
       index = NubIndex.newMemoryIndex(mapper);
       LOG.info("Lucene memory index initialized");
     } else {
-      index = NubIndex.newFileIndex(indexDir, mapper, nubDatasetKey);
-      LOG.info("Lucene file index initialized at {}", indexDir.getAbsolutePath());
+      String build = NubIndexUpdater.currentBuild(metricsService, nubDatasetKey);
+      index = NubIndex.newFileIndex(indexDir, mapper, nubDatasetKey, build);
+      LOG.info("Lucene file index for build {} initialized at {}", build, indexDir.getAbsolutePath());
+      if (updateInterval > 0) {
+        ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("nub-index-updater"));
+        exec.scheduleWithFixedDelay(new NubIndexUpdater(index, mapper, metricsService, nubDatasetKey),
+            updateInterval, updateInterval, TimeUnit.MINUTES);
+        toBeClosed.add(exec::shutdownNow);
+        LOG.info("Check for new backbone builds every {} minutes", updateInterval);
+      }
     }
+    index.setFuzzyMode(fuzzyMode);
     toBeClosed.add(index);
     return index;
   }
 
+  @Provides
+  @Inject
+  @Singleton
+  public MatchCache provideCache(MetricsHolder metrics) {
+    MatchCache cache = new MatchCache(cacheSize, cacheTtl);
+    if (cache.isEnabled()) {
+      LOG.info("Caching up to {} matches{}", cacheSize, cacheTtl > 0 ? " for " + cacheTtl + "s" : "");
+      if (metrics.registry != null) {
+        cache.registerMetrics(metrics.registry, MetricRegistry.name(NubMatchingServiceImpl.class, "cache"));
+      }
+    }
+    return cache;
+  }
+
+  /**
+   * Allows the metric registry to be optional.
+   */
+  static class MetricsHolder {
+    @Inject(optional = true)
+    MetricRegistry registry;
+  }
+
   @Provides
   @Singleton
   public static HigherTaxaComparator provideSynonyms() {
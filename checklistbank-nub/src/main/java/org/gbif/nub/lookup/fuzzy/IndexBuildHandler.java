@@ -3,6 +3,7 @@ package org.gbif.nub.lookup.fuzzy;
 import org.gbif.api.model.checklistbank.NameUsage;
 
 import java.io.IOException;
+import java.util.Date;
 
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
@@ -12,22 +13,47 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- *
+ * Adds name usages to a nub index writer.
+ * In update mode existing documents for the same usage are replaced and deleted usages are removed.
+ * Keeps track of the latest interpretation or deletion time seen so later updates can pick up from there.
  */
 public class IndexBuildHandler implements ResultHandler<ParsedNameUsage> {
   private static final Logger LOG = LoggerFactory.getLogger(IndexBuildHandler.class);
 
   private final IndexWriter writer;
+  private final boolean update;
   private int counter;
+  private int deleted;
+  private long lastChanged;
 
   public IndexBuildHandler(IndexWriter writer) {
+    this(writer, false, 0);
+  }
+
+  /**
+   * @param update      if true replace existing documents and remove deleted usages
+   * @param lastChanged the last known change time in milliseconds to start tracking from
+   */
+  public IndexBuildHandler(IndexWriter writer, boolean update, long lastChanged) {
     this.writer = writer;
+    this.update = update;
+    this.lastChanged = lastChanged;
   }
 
   @Override
-  public void handleResult(ResultContext<? extends ParsedNameUsage> u) {
+  public void handleResult(ResultContext<? extends ParsedNameUsage> ctx) {
+    NameUsage u = ctx.getResultObject();
     try {
-      writer.addDocument(NubIndex.toDoc(u.getResultObject()));
+      track(u.getLastInterpreted());
+      track(u.getDeleted());
+      if (update) {
+        writer.deleteDocuments(NubIndex.idQuery(u.getKey()));
+        if (u.getDeleted() != null) {
+          deleted++;
+          return;
+        }
+      }
+      writer.addDocument(NubIndex.toDoc(u));
       counter++;
       if (counter % 100000 == 0) {
         LOG.info("{} usages added to nub index", counter);
@@ -36,4 +62,31 @@ public class IndexBuildHandler implements ResultHandler<ParsedNameUsage> {
       throw new IllegalStateException(e);
     }
   }
+
+  private void track(Date date) {
+    if (date != null && date.getTime() > lastChanged) {
+      lastChanged = date.getTime();
+    }
+  }
+
+  /**
+   * @return number of added or updated usages
+   */
+  public int getCounter() {
+    return counter;
+  }
+
+  /**
+   * @return number of removed usages
+   */
+  public int getDeleted() {
+    return deleted;
+  }
+
+  /**
+   * @return the latest interpretation or deletion time of all processed usages in milliseconds
+   */
+  public long getLastChanged() {
+    return lastChanged;
+  }
 }
@@ -0,0 +1,182 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.apache.commons.lang3.StringUtils;
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.model.common.LinneanClassification;
+import org.gbif.api.vocabulary.Rank;
+
+import javax.annotation.Nullable;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size bounded and optionally time bounded cache of name matches keyed on the normalized query.
+ * The classification of the query is expected to be cleaned already, see NubMatchingServiceImpl.
+ * <p>
+ * A cache with a maximum size of zero is disabled and never keeps any match.
+ * Cached matches are shared instances and must not be modified by callers.
+ * <p>
+ * Every invalidation starts a new generation. Matches computed before an invalidation, e.g. on a previous index searcher,
+ * are never cached once a newer generation exists.
+ */
+public class MatchCache {
+  private final Cache<Key, NameUsageMatch> cache;
+  private final AtomicLong generation = new AtomicLong();
+
+  /**
+   * @param maxSize    maximum number of matches to keep, zero disables the cache
+   * @param ttlSeconds seconds after which a cached match expires, zero to never expire
+   */
+  public MatchCache(long maxSize, long ttlSeconds) {
+    Preconditions.checkArgument(maxSize >= 0, "Cache size must not be negative");
+    Preconditions.checkArgument(ttlSeconds >= 0, "Cache TTL must not be negative");
+    if (maxSize == 0) {
+      cache = null;
+    } else {
+      CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+          .maximumSize(maxSize)
+          .recordStats();
+      if (ttlSeconds > 0) {
+        builder.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS);
+      }
+      cache = builder.build();
+    }
+  }
+
+  /**
+   * @return a cache that never keeps any match
+   */
+  public static MatchCache disabled() {
+    return new MatchCache(0, 0);
+  }
+
+  public boolean isEnabled() {
+    return cache != null;
+  }
+
+  /**
+   * Builds the cache key for a query with an already cleaned classification.
+   */
+  public static Key key(String scientificName, @Nullable Rank rank, LinneanClassification cl, boolean strict, boolean verbose) {
+    return new Key(StringUtils.normalizeSpace(scientificName), rank, strict, verbose,
+        cl.getKingdom(), cl.getPhylum(), cl.getClazz(), cl.getOrder(), cl.getFamily(), cl.getGenus());
+  }
+
+  @Nullable
+  public NameUsageMatch get(Key key) {
+    return cache == null ? null : cache.getIfPresent(key);
+  }
+
+  /**
+   * @return the current generation to be read before a match is computed and passed to put afterwards
+   */
+  public long generation() {
+    return generation.get();
+  }
+
+  /**
+   * Caches a match unless the cache has been invalidated since the given generation was read.
+   *
+   * @param generation the generation read before the match was computed
+   */
+  public void put(Key key, NameUsageMatch match, long generation) {
+    if (cache != null && match != null && this.generation.get() == generation) {
+      cache.put(key, match);
+      // an invalidation might have happened concurrently after our check but before the put
+      if (this.generation.get() != generation) {
+        cache.invalidate(key);
+      }
+    }
+  }
+
+  /**
+   * Removes all cached matches and starts a new generation, e.g. after the nub index has been reloaded.
+   */
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    if (cache != null) {
+      cache.invalidateAll();
+    }
+  }
+
+  public long size() {
+    return cache == null ? 0 : cache.size();
+  }
+
+  public CacheStats stats() {
+    return cache == null ? new CacheStats(0, 0, 0, 0, 0, 0) : cache.stats();
+  }
+
+  /**
+   * Exposes hits, misses, evictions, size and the hit rate of the cache as gauges with the given name prefix.
+   */
+  public void registerMetrics(MetricRegistry registry, String prefix) {
+    registry.register(MetricRegistry.name(prefix, "hits"), (Gauge<Long>) () -> stats().hitCount());
+    registry.register(MetricRegistry.name(prefix, "misses"), (Gauge<Long>) () -> stats().missCount());
+    registry.register(MetricRegistry.name(prefix, "evictions"), (Gauge<Long>) () -> stats().evictionCount());
+    registry.register(MetricRegistry.name(prefix, "size"), (Gauge<Long>) this::size);
+    registry.register(MetricRegistry.name(prefix, "hitRate"), (Gauge<Double>) () -> stats().hitRate());
+  }
+
+  /**
+   * The normalized query, i.e. the name with normalized whitespace and the cleaned higher classification.
+   */
+  public static class Key {
+    private final String name;
+    private final Rank rank;
+    private final boolean strict;
+    private final boolean verbose;
+    private final String kingdom;
+    private final String phylum;
+    private final String clazz;
+    private final String order;
+    private final String family;
+    private final String genus;
+    private final int hash;
+
+    private Key(String name, Rank rank, boolean strict, boolean verbose,
+                String kingdom, String phylum, String clazz, String order, String family, String genus) {
+      this.name = name;
+      this.rank = rank;
+      this.strict = strict;
+      this.verbose = verbose;
+      this.kingdom = kingdom;
+      this.phylum = phylum;
+      this.clazz = clazz;
+      this.order = order;
+      this.family = family;
+      this.genus = genus;
+      this.hash = Objects.hash(name, rank, strict, verbose, kingdom, phylum, clazz, order, family, genus);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      Key that = (Key) o;
+      return hash == that.hash &&
+          strict == that.strict &&
+          verbose == that.verbose &&
+          rank == that.rank &&
+          Objects.equals(name, that.name) &&
+          Objects.equals(kingdom, that.kingdom) &&
+          Objects.equals(phylum, that.phylum) &&
+          Objects.equals(clazz, that.clazz) &&
+          Objects.equals(order, that.order) &&
+          Objects.equals(family, that.family) &&
+          Objects.equals(genus, that.genus);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -2,6 +2,7 @@ package org.gbif.nub.lookup.fuzzy;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Lists;
 import org.apache.commons.io.FileUtils;
 import org.apache.lucene.document.*;
@@ -28,10 +29,14 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.annotation.Nullable;
 
 
 /**
@@ -45,6 +50,15 @@ import java.util.UUID;
  * For the entire nub with roughly 4.5 million usages this index requires 4GB of heap memory if the RAMDirectory is used.
  * The memory mapped file index uses very little heap memory and instead all available memory should be given to the OS
  * to enabling caching on the file system level.
+ * <p>
+ * File indices are versioned: each lucene commit records the index format, the dataset it was built from,
+ * the backbone build it reflects and the latest change time of all indexed usages.
+ * An existing file index is reused on startup as long as the format and dataset match
+ * and can be brought up to date with a new backbone build incrementally, applying only the usages changed since.
+ * Searches always use the latest opened searcher which is swapped atomically after an update.
+ * <p>
+ * Fuzzy candidates are found either with a lucene FuzzyQuery or with a precomputed {@link SymSpellIndex},
+ * see {@link FuzzyMode}.
  */
 public class NubIndex implements AutoCloseable {
   private static final Logger LOG = LoggerFactory.getLogger(NubIndex.class);
@@ -64,6 +78,19 @@ public class NubIndex implements AutoCloseable {
     INT_FIELD_MAX_PRECISION.freeze();
   }
 
+  /**
+   * Version of the document layout, increase whenever the stored fields or their encoding change
+   * so existing file indices get rebuilt.
+   */
+  private static final String FORMAT_VERSION = "1";
+  private static final String META_FORMAT = "format";
+  private static final String META_DATASET = "dataset";
+  private static final String META_BUILD = "build";
+  private static final String META_CHANGED = "changed";
+
+  private static final int MAX_EDITS = 2;
+  private static final int SYMSPELL_PREFIX = 7;
+
   private static final String FIELD_ID = "id";
   private static final String FIELD_ACCEPTED_ID = "accid";
   private static final String FIELD_CANONICAL_NAME = "canonical";
@@ -92,11 +119,31 @@ public class NubIndex implements AutoCloseable {
   private static final ScientificNameAnalyzer analyzer = new ScientificNameAnalyzer();
   private static final NameParser parser = new NameParserGbifV1();
   private final Directory index;
-  private final IndexSearcher searcher;
+  private final SearcherManager searcherManager;
+  private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+  private volatile FuzzyMode fuzzyMode = FuzzyMode.FUZZY_QUERY;
+  private volatile SymSpellIndex symSpell;
 
-  private static void load(Directory d, NameUsageMapper mapper, UUID nubDatasetKey) throws IOException {
+  /**
+   * The way fuzzy name candidates are generated.
+   */
+  public enum FuzzyMode {
+    /**
+     * A lucene FuzzyQuery which enumerates the term dictionary for every search.
+     */
+    FUZZY_QUERY,
+
+    /**
+     * A symmetric delete index built from all names in memory which finds the same candidates
+     * much quicker at the cost of extra memory and build time on every reload.
+     */
+    SYMSPELL
+  }
+
+  private static void load(Directory d, NameUsageMapper mapper, UUID nubDatasetKey, @Nullable String build) throws IOException {
     LOG.info("Start building a new nub index from checklist {}", nubDatasetKey);
     IndexWriterConfig cfg = new IndexWriterConfig(analyzer);
+    cfg.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
     IndexWriter writer = new IndexWriter(d, cfg);
     // creates initial index segments
     writer.commit();
@@ -104,13 +151,35 @@ public class NubIndex implements AutoCloseable {
     IndexBuildHandler builder = new IndexBuildHandler(writer);
     mapper.processDataset(nubDatasetKey, builder);
 
+    writer.setCommitData(metadata(nubDatasetKey, build, builder.getLastChanged()));
     writer.close();
-    LOG.info("Finished building nub index");
+    LOG.info("Finished building nub index with {} usages", builder.getCounter());
+  }
+
+  private static Map<String, String> metadata(UUID nubDatasetKey, @Nullable String build, long lastChanged) {
+    Map<String, String> meta = Maps.newHashMap();
+    meta.put(META_FORMAT, FORMAT_VERSION);
+    meta.put(META_DATASET, nubDatasetKey.toString());
+    if (build != null) {
+      meta.put(META_BUILD, build);
+    }
+    meta.put(META_CHANGED, String.valueOf(lastChanged));
+    return meta;
+  }
+
+  /**
+   * @return the user data of the latest commit of the index or an empty map if there is no index yet
+   */
+  private static Map<String, String> readMetadata(Directory d) throws IOException {
+    if (DirectoryReader.indexExists(d)) {
+      return SegmentInfos.readLatestCommit(d).getUserData();
+    }
+    return Collections.emptyMap();
   }
 
   public static NubIndex newMemoryIndex(NameUsageMapper mapper) throws IOException {
     RAMDirectory dir = new RAMDirectory();
-    load(dir, mapper, Constants.NUB_DATASET_KEY);
+    load(dir, mapper, Constants.NUB_DATASET_KEY, null);
     return new NubIndex(dir);
   }
 
@@ -136,50 +205,184 @@ public class NubIndex implements AutoCloseable {
   /**
    * Creates a nub index for the backbone by loading it from the lucene index dir if it exists.
    * If it is not existing a new index directory will be built using the UsageService with given threads.
-   * If the indexDir is null the index is never written to the filesytem but just kept in memory.
    *
-   * @param indexDir directory to use as the lucence index directory. If null the index is only kept in memory.
+   * @param indexDir directory to use as the lucence index directory
    */
   public static NubIndex newFileIndex(File indexDir, NameUsageMapper mapper, UUID nubDatasetKey) throws IOException {
+    return newFileIndex(indexDir, mapper, nubDatasetKey, null);
+  }
+
+  /**
+   * Creates a nub index for the backbone by memory mapping an existing, compatible lucene index dir.
+   * If the index is not existing, was written in an older format or for another dataset
+   * a new index will be built from scratch.
+   * If a backbone build is given and an existing index reflects a different build,
+   * only the usages changed since the index was last updated are applied.
+   *
+   * @param indexDir directory to use as the lucence index directory
+   * @param build    optional identifier of the current backbone build
+   */
+  public static NubIndex newFileIndex(File indexDir, NameUsageMapper mapper, UUID nubDatasetKey, @Nullable String build)
+      throws IOException {
     MMapDirectory dir;
     if (indexDir.exists()) {
       Preconditions.checkArgument(indexDir.isDirectory(), "Given index directory exists but is not a directory");
-      // load existing index from disk
-      LOG.info("Loading existing nub index from disk: {}", indexDir.getAbsoluteFile());
       dir = new MMapDirectory(indexDir.toPath());
+      Map<String, String> meta = readMetadata(dir);
+      if (FORMAT_VERSION.equals(meta.get(META_FORMAT)) && nubDatasetKey.toString().equals(meta.get(META_DATASET))) {
+        // load existing index from disk
+        LOG.info("Loading existing nub index for build {} from disk: {}", meta.get(META_BUILD), indexDir.getAbsoluteFile());
+        NubIndex index = new NubIndex(dir);
+        if (build != null) {
+          index.update(mapper, nubDatasetKey, build);
+        }
+        return index;
+      }
+      LOG.warn("Existing nub index at {} is incompatible with format {} and dataset {}. Rebuild index",
+          indexDir.getAbsoluteFile(), FORMAT_VERSION, nubDatasetKey);
+      dir.close();
+      FileUtils.cleanDirectory(indexDir);
 
     } else {
-      // persistent new memory mapped file based index and then populate it
       LOG.info("Creating new nub index directory at {}", indexDir.getAbsoluteFile());
       FileUtils.forceMkdir(indexDir);
-      dir = new MMapDirectory(indexDir.toPath());
-      load(dir, mapper, nubDatasetKey);
     }
+    // persistent new memory mapped file based index and then populate it
+    dir = new MMapDirectory(indexDir.toPath());
+    load(dir, mapper, nubDatasetKey, build);
     return new NubIndex(dir);
   }
 
   public NubIndex(Directory d) throws IOException {
     index = d;
-    DirectoryReader reader = DirectoryReader.open(index);
-    searcher = new IndexSearcher(reader);
+    searcherManager = new SearcherManager(d, null);
   }
 
+  /**
+   * @return the backbone build the index reflects or null if unknown
+   */
+  public String getBuild() throws IOException {
+    return readMetadata(index).get(META_BUILD);
+  }
 
-  public NameUsageMatch matchByUsageId(Integer usageID) {
+  /**
+   * Brings the index up to date with a new backbone build by applying only the usages
+   * that have been interpreted or deleted since the index was last built or updated.
+   * Searches continue on the previous index state until the changes are committed and the searcher is swapped.
+   *
+   * @param build identifier of the current backbone build
+   * @return true if the index was updated, false if it already reflects the given build
+   */
+  public synchronized boolean update(NameUsageMapper mapper, UUID nubDatasetKey, String build) throws IOException {
+    Map<String, String> meta = readMetadata(index);
+    if (build.equals(meta.get(META_BUILD))) {
+      LOG.debug("Nub index is up to date with build {}", build);
+      return false;
+    }
+    long since = meta.containsKey(META_CHANGED) ? Long.parseLong(meta.get(META_CHANGED)) : 0;
+    LOG.info("Updating nub index from build {} to {} with usages changed since {}", meta.get(META_BUILD), build, new Date(since));
+    IndexWriterConfig cfg = new IndexWriterConfig(analyzer);
+    cfg.setOpenMode(IndexWriterConfig.OpenMode.APPEND);
+    try (IndexWriter writer = new IndexWriter(index, cfg)) {
+      IndexBuildHandler handler = new IndexBuildHandler(writer, true, since);
+      mapper.processDatasetChanges(nubDatasetKey, new Date(since), handler);
+      writer.setCommitData(metadata(nubDatasetKey, build, handler.getLastChanged()));
+      writer.commit();
+      LOG.info("Nub index updated to build {} with {} changed and {} deleted usages", build, handler.getCounter(), handler.getDeleted());
+    }
+    reload();
+    return true;
+  }
+
+  /**
+   * Registers a listener that is called every time the index has been reloaded with changed content,
+   * e.g. to invalidate caches of previous search results.
+   */
+  public void addReloadListener(Runnable listener) {
+    reloadListeners.add(listener);
+  }
 
-    Query q = NumericRangeQuery.newIntRange(NubIndex.FIELD_ID, Integer.MAX_VALUE, usageID, usageID, true, true);
+  /**
+   * Reopens the index reader in case the underlying index directory has changed and swaps the searcher.
+   * The previous reader is closed as soon as all searches still using it have finished.
+   *
+   * @return true if the index had changed and was reloaded
+   */
+  public synchronized boolean reload() throws IOException {
+    IndexSearcher before = searcherManager.acquire();
+    try {
+      searcherManager.maybeRefreshBlocking();
+      IndexSearcher after = searcherManager.acquire();
+      try {
+        if (after == before) {
+          LOG.debug("Nub index unchanged, no reload needed");
+          return false;
+        }
+        LOG.info("Nub index reloaded with {} documents", after.getIndexReader().numDocs());
+      } finally {
+        searcherManager.release(after);
+      }
+    } finally {
+      searcherManager.release(before);
+    }
+    if (symSpell != null) {
+      symSpell = buildSymSpell();
+    }
+    for (Runnable listener : reloadListeners) {
+      listener.run();
+    }
+    return true;
+  }
 
+  public FuzzyMode getFuzzyMode() {
+    return fuzzyMode;
+  }
+
+  /**
+   * Switches the generation of fuzzy candidates, building or discarding the symspell index as needed.
+   */
+  public synchronized void setFuzzyMode(FuzzyMode mode) throws IOException {
+    if (mode == FuzzyMode.SYMSPELL && symSpell == null) {
+      symSpell = buildSymSpell();
+    } else if (mode == FuzzyMode.FUZZY_QUERY) {
+      symSpell = null;
+    }
+    fuzzyMode = mode;
+    LOG.info("Use {} for fuzzy matching", mode);
+  }
+
+  private SymSpellIndex buildSymSpell() throws IOException {
+    IndexSearcher searcher = searcherManager.acquire();
     try {
-      IndexSearcher searcher = obtainSearcher();
-      TopDocs docs = searcher.search(q, 3);
-      if (docs.totalHits > 0) {
-        Document doc = searcher.doc(docs.scoreDocs[0].doc);
-        NameUsageMatch match = fromDoc(doc);
-        match.setConfidence(100);
-        return match;
+      return SymSpellIndex.build(searcher.getIndexReader(), FIELD_CANONICAL_NAME, MAX_EDITS, SYMSPELL_PREFIX);
+    } finally {
+      searcherManager.release(searcher);
+    }
+  }
 
-      } else {
-        LOG.warn("No usage {} found in lucene index", usageID);
+  static Query idQuery(int usageKey) {
+    return NumericRangeQuery.newIntRange(FIELD_ID, Integer.MAX_VALUE, usageKey, usageKey, true, true);
+  }
+
+  public NameUsageMatch matchByUsageId(Integer usageID) {
+
+    Query q = idQuery(usageID);
+
+    try {
+      IndexSearcher searcher = searcherManager.acquire();
+      try {
+        TopDocs docs = searcher.search(q, 3);
+        if (docs.totalHits > 0) {
+          Document doc = searcher.doc(docs.scoreDocs[0].doc);
+          NameUsageMatch match = fromDoc(doc);
+          match.setConfidence(100);
+          return match;
+
+        } else {
+          LOG.warn("No usage {} found in lucene index", usageID);
+        }
+      } finally {
+        searcherManager.release(searcher);
       }
     } catch (IOException e) {
       LOG.error("Cannot load usage {} from lucene index", usageID, e.getMessage());
@@ -203,7 +406,13 @@ public class NubIndex implements AutoCloseable {
     Query q;
     if (fuzzySearch) {
       // allow 2 edits for names longer than 10 chars
-      q = new FuzzyQuery(t, analyzedName.length() > 10 ? 2 : 1, 1);
+      final int maxEdits = analyzedName.length() > 10 ? MAX_EDITS : 1;
+      final SymSpellIndex ss = symSpell;
+      if (fuzzyMode == FuzzyMode.SYMSPELL && ss != null) {
+        q = symSpellQuery(ss, analyzedName, maxEdits);
+      } else {
+        q = new FuzzyQuery(t, maxEdits, 1);
+      }
     } else {
       q = new TermQuery(t);
     }
@@ -217,27 +426,50 @@ public class NubIndex implements AutoCloseable {
     }
   }
 
+  /**
+   * Builds a query for the closest symspell candidates, scoring them like the FuzzyQuery does
+   * by their edit distance relative to the name length.
+   */
+  private static Query symSpellQuery(SymSpellIndex ss, String analyzedName, int maxEdits) {
+    BooleanQuery.Builder builder = new BooleanQuery.Builder();
+    int counter = 0;
+    for (SymSpellIndex.Candidate c : ss.lookup(analyzedName, maxEdits)) {
+      Query tq = new ConstantScoreQuery(new TermQuery(new Term(FIELD_CANONICAL_NAME, c.name)));
+      tq.setBoost(1f - (float) c.distance / Math.min(c.name.length(), analyzedName.length()));
+      builder.add(tq, BooleanClause.Occur.SHOULD);
+      // same limit of expanded terms as the FuzzyQuery
+      if (++counter >= FuzzyQuery.defaultMaxExpansions) {
+        break;
+      }
+    }
+    return builder.build();
+  }
+
   private List<NameUsageMatch> search(Query q, String name, boolean fuzzySearch, int maxMatches) {
     List<NameUsageMatch> results = Lists.newArrayList();
     try {
-      IndexSearcher searcher = obtainSearcher();
-      TopDocs docs = searcher.search(q, maxMatches);
-      if (docs.totalHits > 0) {
-        for (ScoreDoc sdoc : docs.scoreDocs) {
-          NameUsageMatch match = fromDoc(searcher.doc(sdoc.doc));
-          if (name.equalsIgnoreCase(match.getCanonicalName())) {
-            match.setMatchType(NameUsageMatch.MatchType.EXACT);
-            results.add(match);
-          } else {
-            // even though we used a term query for straight matching the lucene analyzer has already normalized
-            // the name drastically. So we include these matches here only in case of fuzzy queries
-            match.setMatchType(NameUsageMatch.MatchType.FUZZY);
-            results.add(match);
+      IndexSearcher searcher = searcherManager.acquire();
+      try {
+        TopDocs docs = searcher.search(q, maxMatches);
+        if (docs.totalHits > 0) {
+          for (ScoreDoc sdoc : docs.scoreDocs) {
+            NameUsageMatch match = fromDoc(searcher.doc(sdoc.doc));
+            if (name.equalsIgnoreCase(match.getCanonicalName())) {
+              match.setMatchType(NameUsageMatch.MatchType.EXACT);
+              results.add(match);
+            } else {
+              // even though we used a term query for straight matching the lucene analyzer has already normalized
+              // the name drastically. So we include these matches here only in case of fuzzy queries
+              match.setMatchType(NameUsageMatch.MatchType.FUZZY);
+              results.add(match);
+            }
           }
-        }
 
-      } else {
-        LOG.debug("No {} match for name {}", fuzzySearch ? "fuzzy" : "straight", name);
+        } else {
+          LOG.debug("No {} match for name {}", fuzzySearch ? "fuzzy" : "straight", name);
+        }
+      } finally {
+        searcherManager.release(searcher);
       }
 
     } catch (IOException e) {
@@ -246,10 +478,6 @@ public class NubIndex implements AutoCloseable {
     return results;
   }
 
-  private IndexSearcher obtainSearcher() {
-    return searcher;
-  }
-
   /**
    * Builds a NameUsageMatch instance from a lucene Document and populates all fields but the matching specifics
    * i.e. confidence and matchType.
@@ -327,7 +555,7 @@ public class NubIndex implements AutoCloseable {
     }
 
     // store rank if existing as ordinal int
-    // this lucene index is not persistent, so not risk in changing ordinal numbers
+    // file indices are versioned, increase the FORMAT_VERSION when the rank enum changes
     doc.add(new StoredField(FIELD_RANK, rank == null ? Rank.UNRANKED.ordinal() : rank.ordinal()));
 
     // allow only 3 values for status: accepted, doubtful and synonym
@@ -356,6 +584,7 @@ public class NubIndex implements AutoCloseable {
 
   @Override
   public void close() throws Exception {
+    searcherManager.close();
     index.close();
   }
 }
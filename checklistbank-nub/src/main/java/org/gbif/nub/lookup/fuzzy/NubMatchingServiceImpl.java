@@ -21,7 +21,6 @@ import org.gbif.checklistbank.authorship.AuthorComparator;
 import org.gbif.checklistbank.model.Equality;
 import org.gbif.nub.lookup.NameUsageMatchingService2;
 import org.gbif.nub.lookup.similarity.ScientificNameSimilarity;
-import org.gbif.nub.lookup.similarity.StringSimilarity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,9 +39,10 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService, NameUsa
   private final NubIndex nubIndex;
   private final HigherTaxaComparator htComp;
   private final NameParser parser;
+  private final MatchCache cache;
   // name string to usageId
-  private Map<String, NameUsageMatch> hackMap = Maps.newHashMap();
-  private final StringSimilarity sim = new ScientificNameSimilarity();
+  private volatile Map<String, NameUsageMatch> hackMap = Maps.newHashMap();
+  private final ScientificNameSimilarity sim = new ScientificNameSimilarity();
 
   private static final Set<NameType> STRICT_MATCH_TYPES = ImmutableSet.of(NameType.OTU, NameType.VIRUS, NameType.HYBRID);
   private static final List<Rank> PARSED_QUERY_RANK = ImmutableList.of(Rank.SPECIES, Rank.GENUS);
@@ -71,27 +71,46 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService, NameUsa
   protected enum MatchingMode {FUZZY, STRICT, HIGHER}
 
   /**
+   * Creates a matching service without a match cache.
+   *
    * @param nubIndex
    * @param htComp
    * @param parser
    */
-  @Inject
   public NubMatchingServiceImpl(NubIndex nubIndex, HigherTaxaComparator htComp, NameParser parser) {
+    this(nubIndex, htComp, parser, MatchCache.disabled());
+  }
+
+  /**
+   * @param nubIndex
+   * @param htComp
+   * @param parser
+   * @param cache match cache which is invalidated whenever the nub index gets reloaded
+   */
+  @Inject
+  public NubMatchingServiceImpl(NubIndex nubIndex, HigherTaxaComparator htComp, NameParser parser, MatchCache cache) {
     this.nubIndex = nubIndex;
     this.htComp = htComp;
     this.parser = parser;
+    this.cache = cache;
     authComp = AuthorComparator.createWithAuthormap();
     initHackMap();
+    nubIndex.addReloadListener(() -> {
+      initHackMap();
+      cache.invalidateAll();
+    });
   }
 
   private void initHackMap() {
     LOG.debug("Add entries to hackmap ...");
+    Map<String, NameUsageMatch> map = Maps.newHashMap();
     try {
-      hackMap.put("radiolaria", nubIndex.matchByUsageId(7));
-      hackMap.put("hepatic", nubIndex.matchByUsageId(9));
+      map.put("radiolaria", nubIndex.matchByUsageId(7));
+      map.put("hepatic", nubIndex.matchByUsageId(9));
     } catch (Exception e) {
       LOG.debug("Hackmap entry not existing, skip", e.getMessage());
     }
+    hackMap = map;
   }
 
   private static boolean isMatch(NameUsageMatch match) {
@@ -170,13 +189,34 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService, NameUsa
     match.setAlternatives(alts);
   }
 
-  // Wrapper method doing the time tracking and logging only.
+  /**
+   * Wrapper method doing the classification cleaning, caching, time tracking and logging only.
+   * Matches served from the cache are shared instances and must not be modified.
+   */
   @Override
   public NameUsageMatch match(String scientificName, @Nullable Rank rank, @Nullable LinneanClassification classification, boolean strict, boolean verbose) {
     StopWatch watch = new StopWatch();
     watch.start();
 
-    NameUsageMatch match = matchInternal(scientificName, rank, classification, strict, verbose);
+    if (classification == null) {
+      classification = new NameUsageMatch();
+    } else {
+      cleanClassification(classification);
+    }
+
+    NameUsageMatch match;
+    if (cache.isEnabled() && scientificName != null) {
+      MatchCache.Key key = MatchCache.key(scientificName, rank, classification, strict, verbose);
+      match = cache.get(key);
+      if (match == null) {
+        // read before matching so we never cache a match from an index that got reloaded meanwhile
+        long generation = cache.generation();
+        match = matchInternal(scientificName, rank, classification, strict, verbose);
+        cache.put(key, match, generation);
+      }
+    } else {
+      match = matchInternal(scientificName, rank, classification, strict, verbose);
+    }
 
     LOG.debug("{} Match of scientific name >{}< to {} [{}] in {}", match.getMatchType(), scientificName, match.getUsageKey(), match.getScientificName(), watch.toString());
     return match;
@@ -185,17 +225,12 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService, NameUsa
   /**
    * Real method doing the work
    */
-  private NameUsageMatch matchInternal(String scientificName, @Nullable Rank rank, @Nullable LinneanClassification classification, boolean strict, boolean verbose) {
+  private NameUsageMatch matchInternal(String scientificName, @Nullable Rank rank, LinneanClassification classification, boolean strict, boolean verbose) {
 
     ParsedName pn = null;
     NameType queryNameType;
     MatchingMode mainMatchingMode = strict ? MatchingMode.STRICT : MatchingMode.FUZZY;
 
-    if (classification == null) {
-      classification = new NameUsageMatch();
-    } else {
-      cleanClassification(classification);
-    }
     try {
       // use name parser to make the name a canonical one
       // we build the name with flags manually as we wanna exclude indet. names such as "Abies spec." and rather match them to Abies only
@@ -323,9 +358,11 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService, NameUsa
   private List<NameUsageMatch> queryFuzzy(@Nullable NameType queryNameType, ParsedName pn, String canonicalName, Rank rank, LinneanClassification lc, boolean verbose) {
     // do a lucene matching
     List<NameUsageMatch> matches = nubIndex.matchByName(canonicalName, true, 50);
+    // normalize the query name only once for all candidates
+    final ScientificNameSimilarity.PreparedName query = sim.prepare(canonicalName);
     for (NameUsageMatch m : matches) {
       // 0 - +120
-      final int nameSimilarity = nameSimilarity(queryNameType, canonicalName, m);
+      final int nameSimilarity = nameSimilarity(queryNameType, query, m);
       // -36 - +40
       final int authorSimilarity = incNegScore(authorSimilarity(pn, m) * 2, 2);
       // -50 - +50
@@ -354,9 +391,11 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService, NameUsa
   private List<NameUsageMatch> queryHigher(ParsedName pn, String canonicalName, Rank rank, LinneanClassification lc, boolean verbose) {
     // do a lucene matching
     List<NameUsageMatch> matches = nubIndex.matchByName(canonicalName, false, 50);
+    // normalize the query name only once for all candidates
+    final ScientificNameSimilarity.PreparedName query = sim.prepare(canonicalName);
     for (NameUsageMatch m : matches) {
       // 0 - +100
-      final int nameSimilarity = nameSimilarity(null, canonicalName, m);
+      final int nameSimilarity = nameSimilarity(null, query, m);
       // -50 - +50
       final int classificationSimilarity = classificationSimilarity(lc, m);
       // -10 - +5
@@ -381,9 +420,11 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService, NameUsa
   private List<NameUsageMatch> queryStrict(@Nullable NameType queryNameType, ParsedName pn, String canonicalName, Rank rank, LinneanClassification lc, boolean verbose) {
     // do a lucene matching
     List<NameUsageMatch> matches = nubIndex.matchByName(canonicalName, false, 50);
+    // normalize the query name only once for all candidates
+    final ScientificNameSimilarity.PreparedName query = sim.prepare(canonicalName);
     for (NameUsageMatch m : matches) {
       // 0 - +120
-      final int nameSimilarity = nameSimilarity(queryNameType, canonicalName, m);
+      final int nameSimilarity = nameSimilarity(queryNameType, query, m);
       // -28 - +40
       final int authorSimilarity = incNegScore(authorSimilarity(pn, m) * 4, 8);
       // -50 - +50
@@ -594,7 +635,8 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService, NameUsa
     return no;
   }
 
-  private int nameSimilarity(@Nullable NameType queryNameType, String canonicalName, NameUsageMatch m) {
+  private int nameSimilarity(@Nullable NameType queryNameType, ScientificNameSimilarity.PreparedName query, NameUsageMatch m) {
+    final String canonicalName = query.getName();
     // calculate name distance
     int confidence;
     if (canonicalName.equalsIgnoreCase(m.getCanonicalName())) {
@@ -609,13 +651,13 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService, NameUsa
 
     } else {
       // fuzzy - be careful!
-      confidence = (int) sim.getSimilarity(canonicalName, m.getCanonicalName()) - 5;
+      confidence = (int) sim.getSimilarity(query, m.getCanonicalName()) - 5;
       // modify confidence according to genus comparison in bionomials.
       // slightly trust binomials with a matching genus more, and trust less if we matched a different genus name
       int spaceIdx = m.getCanonicalName().indexOf(" ");
       if (spaceIdx > 0) {
-        String genus = m.getCanonicalName().substring(0, spaceIdx);
-        if (canonicalName.startsWith(genus)) {
+        // same as startsWith(genus) without creating the genus substring
+        if (canonicalName.regionMatches(0, m.getCanonicalName(), 0, spaceIdx)) {
           confidence += 5;
         } else {
           confidence -= 10;
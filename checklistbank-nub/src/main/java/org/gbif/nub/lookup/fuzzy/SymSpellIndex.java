@@ -0,0 +1,233 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A symmetric delete spelling index (SymSpell) over all analyzed names of a lucene field
+ * which generates fuzzy candidates for a query name without enumerating the term dictionary.
+ * <p>
+ * For every indexed name all variants of its prefix with up to maxEdits deleted characters are hashed
+ * and kept in a single sorted long array pointing to the name.
+ * A query generates the same deletes, looks up all names sharing any of them
+ * and verifies the candidates with a bounded Damerau-Levenshtein distance on the full names.
+ * As with the lucene FuzzyQuery used so far the first character never gets edited.
+ */
+public class SymSpellIndex {
+  private static final Logger LOG = LoggerFactory.getLogger(SymSpellIndex.class);
+
+  private final int maxEdits;
+  private final int prefixLength;
+  private final String[] names;
+  // sorted entries with the delete hash in the upper and the name index in the lower 32 bits
+  private final long[] deletes;
+
+  /**
+   * A candidate name with its edit distance to the query.
+   */
+  public static class Candidate {
+    public final String name;
+    public final int distance;
+
+    Candidate(String name, int distance) {
+      this.name = name;
+      this.distance = distance;
+    }
+
+    @Override
+    public String toString() {
+      return name + " [" + distance + "]";
+    }
+  }
+
+  /**
+   * @param names        the distinct names to index
+   * @param maxEdits     maximum edit distance supported by lookups
+   * @param prefixLength number of leading characters used to generate deletes
+   */
+  public SymSpellIndex(Iterable<String> names, int maxEdits, int prefixLength) {
+    Preconditions.checkArgument(maxEdits > 0, "maxEdits must be positive");
+    Preconditions.checkArgument(prefixLength > maxEdits, "prefixLength must be larger than maxEdits");
+    this.maxEdits = maxEdits;
+    this.prefixLength = prefixLength;
+    this.names = Lists.newArrayList(names).toArray(new String[0]);
+
+    LongArrayList entries = new LongArrayList(this.names.length * 16);
+    ObjectOpenHashSet<String> buffer = new ObjectOpenHashSet<>();
+    for (int idx = 0; idx < this.names.length; idx++) {
+      buffer.clear();
+      generateDeletes(prefix(this.names[idx]), buffer);
+      for (String d : buffer) {
+        entries.add(entry(d, idx));
+      }
+    }
+    deletes = entries.toLongArray();
+    Arrays.sort(deletes);
+    LOG.info("Built symspell index with {} deletes for {} names", deletes.length, this.names.length);
+  }
+
+  /**
+   * Builds a symspell index from all terms of a field.
+   */
+  public static SymSpellIndex build(IndexReader reader, String field, int maxEdits, int prefixLength) throws IOException {
+    List<String> names = Lists.newArrayList();
+    Terms terms = MultiFields.getTerms(reader, field);
+    if (terms != null) {
+      TermsEnum iter = terms.iterator();
+      BytesRef term;
+      while ((term = iter.next()) != null) {
+        names.add(term.utf8ToString());
+      }
+    }
+    return new SymSpellIndex(names, maxEdits, prefixLength);
+  }
+
+  public int getMaxEdits() {
+    return maxEdits;
+  }
+
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * Finds all indexed names within the given edit distance of the query, sharing its first character.
+   *
+   * @param query    the analyzed query name
+   * @param maxEdits maximum edit distance, not larger than the one the index was built with
+   * @return candidates ordered by their distance, closest first
+   */
+  public List<Candidate> lookup(String query, int maxEdits) {
+    Preconditions.checkArgument(maxEdits <= this.maxEdits, "Index only supports up to " + this.maxEdits + " edits");
+    if (query.isEmpty()) {
+      return Collections.emptyList();
+    }
+    ObjectOpenHashSet<String> qDeletes = new ObjectOpenHashSet<>();
+    generateDeletes(prefix(query), qDeletes);
+
+    IntSet seen = new IntOpenHashSet();
+    List<Candidate> candidates = Lists.newArrayList();
+    for (String d : qDeletes) {
+      long hash = hash(d);
+      int pos = lowerBound(hash << 32);
+      while (pos < deletes.length && deletes[pos] >>> 32 == hash) {
+        int idx = (int) deletes[pos];
+        if (seen.add(idx)) {
+          String name = names[idx];
+          if (name.charAt(0) == query.charAt(0) && Math.abs(name.length() - query.length()) <= maxEdits) {
+            int dist = distance(query, name, maxEdits);
+            if (dist <= maxEdits) {
+              candidates.add(new Candidate(name, dist));
+            }
+          }
+        }
+        pos++;
+      }
+    }
+    candidates.sort(Comparator.comparingInt(c -> c.distance));
+    return candidates;
+  }
+
+  private String prefix(String name) {
+    return name.length() > prefixLength ? name.substring(0, prefixLength) : name;
+  }
+
+  /**
+   * Adds the string itself and all variants with up to maxEdits deleted characters, never deleting the first one.
+   */
+  private void generateDeletes(String x, ObjectOpenHashSet<String> deletes) {
+    deletes.add(x);
+    generateDeletes(x, maxEdits, deletes);
+  }
+
+  private static void generateDeletes(String x, int edits, ObjectOpenHashSet<String> deletes) {
+    if (edits > 0 && x.length() > 1) {
+      for (int i = 1; i < x.length(); i++) {
+        String d = x.substring(0, i) + x.substring(i + 1);
+        if (deletes.add(d)) {
+          generateDeletes(d, edits - 1, deletes);
+        }
+      }
+    }
+  }
+
+  private static long entry(String delete, int idx) {
+    return hash(delete) << 32 | idx;
+  }
+
+  private static long hash(String x) {
+    return x.hashCode() & 0xffffffffL;
+  }
+
+  /**
+   * @return the index of the first entry equal or larger than the key
+   */
+  private int lowerBound(long key) {
+    int low = 0;
+    int high = deletes.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (deletes[mid] < key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Optimal string alignment distance, i.e. Damerau-Levenshtein with transpositions of adjacent characters,
+   * giving up as soon as the distance exceeds max.
+   *
+   * @return the distance or max+1 if larger than max
+   */
+  static int distance(String a, String b, int max) {
+    final int n = a.length();
+    final int m = b.length();
+    int[] prev2 = new int[m + 1];
+    int[] prev = new int[m + 1];
+    int[] curr = new int[m + 1];
+    for (int j = 0; j <= m; j++) {
+      prev[j] = j;
+    }
+    for (int i = 1; i <= n; i++) {
+      curr[0] = i;
+      int rowMin = i;
+      for (int j = 1; j <= m; j++) {
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        int d = Math.min(Math.min(prev[j] + 1, curr[j - 1] + 1), prev[j - 1] + cost);
+        if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+          d = Math.min(d, prev2[j - 2] + 1);
+        }
+        curr[j] = d;
+        rowMin = Math.min(rowMin, d);
+      }
+      if (rowMin > max) {
+        return max + 1;
+      }
+      int[] tmp = prev2;
+      prev2 = prev;
+      prev = curr;
+      curr = tmp;
+    }
+    return Math.min(prev[m], max + 1);
+  }
+}
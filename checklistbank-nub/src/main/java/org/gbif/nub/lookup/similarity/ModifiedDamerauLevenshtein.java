@@ -4,17 +4,19 @@ package org.gbif.nub.lookup.similarity;
 // Copied and adapted from ALA:
 // https://ala-nsl.googlecode.com/svn/taxamatch/trunk/src/au/org/biodiversity/services/taxamatch/impl/ModifiedDamerauLevenshtein.java
 
-import java.util.Arrays;
-
+/**
+ * A modified Damerau-Levenshtein edit distance that also treats transpositions of blocks up to a given length as
+ * single edits.
+ *
+ * The distance is computed on character ranges of the given strings without copying them.
+ * Only the last rows of the dynamic programming matrix needed for block transpositions are kept in a thread local
+ * buffer which is reused across calls. An optional upper bound stops the computation as soon as the distance is
+ * known to exceed it.
+ */
 public class ModifiedDamerauLevenshtein implements StringSimilarity {
 	private final int pBlockLimit;
 
-	// this variable holds a shared array, to reduce heap use
-	// we use a little synchronisation to manage the space, but
-	// synchronisation is reasonably quick these days.
-
-	private static volatile int[] a_matrix = new int[64 * 64];
-	private static final Object mutex = new Object();
+	private static final ThreadLocal<int[]> ROWS = ThreadLocal.withInitial(() -> new int[8 * 64]);
 
   /**
    * A default MDL with a block limit of just 2 edits.
@@ -32,149 +34,125 @@ public class ModifiedDamerauLevenshtein implements StringSimilarity {
 
   @Override
   public double getSimilarity(String x1, String x2) {
-    return DistanceUtils.convertEditDistanceToSimilarity(getEditDistance(x1, x2), x1, x2);
+    // distances above the shorter length, capped at 10, always yield a zero similarity
+    int bound = Math.min(10, Math.min(x1.length(), x2.length()));
+    return DistanceUtils.convertEditDistanceToSimilarity(getEditDistance(x1, 0, x1.length(), x2, 0, x2.length(), bound), x1, x2);
   }
 
   public final int getEditDistance(final String s1, final String s2) {
-		if (s1.equals(s2)) {
-			return 0;
-    } else if (s1.isEmpty() || s2.isEmpty()) {
-			return Math.max(s1.length(), s2.length());
-    } else if (s1.length() == 1 && s2.length() == 1) {
-      return 1;
+    if (s1.equals(s2)) {
+      return 0;
     }
+    return getEditDistance(s1, 0, s1.length(), s2, 0, s2.length(), Integer.MAX_VALUE);
+  }
 
-		final char[] t1;
-		final char[] t2;
-
-		{
-			StringBuilder sb1 = new StringBuilder(s1);
-			StringBuilder sb2 = new StringBuilder(s2);
-
-			// these hold the index of the last character.
-			int l1 = sb1.length()-1;
-			int l2 = sb2.length()-1;
-
-			while (l1>=0 && l2>=0 && sb1.charAt(0) == sb2.charAt(0)) {
-				sb1.deleteCharAt(0);
-				sb2.deleteCharAt(0);
-				l1--;
-				l2--;
-			}
-
-			while (l1>=0 && l2>=0 && sb1.charAt(l1) == sb2.charAt(l2)) {
-				sb1.deleteCharAt(l1--);
-				sb2.deleteCharAt(l2--);
-			}
-
-			l1++;
-			l2++;
-			if (l1 == 0 || l2 == 0)
-				return Math.max(l1, l2);
-			else if (l1 == 1 && l2 == 1) return 1;
-
-			t1 = sb1.toString().toCharArray();
-			t2 = sb2.toString().toCharArray();
-		}
-
-		final int temp1Len = t1.length;
-		final int temp2Len = t2.length;
-
-		// using a 1-dimensional array with bit fiddling to get to the elements
-		// saves about 12-15% off the running time.
-		// so, we replace matrix[a][b] with matrix[((a)<<6)|(b)]
-		// this limits us to 64-character words, which should be plenty. I hope.
-
-		final int[] matrix;
-		synchronized (mutex) {
-			if (a_matrix == null) {
-				matrix = new int[64 * 64];
-			}
-			else {
-				matrix = a_matrix;
-				a_matrix = null;
-				Arrays.fill(matrix, 0);
-			}
-		}
-
-		for (int i = 0; i <= temp1Len; i++) {
-			matrix[i << 6] = i;
-		}
-
-		for (int i = 0; i <= temp2Len; i++) {
-			matrix[i] = i;
-		}
+  /**
+   * Calculates the edit distance between two character ranges.
+   *
+   * @param bound the maximum distance of interest
+   * @return the edit distance or any value larger than bound if the distance exceeds the bound
+   */
+  public final int getEditDistance(final CharSequence s1, int start1, int end1,
+                                   final CharSequence s2, int start2, int end2, int bound) {
+    int l1 = end1 - start1;
+    int l2 = end2 - start2;
+    if (l1 == 0 || l2 == 0) {
+      return Math.max(l1, l2);
+    } else if (l1 == 1 && l2 == 1) {
+      return s1.charAt(start1) == s2.charAt(start2) ? 0 : 1;
+    }
 
-		for (int i = 1; i <= temp1Len; i++) {
-			matrix[i << 6] = i;
-			for (int j = 1; j <= temp2Len; j++) {
-				int cost;
-				if (t1[i - 1] == t2[j - 1]) {
-					cost = 0;
-				}
-				else {
-					cost = 1;
-				}
-
-				int temp_block_length = Math.max(//
-						Math.min(temp1Len / 2, //
-								Math.min(temp2Len / 2, //
-										Math.max(pBlockLimit, 1))), //
-						1);
-
-				while (temp_block_length >= 1) {
-
-					final int sub1 = i - ((temp_block_length * 2) - 1);
-					final int sub2 = j - (temp_block_length - 1);
-					final int sub3 = i - (temp_block_length - 1);
-					final int sub4 = j - ((temp_block_length * 2) - 1);
-
-					if (i >= (temp_block_length * 2) && j >= (temp_block_length * 2)
-							&& substreq(t1, sub1, t2, sub2, temp_block_length)
-							&& substreq(t1, sub3, t2, sub4, temp_block_length)) {
-
-						final int ins = matrix[((i) << 6) | (j - 1)] + 1;
-						final int del = matrix[((i - 1) << 6) | j] + 1;
-						final int tran = matrix[((i - (temp_block_length * 2)) << 6) | (j - (temp_block_length * 2))]
-								+ cost + (temp_block_length - 1);
-						matrix[(i << 6) | j] = minimum(ins, del, tran);
-
-						temp_block_length = 0;
-
-					}
-					else if (temp_block_length == 1) {
-
-						final int del = matrix[((i - 1) << 6) | j] + 1;
-						final int ins = matrix[(i << 6) | (j - 1)] + 1;
-						final int sub = matrix[((i - 1) << 6) | (j - 1)] + cost;
-
-						matrix[(i << 6) | j] = minimum(ins, del, sub);
-					}
-					temp_block_length--;
-				}
-
-			}
-		}
+    // trim common prefix and suffix
+    while (start1 < end1 && start2 < end2 && s1.charAt(start1) == s2.charAt(start2)) {
+      start1++;
+      start2++;
+    }
+    while (start1 < end1 && start2 < end2 && s1.charAt(end1 - 1) == s2.charAt(end2 - 1)) {
+      end1--;
+      end2--;
+    }
+    l1 = end1 - start1;
+    l2 = end2 - start2;
+    if (l1 == 0 || l2 == 0) {
+      return Math.max(l1, l2);
+    } else if (l1 == 1 && l2 == 1) {
+      return 1;
+    }
 
-		int ret = matrix[(temp1Len << 6) | temp2Len];
+    // the distance never exceeds the longer length and is at least the length difference
+    bound = Math.min(bound, Math.max(l1, l2));
+    if (Math.abs(l1 - l2) > bound) {
+      return bound + 1;
+    }
 
-		a_matrix = matrix; // does not need to be synchronized, it is atomic
+    final int maxBlock = Math.max(Math.min(l1 / 2, Math.min(l2 / 2, Math.max(pBlockLimit, 1))), 1);
+    // block transpositions look back up to 2 * maxBlock rows
+    final int window = 2 * maxBlock;
+    final int numRows = window + 1;
+    final int stride = l2 + 1;
+    int[] rows = ROWS.get();
+    if (rows.length < numRows * stride) {
+      rows = new int[numRows * stride];
+      ROWS.set(rows);
+    }
 
-		return ret;
+    for (int j = 0; j <= l2; j++) {
+      rows[j] = j;
+    }
 
-	}
+    // number of consecutive rows with all values above the bound
+    int exceeded = 0;
+    for (int i = 1; i <= l1; i++) {
+      final int row = (i % numRows) * stride;
+      final int prev = ((i - 1) % numRows) * stride;
+      final char c1 = s1.charAt(start1 + i - 1);
+      rows[row] = i;
+      int rowMin = i;
+      for (int j = 1; j <= l2; j++) {
+        final int cost = c1 == s2.charAt(start2 + j - 1) ? 0 : 1;
+        final int del = rows[prev + j] + 1;
+        final int ins = rows[row + j - 1] + 1;
+        int val = -1;
+
+        for (int b = maxBlock; b >= 1; b--) {
+          final int b2 = b * 2;
+          if (i >= b2 && j >= b2
+              && substreq(s1, start1 + i - b2, s2, start2 + j - b, b)
+              && substreq(s1, start1 + i - b, s2, start2 + j - b2, b)) {
+            final int tran = rows[((i - b2) % numRows) * stride + j - b2] + cost + (b - 1);
+            val = minimum(ins, del, tran);
+            break;
+          }
+        }
+        if (val < 0) {
+          val = minimum(ins, del, rows[prev + j - 1] + cost);
+        }
+        rows[row + j] = val;
+        if (val < rowMin) {
+          rowMin = val;
+        }
+      }
+
+      // all following rows derive from the last window rows only
+      if (rowMin > bound) {
+        if (++exceeded >= window) {
+          return bound + 1;
+        }
+      } else {
+        exceeded = 0;
+      }
+    }
 
-	// The compiler inlines these, I think.
+    return rows[(l1 % numRows) * stride + l2];
+  }
 
-	private final static int minimum(int d, int i, int s) {
+	private static int minimum(int d, int i, int s) {
 		return d < i ? (d < s ? d : s) : (i < s ? i : s);
 	}
 
-	private final static boolean substreq(char[] src1, int start1, char[] src2, int start2, int length) {
-		int at1 = start1 >= 0 ? start1 - 1 : src1.length + start1;
-		int at2 = start2 >= 0 ? start2 - 1 : src2.length + start2;
+	private static boolean substreq(CharSequence src1, int at1, CharSequence src2, int at2, int length) {
 		while (length-- > 0) {
-			if (src1[at1++] != src2[at2++]) return false;
+			if (src1.charAt(at1++) != src2.charAt(at2++)) return false;
 		}
 		return true;
 	}
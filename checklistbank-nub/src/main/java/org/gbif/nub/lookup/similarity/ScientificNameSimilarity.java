@@ -8,6 +8,9 @@ import org.slf4j.LoggerFactory;
 /**
  * Apply normalizations to scientific names before scoring them for similarity
  * using edit distance applied to each epithet.
+ *
+ * Names are tokenized in place on the normalized string, so apart from the normalization no objects are created.
+ * A query name that is compared against many candidates can be normalized once with {@link #prepare(String)}.
  */
 public class ScientificNameSimilarity implements StringSimilarity {
 
@@ -18,20 +21,50 @@ public class ScientificNameSimilarity implements StringSimilarity {
   ModifiedDamerauLevenshtein mdl1 = new ModifiedDamerauLevenshtein(1);
   ModifiedDamerauLevenshtein mdl3 = new ModifiedDamerauLevenshtein(3);
 
+  /**
+   * A scientific name with its normalized form and number of tokens.
+   */
+  public static class PreparedName {
+    private final String name;
+    private final String normalized;
+    private final int tokens;
+
+    private PreparedName(String name) {
+      this.name = name;
+      normalized = SciNameNormalizer.normalize(name);
+      tokens = countTokens(normalized);
+    }
+
+    public String getName() {
+      return name;
+    }
+  }
+
+  /**
+   * Normalizes a name once so it can be compared to many others.
+   */
+  public PreparedName prepare(String name) {
+    return new PreparedName(name);
+  }
+
   @Override
   public double getSimilarity(String x1, String x2) {
     if (x1.equals(x2)) return 100d;
+    return getSimilarity(prepare(x1), x2);
+  }
 
-    LOG.debug("‘{}’\twas previously {}% like ‘{}’", x1, mdl3.getSimilarity(x1, x2), x2);
+  public double getSimilarity(PreparedName query, String x2) {
+    if (query.name.equals(x2)) return 100d;
 
-    x1 = SciNameNormalizer.normalize(x1);
-    x2 = SciNameNormalizer.normalize(x2);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("‘{}’\twas previously {}% like ‘{}’", query.name, mdl3.getSimilarity(query.name, x2), x2);
+    }
 
-    String[] x1s = x1.split(" ");
-    String[] x2s = x2.split(" ");
+    final String x1 = query.normalized;
+    x2 = SciNameNormalizer.normalize(x2);
 
     // Compare the whole name if they don't have the same number of tokens.
-    if (x1s.length != x2s.length) {
+    if (query.tokens != countTokens(x2)) {
       double sim = mdl3.getSimilarity(x1, x2);
       LOG.debug("‘{}’\tis {}% like ‘{}’ (but lengths differ)\n", x1, sim, x2);
       return sim;
@@ -39,9 +72,12 @@ public class ScientificNameSimilarity implements StringSimilarity {
 
     boolean bad = false;
     double overallSim = 0;
-    int i;
-    for (i = 0; i < x1s.length; i++) {
-      double sim = similarity(x1s[i], x2s[i]);
+    int start1 = 0;
+    int start2 = 0;
+    for (int i = 0; i < query.tokens; i++) {
+      final int end1 = tokenEnd(x1, start1);
+      final int end2 = tokenEnd(x2, start2);
+      double sim = similarity(x1, start1, end1, x2, start2, end2);
       // The score of the first epithet (e.g. genus) is scaled down, 100→100, 50→0, <50→0
       if (i == 0) {
         sim = Math.max(0, (2*sim - 100));
@@ -49,8 +85,10 @@ public class ScientificNameSimilarity implements StringSimilarity {
       overallSim += sim;
 
       if (sim == 0) bad = true;
+      start1 = end1 + 1;
+      start2 = end2 + 1;
     }
-    overallSim = overallSim/i;
+    overallSim = overallSim/query.tokens;
 
     // Any epithet that doesn't match enough makes the whole match bad.
     if (bad && overallSim > 5) {
@@ -61,43 +99,57 @@ public class ScientificNameSimilarity implements StringSimilarity {
     return overallSim;
   }
 
-  private double similarity(String x1, String x2) {
+  private static int countTokens(String x) {
+    int tokens = 1;
+    for (int i = 0; i < x.length(); i++) {
+      if (x.charAt(i) == ' ') tokens++;
+    }
+    return tokens;
+  }
+
+  private static int tokenEnd(String x, int start) {
+    int end = x.indexOf(' ', start);
+    return end < 0 ? x.length() : end;
+  }
+
+  private double similarity(String x1, int start1, int end1, String x2, int start2, int end2) {
+    final int len1 = end1 - start1;
+    final int len2 = end2 - start2;
+    if (len1 == 0 || len2 == 0) {
+      return len1 == len2 ? 100 : 0;
+    }
+
     // First letter much match
-    if (x1.charAt(0) != x2.charAt(0)) {
-      LOG.debug("\t‘{}’\tis not at all like ‘{}’ (‘{}’≠‘{}’)", x1, x2, x1.charAt(0), x2.charAt(0));
+    if (x1.charAt(start1) != x2.charAt(start2)) {
+      LOG.debug("\t‘{}’\tis not at all like ‘{}’", x1, x2);
       return 0;
     }
 
     // Very short epithets must match exactly
-    if (x1.length() < MUST_MATCH || x2.length() < MUST_MATCH) {
-      if (x1.equals(x2)) {
-        LOG.debug("\t‘{}’\tis short and exactly like ‘{}’", x1, x2);
+    if (len1 < MUST_MATCH || len2 < MUST_MATCH) {
+      if (len1 == len2 && x1.regionMatches(start1, x2, start2, len1)) {
+        LOG.debug("\tshort epithets of ‘{}’\tare exactly like ‘{}’", x1, x2);
         return 100;
       } else {
-        LOG.debug("\t‘{}’\tis short and nothing like ‘{}’", x1, x2);
+        LOG.debug("\tshort epithets of ‘{}’\tare nothing like ‘{}’", x1, x2);
         return 0;
       }
     }
 
     // Longer ones can have one change in the first MUST_MATCH letters
     // TODO: Consider whether the first letters must match exactly.
-    String x1head = x1.substring(0, MUST_MATCH);
-    String x2head = x2.substring(0, MUST_MATCH);
     int dist;
-    if ((dist = mdl1.getEditDistance(x1head, x2head)) > 1) {
-      LOG.debug("\t‘{}’\tis nothing like ‘{}’ (‘{}’≠‘{}’, dist={})", x1, x2, x1head, x2head, dist);
+    if ((dist = mdl1.getEditDistance(x1, start1, start1 + MUST_MATCH, x2, start2, start2 + MUST_MATCH, 1)) > 1) {
+      LOG.debug("\t‘{}’\tis nothing like ‘{}’ (head dist={})", x1, x2, dist);
       return 0;
     }
 
     // And up to two changes in the whole epithet
     // TODO: Use Markus’ distance utility thing to take account of length.
-    dist = mdl1.getEditDistance(x1, x2);
+    dist = mdl1.getEditDistance(x1, start1, end1, x2, start2, end2, 2);
     double r = (dist == 0 ? 100 : (dist == 1 ? 90 : (dist <= 2 ? 80 : 0)));
 
-    LOG.debug("\t‘{}’\tis {}% like ‘{}’", x1, r, x2);
+    LOG.debug("\tepithet of ‘{}’\tis {}% like ‘{}’", x1, r, x2);
     return r;
   }
-//
-//
-//
 }
@@ -9,9 +9,10 @@ import org.gbif.api.model.Constants;
 import org.gbif.api.vocabulary.Kingdom;
 import org.gbif.api.vocabulary.Rank;
 import org.gbif.checklistbank.authorship.AuthorComparator;
+import org.gbif.checklistbank.authorship.NormalizedAuthorship;
 import org.gbif.checklistbank.config.ClbConfiguration;
 import org.gbif.checklistbank.model.Equality;
-import org.gbif.checklistbank.postgres.TabMapperBase;
+import org.gbif.checklistbank.postgres.TabRowMapperBase;
 import org.gbif.checklistbank.utils.KingdomUtils;
 import org.gbif.checklistbank.utils.RankUtils;
 import org.gbif.checklistbank.utils.SciNameNormalizer;
@@ -27,10 +28,10 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
-import java.io.Writer;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Does a lookup by canonical name and then leniently filters by rank, kingdom and authorship.
@@ -39,6 +40,7 @@ import java.util.*;
  */
 public class IdLookupImpl implements IdLookup {
   private static final Logger LOG = LoggerFactory.getLogger(IdLookupImpl.class);
+  private static final TabRowMapperBase.EnumLookup<Rank> RANKS = new TabRowMapperBase.EnumLookup<>(Rank.class);
 
   private final DB db;
   private final Map<String, List<LookupUsage>> usages;
@@ -91,36 +93,44 @@ public class IdLookupImpl implements IdLookup {
    * Loads known usages from checklistbank backbone.
    */
   public IdLookupImpl load(ClbConfiguration clb, boolean includeDeleted) throws SQLException, IOException {
+    read(clb, includeDeleted, this::add);
+    LOG.info("Loaded existing nub with {} usages and max key {} into id lookup", usages.size(), keyMax);
+    return this;
+  }
+
+  /**
+   * Streams all known usages from the checklistbank backbone into the given consumer
+   * using 2 postgres COPY commands, one for regular usages and one for pro parte usages.
+   * Shared by all id lookup implementations that load the backbone from postgres.
+   */
+  static void read(ClbConfiguration clb, boolean includeDeleted, Consumer<LookupUsage> consumer) throws SQLException, IOException {
     try (Connection c = clb.connect()) {
       final CopyManager cm = new CopyManager((BaseConnection) c);
       final String delClause = includeDeleted ? "" : " AND deleted is null";
 
       // first read bulk of regular usages - we add pro parte usage later
       LOG.info("Reading existing nub usages {}from postgres ...", includeDeleted ? "incl. deleted " : "");
-      try (Writer writer = new UsageWriter()) {
+      try (UsageWriter writer = new UsageWriter(consumer)) {
         cm.copyOut("COPY ("
             + "SELECT u.id, coalesce(NULLIF(trim(n.canonical_name), ''), n.scientific_name), n.authorship, n.year, u.rank, u.kingdom_fk, deleted is not null"
             + " FROM name_usage u join name n ON name_fk=n.id"
             + " WHERE dataset_key = '" + Constants.NUB_DATASET_KEY + "'" + delClause + " AND pp_synonym_fk is null)"
             + " TO STDOUT WITH NULL ''", writer);
-        LOG.info("Added {} nub usages into id lookup", usages.size());
+        LOG.info("Read {} nub usages", writer.counter);
       }
-      final int uCount = usages.size();
 
       // now load pro parte keys separately saving us from doing complex aggregations
       LOG.info("Reading existing pro parte nub usages {}from postgres ...", includeDeleted ? "incl. deleted " : "");
-      try (Writer writer = new ProParteUsageWriter()) {
+      try (ProParteUsageWriter writer = new ProParteUsageWriter(consumer)) {
         cm.copyOut("COPY ("
             + "SELECT u.id, u.parent_fk, u.pp_synonym_fk, coalesce(NULLIF(trim(n.canonical_name), ''), n.scientific_name), n.authorship, n.year, u.rank, u.kingdom_fk, deleted is not null"
             + " FROM name_usage u join name n ON name_fk=n.id"
             + " WHERE dataset_key = '" + Constants.NUB_DATASET_KEY + "'" + delClause + " AND pp_synonym_fk is not null"
             + " ORDER BY pp_synonym_fk)"
             + " TO STDOUT WITH NULL ''", writer);
-        LOG.info("Added {} pro parte usages into id lookup", usages.size() - uCount);
+        LOG.info("Read {} pro parte nub usages", writer.counter);
       }
-      LOG.info("Loaded existing nub with {} usages and max key {} into id lookup", usages.size(), keyMax);
     }
-    return this;
   }
 
   @Override
@@ -138,24 +148,29 @@ public class IdLookupImpl implements IdLookup {
    * Kingdom kingdom
    * boolean deleted
    */
-  private class UsageWriter extends TabMapperBase {
-    public UsageWriter() {
+  private static class UsageWriter extends TabRowMapperBase {
+    private final Consumer<LookupUsage> consumer;
+    private int counter;
+
+    public UsageWriter(Consumer<LookupUsage> consumer) {
       // the number of columns in our query to consume
       super(7);
+      this.consumer = consumer;
     }
 
     @Override
-    protected void addRow(String[] row) {
+    protected void addRow() {
       LookupUsage u = new LookupUsage(
-          toInt(row[0]),
-          row[1],
-          row[2],
-          row[3],
-          Rank.valueOf(row[4]),
-          toKingdom(row[5]),
-          "t".equals(row[6])
+          getInt(0, 0),
+          getString(1),
+          getString(2),
+          getString(3),
+          getEnum(4, RANKS),
+          toKingdom(getInteger(5)),
+          getBool(6)
       );
-      add(u);
+      consumer.accept(u);
+      counter++;
     }
   }
 
@@ -172,37 +187,41 @@ public class IdLookupImpl implements IdLookup {
    * Kingdom kingdom
    * boolean deleted
    */
-  private class ProParteUsageWriter extends TabMapperBase {
+  private static class ProParteUsageWriter extends TabRowMapperBase {
+    private final Consumer<LookupUsage> consumer;
     private LookupUsage u;
-    private Integer lastProParteKey;
+    private int lastProParteKey;
+    private int counter;
 
-    public ProParteUsageWriter() {
+    public ProParteUsageWriter(Consumer<LookupUsage> consumer) {
       // the number of columns in our query to consume
       super(9);
+      this.consumer = consumer;
     }
 
     @Override
-    protected void addRow(String[] row) {
-      Integer key = toInt(row[0]);
-      Integer parentKey = toInt(row[1]);
-      Integer proParteKey = toInt(row[2]);
-      boolean deleted = "t".equals(row[8]);
+    protected void addRow() {
+      int key = getInt(0, 0);
+      int parentKey = getInt(1, 0);
+      int proParteKey = getInt(2, 0);
+      boolean deleted = getBool(8);
       // only create a new usage if the pro parte key changes
-      if (lastProParteKey == null || !lastProParteKey.equals(proParteKey)) {
+      if (u == null || lastProParteKey != proParteKey) {
         // add last if existing
         if (u != null) {
-          add(u);
+          consumer.accept(u);
+          counter++;
         }
         // start new usage
         lastProParteKey = proParteKey;
         u = new LookupUsage(
             key,
             new Int2IntOpenHashMap(),
-            row[3],
-            row[4],
-            row[5],
-            Rank.valueOf(row[6]),
-            toKingdom(row[7]),
+            getString(3),
+            getString(4),
+            getString(5),
+            getEnum(6, RANKS),
+            toKingdom(getInteger(7)),
             deleted
         );
       }
@@ -216,7 +235,9 @@ public class IdLookupImpl implements IdLookup {
     public void close() throws IOException {
       // we need to add the last usage still
       if (u != null) {
-        add(u);
+        consumer.accept(u);
+        counter++;
+        u = null;
       }
       super.close();
     }
@@ -229,15 +250,10 @@ public class IdLookupImpl implements IdLookup {
    *
    * @return matching kingdom or incertae sedis in case of null (which should *never* happen!)
    */
-  private static Kingdom toKingdom(String x) {
-    Integer usageKey = toInt(x);
+  private static Kingdom toKingdom(Integer usageKey) {
     return usageKey == null ? Kingdom.INCERTAE_SEDIS : Kingdom.byNubUsageKey(usageKey);
   }
 
-  private static Integer toInt(String x) {
-    return x == null ? null : Integer.valueOf(x);
-  }
-
   @VisibleForTesting
   protected static String norm(String x) {
     x = SciNameNormalizer.normalize(x);
@@ -273,6 +289,8 @@ public class IdLookupImpl implements IdLookup {
       deleted++;
     }
     keyMax = Math.max(keyMax, u.getMaxKey());
+    // normalize backbone authorships once, matching compares against them many times
+    authComp.precompute(u.getAuthorship(), u.getYear());
   }
 
   @Override
@@ -298,6 +316,7 @@ public class IdLookupImpl implements IdLookup {
     if (hits == null) return null;
 
     final boolean compareAuthorship = authorship != null || year != null;
+    final NormalizedAuthorship query = compareAuthorship ? authComp.prepare(authorship, year) : null;
     // filter by rank, kingdom & authorship
     Iterator<LookupUsage> iter = hits.iterator();
     while (iter.hasNext()) {
@@ -307,7 +326,7 @@ public class IdLookupImpl implements IdLookup {
         iter.remove();
       } else if (compareAuthorship) {
         // authorship comparison was requested!
-        Equality eq = authComp.compare(authorship, year, u.getAuthorship(), u.getYear());
+        Equality eq = authComp.compare(query, u.getAuthorship(), u.getYear());
         if (eq == Equality.DIFFERENT) {
           iter.remove();
         }
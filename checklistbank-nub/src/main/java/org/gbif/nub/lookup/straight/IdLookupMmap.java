@@ -0,0 +1,738 @@
+package org.gbif.nub.lookup.straight;
+
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.checklistbank.authorship.AuthorComparator;
+import org.gbif.checklistbank.authorship.NormalizedAuthorship;
+import org.gbif.checklistbank.config.ClbConfiguration;
+import org.gbif.checklistbank.model.Equality;
+import org.gbif.checklistbank.utils.KingdomUtils;
+import org.gbif.checklistbank.utils.RankUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An id lookup with the same matching semantics as {@link IdLookupImpl}, but keeping all usages in a compact,
+ * columnar and memory mapped file instead of a MapDB map of serialized usage lists.
+ * <p>
+ * Every usage occupies a slot in parallel primitive columns for key, rank, kingdom, deleted flag
+ * and references into a shared char heap for the canonical name, authorship and year.
+ * Each distinct normalized canonical name is interned once and points to the int range of its usage slots,
+ * found via an open addressing hash table. Matching therefore only touches primitive columns
+ * and materializes a LookupUsage for the final hit.
+ * <p>
+ * The file is written in one streaming pass when loading and is read only afterwards.
+ * Loading a second time is not supported.
+ */
+public class IdLookupMmap implements IdLookup {
+  private static final Logger LOG = LoggerFactory.getLogger(IdLookupMmap.class);
+
+  private static final int MAGIC = 0x49444c4b; // IDLK
+  private static final int VERSION = 1;
+  private static final int HEADER_INTS = 10;
+  private static final Rank[] RANKS = Rank.values();
+  private static final Kingdom[] KINGDOMS = Kingdom.values();
+
+  private final File file;
+  private final boolean temp;
+  private final AuthorComparator authComp;
+  // reusable per thread buffer for filtering candidate slots
+  private final ThreadLocal<IntArrayList> candidates = ThreadLocal.withInitial(IntArrayList::new);
+
+  // mapped columns
+  private ByteBuffer data;
+  private CharBuffer heap;
+  // normalized authorship per slot, shared between slots with identical authorship
+  private NormalizedAuthorship[] authorships;
+  private int slots;
+  private int canonicals;
+  private int tableSize;
+  private int ppPairs;
+  private int keyMax;
+  private int deleted;
+  // column offsets in bytes
+  private int offKeys;
+  private int offCanon;
+  private int offAuthor;
+  private int offYear;
+  private int offPpStart;
+  private int offPp;
+  private int offNorm;
+  private int offHash;
+  private int offSlotStart;
+  private int offSlots;
+  private int offTable;
+  private int offRank;
+  private int offKingdom;
+  private int offDeleted;
+
+  /**
+   * Creates a new lookup backed by a temporary file which gets removed when the lookup is closed.
+   */
+  public static IdLookupMmap temp() {
+    try {
+      File f = File.createTempFile("idlookup-", ".bin");
+      f.deleteOnExit();
+      return new IdLookupMmap(f, true);
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to create temporary id lookup file", e);
+    }
+  }
+
+  /**
+   * Creates or opens a persistent lookup file.
+   * If the file exists already it is mapped straight away and cannot be loaded again.
+   */
+  public static IdLookupMmap persistent(File file) {
+    IdLookupMmap l = new IdLookupMmap(file, false);
+    if (file.exists() && file.length() > 0) {
+      try {
+        l.open();
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to open id lookup file " + file, e);
+      }
+    }
+    return l;
+  }
+
+  private IdLookupMmap(File file, boolean temp) {
+    this.file = file;
+    this.temp = temp;
+    authComp = AuthorComparator.createWithAuthormap();
+  }
+
+  /**
+   * Loads idlookup with explicit list of known ids.
+   */
+  public IdLookupMmap load(Iterable<LookupUsage> usages) throws IOException {
+    try (Builder b = new Builder()) {
+      for (LookupUsage u : usages) {
+        b.add(u);
+      }
+      b.write();
+    }
+    open();
+    LOG.info("Use {} existing nub with max key {} into id lookup", slots, keyMax);
+    return this;
+  }
+
+  /**
+   * Loads known usages from checklistbank backbone.
+   */
+  public IdLookupMmap load(ClbConfiguration clb, boolean includeDeleted) throws SQLException, IOException {
+    try (Builder b = new Builder()) {
+      IdLookupImpl.read(clb, includeDeleted, b::add);
+      b.write();
+    }
+    open();
+    LOG.info("Loaded existing nub with {} usages, {} distinct canonical names and max key {} into id lookup",
+        slots, canonicals, keyMax);
+    return this;
+  }
+
+  private void open() throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      FileChannel ch = raf.getChannel();
+      ByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_INTS * 4);
+      if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+        throw new IOException("Unsupported id lookup file format in " + file);
+      }
+      slots = header.getInt(8);
+      canonicals = header.getInt(12);
+      tableSize = header.getInt(16);
+      ppPairs = header.getInt(20);
+      keyMax = header.getInt(24);
+      deleted = header.getInt(28);
+      final int heapChars = header.getInt(32);
+
+      Layout lay = new Layout(slots, canonicals, tableSize, ppPairs);
+      offKeys = lay.keys;
+      offCanon = lay.canon;
+      offAuthor = lay.author;
+      offYear = lay.year;
+      offPpStart = lay.ppStart;
+      offPp = lay.pp;
+      offNorm = lay.norm;
+      offHash = lay.hash;
+      offSlotStart = lay.slotStart;
+      offSlots = lay.slots;
+      offTable = lay.table;
+      offRank = lay.rank;
+      offKingdom = lay.kingdom;
+      offDeleted = lay.deleted;
+      data = ch.map(FileChannel.MapMode.READ_ONLY, 0, lay.size);
+      heap = ch.map(FileChannel.MapMode.READ_ONLY, lay.size, heapChars * 2L).asCharBuffer();
+    }
+    prepareAuthorships();
+  }
+
+  /**
+   * Normalizes the authorship of all slots once so matching does not need to touch the string heap.
+   */
+  private void prepareAuthorships() {
+    final NormalizedAuthorship empty = authComp.prepare(null, null);
+    final Map<String, NormalizedAuthorship> distinct = Maps.newHashMap();
+    authorships = new NormalizedAuthorship[slots];
+    for (int slot = 0; slot < slots; slot++) {
+      final String author = string(data.getInt(offAuthor + slot * 4));
+      final String year = string(data.getInt(offYear + slot * 4));
+      if (author == null && year == null) {
+        authorships[slot] = empty;
+      } else {
+        authorships[slot] = distinct.computeIfAbsent(Strings.nullToEmpty(author) + '\u0000' + Strings.nullToEmpty(year), k -> authComp.prepare(author, year));
+      }
+    }
+    LOG.info("Prepared {} distinct authorships for {} usages", distinct.size(), slots);
+  }
+
+  private void checkOpen() {
+    Preconditions.checkState(data != null, "Id lookup is not loaded");
+  }
+
+  @Override
+  public void close() throws Exception {
+    data = null;
+    heap = null;
+    authorships = null;
+    if (temp) {
+      FileUtils.deleteQuietly(file);
+    }
+  }
+
+  /**
+   * @return the largest usage key existing in the backbone
+   */
+  public int getKeyMax() {
+    return keyMax;
+  }
+
+  @Override
+  public AuthorComparator getAuthorComparator() {
+    return authComp;
+  }
+
+  @Override
+  public LookupUsage match(String canonicalName, Rank rank, Kingdom kingdom) {
+    return match(canonicalName, null, null, rank, kingdom);
+  }
+
+  @Override
+  public List<LookupUsage> match(String canonicalName) {
+    List<LookupUsage> hits = Lists.newArrayList();
+    final int cid = canonicalId(IdLookupImpl.norm(canonicalName));
+    if (cid >= 0) {
+      final int end = slotEnd(cid);
+      for (int i = slotStart(cid); i < end; i++) {
+        hits.add(usage(data.getInt(offSlots + i * 4)));
+      }
+    }
+    return hits;
+  }
+
+  @Override
+  public LookupUsage match(final String canonicalName, @Nullable String authorship, @Nullable String year, Rank rank, Kingdom kingdom) {
+    final int cid = canonicalId(IdLookupImpl.norm(canonicalName));
+    if (cid < 0) return null;
+
+    final boolean compareAuthorship = authorship != null || year != null;
+    final NormalizedAuthorship query = compareAuthorship ? authComp.prepare(authorship, year) : null;
+    // filter by rank, kingdom & authorship
+    final IntArrayList hits = candidates.get();
+    hits.clear();
+    final int end = slotEnd(cid);
+    for (int i = slotStart(cid); i < end; i++) {
+      final int slot = data.getInt(offSlots + i * 4);
+      // allow uncertain kingdoms and ranks to match
+      if (rank != null && !RankUtils.match(rank, rank(slot)) || kingdom != null && !KingdomUtils.match(kingdom, kingdom(slot))) {
+        continue;
+      }
+      if (compareAuthorship) {
+        // authorship comparison was requested!
+        Equality eq = authComp.compareRecombination(query, authorships[slot]);
+        if (eq == Equality.DIFFERENT) {
+          continue;
+        }
+      }
+      hits.add(slot);
+    }
+
+    // if no authorship was requested and we got 1 result, a hit!
+    if (hits.size() == 1) {
+      return usage(hits.getInt(0));
+
+    } else if (hits.size() > 1) {
+      // try a very exact match first to see if we only get 1 hit
+      int exact = exactMatch(canonicalName, authorship, year, hits);
+      if (exact >= 0) {
+        LOG.debug("{} matches, but only 1 exact match {} for {} {} {} {} {}", hits.size(), key(exact), kingdom, rank, canonicalName, authorship, year);
+        return usage(exact);
+      }
+
+      // Still several matches
+      // If we ever had too many bad usages they might block forever a stable id.
+      // If only one current id is matched use that!
+      int curr = -1;
+      int currCounter = 0;
+      for (int i = 0; i < hits.size(); i++) {
+        final int slot = hits.getInt(i);
+        if (!isDeleted(slot)) {
+          currCounter++;
+          curr = slot;
+        }
+      }
+      if (currCounter == 1) {
+        LOG.debug("{} matches, but only 1 current usage {} for {} {} {} {} {}", hits.size(), key(curr), kingdom, rank, canonicalName, authorship, year);
+        return usage(curr);
+
+      } else if (rank != Rank.UNRANKED && kingdom != Kingdom.INCERTAE_SEDIS) {
+        // if requested rank & kingdom was clear, use usage with lowest key
+        for (int i = 0; i < hits.size(); i++) {
+          final int slot = hits.getInt(i);
+          if (curr < 0 || key(curr) > key(slot)) {
+            curr = slot;
+          }
+        }
+        LOG.debug("Use lowest usage key {} for ambiguous match with {} hits for {} {} {} {} {}", key(curr), hits.size(), kingdom, rank, canonicalName, authorship, year);
+        return usage(curr);
+      }
+    }
+    LOG.debug("No match ({} hits) for {} {} {} {} {}", hits.size(), kingdom, rank, canonicalName, authorship, year);
+    return null;
+  }
+
+  /**
+   * Checks candidates for a single unambigous exact match
+   * @return the matching slot or -1
+   */
+  private int exactMatch(String canonicalName, String authorship, String year, IntArrayList candidates) {
+    int match = -1;
+    for (int i = 0; i < candidates.size(); i++) {
+      final int slot = candidates.getInt(i);
+      if (stringEquals(data.getInt(offCanon + slot * 4), canonicalName)
+          && stringEquals(data.getInt(offAuthor + slot * 4), authorship)
+          && stringEquals(data.getInt(offYear + slot * 4), year)) {
+        // did we have a match already?
+        if (match >= 0) {
+          return -1;
+        }
+        // no, keep it
+        match = slot;
+      }
+    }
+    return match;
+  }
+
+  /**
+   * @return the interned id of the normalized canonical name or -1 if not existing
+   */
+  private int canonicalId(String norm) {
+    checkOpen();
+    if (norm == null || canonicals == 0) return -1;
+    final int h = norm.hashCode();
+    final int mask = tableSize - 1;
+    int idx = HashCommon.mix(h) & mask;
+    int entry;
+    while ((entry = data.getInt(offTable + idx * 4)) != 0) {
+      final int cid = entry - 1;
+      if (data.getInt(offHash + cid * 4) == h && stringEquals(data.getInt(offNorm + cid * 4), norm)) {
+        return cid;
+      }
+      idx = (idx + 1) & mask;
+    }
+    return -1;
+  }
+
+  private int slotStart(int cid) {
+    return data.getInt(offSlotStart + cid * 4);
+  }
+
+  private int slotEnd(int cid) {
+    return data.getInt(offSlotStart + (cid + 1) * 4);
+  }
+
+  private int key(int slot) {
+    return data.getInt(offKeys + slot * 4);
+  }
+
+  private Rank rank(int slot) {
+    byte r = data.get(offRank + slot);
+    return r < 0 ? null : RANKS[r];
+  }
+
+  private Kingdom kingdom(int slot) {
+    byte k = data.get(offKingdom + slot);
+    return k < 0 ? null : KINGDOMS[k];
+  }
+
+  private boolean isDeleted(int slot) {
+    return data.get(offDeleted + slot) != 0;
+  }
+
+  /**
+   * Compares a string on the heap with a java string without copying it.
+   */
+  private boolean stringEquals(int ref, @Nullable String x) {
+    if (ref < 0 || x == null) {
+      return ref < 0 && x == null;
+    }
+    final int len = stringLength(ref);
+    if (len != x.length()) {
+      return false;
+    }
+    for (int i = 0; i < len; i++) {
+      if (heap.get(ref + 2 + i) != x.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int stringLength(int ref) {
+    return heap.get(ref) << 16 | heap.get(ref + 1);
+  }
+
+  private String string(int ref) {
+    if (ref < 0) return null;
+    final int len = stringLength(ref);
+    char[] chars = new char[len];
+    for (int i = 0; i < len; i++) {
+      chars[i] = heap.get(ref + 2 + i);
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Materializes the usage at the given slot.
+   */
+  private LookupUsage usage(int slot) {
+    Int2IntMap pp = null;
+    final int ppStart = data.getInt(offPpStart + slot * 4);
+    final int ppEnd = data.getInt(offPpStart + (slot + 1) * 4);
+    if (ppEnd > ppStart) {
+      pp = new Int2IntOpenHashMap(ppEnd - ppStart);
+      for (int i = ppStart; i < ppEnd; i++) {
+        pp.put(data.getInt(offPp + i * 8), data.getInt(offPp + i * 8 + 4));
+      }
+    }
+    return new LookupUsage(key(slot), pp,
+        string(data.getInt(offCanon + slot * 4)),
+        string(data.getInt(offAuthor + slot * 4)),
+        string(data.getInt(offYear + slot * 4)),
+        rank(slot), kingdom(slot), isDeleted(slot)
+    );
+  }
+
+  /**
+   * @return the number of known usage keys incl deleted ones
+   */
+  @Override
+  public int size() {
+    return slots;
+  }
+
+  /**
+   * @return the number of usage keys known which belong to deleted usages.
+   */
+  @Override
+  public int deletedIds() {
+    return deleted;
+  }
+
+  @Override
+  public Iterator<LookupUsage> iterator() {
+    checkOpen();
+    return new Iterator<LookupUsage>() {
+      private int slot = 0;
+
+      @Override
+      public boolean hasNext() {
+        return slot < slots;
+      }
+
+      @Override
+      public LookupUsage next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return usage(slot++);
+      }
+    };
+  }
+
+  @Override
+  public Spliterator<LookupUsage> spliterator() {
+    return Spliterators.spliterator(iterator(), slots, Spliterator.SIZED);
+  }
+
+  /**
+   * Byte offsets of all columns in the mapped data section, derived from the counts in the header.
+   * All int columns come first, followed by the byte columns. The char heap follows the data section.
+   */
+  private static class Layout {
+    final int keys;
+    final int canon;
+    final int author;
+    final int year;
+    final int ppStart;
+    final int pp;
+    final int norm;
+    final int hash;
+    final int slotStart;
+    final int slots;
+    final int table;
+    final int rank;
+    final int kingdom;
+    final int deleted;
+    final long size;
+
+    Layout(int n, int c, int tableSize, int ppPairs) {
+      long off = HEADER_INTS * 4;
+      keys = (int) off;
+      off += 4L * n;
+      canon = (int) off;
+      off += 4L * n;
+      author = (int) off;
+      off += 4L * n;
+      year = (int) off;
+      off += 4L * n;
+      ppStart = (int) off;
+      off += 4L * (n + 1);
+      pp = (int) off;
+      off += 8L * ppPairs;
+      norm = (int) off;
+      off += 4L * c;
+      hash = (int) off;
+      off += 4L * c;
+      slotStart = (int) off;
+      off += 4L * (c + 1);
+      slots = (int) off;
+      off += 4L * n;
+      table = (int) off;
+      off += 4L * tableSize;
+      rank = (int) off;
+      off += n;
+      kingdom = (int) off;
+      off += n;
+      deleted = (int) off;
+      off += n;
+      if (off > Integer.MAX_VALUE) {
+        throw new IllegalStateException("Id lookup with " + n + " usages exceeds the maximum mappable size");
+      }
+      size = off;
+    }
+  }
+
+  /**
+   * Collects usages in primitive columns and streams all strings into a temporary char heap file.
+   * The normalized canonical names are interned in memory while building only.
+   */
+  private class Builder implements AutoCloseable {
+    private final File heapFile;
+    private final DataOutputStream heapOut;
+    private int heapChars = 0;
+    private final IntArrayList keys = new IntArrayList();
+    private final IntArrayList canon = new IntArrayList();
+    private final IntArrayList author = new IntArrayList();
+    private final IntArrayList year = new IntArrayList();
+    private final IntArrayList ppStart = IntArrayList.wrap(new int[]{0}, 1);
+    private final IntArrayList pp = new IntArrayList();
+    private final IntArrayList slotCanonical = new IntArrayList();
+    private final ByteArrayList ranks = new ByteArrayList();
+    private final ByteArrayList kingdoms = new ByteArrayList();
+    private final ByteArrayList deletedFlags = new ByteArrayList();
+    private final Object2IntOpenHashMap<String> canonicalIds = new Object2IntOpenHashMap<>();
+    private final ObjectArrayList<String> norms = new ObjectArrayList<>();
+    private int keyMax = 0;
+    private int deleted = 0;
+
+    Builder() throws IOException {
+      Preconditions.checkState(data == null, "Id lookup is already loaded");
+      canonicalIds.defaultReturnValue(-1);
+      heapFile = new File(file.getParentFile(), file.getName() + ".heap");
+      heapOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(heapFile), 64 * 1024));
+    }
+
+    void add(LookupUsage u) {
+      String norm = IdLookupImpl.norm(u.getCanonical());
+      if (norm == null) {
+        LOG.warn("Missing canonical name for {} usage {}", u.getKingdom(), u.getKey());
+        return;
+      }
+      int cid = canonicalIds.getInt(norm);
+      if (cid < 0) {
+        cid = norms.size();
+        canonicalIds.put(norm, cid);
+        norms.add(norm);
+      }
+      slotCanonical.add(cid);
+      keys.add(u.getKey());
+      ranks.add(u.getRank() == null ? -1 : (byte) u.getRank().ordinal());
+      kingdoms.add(u.getKingdom() == null ? -1 : (byte) u.getKingdom().ordinal());
+      deletedFlags.add(u.isDeleted() ? (byte) 1 : (byte) 0);
+      canon.add(writeString(u.getCanonical()));
+      author.add(writeString(u.getAuthorship()));
+      year.add(writeString(u.getYear()));
+      if (u.getProParteKeys() != null) {
+        for (Int2IntMap.Entry e : u.getProParteKeys().int2IntEntrySet()) {
+          pp.add(e.getIntKey());
+          pp.add(e.getIntValue());
+        }
+      }
+      ppStart.add(pp.size() / 2);
+      if (u.isDeleted()) {
+        deleted++;
+      }
+      keyMax = Math.max(keyMax, u.getMaxKey());
+    }
+
+    /**
+     * Appends a length prefixed string to the heap.
+     * @return the char offset of the string in the heap or -1 for null
+     */
+    private int writeString(String x) {
+      if (x == null) return -1;
+      if ((long) heapChars + x.length() + 2 > Integer.MAX_VALUE / 2) {
+        throw new IllegalStateException("Id lookup string heap exceeds the maximum mappable size");
+      }
+      try {
+        final int ref = heapChars;
+        heapOut.writeChar(x.length() >>> 16);
+        heapOut.writeChar(x.length() & 0xFFFF);
+        heapOut.writeChars(x);
+        heapChars += x.length() + 2;
+        return ref;
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to write id lookup string heap", e);
+      }
+    }
+
+    /**
+     * Writes the final lookup file: header, columns, canonical index and the string heap.
+     */
+    void write() throws IOException {
+      final int n = keys.size();
+      final int c = norms.size();
+
+      // group slots by canonical name with a counting sort, keeping insertion order within a group
+      int[] slotStart = new int[c + 1];
+      for (int i = 0; i < n; i++) {
+        slotStart[slotCanonical.getInt(i) + 1]++;
+      }
+      for (int i = 0; i < c; i++) {
+        slotStart[i + 1] += slotStart[i];
+      }
+      int[] fill = slotStart.clone();
+      int[] slots = new int[n];
+      for (int i = 0; i < n; i++) {
+        slots[fill[slotCanonical.getInt(i)]++] = i;
+      }
+
+      // interned canonical names and their hash table
+      int[] normRefs = new int[c];
+      int[] hashes = new int[c];
+      final int tableSize = HashCommon.arraySize(Math.max(c, 1), 0.5f);
+      final int mask = tableSize - 1;
+      int[] table = new int[tableSize];
+      for (int cid = 0; cid < c; cid++) {
+        final String norm = norms.get(cid);
+        normRefs[cid] = writeString(norm);
+        hashes[cid] = norm.hashCode();
+        int idx = HashCommon.mix(hashes[cid]) & mask;
+        while (table[idx] != 0) {
+          idx = (idx + 1) & mask;
+        }
+        table[idx] = cid + 1;
+      }
+      heapOut.close();
+
+      final int ppPairs = pp.size() / 2;
+      Layout lay = new Layout(n, c, tableSize, ppPairs);
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024))) {
+        // header
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(n);
+        out.writeInt(c);
+        out.writeInt(tableSize);
+        out.writeInt(ppPairs);
+        out.writeInt(keyMax);
+        out.writeInt(deleted);
+        out.writeInt(heapChars);
+        out.writeInt(0);
+        // int columns in layout order
+        writeInts(out, keys.elements(), n);
+        writeInts(out, canon.elements(), n);
+        writeInts(out, author.elements(), n);
+        writeInts(out, year.elements(), n);
+        writeInts(out, ppStart.elements(), n + 1);
+        writeInts(out, pp.elements(), pp.size());
+        writeInts(out, normRefs, c);
+        writeInts(out, hashes, c);
+        writeInts(out, slotStart, c + 1);
+        writeInts(out, slots, n);
+        writeInts(out, table, tableSize);
+        // byte columns
+        out.write(ranks.elements(), 0, n);
+        out.write(kingdoms.elements(), 0, n);
+        out.write(deletedFlags.elements(), 0, n);
+        if (out.size() != lay.size) {
+          throw new IllegalStateException("Id lookup layout mismatch, wrote " + out.size() + " bytes instead of " + lay.size);
+        }
+      }
+
+      // append the string heap
+      try (FileChannel src = new RandomAccessFile(heapFile, "r").getChannel();
+           FileChannel dst = new RandomAccessFile(file, "rw").getChannel()) {
+        long pos = 0;
+        final long size = src.size();
+        while (pos < size) {
+          pos += src.transferTo(pos, size - pos, dst.position(lay.size + pos));
+        }
+      }
+      LOG.debug("Written id lookup with {} usages and {} canonical names to {}", n, c, file);
+    }
+
+    private void writeInts(DataOutputStream out, int[] values, int size) throws IOException {
+      for (int i = 0; i < size; i++) {
+        out.writeInt(values[i]);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      heapOut.close();
+      FileUtils.deleteQuietly(heapFile);
+    }
+  }
+}
@@ -0,0 +1,239 @@
+package org.gbif.nub.lookup.straight;
+
+import org.gbif.api.model.Constants;
+import org.gbif.checklistbank.config.ClbConfiguration;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Manages persistent {@link IdLookupMmap} files of the backbone in a shared directory,
+ * so all cli services on a machine can map the same read only lookup instead of loading the backbone
+ * from postgres each time they start.
+ * <p>
+ * Snapshot files are keyed by the backbone version, i.e. the creation time of the latest nub dataset metrics
+ * and the last interpretation time of all current nub usages.
+ * A new snapshot is written to a temporary file and moved into place atomically,
+ * older snapshots of the same flavour are removed afterwards.
+ * Processes still mapping a removed file keep reading it until they switch to the new snapshot.
+ */
+public class IdLookupSnapshot {
+  private static final Logger LOG = LoggerFactory.getLogger(IdLookupSnapshot.class);
+  private static final Pattern FILENAME = Pattern.compile("^idlookup-(all|current)-(\\d+)-(\\d+)\\.bin$");
+
+  private final File dir;
+  private final boolean includeDeleted;
+
+  /**
+   * The backbone version a snapshot was built from.
+   */
+  public static class Version implements Comparable<Version> {
+    public final long build;
+    public final long modified;
+
+    public Version(long build, long modified) {
+      this.build = build;
+      this.modified = modified;
+    }
+
+    @Override
+    public int compareTo(Version o) {
+      int c = Long.compare(build, o.build);
+      return c != 0 ? c : Long.compare(modified, o.modified);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      Version version = (Version) o;
+      return build == version.build && modified == version.modified;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(build, modified);
+    }
+
+    @Override
+    public String toString() {
+      return build + "-" + modified;
+    }
+  }
+
+  /**
+   * Loads the lookup into a freshly created snapshot file.
+   */
+  @FunctionalInterface
+  interface Loader {
+    void load(IdLookupMmap lookup) throws SQLException, IOException;
+  }
+
+  /**
+   * @param dir            directory shared by all processes using the snapshots
+   * @param includeDeleted if true snapshots also contain deleted usages
+   */
+  public IdLookupSnapshot(File dir, boolean includeDeleted) {
+    this.dir = dir;
+    this.includeDeleted = includeDeleted;
+  }
+
+  private String flavour() {
+    return includeDeleted ? "all" : "current";
+  }
+
+  /**
+   * @return the snapshot file for the given backbone version, existing or not
+   */
+  public File file(Version v) {
+    return new File(dir, "idlookup-" + flavour() + "-" + v + ".bin");
+  }
+
+  /**
+   * Reads the current backbone version from checklistbank.
+   */
+  public static Version currentVersion(ClbConfiguration clb) throws SQLException {
+    try (Connection c = clb.connect();
+         Statement st = c.createStatement()) {
+      long build = 0;
+      long modified = 0;
+      try (ResultSet rs = st.executeQuery("SELECT created FROM dataset_metrics"
+          + " WHERE dataset_key = '" + Constants.NUB_DATASET_KEY + "' AND latest")) {
+        if (rs.next()) {
+          build = millis(rs.getTimestamp(1));
+        }
+      }
+      try (ResultSet rs = st.executeQuery("SELECT max(last_interpreted) FROM name_usage"
+          + " WHERE dataset_key = '" + Constants.NUB_DATASET_KEY + "' AND deleted IS NULL")) {
+        if (rs.next()) {
+          modified = millis(rs.getTimestamp(1));
+        }
+      }
+      return new Version(build, modified);
+    }
+  }
+
+  private static long millis(@Nullable Timestamp ts) {
+    return ts == null ? 0 : ts.getTime();
+  }
+
+  /**
+   * @return the newest existing snapshot file or null if there is none
+   */
+  @Nullable
+  public File latest() {
+    File latest = null;
+    Version latestVersion = null;
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File f : files) {
+        Version v = version(f);
+        if (v != null && (latestVersion == null || v.compareTo(latestVersion) > 0)) {
+          latest = f;
+          latestVersion = v;
+        }
+      }
+    }
+    return latest;
+  }
+
+  /**
+   * @return the version of a snapshot file of this flavour or null if the file is no snapshot of it
+   */
+  @Nullable
+  private Version version(File f) {
+    Matcher m = FILENAME.matcher(f.getName());
+    if (m.find() && m.group(1).equals(flavour())) {
+      return new Version(Long.parseLong(m.group(2)), Long.parseLong(m.group(3)));
+    }
+    return null;
+  }
+
+  /**
+   * Makes sure a snapshot of the current backbone version exists, building it from postgres if needed.
+   *
+   * @return the snapshot file of the current backbone
+   */
+  public File update(ClbConfiguration clb) throws SQLException, IOException {
+    return write(currentVersion(clb), l -> l.load(clb, includeDeleted));
+  }
+
+  /**
+   * Writes a new snapshot for the given version unless it exists already and removes all older ones.
+   */
+  File write(Version v, Loader loader) throws SQLException, IOException {
+    final File f = file(v);
+    if (f.exists()) {
+      LOG.debug("Id lookup snapshot {} exists already", f);
+      return f;
+    }
+    FileUtils.forceMkdir(dir);
+    File tmp = File.createTempFile(f.getName(), ".tmp", dir);
+    try {
+      IdLookupMmap lookup = IdLookupMmap.persistent(tmp);
+      loader.load(lookup);
+      LOG.info("Built id lookup snapshot {} with {} usages", f.getName(), lookup.size());
+      Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      FileUtils.deleteQuietly(tmp);
+    }
+    removeOlder(v);
+    return f;
+  }
+
+  private void removeOlder(Version v) {
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File f : files) {
+        Version fv = version(f);
+        if (fv != null && fv.compareTo(v) < 0) {
+          LOG.info("Remove outdated id lookup snapshot {}", f.getName());
+          FileUtils.deleteQuietly(f);
+        }
+      }
+    }
+  }
+
+  /**
+   * Maps the newest existing snapshot read only.
+   *
+   * @throws FileNotFoundException if no snapshot exists yet
+   */
+  public IdLookupMmap open() throws IOException {
+    File f = latest();
+    if (f == null) {
+      throw new FileNotFoundException("No id lookup snapshot existing in " + dir);
+    }
+    return open(f);
+  }
+
+  /**
+   * Maps the snapshot of the current backbone version read only, building it first if it does not exist yet.
+   */
+  public IdLookupMmap open(ClbConfiguration clb) throws SQLException, IOException {
+    return open(update(clb));
+  }
+
+  private static IdLookupMmap open(File f) {
+    Preconditions.checkArgument(f.exists(), "Id lookup snapshot " + f + " not existing");
+    LOG.info("Open id lookup snapshot {}", f);
+    return IdLookupMmap.persistent(f);
+  }
+}
@@ -1,6 +1,5 @@
 package org.gbif.nub.mapdb;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 import com.esotericsoftware.kryo.Kryo;
@@ -17,12 +16,18 @@ import org.mapdb.serializer.GroupSerializerObjectArray;
 
 /**
  * A mapDB serializer that uses kryo under the hood to quickly serialize objects into the mapdb data output/input.
+ * Kryo writes into a per thread buffer which is copied once into the mapdb output.
+ * Reads from byte array backed mapdb inputs are done in place, all other inputs are copied into a per thread buffer.
  * @param <T> the class to serialize
  */
 public class MapDbObjectSerializer<T> extends GroupSerializerObjectArray<T> {
     private final KryoPool pool;
     private final int bufferSize;
     private final Class<T> clazz;
+    private static final byte[] EMPTY = new byte[0];
+    private final ThreadLocal<Output> outputs;
+    private final ThreadLocal<Input> inputs = ThreadLocal.withInitial(Input::new);
+    private final ThreadLocal<byte[][]> readBuffers = ThreadLocal.withInitial(() -> new byte[1][0]);
 
   public MapDbObjectSerializer(Class<T> clazz, KryoFactory kryoFactory) {
     this(clazz, new KryoPool.Builder(kryoFactory).softReferences().build(), 256);
@@ -32,19 +37,18 @@ public class MapDbObjectSerializer<T> extends GroupSerializerObjectArray<T> {
         this.pool = pool;
         this.clazz = clazz;
         this.bufferSize = bufferSize;
+        this.outputs = ThreadLocal.withInitial(() -> new Output(bufferSize, -1));
     }
 
   @Override
   public void serialize(@NotNull DataOutput2 out, @NotNull T value) throws IOException {
     Kryo kryo = pool.borrow();
     try {
-      ByteArrayOutputStream buffer = new ByteArrayOutputStream(bufferSize);
-      Output output = new Output(buffer, bufferSize);
+      Output output = outputs.get();
+      output.clear();
       kryo.writeObject(output, value);
-      output.close();
-      byte[] bytes = buffer.toByteArray();
-      DataIO.packInt(out, bytes.length);
-      out.write(bytes);
+      DataIO.packInt(out, output.position());
+      out.write(output.getBuffer(), 0, output.position());
     } finally {
       pool.release(kryo);
     }
@@ -54,12 +58,27 @@ public class MapDbObjectSerializer<T> extends GroupSerializerObjectArray<T> {
   public T deserialize(@NotNull DataInput2 in, int available) throws IOException {
     if(available==0) return null;
     Kryo kryo = pool.borrow();
+    Input input = inputs.get();
     try {
       int size = DataIO.unpackInt(in);
-      byte[] ret = new byte[size];
-      in.readFully(ret);
-      return kryo.readObject(new Input(ret), clazz);
+      byte[] internal = in.internalByteArray();
+      if (internal != null) {
+        // read straight from the mapdb byte array
+        int pos = in.getPos();
+        input.setBuffer(internal, pos, size);
+        in.setPos(pos + size);
+      } else {
+        byte[][] holder = readBuffers.get();
+        if (holder[0].length < size) {
+          holder[0] = new byte[Math.max(size, bufferSize)];
+        }
+        in.readFully(holder[0], 0, size);
+        input.setBuffer(holder[0], 0, size);
+      }
+      return kryo.readObject(input, clazz);
     } finally {
+      // dont keep a reference to the mapdb buffer
+      input.setBuffer(EMPTY);
       pool.release(kryo);
     }
   }
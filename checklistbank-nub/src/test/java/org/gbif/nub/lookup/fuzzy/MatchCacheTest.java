@@ -0,0 +1,150 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.RAMDirectory;
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.vocabulary.Rank;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class MatchCacheTest {
+
+  private static NameUsageMatch classification(String kingdom, String family) {
+    NameUsageMatch cl = new NameUsageMatch();
+    cl.setKingdom(kingdom);
+    cl.setFamily(family);
+    return cl;
+  }
+
+  @Test
+  public void testKey() throws Exception {
+    NameUsageMatch cl = classification("Plantae", "Pinaceae");
+    MatchCache.Key k = MatchCache.key("Abies alba", Rank.SPECIES, cl, false, false);
+    assertEquals(k, MatchCache.key(" Abies   alba ", Rank.SPECIES, cl, false, false));
+    assertEquals(k.hashCode(), MatchCache.key("Abies  alba", Rank.SPECIES, cl, false, false).hashCode());
+
+    assertNotEquals(k, MatchCache.key("Abies alba", null, cl, false, false));
+    assertNotEquals(k, MatchCache.key("Abies alba", Rank.SPECIES, cl, true, false));
+    assertNotEquals(k, MatchCache.key("Abies alba", Rank.SPECIES, cl, false, true));
+    assertNotEquals(k, MatchCache.key("Abies alba", Rank.SPECIES, classification("Plantae", null), false, false));
+    assertNotEquals(k, MatchCache.key("Abies alba", Rank.SPECIES, classification("Animalia", "Pinaceae"), false, false));
+  }
+
+  @Test
+  public void testCache() throws Exception {
+    MatchCache cache = new MatchCache(2, 0);
+    MetricRegistry registry = new MetricRegistry();
+    cache.registerMetrics(registry, "match");
+
+    NameUsageMatch cl = new NameUsageMatch();
+    MatchCache.Key k1 = MatchCache.key("Abies", null, cl, false, false);
+    MatchCache.Key k2 = MatchCache.key("Picea", null, cl, false, false);
+    MatchCache.Key k3 = MatchCache.key("Pinus", null, cl, false, false);
+
+    assertNull(cache.get(k1));
+    NameUsageMatch m = new NameUsageMatch();
+    cache.put(k1, m, cache.generation());
+    assertSame(m, cache.get(k1));
+    cache.put(k2, new NameUsageMatch(), cache.generation());
+    cache.put(k3, new NameUsageMatch(), cache.generation());
+
+    assertEquals(2L, cache.size());
+    assertEquals(1L, gauge(registry, "match.hits"));
+    assertEquals(1L, gauge(registry, "match.misses"));
+    assertEquals(1L, gauge(registry, "match.evictions"));
+    assertEquals(2L, gauge(registry, "match.size"));
+    assertEquals(0.5d, gauge(registry, "match.hitRate"));
+
+    cache.invalidateAll();
+    assertEquals(0L, cache.size());
+    assertNull(cache.get(k3));
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    MatchCache cache = MatchCache.disabled();
+    assertFalse(cache.isEnabled());
+    MatchCache.Key k = MatchCache.key("Abies", null, new NameUsageMatch(), false, false);
+    cache.put(k, new NameUsageMatch(), cache.generation());
+    assertNull(cache.get(k));
+    assertEquals(0L, cache.size());
+    cache.registerMetrics(new MetricRegistry(), "match");
+  }
+
+  /**
+   * Makes sure the index only notifies its listeners when it has really changed.
+   */
+  @Test
+  public void testIndexReload() throws Exception {
+    RAMDirectory dir = new RAMDirectory();
+    new IndexWriter(dir, new IndexWriterConfig(new KeywordAnalyzer())).close();
+
+    AtomicInteger reloads = new AtomicInteger();
+    try (NubIndex index = new NubIndex(dir);
+         IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(new KeywordAnalyzer()))
+    ) {
+      index.addReloadListener(reloads::incrementAndGet);
+      assertFalse(index.reload());
+      assertEquals(0, reloads.get());
+
+      Document doc = new Document();
+      doc.add(new StringField("canonical", "abies", Field.Store.YES));
+      writer.addDocument(doc);
+      writer.commit();
+      assertTrue(index.reload());
+      assertEquals(1, reloads.get());
+      assertFalse(index.reload());
+      assertEquals(1, reloads.get());
+    }
+  }
+
+  /**
+   * A match computed before the index got reloaded must not be cached afterwards.
+   */
+  @Test
+  public void testReloadBetweenMatchAndPut() throws Exception {
+    RAMDirectory dir = new RAMDirectory();
+    new IndexWriter(dir, new IndexWriterConfig(new KeywordAnalyzer())).close();
+
+    MatchCache cache = new MatchCache(10, 0);
+    MatchCache.Key k = MatchCache.key("Abies", null, new NameUsageMatch(), false, false);
+    try (NubIndex index = new NubIndex(dir);
+         IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(new KeywordAnalyzer()))
+    ) {
+      index.addReloadListener(cache::invalidateAll);
+
+      // the match is computed on the old searcher
+      long generation = cache.generation();
+      NameUsageMatch stale = new NameUsageMatch();
+
+      Document doc = new Document();
+      doc.add(new StringField("canonical", "abies", Field.Store.YES));
+      writer.addDocument(doc);
+      writer.commit();
+      assertTrue(index.reload());
+
+      cache.put(k, stale, generation);
+      assertNull(cache.get(k));
+      assertEquals(0L, cache.size());
+
+      // matches computed after the reload are cached again
+      NameUsageMatch m = new NameUsageMatch();
+      cache.put(k, m, cache.generation());
+      assertSame(m, cache.get(k));
+    }
+  }
+
+  private static Object gauge(MetricRegistry registry, String name) {
+    return ((Gauge) registry.getGauges().get(name)).getValue();
+  }
+}
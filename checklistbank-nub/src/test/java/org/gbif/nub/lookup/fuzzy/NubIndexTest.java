@@ -2,29 +2,62 @@ package org.gbif.nub.lookup.fuzzy;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.common.io.Resources;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.ibatis.session.ResultHandler;
+import org.gbif.api.model.Constants;
 import org.gbif.api.model.checklistbank.NameUsageMatch;
 import org.gbif.api.service.checklistbank.NameParser;
 import org.gbif.api.util.VocabularyUtils;
 import org.gbif.api.vocabulary.Rank;
 import org.gbif.api.vocabulary.TaxonomicStatus;
+import org.gbif.checklistbank.model.ParsedNameUsage;
+import org.gbif.checklistbank.service.mybatis.mapper.NameUsageMapper;
 import org.gbif.nameparser.NameParserGbifV1;
 import org.gbif.utils.file.csv.CSVReader;
 import org.gbif.utils.file.csv.CSVReaderFactory;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Matchers;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class NubIndexTest {
 
   private static NubIndex index;
 
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
   @BeforeClass
   public static void buildMatcher() throws IOException {
     HigherTaxaComparator syn = new HigherTaxaComparator();
@@ -107,4 +140,152 @@ public class NubIndexTest {
     assertTrue(m.isSynonym());
 
   }
+
+  /**
+   * Makes sure the symspell candidates yield the same fuzzy matches as the lucene FuzzyQuery.
+   */
+  @Test
+  public void testSymSpellMode() throws Exception {
+    try (NubIndex idx = NubIndex.newMemoryIndex(readTestNames())) {
+      assertEquals(NubIndex.FuzzyMode.FUZZY_QUERY, idx.getFuzzyMode());
+      List<String> queries = Lists.newArrayList("Abies alba", "abies  alba", "Abbies alba", "abyes alba", " apies  alba",
+          "Abies alllbbbbaaa", "Aebies allba", "Obies alba", "Picea abies", "Piceaa abies", "Abies");
+      List<Set<Integer>> expected = Lists.newArrayList();
+      for (String q : queries) {
+        expected.add(keys(idx.matchByName(q, true, 10)));
+      }
+
+      idx.setFuzzyMode(NubIndex.FuzzyMode.SYMSPELL);
+      for (int i = 0; i < queries.size(); i++) {
+        assertEquals(queries.get(i), expected.get(i), keys(idx.matchByName(queries.get(i), true, 10)));
+      }
+      assertEquals((Integer) 7, idx.matchByName("Abbies alba", true, 2).get(0).getUsageKey());
+      assertTrue(idx.matchByName("Obies alba", true, 2).isEmpty());
+    }
+  }
+
+  private static Set<Integer> keys(List<NameUsageMatch> matches) {
+    Set<Integer> keys = Sets.newHashSet();
+    for (NameUsageMatch m : matches) {
+      keys.add(m.getUsageKey());
+    }
+    return keys;
+  }
+
+  /**
+   * Builds a persistent file index, reopens it and applies an incremental update for a new backbone build.
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testFileIndexUpdate() throws Exception {
+    final ParsedNameUsage abies = usage(1, "Abies Mill.", Rank.GENUS, 1000);
+    final ParsedNameUsage alba = usage(2, "Abies alba Mill.", Rank.SPECIES, 2000);
+    // changes in the next build: alba renamed, abies deleted, a new picea
+    final ParsedNameUsage alba2 = usage(2, "Abies albus Mill.", Rank.SPECIES, 3000);
+    final ParsedNameUsage picea = usage(3, "Picea Link", Rank.GENUS, 3000);
+    final ParsedNameUsage abiesDel = usage(1, "Abies Mill.", Rank.GENUS, 1000);
+    abiesDel.setDeleted(new Date(4000));
+
+    NameUsageMapper mapper = mock(NameUsageMapper.class);
+    doAnswer(invocation -> {
+      handle((ResultHandler<ParsedNameUsage>) invocation.getArguments()[1], abies, alba);
+      return null;
+    }).when(mapper).processDataset(Matchers.eq(Constants.NUB_DATASET_KEY), Matchers.any(ResultHandler.class));
+    doAnswer(invocation -> {
+      handle((ResultHandler<ParsedNameUsage>) invocation.getArguments()[2], alba2, picea, abiesDel);
+      return null;
+    }).when(mapper).processDatasetChanges(Matchers.eq(Constants.NUB_DATASET_KEY), Matchers.eq(new Date(2000)),
+        Matchers.any(ResultHandler.class));
+
+    try (NubIndex idx = NubIndex.newFileIndex(folder.getRoot(), mapper, Constants.NUB_DATASET_KEY, "b1")) {
+      assertEquals("b1", idx.getBuild());
+      assertEquals((Integer) 2, idx.matchByName("Abies alba", false, 2).get(0).getUsageKey());
+    }
+
+    // reopen the same build without touching the database
+    try (NubIndex idx = NubIndex.newFileIndex(folder.getRoot(), mapper, Constants.NUB_DATASET_KEY, "b1")) {
+      assertEquals((Integer) 1, idx.matchByUsageId(1).getUsageKey());
+      verify(mapper, times(1)).processDataset(Matchers.eq(Constants.NUB_DATASET_KEY), Matchers.any(ResultHandler.class));
+      verify(mapper, never()).processDatasetChanges(Matchers.any(), Matchers.any(), Matchers.any(ResultHandler.class));
+
+      // new build
+      final int[] reloads = {0};
+      idx.addReloadListener(() -> reloads[0]++);
+      assertTrue(idx.update(mapper, Constants.NUB_DATASET_KEY, "b2"));
+      assertEquals(1, reloads[0]);
+      assertEquals("b2", idx.getBuild());
+      assertNull(idx.matchByUsageId(1));
+      assertEquals("Abies albus Mill.", idx.matchByUsageId(2).getScientificName());
+      assertEquals((Integer) 3, idx.matchByName("Picea", false, 2).get(0).getUsageKey());
+      assertFalse(idx.update(mapper, Constants.NUB_DATASET_KEY, "b2"));
+    }
+  }
+
+  /**
+   * Reloads the index over and over while other threads keep searching it.
+   * Searches must never run into a reader closed by a reload.
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testReloadWhileSearching() throws Exception {
+    NameUsageMapper mapper = mock(NameUsageMapper.class);
+    doAnswer(invocation -> {
+      handle((ResultHandler<ParsedNameUsage>) invocation.getArguments()[1], usage(1, "Abies alba Mill.", Rank.SPECIES, 1000));
+      return null;
+    }).when(mapper).processDataset(Matchers.eq(Constants.NUB_DATASET_KEY), Matchers.any(ResultHandler.class));
+
+    try (NubIndex idx = NubIndex.newFileIndex(folder.getRoot(), mapper, Constants.NUB_DATASET_KEY, "b1")) {
+      final AtomicBoolean running = new AtomicBoolean(true);
+      final AtomicReference<Throwable> error = new AtomicReference<>();
+      ExecutorService exec = Executors.newFixedThreadPool(4);
+      for (int t = 0; t < 4; t++) {
+        exec.submit(() -> {
+          while (running.get()) {
+            try {
+              assertEquals((Integer) 1, idx.matchByName("Abies alba", true, 2).get(0).getUsageKey());
+            } catch (Throwable e) {
+              error.compareAndSet(null, e);
+            }
+          }
+        });
+      }
+
+      IndexWriterConfig cfg = new IndexWriterConfig(new KeywordAnalyzer());
+      cfg.setOpenMode(IndexWriterConfig.OpenMode.APPEND);
+      try (Directory dir = new MMapDirectory(folder.getRoot().toPath());
+           IndexWriter writer = new IndexWriter(dir, cfg)) {
+        for (int i = 0; i < 50; i++) {
+          Document doc = new Document();
+          doc.add(new StringField("dummy", String.valueOf(i), Field.Store.NO));
+          writer.addDocument(doc);
+          writer.commit();
+          assertTrue(idx.reload());
+        }
+      } finally {
+        running.set(false);
+        exec.shutdown();
+        exec.awaitTermination(1, TimeUnit.MINUTES);
+      }
+      assertNull(error.get());
+    }
+  }
+
+  private static ParsedNameUsage usage(int key, String name, Rank rank, long interpreted) {
+    ParsedNameUsage u = new ParsedNameUsage();
+    u.setKey(key);
+    u.setScientificName(name);
+    u.setRank(rank);
+    u.setTaxonomicStatus(TaxonomicStatus.ACCEPTED);
+    u.setLastInterpreted(new Date(interpreted));
+    return u;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void handle(ResultHandler<ParsedNameUsage> handler, ParsedNameUsage... usages) {
+    for (ParsedNameUsage u : usages) {
+      ResultContext<ParsedNameUsage> ctx = mock(ResultContext.class);
+      when(ctx.getResultObject()).thenReturn(u);
+      handler.handleResult(ctx);
+    }
+  }
 }
@@ -0,0 +1,50 @@
+package org.gbif.nub.lookup.fuzzy;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SymSpellIndexTest {
+
+  @Test
+  public void testLookup() throws Exception {
+    SymSpellIndex idx = new SymSpellIndex(Lists.newArrayList("abies", "abies alba", "abies albus", "abiesalba",
+        "picea abies", "puma concolor"), 2, 7);
+    assertEquals(6, idx.size());
+
+    List<SymSpellIndex.Candidate> cands = idx.lookup("abies alba", 2);
+    assertEquals(3, cands.size());
+    assertEquals("abies alba", cands.get(0).name);
+    assertEquals(0, cands.get(0).distance);
+    assertEquals("abiesalba", cands.get(1).name);
+    assertEquals(1, cands.get(1).distance);
+    assertEquals("abies albus", cands.get(2).name);
+
+    // transposition and edits beyond the prefix
+    assertEquals("abies alba", idx.lookup("abeis alba", 1).get(0).name);
+    assertEquals("puma concolor", idx.lookup("puma concolr", 1).get(0).name);
+    assertEquals(1, idx.lookup("abies albaa", 1).size());
+
+    // the first character is never edited
+    assertTrue(idx.lookup("obies alba", 2).isEmpty());
+    assertTrue(idx.lookup("", 2).isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMaxEdits() throws Exception {
+    new SymSpellIndex(Lists.newArrayList("abies"), 1, 7).lookup("abies", 2);
+  }
+
+  @Test
+  public void testDistance() throws Exception {
+    assertEquals(0, SymSpellIndex.distance("abies", "abies", 2));
+    assertEquals(1, SymSpellIndex.distance("abies", "abeis", 2));
+    assertEquals(1, SymSpellIndex.distance("abies", "abie", 2));
+    assertEquals(2, SymSpellIndex.distance("abies", "obiea", 2));
+    assertEquals(3, SymSpellIndex.distance("abies", "picea", 2));
+  }
+}
@@ -0,0 +1,48 @@
+package org.gbif.nub.lookup.similarity;
+
+import com.google.common.base.Strings;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ModifiedDamerauLevenshteinTest {
+
+  private final ModifiedDamerauLevenshtein mdl = new ModifiedDamerauLevenshtein(2);
+
+  @Test
+  public void testEditDistance() throws Exception {
+    assertEquals(0, mdl.getEditDistance("Abies", "Abies"));
+    assertEquals(1, mdl.getEditDistance("Abies", "Apies"));
+    assertEquals(1, mdl.getEditDistance("Abies", "Abeis"));
+    assertEquals(2, mdl.getEditDistance("Abbies ahlba", "Abies alba"));
+    assertEquals(5, mdl.getEditDistance("", "Abies"));
+    assertEquals(1, mdl.getEditDistance("a", "b"));
+  }
+
+  @Test
+  public void testRanges() throws Exception {
+    String x1 = "Abies alba";
+    String x2 = "Pinus olba";
+    assertEquals(0, mdl.getEditDistance(x1, 6, 10, "alba", 0, 4, 2));
+    assertEquals(1, mdl.getEditDistance(x1, 6, 10, x2, 6, 10, 2));
+    assertEquals(mdl.getEditDistance("Abies", "Pinus"), mdl.getEditDistance(x1, 0, 5, x2, 0, 5, Integer.MAX_VALUE));
+  }
+
+  @Test
+  public void testBound() throws Exception {
+    assertEquals(4, mdl.getEditDistance("abcdefgh", "abwxyzgh"));
+    assertTrue(mdl.getEditDistance("abcdefgh", 0, 8, "abwxyzgh", 0, 8, 2) > 2);
+    assertEquals(4, mdl.getEditDistance("abcdefgh", 0, 8, "abwxyzgh", 0, 8, 4));
+    // length difference exceeds bound
+    assertTrue(mdl.getEditDistance("abc", 0, 3, "abcdefgh", 0, 8, 2) > 2);
+  }
+
+  @Test
+  public void testLongNames() throws Exception {
+    // names longer than 64 characters used to exceed the fixed size matrix
+    String x1 = Strings.repeat("Abiesalba", 10);
+    String x2 = x1.substring(0, 40) + "X" + x1.substring(41);
+    assertEquals(1, mdl.getEditDistance(x1, x2));
+  }
+}
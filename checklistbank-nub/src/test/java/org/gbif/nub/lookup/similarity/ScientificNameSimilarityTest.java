@@ -53,4 +53,14 @@ public class ScientificNameSimilarityTest {
     assertEquals(5d, sns.getSimilarity("Lucina scotti", "Lucina wattsi"), 0.01d);
     assertEquals(0d, sns.getSimilarity("scotti", "wattsi"), 0.01d);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testPreparedQuery() throws Exception {
+    ScientificNameSimilarity sns = new ScientificNameSimilarity();
+    ScientificNameSimilarity.PreparedName query = sns.prepare("Linaria pedunculata vulgaris");
+    for (String cand : new String[]{"Linaria pedunculata vulgaris", "Lunaria pedunculata vulgaris",
+        "Linaria pedunculata vandalis", "Linaria pedunculata", "Linariya pedonculata vulgaris"}) {
+      assertEquals(sns.getSimilarity(query.getName(), cand), sns.getSimilarity(query, cand), 0.001d);
+    }
+  }
+}
@@ -23,7 +23,11 @@ public class IdLookupImplTest {
   }
 
   public static IdLookup newTestLookup() {
-    Collection<LookupUsage> usages = Lists.newArrayList(
+    return IdLookupImpl.temp().load(testUsages());
+  }
+
+  static Collection<LookupUsage> testUsages() {
+    return Lists.newArrayList(
         new LookupUsage(1,  "Animalia", null, null, Rank.KINGDOM, Kingdom.ANIMALIA, false),
         new LookupUsage(2,  "Oenanthe", "Vieillot", "1816", Rank.GENUS, Kingdom.ANIMALIA, false),
         new LookupUsage(3,  "Oenanthe", "Linnaeus", "1753", Rank.GENUS, Kingdom.PLANTAE, false),
@@ -41,7 +45,6 @@ public class IdLookupImplTest {
         new LookupUsage(15, "Carex comosa × Carex lupulina", null, null, Rank.SPECIES, Kingdom.PLANTAE, true),
         new LookupUsage(16, "Aeropyrum coil-shaped virus", null, null, Rank.UNRANKED, Kingdom.VIRUSES, true)
     );
-    return IdLookupImpl.temp().load(usages);
   }
 
   @Test
@@ -0,0 +1,83 @@
+package org.gbif.nub.lookup.straight;
+
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Runs all IdLookupImpl tests against the memory mapped lookup.
+ */
+public class IdLookupMmapTest extends IdLookupImplTest {
+
+  @Before
+  @Override
+  public void init() {
+    try {
+      l = IdLookupMmap.temp().load(testUsages());
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Test
+  public void testIterator() throws Exception {
+    int counter = 0;
+    for (LookupUsage u : l) {
+      counter++;
+      assertEquals(counter, u.getKey());
+    }
+    assertEquals(16, counter);
+    assertEquals(8, l.deletedIds());
+    assertEquals(3, l.match("Abies alba").size());
+    assertEquals(0, l.match("Abies negra").size());
+  }
+
+  @Test
+  public void testPersistent() throws Exception {
+    File dir = Files.createTempDir();
+    File f = new File(dir, "lookup.bin");
+    try {
+      Int2IntOpenHashMap pp = new Int2IntOpenHashMap();
+      pp.put(100, 20);
+      pp.put(101, -21);
+      IdLookupMmap lookup = IdLookupMmap.persistent(f).load(Lists.newArrayList(
+          new LookupUsage(1, "Abies alba", "Mill.", "1768", Rank.SPECIES, Kingdom.PLANTAE, false),
+          new LookupUsage(2, pp, "Poa annua", "L.", null, Rank.SPECIES, Kingdom.PLANTAE, false)
+      ));
+      assertEquals(20, lookup.getKeyMax());
+      lookup.close();
+
+      // reopen existing file
+      lookup = IdLookupMmap.persistent(f);
+      assertEquals(2, lookup.size());
+      assertEquals(20, lookup.getKeyMax());
+
+      LookupUsage u = lookup.match("Abies alba", Rank.SPECIES, Kingdom.PLANTAE);
+      assertEquals(1, u.getKey());
+      assertEquals("Mill.", u.getAuthorship());
+      assertEquals("1768", u.getYear());
+      assertNull(u.getProParteKeys());
+
+      u = lookup.match("Poa annua", Rank.SPECIES, Kingdom.PLANTAE);
+      assertEquals(2, u.getKey());
+      assertNull(u.getYear());
+      assertEquals(pp, u.getProParteKeys());
+      lookup.close();
+
+    } finally {
+      FileUtils.deleteQuietly(dir);
+    }
+  }
+}
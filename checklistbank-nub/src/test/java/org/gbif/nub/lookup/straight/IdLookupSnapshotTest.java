@@ -0,0 +1,84 @@
+package org.gbif.nub.lookup.straight;
+
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IdLookupSnapshotTest {
+  private File dir;
+
+  @Before
+  public void init() {
+    dir = Files.createTempDir();
+  }
+
+  @After
+  public void cleanup() {
+    FileUtils.deleteQuietly(dir);
+  }
+
+  @Test(expected = FileNotFoundException.class)
+  public void testOpenMissing() throws Exception {
+    new IdLookupSnapshot(dir, false).open();
+  }
+
+  @Test
+  public void testWrite() throws Exception {
+    IdLookupSnapshot snap = new IdLookupSnapshot(dir, false);
+    assertNull(snap.latest());
+
+    IdLookupSnapshot.Version v1 = new IdLookupSnapshot.Version(100, 200);
+    File f1 = snap.write(v1, l -> l.load(Lists.newArrayList(
+        new LookupUsage(1, "Abies alba", "Mill.", "1768", Rank.SPECIES, Kingdom.PLANTAE, false)
+    )));
+    assertEquals(f1, snap.latest());
+    assertEquals("idlookup-current-100-200.bin", f1.getName());
+
+    IdLookupMmap l1 = snap.open();
+    assertEquals(1, l1.size());
+    assertEquals(1, l1.match("Abies alba", Rank.SPECIES, Kingdom.PLANTAE).getKey());
+
+    // existing snapshots are not rebuilt
+    assertEquals(f1, snap.write(v1, l -> {
+      throw new IllegalStateException("Snapshot rebuilt");
+    }));
+
+    // a different flavour does not see the snapshot
+    assertNull(new IdLookupSnapshot(dir, true).latest());
+
+    // newer backbone version replaces the old snapshot
+    IdLookupSnapshot.Version v2 = new IdLookupSnapshot.Version(100, 300);
+    File f2 = snap.write(v2, l -> l.load(Lists.newArrayList(
+        new LookupUsage(1, "Abies alba", "Mill.", "1768", Rank.SPECIES, Kingdom.PLANTAE, false),
+        new LookupUsage(2, "Poa annua", "L.", null, Rank.SPECIES, Kingdom.PLANTAE, false)
+    )));
+    assertEquals(f2, snap.latest());
+    assertFalse(f1.exists());
+    assertTrue(f2.exists());
+    // only the snapshot itself remains, no temp or heap files
+    assertEquals(1, dir.listFiles().length);
+
+    // the old lookup is still usable while mapped
+    assertEquals(1, l1.match("Abies alba", Rank.SPECIES, Kingdom.PLANTAE).getKey());
+    l1.close();
+
+    IdLookupMmap l2 = snap.open();
+    assertEquals(2, l2.size());
+    assertEquals(2, l2.match("Poa annua", Rank.SPECIES, Kingdom.PLANTAE).getKey());
+    l2.close();
+  }
+}
@@ -58,6 +58,11 @@ public class NameUsageIndexServicePassThru implements DatasetImportService {
     }
   }
 
+  @Override
+  public void insertNubRelations(UUID datasetKey, Map<Integer, Integer> relations, boolean deleteExisting) {
+    insertNubRelations(datasetKey, relations);
+  }
+
   @Override
   public int deleteDataset(UUID datasetKey) {
     return 0;
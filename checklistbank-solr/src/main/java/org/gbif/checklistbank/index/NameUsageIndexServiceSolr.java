@@ -174,6 +174,12 @@ public class NameUsageIndexServiceSolr implements DatasetImportService {
     exec.submit(new SolrUpdateMybatis(Lists.<Integer>newArrayList(relations.keySet())));
   }
 
+  @Override
+  public void insertNubRelations(UUID datasetKey, Map<Integer, Integer> relations, boolean deleteExisting) {
+    // solr documents are updated individually, there is nothing to delete upfront
+    insertNubRelations(datasetKey, relations);
+  }
+
   @Override
   public int deleteDataset(UUID datasetKey) {
     try {
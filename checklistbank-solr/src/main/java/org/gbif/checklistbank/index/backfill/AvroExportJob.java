@@ -15,6 +15,7 @@ import org.gbif.checklistbank.service.mybatis.VernacularNameServiceMyBatis;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -118,6 +119,8 @@ public class AvroExportJob implements Callable<Integer> {
     Map<Integer, List<Distribution>> distributionMap = distributionService.listRange(startKey, endKey);
 
     Map<Integer, List<SpeciesProfile>> speciesProfileMap = speciesProfileService.listRange(startKey, endKey);
+
+    Map<Integer, List<Integer>> parentMap = nameUsageService.listParents(startKey, endKey);
     File file = new File(startKey+ "-" + endKey + ".avro");
     file.createNewFile();
     log.info("Creating file " + file.getAbsolutePath());
@@ -140,8 +143,7 @@ public class AvroExportJob implements Callable<Integer> {
           ext.descriptions = descriptionMap.get(usage.getKey());
           ext.distributions = distributionMap.get(usage.getKey());
 
-          List<Integer> parents = nameUsageService.listParents(usage.getKey());
-          dataFileWriter.append(nameUsageAvroConverter.toObject(usage, parents, ext));
+          dataFileWriter.append(nameUsageAvroConverter.toObject(usage, parentMap.getOrDefault(usage.getKey(), Collections.<Integer>emptyList()), ext));
 
         } catch (Exception e) {
           log.error("Error exporting  usage {}  extension {} to avro", usage, e);
@@ -15,8 +15,6 @@ import java.io.IOException;
 import java.io.Reader;
 import java.nio.charset.Charset;
 import java.text.DecimalFormat;
-import java.util.Collections;
-import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicLong;
@@ -56,8 +54,8 @@ public abstract class NameUsageBatchProcessor extends ThreadPoolRunner<Integer>
   private final DistributionServiceMyBatis distributionService;
   private final SpeciesProfileServiceMyBatis speciesProfileService;
 
-  //
-  private List<Integer> allIds;
+  // the lowest usage key not yet assigned to any job, null before the first job
+  private Long nextKey;
   protected int jobCounter = 0;
 
   private class CountReporter extends Thread {
@@ -146,26 +144,28 @@ public abstract class NameUsageBatchProcessor extends ThreadPoolRunner<Integer>
   }
 
   /**
-   * Creates a list of NameUsageIndexingJob by loading all usage ids and splitting up the jobs between those ids.
+   * Creates a new job for the next key range of batchSize keys.
+   * Each range starts with the next existing usage key so gaps in the key space do not result in empty jobs.
    *
-   * @return a {@link List} of {@link NameUsageIndexingJob}.
+   * @return the next job or null if all usages have been assigned
    */
   @Override
   protected Callable<Integer> newJob() {
-    if (allIds == null) {
+    if (nextKey == null) {
       initKeys();
     }
 
     // any new job to be created?
-    if (allIds.size() <= jobCounter * batchSize) {
-      LOG.info("No more jobs to insert. Created {} jobs in total each processing {} records.", jobCounter, batchSize);
+    Integer start = nextKey > Integer.MAX_VALUE ? null : nameUsageService.minUsageKey(nextKey.intValue());
+    if (start == null) {
+      LOG.info("No more jobs to insert. Created {} jobs in total each processing a range of {} keys.", jobCounter, batchSize);
       return null;
     }
 
-    // produce new job with a new slice
-    final int startKey = allIds.get(jobCounter * batchSize);
-    int endIdx = (jobCounter + 1) * batchSize - 1;
-    final int endKey = endIdx > allIds.size() ? allIds.get(allIds.size() - 1) : allIds.get(endIdx);
+    // produce new job with a new key range
+    final int startKey = start;
+    final int endKey = (int) Math.min((long) startKey + batchSize - 1, Integer.MAX_VALUE);
+    nextKey = (long) endKey + 1;
     jobCounter++;
 
     return newBatchJob(startKey, endKey, nameUsageService, vernacularNameService, descriptionService, distributionService, speciesProfileService);
@@ -176,20 +176,15 @@ public abstract class NameUsageBatchProcessor extends ThreadPoolRunner<Integer>
   private void initKeys() {
     StopWatch stopWatch = new StopWatch();
 
-    LOG.debug("Start retrieving all usage ids ...");
+    LOG.debug("Start counting all usages ...");
     stopWatch.start();
-    allIds = nameUsageService.listAll();
-    //allIds = Lists.newArrayList(ContiguousSet.create(Range.closed(0, 13), DiscreteDomain.integers()).asList());
-
-    LOG.info("Retrieved all {} usage ids in {}", allIds.size(), stopWatch.toString());
-    stopWatch.reset();
-    stopWatch.start();
-    Collections.sort(allIds);
-    LOG.info("Sorted all {} usage ids in {}", allIds.size(), stopWatch.toString());
-    LOG.info("{} full jobs each processing {} records to be created.", allIds.size() / batchSize, batchSize);
+    nextKey = 0L;
+    int total = nameUsageService.count();
+    LOG.info("Counted all {} usages in {}", total, stopWatch.toString());
+    LOG.info("Jobs each processing a range of {} usage keys to be created.", batchSize);
 
     // start global reporter
-    reporterThread = new CountReporter(allIds.size());
+    reporterThread = new CountReporter(total);
     reporterThread.start();
   }
 
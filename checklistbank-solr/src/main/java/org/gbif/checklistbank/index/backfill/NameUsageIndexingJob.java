@@ -13,6 +13,7 @@ import org.gbif.checklistbank.service.mybatis.DistributionServiceMyBatis;
 import org.gbif.checklistbank.service.mybatis.SpeciesProfileServiceMyBatis;
 import org.gbif.checklistbank.service.mybatis.VernacularNameServiceMyBatis;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -20,13 +21,14 @@ import java.util.concurrent.Callable;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import org.apache.commons.lang3.time.StopWatch;
-import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.common.SolrInputDocument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Executable job that creates a list of {@link SolrInputDocument} using a list of {@link NameUsage} objects.
+ * All data incl the classification is loaded with a few range queries and the documents are handed over to a
+ * {@link SolrWriterQueue} in small batches.
  */
 public class NameUsageIndexingJob implements Callable<Integer> {
 
@@ -34,9 +36,9 @@ public class NameUsageIndexingJob implements Callable<Integer> {
   private static final int batchSize = 100;
 
   /**
-   * SolrServer instance.
+   * Queue of the solr writers.
    */
-  private final SolrClient solrClient;
+  private final SolrWriterQueue writerQueue;
 
   /**
    * Minimum usage key, inclusive, to process.
@@ -67,7 +69,7 @@ public class NameUsageIndexingJob implements Callable<Integer> {
   /**
    * Default constructor.
    */
-  public NameUsageIndexingJob(final SolrClient solrClient, final UsageService nameUsageService, final int startKey,
+  public NameUsageIndexingJob(final SolrWriterQueue writerQueue, final UsageService nameUsageService, final int startKey,
     final int endKey, final NameUsageDocConverter solrDocumentConverter,
     final VernacularNameServiceMyBatis vernacularNameService, final DescriptionServiceMyBatis descriptionService,
     final DistributionServiceMyBatis distributionService, final SpeciesProfileServiceMyBatis speciesProfileService) {
@@ -79,7 +81,7 @@ public class NameUsageIndexingJob implements Callable<Integer> {
     this.startKey = startKey;
     this.endKey = endKey;
     this.solrDocumentConverter = solrDocumentConverter;
-    this.solrClient = solrClient;
+    this.writerQueue = writerQueue;
   }
 
   /**
@@ -105,6 +107,9 @@ public class NameUsageIndexingJob implements Callable<Integer> {
 
     Map<Integer, List<SpeciesProfile>> speciesProfileMap = speciesProfileService.listRange(startKey, endKey);
 
+    // all parents of the range in one go
+    Map<Integer, List<Integer>> parentMap = nameUsageService.listParents(startKey, endKey);
+
     // now we're ready to build the solr indices quicky!
     for (Iterable<NameUsage> batch : Iterables.partition(usages, batchSize)) {
       final List<SolrInputDocument> docs = Lists.newArrayList();
@@ -120,13 +125,15 @@ public class NameUsageIndexingJob implements Callable<Integer> {
           ext.descriptions = descriptionMap.get(usage.getKey());
           ext.distributions = distributionMap.get(usage.getKey());
 
-          List<Integer> parents = nameUsageService.listParents(usage.getKey());
-
-          docs.add(solrDocumentConverter.toDoc(usage, parents, ext));
+          docs.add(solrDocumentConverter.toDoc(usage, parentMap.getOrDefault(usage.getKey(), Collections.<Integer>emptyList()), ext));
           docCount++;
         }
-        solrClient.add(docs);
-        NameUsageBatchProcessor.counter.addAndGet(docs.size());
+        writerQueue.put(docs);
+
+      } catch (InterruptedException e) {
+        log.warn("Indexing of usages in range {}-{} interrupted", startKey, endKey);
+        Thread.currentThread().interrupt();
+        break;
 
       } catch (Exception e) {
         log.error("Error indexing document for usage batch", e);
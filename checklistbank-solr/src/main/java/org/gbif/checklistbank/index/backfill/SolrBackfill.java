@@ -45,12 +45,16 @@ import org.slf4j.LoggerFactory;
  * each processing a configurable number of name usages (<i>batchSize</i>)
  * using a configurable number of concurrent lucene <i>writers</i>.
  * The indexer makes direct use of the mybatis layer and requires a checklist bank datasource to be configured.
+ * Jobs only build the solr documents and pass them on to a bounded queue consumed by the writers.
  */
 public class SolrBackfill extends NameUsageBatchProcessor {
 
   private static final Logger LOG = LoggerFactory.getLogger(SolrBackfill.class);
 
+  // batches of documents per job thread that can wait for the writers
+  private static final int QUEUED_BATCHES_PER_THREAD = 4;
   private final int numWriters;
+  private SolrWriterQueue writerQueue;
 
   // other injected instances
   private NameUsageDocConverter solrDocumentConverter;
@@ -93,9 +97,22 @@ public class SolrBackfill extends NameUsageBatchProcessor {
     System.exit(0);
   }
 
+  @Override
+  public int run() {
+    writerQueue = new SolrWriterQueue(solr, numWriters, QUEUED_BATCHES_PER_THREAD * poolSize);
+    return super.run();
+  }
+
   @Override
   protected void shutdownService(int tasksCount) {
     super.shutdownService(tasksCount);
+    // wait for the writers to send all queued documents
+    try {
+      writerQueue.close();
+    } catch (InterruptedException e) {
+      LOG.error("Interrupted while waiting for solr writers", e);
+      Thread.currentThread().interrupt();
+    }
     // commit solr
     try {
       solr.commit();
@@ -107,7 +124,7 @@ public class SolrBackfill extends NameUsageBatchProcessor {
 
   @Override
   protected Callable<Integer> newBatchJob(int startKey, int endKey, UsageService nameUsageService, VernacularNameServiceMyBatis vernacularNameService, DescriptionServiceMyBatis descriptionService, DistributionServiceMyBatis distributionService, SpeciesProfileServiceMyBatis speciesProfileService) {
-    return new NameUsageIndexingJob(solr, nameUsageService, startKey, endKey, solrDocumentConverter,
+    return new NameUsageIndexingJob(writerQueue, nameUsageService, startKey, endKey, solrDocumentConverter,
         vernacularNameService, descriptionService, distributionService, speciesProfileService);
   }
 
@@ -0,0 +1,110 @@
+package org.gbif.checklistbank.index.backfill;
+
+import org.gbif.utils.concurrent.NamedThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.common.SolrInputDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded queue of solr document batches that are sent to solr by a fixed number of writer threads.
+ * Indexing jobs only convert usages into documents and hand them over to the queue,
+ * blocking when the writers fall behind so memory usage stays bounded.
+ */
+public class SolrWriterQueue implements AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(SolrWriterQueue.class);
+  // marker batch telling a writer to stop, compared by identity
+  private static final List<SolrInputDocument> STOP = new ArrayList<>(0);
+
+  private final SolrClient solr;
+  private final int writers;
+  private final BlockingQueue<List<SolrInputDocument>> queue;
+  private final ExecutorService exec;
+  private final AtomicLong failed = new AtomicLong();
+  private boolean closed = false;
+
+  /**
+   * @param writers  number of threads sending documents to solr
+   * @param capacity maximum number of document batches waiting in the queue
+   */
+  public SolrWriterQueue(SolrClient solr, int writers, int capacity) {
+    Preconditions.checkArgument(writers > 0, "At least one writer required");
+    Preconditions.checkArgument(capacity > 0, "Queue capacity must be positive");
+    this.solr = solr;
+    this.writers = writers;
+    queue = new ArrayBlockingQueue<>(capacity);
+    exec = Executors.newFixedThreadPool(writers, new NamedThreadFactory("solr-writer"));
+    for (int i = 0; i < writers; i++) {
+      exec.submit(new Writer());
+    }
+    LOG.info("Started {} solr writers with a queue of {} batches", writers, capacity);
+  }
+
+  private class Writer implements Runnable {
+
+    @Override
+    public void run() {
+      try {
+        List<SolrInputDocument> docs = queue.take();
+        while (docs != STOP) {
+          try {
+            solr.add(docs);
+            NameUsageBatchProcessor.counter.addAndGet(docs.size());
+          } catch (Exception e) {
+            failed.addAndGet(docs.size());
+            LOG.error("Error indexing batch of {} documents", docs.size(), e);
+          }
+          docs = queue.take();
+        }
+      } catch (InterruptedException e) {
+        LOG.warn("Solr writer interrupted");
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Queues a batch of documents, blocking while the queue is full.
+   */
+  public void put(List<SolrInputDocument> docs) throws InterruptedException {
+    Preconditions.checkState(!closed, "Solr writer queue is closed");
+    if (!docs.isEmpty()) {
+      queue.put(docs);
+    }
+  }
+
+  /**
+   * @return number of documents that failed to be sent to solr
+   */
+  public long getFailed() {
+    return failed.get();
+  }
+
+  /**
+   * Waits for all queued documents to be sent to solr and stops the writer threads.
+   * The solr client is not committed nor closed.
+   */
+  @Override
+  public void close() throws InterruptedException {
+    if (!closed) {
+      closed = true;
+      for (int i = 0; i < writers; i++) {
+        queue.put(STOP);
+      }
+      exec.shutdown();
+      exec.awaitTermination(1, TimeUnit.DAYS);
+      LOG.info("Stopped all solr writers, {} documents failed", failed.get());
+    }
+  }
+}
@@ -92,9 +92,11 @@ public class NameUsageIndexingJobIT {
     int end   = 114989970;
     start = 110448010;
     end   = 110448020;
-    NameUsageIndexingJob job = new NameUsageIndexingJob(solrClient, nameUsageService, start, end, new NameUsageDocConverter(),
-      vernacularNameService, descriptionService, distributionService, speciesProfileService);
-    job.call();
+    try (SolrWriterQueue queue = new SolrWriterQueue(solrClient, 1, 10)) {
+      NameUsageIndexingJob job = new NameUsageIndexingJob(queue, nameUsageService, start, end, new NameUsageDocConverter(),
+        vernacularNameService, descriptionService, distributionService, speciesProfileService);
+      job.call();
+    }
 
     solrClient.commit();
 
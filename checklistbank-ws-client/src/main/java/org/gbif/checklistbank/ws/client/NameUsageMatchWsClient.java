@@ -5,12 +5,15 @@ import org.gbif.api.model.common.LinneanClassification;
 import org.gbif.api.service.checklistbank.NameUsageMatchingService;
 import org.gbif.api.vocabulary.Rank;
 import org.gbif.checklistbank.ws.client.guice.NameUsageMatchWs;
+import org.gbif.checklistbank.ws.model.NameUsageMatchQuery;
 import org.gbif.checklistbank.ws.util.SimpleParameterMap;
 
+import java.util.List;
 import javax.annotation.Nullable;
 import javax.ws.rs.core.MediaType;
 
 import com.google.inject.Inject;
+import com.sun.jersey.api.client.GenericType;
 import com.sun.jersey.api.client.WebResource;
 
 /**
@@ -50,6 +53,24 @@ public class NameUsageMatchWsClient implements NameUsageMatchingService {
     return resource.queryParams(parameters).type(MediaType.APPLICATION_JSON).get(NameUsageMatch.class);
   }
 
+  /**
+   * Matches a batch of names with a single request.
+   * Strict and verbose apply to all queries which do not specify them explicitly.
+   *
+   * @return the matches in the same order as the queries
+   */
+  public List<NameUsageMatch> matchBatch(List<NameUsageMatchQuery> queries, boolean strict, boolean verbose) {
+    SimpleParameterMap parameters = new SimpleParameterMap()
+      .param("strict", Boolean.toString(strict))
+      .param("verbose", Boolean.toString(verbose));
+
+    return resource.path("batch")
+      .queryParams(parameters)
+      .type(MediaType.APPLICATION_JSON)
+      .accept(MediaType.APPLICATION_JSON)
+      .post(new GenericType<List<NameUsageMatch>>() {}, queries);
+  }
+
   @Override
   public String toString() {
     return "NameUsageMatchWsClient{" + resource + '}';
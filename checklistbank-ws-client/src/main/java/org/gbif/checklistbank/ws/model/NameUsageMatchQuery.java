@@ -0,0 +1,205 @@
+package org.gbif.checklistbank.ws.model;
+
+import org.gbif.api.model.common.LinneanClassification;
+import org.gbif.api.util.ClassificationUtils;
+import org.gbif.api.vocabulary.Rank;
+
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+import org.codehaus.jackson.annotate.JsonIgnore;
+import org.codehaus.jackson.annotate.JsonProperty;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
+
+/**
+ * A single name matching query as used by the batch matching service.
+ * The properties are the same as the query parameters of the single name match, i.e. name, rank, kingdom, class, etc.
+ * Strict and verbose are optional and default to the value given for the entire batch.
+ */
+@JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+public class NameUsageMatchQuery implements LinneanClassification {
+  private String name;
+  private Rank rank;
+  private Boolean strict;
+  private Boolean verbose;
+  private String kingdom;
+  private String phylum;
+  private String clazz;
+  private String order;
+  private String family;
+  private String genus;
+  private String subgenus;
+  private String species;
+
+  public NameUsageMatchQuery() {
+  }
+
+  public NameUsageMatchQuery(String name, @Nullable Rank rank, @Nullable LinneanClassification classification) {
+    this.name = name;
+    this.rank = rank;
+    if (classification != null) {
+      ClassificationUtils.copyLinneanClassification(classification, this);
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  @Nullable
+  public Rank getRank() {
+    return rank;
+  }
+
+  public void setRank(Rank rank) {
+    this.rank = rank;
+  }
+
+  @Nullable
+  public Boolean getStrict() {
+    return strict;
+  }
+
+  public void setStrict(Boolean strict) {
+    this.strict = strict;
+  }
+
+  @Nullable
+  public Boolean getVerbose() {
+    return verbose;
+  }
+
+  public void setVerbose(Boolean verbose) {
+    this.verbose = verbose;
+  }
+
+  @Nullable
+  @Override
+  public String getKingdom() {
+    return kingdom;
+  }
+
+  @Override
+  public void setKingdom(String kingdom) {
+    this.kingdom = kingdom;
+  }
+
+  @Nullable
+  @Override
+  public String getPhylum() {
+    return phylum;
+  }
+
+  @Override
+  public void setPhylum(String phylum) {
+    this.phylum = phylum;
+  }
+
+  @Nullable
+  @Override
+  @JsonProperty("class")
+  public String getClazz() {
+    return clazz;
+  }
+
+  @Override
+  @JsonProperty("class")
+  public void setClazz(String clazz) {
+    this.clazz = clazz;
+  }
+
+  @Nullable
+  @Override
+  public String getOrder() {
+    return order;
+  }
+
+  @Override
+  public void setOrder(String order) {
+    this.order = order;
+  }
+
+  @Nullable
+  @Override
+  public String getFamily() {
+    return family;
+  }
+
+  @Override
+  public void setFamily(String family) {
+    this.family = family;
+  }
+
+  @Nullable
+  @Override
+  public String getGenus() {
+    return genus;
+  }
+
+  @Override
+  public void setGenus(String genus) {
+    this.genus = genus;
+  }
+
+  @Nullable
+  @Override
+  public String getSubgenus() {
+    return subgenus;
+  }
+
+  @Override
+  public void setSubgenus(String subgenus) {
+    this.subgenus = subgenus;
+  }
+
+  @Nullable
+  @Override
+  public String getSpecies() {
+    return species;
+  }
+
+  @Override
+  public void setSpecies(String species) {
+    this.species = species;
+  }
+
+  @Nullable
+  @Override
+  @JsonIgnore
+  public String getHigherRank(Rank rank) {
+    return ClassificationUtils.getHigherRank(this, rank);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    NameUsageMatchQuery that = (NameUsageMatchQuery) o;
+    return Objects.equals(name, that.name) &&
+        rank == that.rank &&
+        Objects.equals(strict, that.strict) &&
+        Objects.equals(verbose, that.verbose) &&
+        Objects.equals(kingdom, that.kingdom) &&
+        Objects.equals(phylum, that.phylum) &&
+        Objects.equals(clazz, that.clazz) &&
+        Objects.equals(order, that.order) &&
+        Objects.equals(family, that.family) &&
+        Objects.equals(genus, that.genus) &&
+        Objects.equals(subgenus, that.subgenus) &&
+        Objects.equals(species, that.species);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(name, rank, strict, verbose, kingdom, phylum, clazz, order, family, genus, subgenus, species);
+  }
+
+  @Override
+  public String toString() {
+    return "NameUsageMatchQuery{" + name + ", rank=" + rank + '}';
+  }
+}
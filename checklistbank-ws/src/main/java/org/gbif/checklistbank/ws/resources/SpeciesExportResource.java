@@ -0,0 +1,246 @@
+package org.gbif.checklistbank.ws.resources;
+
+import org.gbif.api.model.checklistbank.NameUsage;
+import org.gbif.checklistbank.service.mybatis.mapper.NameUsageMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import com.google.common.base.CaseFormat;
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.inject.Inject;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.annotate.JsonSerialize;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Species export resource streaming all name usages of a checklist dataset straight from a database cursor,
+ * so clients do not have to page through an entire checklist with ever increasing offsets.
+ * <p>
+ * Usages are written as newline delimited JSON or as tab delimited text with a header row.
+ * The exported fields can be selected with the fields parameter and the response is gzipped if the client accepts it.
+ */
+@Path("/species/export")
+public class SpeciesExportResource {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SpeciesExportResource.class);
+  public static final String NDJSON = "application/x-ndjson";
+  public static final String TSV = "text/tab-separated-values";
+  private static final String GZIP = "gzip";
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  static {
+    MAPPER.setSerializationInclusion(JsonSerialize.Inclusion.NON_NULL);
+  }
+  private static final Splitter FIELD_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+  private static final Joiner COLLECTION_JOINER = Joiner.on(',').skipNulls();
+
+  private final NameUsageMapper nameUsageMapper;
+
+  /**
+   * The name usage properties that can be exported, named as in the JSON API.
+   */
+  enum Field {
+    KEY(NameUsage::getKey),
+    NUB_KEY(NameUsage::getNubKey),
+    DATASET_KEY(NameUsage::getDatasetKey),
+    CONSTITUENT_KEY(NameUsage::getConstituentKey),
+    PARENT_KEY(NameUsage::getParentKey),
+    PARENT(NameUsage::getParent),
+    ACCEPTED_KEY(NameUsage::getAcceptedKey),
+    ACCEPTED(NameUsage::getAccepted),
+    BASIONYM_KEY(NameUsage::getBasionymKey),
+    BASIONYM(NameUsage::getBasionym),
+    SCIENTIFIC_NAME(NameUsage::getScientificName),
+    CANONICAL_NAME(NameUsage::getCanonicalName),
+    AUTHORSHIP(NameUsage::getAuthorship),
+    NAME_TYPE(NameUsage::getNameType),
+    RANK(NameUsage::getRank),
+    TAXONOMIC_STATUS(NameUsage::getTaxonomicStatus),
+    NOMENCLATURAL_STATUS(NameUsage::getNomenclaturalStatus),
+    ORIGIN(NameUsage::getOrigin),
+    KINGDOM(NameUsage::getKingdom),
+    KINGDOM_KEY(NameUsage::getKingdomKey),
+    PHYLUM(NameUsage::getPhylum),
+    PHYLUM_KEY(NameUsage::getPhylumKey),
+    CLASS(NameUsage::getClazz),
+    CLASS_KEY(NameUsage::getClassKey),
+    ORDER(NameUsage::getOrder),
+    ORDER_KEY(NameUsage::getOrderKey),
+    FAMILY(NameUsage::getFamily),
+    FAMILY_KEY(NameUsage::getFamilyKey),
+    GENUS(NameUsage::getGenus),
+    GENUS_KEY(NameUsage::getGenusKey),
+    SUBGENUS(NameUsage::getSubgenus),
+    SUBGENUS_KEY(NameUsage::getSubgenusKey),
+    SPECIES(NameUsage::getSpecies),
+    SPECIES_KEY(NameUsage::getSpeciesKey),
+    TAXON_ID(NameUsage::getTaxonID),
+    PUBLISHED_IN(NameUsage::getPublishedIn),
+    ACCORDING_TO(NameUsage::getAccordingTo),
+    NUM_DESCENDANTS(NameUsage::getNumDescendants),
+    REFERENCES(NameUsage::getReferences),
+    REMARKS(NameUsage::getRemarks),
+    ISSUES(NameUsage::getIssues);
+
+    final String label;
+    private final Function<NameUsage, Object> getter;
+
+    Field(Function<NameUsage, Object> getter) {
+      this.getter = getter;
+      // the api uses taxonID, not taxonId
+      label = name().equals("TAXON_ID") ? "taxonID" : CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.LOWER_CAMEL, name());
+    }
+
+    Object get(NameUsage u) {
+      return getter.apply(u);
+    }
+
+    static Field fromLabel(String label) {
+      for (Field f : values()) {
+        if (f.label.equalsIgnoreCase(label)) {
+          return f;
+        }
+      }
+      throw new IllegalArgumentException("Unknown export field " + label);
+    }
+  }
+
+  @Inject
+  public SpeciesExportResource(NameUsageMapper nameUsageMapper) {
+    this.nameUsageMapper = nameUsageMapper;
+  }
+
+  /**
+   * Streams all usages of a dataset.
+   *
+   * @param format json for newline delimited JSON (default) or tsv
+   * @param fields optional comma separated list of fields to export, defaults to all fields
+   */
+  @GET
+  @Path("{datasetKey}")
+  @Produces({NDJSON, TSV})
+  public Response export(@PathParam("datasetKey") final UUID datasetKey, @QueryParam("format") String format,
+                         @QueryParam("fields") String fields, @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding) {
+    final boolean tsv = parseTsv(format);
+    final List<Field> selected = parseFields(fields);
+    final boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains(GZIP);
+
+    StreamingOutput stream = os -> {
+      OutputStream out = new BufferedOutputStream(gzip ? new GZIPOutputStream(os) : os, 64 * 1024);
+      try {
+        int counter = write(datasetKey, selected, tsv, out);
+        LOG.info("Exported {} usages of dataset {}", counter, datasetKey);
+      } catch (UncheckedIOException e) {
+        // most likely the client went away
+        throw e.getCause();
+      } finally {
+        out.close();
+      }
+    };
+
+    Response.ResponseBuilder resp = Response.ok(stream, tsv ? TSV + "; charset=UTF-8" : NDJSON);
+    if (gzip) {
+      resp.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+    }
+    return resp.build();
+  }
+
+  /**
+   * Writes all usages of a dataset to the output stream.
+   * @return number of written usages
+   */
+  int write(UUID datasetKey, final List<Field> fields, final boolean tsv, final OutputStream out) throws IOException {
+    final int[] counter = {0};
+    if (tsv) {
+      writeTsvRow(out, Lists.transform(fields, f -> f.label));
+    }
+    final Map<String, Object> json = new LinkedHashMap<>();
+    final List<Object> row = Lists.newArrayListWithCapacity(fields.size());
+    nameUsageMapper.processDataset(datasetKey, ctx -> {
+      NameUsage u = ctx.getResultObject();
+      try {
+        if (tsv) {
+          row.clear();
+          for (Field f : fields) {
+            row.add(f.get(u));
+          }
+          writeTsvRow(out, row);
+        } else {
+          json.clear();
+          for (Field f : fields) {
+            json.put(f.label, f.get(u));
+          }
+          out.write(MAPPER.writeValueAsBytes(json));
+          out.write('\n');
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      counter[0]++;
+    });
+    return counter[0];
+  }
+
+  private static void writeTsvRow(OutputStream out, List<?> values) throws IOException {
+    boolean first = true;
+    for (Object val : values) {
+      if (!first) {
+        out.write('\t');
+      }
+      first = false;
+      if (val != null) {
+        String x = val instanceof Collection ? COLLECTION_JOINER.join((Collection<?>) val) : val.toString();
+        // tabs and line breaks would break the row structure
+        out.write(x.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ').getBytes(Charsets.UTF_8));
+      }
+    }
+    out.write('\n');
+  }
+
+  private static boolean parseTsv(String format) {
+    if (Strings.isNullOrEmpty(format) || format.equalsIgnoreCase("json")) {
+      return false;
+    } else if (format.equalsIgnoreCase("tsv")) {
+      return true;
+    }
+    throw new IllegalArgumentException("Unsupported export format " + format);
+  }
+
+  static List<Field> parseFields(String fields) {
+    if (Strings.isNullOrEmpty(fields)) {
+      return ImmutableList.copyOf(Field.values());
+    }
+    List<Field> selected = Lists.newArrayList();
+    for (String label : FIELD_SPLITTER.split(fields)) {
+      selected.add(Field.fromLabel(label));
+    }
+    if (selected.isEmpty()) {
+      throw new IllegalArgumentException("No export fields given");
+    }
+    return selected;
+  }
+}
@@ -1,6 +1,8 @@
 package org.gbif.checklistbank.ws.resources;
 
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableSet;
 import com.google.inject.Inject;
 import org.gbif.api.model.Constants;
@@ -25,8 +27,10 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Species resource.
@@ -38,6 +42,8 @@ public class SpeciesResource {
   private static final Logger LOG = LoggerFactory.getLogger(SpeciesResource.class);
   private static final String DATASET_KEY = "datasetKey";
   private static final int DEEP_PAGING_OFFSET_LIMIT = 100000;
+  private static final int PARENTS_CACHE_SIZE = 10000;
+  private static final int PARENTS_CACHE_MINUTES = 60;
 
   private final NameUsageService nameUsageService;
   private final VernacularNameService vernacularNameService;
@@ -50,6 +56,37 @@ public class SpeciesResource {
   private final IdentifierService identifierService;
   private final NameUsageSearchService searchService;
   private final UsageCountMapper usageCountMapper;
+  // LRU cache of recently requested classifications, expiring so reimported datasets show up eventually
+  private final Cache<ParentsKey, List<NameUsage>> parentsCache = CacheBuilder.newBuilder()
+      .maximumSize(PARENTS_CACHE_SIZE)
+      .expireAfterWrite(PARENTS_CACHE_MINUTES, TimeUnit.MINUTES)
+      .build();
+
+  /**
+   * Parents are localized, so cache them by usage key and locale language.
+   */
+  private static class ParentsKey {
+    final int usageKey;
+    final String language;
+
+    ParentsKey(int usageKey, Locale locale) {
+      this.usageKey = usageKey;
+      this.language = locale == null ? null : locale.getLanguage();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      ParentsKey that = (ParentsKey) o;
+      return usageKey == that.usageKey && Objects.equals(language, that.language);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(usageKey, language);
+    }
+  }
 
 
   @Inject
@@ -327,7 +364,15 @@ public class SpeciesResource {
   @GET
   @Path("{id}/parents")
   public List<NameUsage> listParentsByNameUsage(@PathParam("id") int usageKey, @Context Locale locale, @Context Pageable page) {
-    return nameUsageService.listParents(usageKey, locale);
+    ParentsKey key = new ParentsKey(usageKey, locale);
+    List<NameUsage> parents = parentsCache.getIfPresent(key);
+    if (parents == null) {
+      parents = nameUsageService.listParents(usageKey, locale);
+      if (parents != null) {
+        parentsCache.put(key, parents);
+      }
+    }
+    return parents;
   }
 
   /**
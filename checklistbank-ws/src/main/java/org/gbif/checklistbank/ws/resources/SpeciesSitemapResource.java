@@ -1,16 +1,15 @@
 package org.gbif.checklistbank.ws.resources;
 
-import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import freemarker.cache.ClassTemplateLoader;
 import freemarker.cache.TemplateLoader;
 import freemarker.template.Configuration;
 import freemarker.template.TemplateException;
-import org.gbif.api.model.common.paging.PagingRequest;
-import org.gbif.checklistbank.service.mybatis.mapper.NameUsageMapper;
+import org.gbif.checklistbank.ws.util.SitemapPageCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,6 +26,7 @@ import java.util.Map;
 /**
  * Species sitemap resource producing text sitemaps for all checklist bank name usages.
  * As sitemaps are limited to a maximum of 50k entries a sitemap index file is also dynamically created.
+ * Sitemap pages are generated with keyset queries and cached on disk until the backbone changes, see {@link SitemapPageCache}.
  *
  * see https://www.sitemaps.org/protocol.html
  */
@@ -34,13 +34,11 @@ import java.util.Map;
 public class SpeciesSitemapResource {
 
     private static final Logger LOG = LoggerFactory.getLogger(SpeciesSitemapResource.class);
-    private static final int SITEMAP_SIZE = 50000;
     private static final String INDEX_TEMPLATE = "sitemapindex.ftl";
     private static final String TEMPLATE_PATH = "/templates";
     private static final Configuration FTL = provideFreemarker();
 
-    private final NameUsageMapper nameUsageMapper;
-    private final String portalUrl;
+    private final SitemapPageCache pageCache;
     private final String apiUrl;
 
 
@@ -60,9 +58,8 @@ public class SpeciesSitemapResource {
     }
 
     @Inject
-    public SpeciesSitemapResource(NameUsageMapper nameUsageMapper, @Named("checklistbank.portal.url") String portalUrl, @Named("checklistbank.api.url") String apiUrl) {
-        this.nameUsageMapper = nameUsageMapper;
-        this.portalUrl = portalUrl;
+    public SpeciesSitemapResource(SitemapPageCache pageCache, @Named("checklistbank.api.url") String apiUrl) {
+        this.pageCache = pageCache;
         this.apiUrl = apiUrl;
     }
 
@@ -72,15 +69,13 @@ public class SpeciesSitemapResource {
     @GET
     @Produces(MediaType.APPLICATION_XML)
     public String sitemapIndex() throws IOException {
-        int cnt = nameUsageMapper.count(null);
-        int maps = (int) Math.ceil((double) cnt/SITEMAP_SIZE);
-        LOG.info("Requested sitemap index to {} index files with {} usages", maps, cnt);
+        int maps = pageCache.pages();
+        LOG.info("Requested sitemap index to {} index files", maps);
 
         try (Writer writer = new StringWriter()) {
             Map<String, Object> data = Maps.newHashMap();
             data.put("apiUrl", apiUrl);
             data.put("maps", maps);
-            data.put("cnt", cnt);
             FTL.getTemplate(INDEX_TEMPLATE).process(data, writer);
             return writer.toString();
 
@@ -95,18 +90,20 @@ public class SpeciesSitemapResource {
     @GET
     @Produces(MediaType.TEXT_PLAIN)
     @Path("{page}")
-    public Response sitemap(@PathParam("page") int page) {
+    public Response sitemap(@PathParam("page") int page) throws IOException {
         Preconditions.checkArgument(page > 0, "Page parameter must be positive");
 
+        final InputStream in = pageCache.openPage(page);
         StreamingOutput stream = os -> {
-            Writer writer = new BufferedWriter(new OutputStreamWriter(os, Charsets.UTF_8));
-            PagingRequest req = new PagingRequest((page - 1) * SITEMAP_SIZE, SITEMAP_SIZE);
-            for (int key : nameUsageMapper.list(null, req)) {
-                writer.write(portalUrl);
-                writer.write(String.valueOf(key));
-                writer.write("\n");
+            // pages beyond the last one are empty
+            if (in != null) {
+                try {
+                    ByteStreams.copy(in, os);
+                } finally {
+                    in.close();
+                }
             }
-            writer.flush();
+            os.flush();
         };
 
         return Response.ok(stream, MediaType.TEXT_PLAIN).build();
@@ -0,0 +1,160 @@
+package org.gbif.checklistbank.ws.util;
+
+import org.gbif.api.model.Constants;
+import org.gbif.api.model.checklistbank.DatasetMetrics;
+import org.gbif.api.service.checklistbank.DatasetMetricsService;
+import org.gbif.checklistbank.service.mybatis.mapper.NameUsageMapper;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches text sitemaps of all name usages on disk until the backbone changes.
+ * <p>
+ * The first usage key of every sitemap page is computed once in a single ordered pass
+ * so each page can be generated with a cheap keyset query instead of an ever growing offset scan.
+ * A new backbone is detected by its latest dataset metrics, which are checked at most every few minutes.
+ */
+@Singleton
+public class SitemapPageCache {
+  private static final Logger LOG = LoggerFactory.getLogger(SitemapPageCache.class);
+  public static final int SITEMAP_SIZE = 50000;
+  private static final long CHECK_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+  private static final String VERSION_FILE = "version.txt";
+  private static final Joiner JOINER = Joiner.on('\n');
+  private static final Splitter SPLITTER = Splitter.on('\n').omitEmptyStrings();
+
+  private final NameUsageMapper nameUsageMapper;
+  private final DatasetMetricsService metricsService;
+  private final String portalUrl;
+  private final File dir;
+  private final int pageSize;
+  private String version;
+  private List<Integer> pageStarts;
+  private long lastCheck;
+
+  @Inject
+  public SitemapPageCache(NameUsageMapper nameUsageMapper, DatasetMetricsService metricsService,
+                          @Named("checklistbank.portal.url") String portalUrl,
+                          @Named("checklistbank.sitemap.dir") String dir) {
+    this(nameUsageMapper, metricsService, portalUrl, new File(dir), SITEMAP_SIZE);
+  }
+
+  public SitemapPageCache(NameUsageMapper nameUsageMapper, DatasetMetricsService metricsService, String portalUrl,
+                          File dir, int pageSize) {
+    Preconditions.checkArgument(pageSize > 0, "Page size must be positive");
+    this.nameUsageMapper = nameUsageMapper;
+    this.metricsService = metricsService;
+    this.portalUrl = portalUrl;
+    this.dir = dir;
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * @return the number of sitemap pages
+   */
+  public synchronized int pages() throws IOException {
+    refresh();
+    return pageStarts.size();
+  }
+
+  /**
+   * Opens the cached text sitemap for a page, generating it first if needed.
+   * The stream is opened while holding the lock, so a backbone change cleaning the cache directory
+   * cannot remove the file before it is read. The caller needs to close the stream.
+   *
+   * @param page the 1 based page number
+   * @return the sitemap content or null if the page does not exist
+   */
+  public synchronized InputStream openPage(int page) throws IOException {
+    Preconditions.checkArgument(page > 0, "Page parameter must be positive");
+    refresh();
+    if (page > pageStarts.size()) {
+      return null;
+    }
+    File f = new File(dir, page + ".txt");
+    if (!f.exists()) {
+      // generated while holding the lock so concurrent crawler requests for the same page only query once
+      // and a backbone change cannot clear the directory while we write
+      int start = pageStarts.get(page - 1);
+      File tmp = new File(dir, page + ".tmp");
+      int counter = 0;
+      try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(tmp.toPath()), Charsets.UTF_8))) {
+        for (int key : nameUsageMapper.listFrom(start, pageSize)) {
+          writer.write(portalUrl);
+          writer.write(String.valueOf(key));
+          writer.write("\n");
+          counter++;
+        }
+      }
+      Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      LOG.info("Generated sitemap page {} with {} usages starting with key {}", page, counter, start);
+    }
+    return Files.newInputStream(f.toPath());
+  }
+
+  /**
+   * Makes sure the page starts are loaded and reflect the current backbone,
+   * removing all cached pages if the backbone has changed.
+   */
+  private void refresh() throws IOException {
+    long now = System.currentTimeMillis();
+    if (pageStarts != null && now - lastCheck < CHECK_INTERVAL) {
+      return;
+    }
+    lastCheck = now;
+    String current = currentVersion();
+    if (pageStarts != null && current.equals(version)) {
+      return;
+    }
+    FileUtils.forceMkdir(dir);
+    File vf = new File(dir, VERSION_FILE);
+    if (vf.exists()) {
+      List<String> lines = Lists.newArrayList(SPLITTER.split(FileUtils.readFileToString(vf, Charsets.UTF_8)));
+      if (!lines.isEmpty() && lines.get(0).equals(current)) {
+        ImmutableList.Builder<Integer> starts = ImmutableList.builder();
+        for (String line : lines.subList(1, lines.size())) {
+          starts.add(Integer.valueOf(line));
+        }
+        version = current;
+        pageStarts = starts.build();
+        LOG.info("Loaded {} cached sitemap pages for backbone version {}", pageStarts.size(), version);
+        return;
+      }
+    }
+    // new backbone, remove all cached pages and compute new page boundaries
+    FileUtils.cleanDirectory(dir);
+    pageStarts = ImmutableList.copyOf(nameUsageMapper.listPageStarts(pageSize));
+    version = current;
+    File tmp = new File(dir, VERSION_FILE + ".tmp");
+    FileUtils.writeStringToFile(tmp, version + "\n" + JOINER.join(pageStarts), Charsets.UTF_8);
+    Files.move(tmp.toPath(), vf.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    LOG.info("Computed {} sitemap pages for backbone version {}", pageStarts.size(), version);
+  }
+
+  private String currentVersion() {
+    DatasetMetrics m = metricsService.get(Constants.NUB_DATASET_KEY);
+    return m == null || m.getCreated() == null ? "none" : String.valueOf(m.getCreated().getTime());
+  }
+}
@@ -0,0 +1,87 @@
+package org.gbif.checklistbank.ws.resources;
+
+import org.gbif.api.vocabulary.NameUsageIssue;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.checklistbank.model.ParsedNameUsage;
+import org.gbif.checklistbank.service.mybatis.mapper.NameUsageMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.UUID;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Sets;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SpeciesExportResourceTest {
+  private static final UUID DATASET_KEY = UUID.randomUUID();
+
+  private SpeciesExportResource resource;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() throws Exception {
+    ParsedNameUsage u1 = new ParsedNameUsage();
+    u1.setKey(1);
+    u1.setScientificName("Abies alba Mill.");
+    u1.setRank(Rank.SPECIES);
+    u1.setIssues(Sets.newHashSet(NameUsageIssue.RANK_INVALID));
+
+    ParsedNameUsage u2 = new ParsedNameUsage();
+    u2.setKey(2);
+    u2.setScientificName("Abies\tmixta");
+
+    NameUsageMapper mapper = mock(NameUsageMapper.class);
+    doAnswer(invocation -> {
+      ResultHandler<ParsedNameUsage> handler = (ResultHandler<ParsedNameUsage>) invocation.getArguments()[1];
+      for (ParsedNameUsage u : new ParsedNameUsage[]{u1, u2}) {
+        ResultContext<ParsedNameUsage> ctx = mock(ResultContext.class);
+        when(ctx.getResultObject()).thenReturn(u);
+        handler.handleResult(ctx);
+      }
+      return null;
+    }).when(mapper).processDataset(Matchers.eq(DATASET_KEY), Matchers.any(ResultHandler.class));
+
+    resource = new SpeciesExportResource(mapper);
+  }
+
+  @Test
+  public void testJson() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    List<SpeciesExportResource.Field> fields = SpeciesExportResource.parseFields("key, scientificName,rank");
+    assertEquals(2, resource.write(DATASET_KEY, fields, false, out));
+    assertEquals("{\"key\":1,\"scientificName\":\"Abies alba Mill.\",\"rank\":\"SPECIES\"}\n" +
+        "{\"key\":2,\"scientificName\":\"Abies\\tmixta\"}\n", new String(out.toByteArray(), Charsets.UTF_8));
+  }
+
+  @Test
+  public void testTsv() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    List<SpeciesExportResource.Field> fields = SpeciesExportResource.parseFields("key,scientificName,rank,issues");
+    assertEquals(2, resource.write(DATASET_KEY, fields, true, out));
+    assertEquals("key\tscientificName\trank\tissues\n" +
+        "1\tAbies alba Mill.\tSPECIES\tRANK_INVALID\n" +
+        "2\tAbies mixta\t\t\n", new String(out.toByteArray(), Charsets.UTF_8));
+  }
+
+  @Test
+  public void testFields() throws Exception {
+    assertEquals(SpeciesExportResource.Field.values().length, SpeciesExportResource.parseFields(null).size());
+    assertEquals(SpeciesExportResource.Field.TAXON_ID, SpeciesExportResource.parseFields("taxonID").get(0));
+    assertEquals(SpeciesExportResource.Field.CLASS_KEY, SpeciesExportResource.parseFields("classKey").get(0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownField() throws Exception {
+    SpeciesExportResource.parseFields("key,color");
+  }
+}
@@ -33,6 +33,8 @@ import org.mockito.Matchers;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class SpeciesResourceTest {
@@ -108,6 +110,19 @@ public class SpeciesResourceTest {
     assertEquals(result.getResults().get(0).getSourceTaxonKey().toString(), String.valueOf(NAME_USAGE_KEY));
   }
 
+  @Test
+  public void testListParentsCached() {
+    List<NameUsage> parents = Lists.newArrayList(nameUsage);
+    when(mockNameUsageService.listParents(NAME_USAGE_KEY, locale)).thenReturn(parents);
+    when(mockNameUsageService.listParents(NAME_USAGE_KEY, Locale.GERMAN)).thenReturn(Lists.<NameUsage>newArrayList());
+
+    assertEquals(parents, resource.listParentsByNameUsage(NAME_USAGE_KEY, locale, page));
+    assertEquals(parents, resource.listParentsByNameUsage(NAME_USAGE_KEY, locale, page));
+    assertEquals(0, resource.listParentsByNameUsage(NAME_USAGE_KEY, Locale.GERMAN, page).size());
+    verify(mockNameUsageService, times(1)).listParents(NAME_USAGE_KEY, locale);
+    verify(mockNameUsageService, times(1)).listParents(NAME_USAGE_KEY, Locale.GERMAN);
+  }
+
   @Test
   public void testSearch() throws Exception {
     when(mockSearchService.search(Matchers.any(NameUsageSearchRequest.class))).thenReturn(searchResponse);
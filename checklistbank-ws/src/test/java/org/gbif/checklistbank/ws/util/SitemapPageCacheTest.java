@@ -0,0 +1,105 @@
+package org.gbif.checklistbank.ws.util;
+
+import org.gbif.api.model.Constants;
+import org.gbif.api.model.checklistbank.DatasetMetrics;
+import org.gbif.api.service.checklistbank.DatasetMetricsService;
+import org.gbif.checklistbank.service.mybatis.mapper.NameUsageMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SitemapPageCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private NameUsageMapper mapper;
+  private DatasetMetricsService metricsService;
+
+  @Before
+  public void setUp() throws Exception {
+    mapper = mock(NameUsageMapper.class);
+    when(mapper.listPageStarts(2)).thenReturn(Lists.newArrayList(1, 10, 12));
+    when(mapper.listFrom(10, 2)).thenReturn(Lists.newArrayList(10, 11));
+    DatasetMetrics m = new DatasetMetrics();
+    m.setCreated(new Date(1000));
+    metricsService = mock(DatasetMetricsService.class);
+    when(metricsService.get(Constants.NUB_DATASET_KEY)).thenReturn(m);
+  }
+
+  @Test
+  public void testPages() throws Exception {
+    SitemapPageCache cache = new SitemapPageCache(mapper, metricsService, "http://gbif.org/", folder.getRoot(), 2);
+    assertEquals(3, cache.pages());
+    assertEquals("http://gbif.org/10\nhttp://gbif.org/11\n", read(cache.openPage(2)));
+    assertNull(cache.openPage(4));
+    // cached on disk
+    read(cache.openPage(2));
+    verify(mapper, times(1)).listFrom(10, 2);
+
+    // a new cache instance with the same backbone reuses the page boundaries and files
+    cache = new SitemapPageCache(mapper, metricsService, "http://gbif.org/", folder.getRoot(), 2);
+    assertEquals(3, cache.pages());
+    read(cache.openPage(2));
+    verify(mapper, times(1)).listPageStarts(2);
+    verify(mapper, times(1)).listFrom(10, 2);
+  }
+
+  @Test
+  public void testBackboneChange() throws Exception {
+    SitemapPageCache cache = new SitemapPageCache(mapper, metricsService, "http://gbif.org/", folder.getRoot(), 2);
+    read(cache.openPage(2));
+
+    DatasetMetrics m2 = new DatasetMetrics();
+    m2.setCreated(new Date(2000));
+    when(metricsService.get(Constants.NUB_DATASET_KEY)).thenReturn(m2);
+    when(mapper.listPageStarts(2)).thenReturn(Lists.newArrayList(1));
+
+    cache = new SitemapPageCache(mapper, metricsService, "http://gbif.org/", folder.getRoot(), 2);
+    assertEquals(1, cache.pages());
+    assertNull(cache.openPage(2));
+    assertEquals(1, folder.getRoot().list().length);
+  }
+
+  /**
+   * A page opened before the backbone changed can still be streamed after the cache directory was cleaned.
+   */
+  @Test
+  public void testBackboneChangeWhileStreaming() throws Exception {
+    SitemapPageCache cache = new SitemapPageCache(mapper, metricsService, "http://gbif.org/", folder.getRoot(), 2);
+    try (InputStream in = cache.openPage(2)) {
+      DatasetMetrics m2 = new DatasetMetrics();
+      m2.setCreated(new Date(2000));
+      when(metricsService.get(Constants.NUB_DATASET_KEY)).thenReturn(m2);
+      cache = new SitemapPageCache(mapper, metricsService, "http://gbif.org/", folder.getRoot(), 2);
+      cache.pages();
+      assertFalse(new File(folder.getRoot(), "2.txt").exists());
+
+      assertEquals("http://gbif.org/10\nhttp://gbif.org/11\n", read(in));
+    }
+  }
+
+  private static String read(InputStream in) throws IOException {
+    try (InputStream stream = in) {
+      return IOUtils.toString(stream, Charsets.UTF_8);
+    }
+  }
+}